@@ -0,0 +1,134 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.bench;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
+import au.org.ands.vocabs.registry.db.internal.VocabularyJson;
+
+/** Benchmarks of {@link JSONSerialization}, covering round trips
+ * of {@link VocabularyJson} and of concept lists of the form generated
+ * by the JsonListTransformProvider. The concept list benchmarks
+ * compare the serialization of HashMaps, which Jackson sorts
+ * during serialization, with that of TreeMaps, which it doesn't. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("checkstyle:MagicNumber")
+public class JSONSerializationBenchmark {
+
+    /** The number of concepts in the concept list. */
+    @Param({"1000", "100000"})
+    @SuppressWarnings("checkstyle:VisibilityModifier")
+    public int conceptCount;
+
+    /** Serialized VocabularyJson data. */
+    private static final String VOCABULARY_JSON = "{\"subjects\":"
+            + "[{\"label\":\"INFORMATION AND COMPUTING SCIENCES\","
+            + "\"source\":\"anzsrc-for\",\"iri\":\"http://purl.org/"
+            + "au-research/vocabulary/anzsrc-for/2008/08\"}],"
+            + "\"other-languages\":[\"fr\",\"de\"],"
+            + "\"top-concepts\":[\"Topic 1\",\"Topic 2\"],"
+            + "\"acronym\":\"BENCH\",\"creation-date\":\"2017-01-01\","
+            + "\"description\":\"A vocabulary used for benchmarking.\","
+            + "\"licence\":\"CC-BY\",\"primary-language\":\"en\","
+            + "\"revision-cycle\":\"Frequently\","
+            + "\"title\":\"Benchmark vocabulary\"}";
+
+    /** Type reference used to deserialize concept lists. */
+    private static final TypeReference<TreeMap<String,
+        TreeMap<String, Object>>> CONCEPT_LIST_TYPE =
+            new TypeReference<TreeMap<String, TreeMap<String, Object>>>() { };
+
+    /** Concept list, built using HashMaps. */
+    private HashMap<String, HashMap<String, Object>> hashConceptMap;
+
+    /** Concept list, built using TreeMaps. */
+    private TreeMap<String, TreeMap<String, Object>> treeConceptMap;
+
+    /** Serialized concept list. */
+    private String conceptListJson;
+
+    /** Create the test data. */
+    @Setup
+    public final void setup() {
+        hashConceptMap = new HashMap<>();
+        treeConceptMap = new TreeMap<>();
+        for (int i = conceptCount; i > 0; i--) {
+            String iri = "http://example.com/voc/c" + i;
+            HashMap<String, Object> concept = new HashMap<>();
+            concept.put("prefLabel", "Concept " + i);
+            concept.put("notation", Integer.toString(i));
+            if (i > 1) {
+                concept.put("broader",
+                        Arrays.asList("http://example.com/voc/c" + (i / 2)));
+            }
+            hashConceptMap.put(iri, concept);
+            treeConceptMap.put(iri, new TreeMap<>(concept));
+        }
+        conceptListJson =
+                JSONSerialization.serializeObjectAsJsonString(hashConceptMap);
+    }
+
+    /** Benchmark serialization of a concept list built using HashMaps.
+     * @return The serialized concept list.
+     */
+    @Benchmark
+    public final String serializeConceptListHashMap() {
+        return JSONSerialization.serializeObjectAsJsonString(hashConceptMap);
+    }
+
+    /** Benchmark serialization of a concept list built using TreeMaps.
+     * @return The serialized concept list.
+     */
+    @Benchmark
+    public final String serializeConceptListTreeMap() {
+        return JSONSerialization.serializeObjectAsJsonString(treeConceptMap);
+    }
+
+    /** Benchmark a round trip of a concept list: deserialization
+     * into TreeMaps, followed by serialization.
+     * @return The serialized concept list.
+     */
+    @Benchmark
+    public final String roundTripConceptList() {
+        TreeMap<String, TreeMap<String, Object>> conceptMap =
+                JSONSerialization.deserializeStringAsJson(conceptListJson,
+                        CONCEPT_LIST_TYPE);
+        return JSONSerialization.serializeObjectAsJsonString(conceptMap);
+    }
+
+    /** Benchmark a round trip of a VocabularyJson: deserialization
+     * followed by serialization.
+     * @return The serialized VocabularyJson.
+     */
+    @Benchmark
+    public final String roundTripVocabularyJson() {
+        VocabularyJson vocabularyJson =
+                JSONSerialization.deserializeStringAsJson(VOCABULARY_JSON,
+                        VocabularyJson.class);
+        return JSONSerialization.serializeObjectAsJsonString(vocabularyJson);
+    }
+
+}
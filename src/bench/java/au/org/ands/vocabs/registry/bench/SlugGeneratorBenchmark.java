@@ -0,0 +1,54 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import au.org.ands.vocabs.registry.utils.SlugGenerator;
+
+/** Benchmark of {@link SlugGenerator}, over a mix of vocabulary
+ * titles, owner names, and version titles. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("checkstyle:MagicNumber")
+public class SlugGeneratorBenchmark {
+
+    /** Inputs to the slug generator. */
+    private static final String[] INPUTS = {
+        "Australian and New Zealand Standard Research Classification "
+                + "(ANZSRC): Fields of Research",
+        "ANZSRC-FOR", "Version 1.1", "2017-06-01", "Number 9",
+        "Gänsefüßchen", "Γειά σας नमस्ते 你好", "Dzień dobry!",
+        "Commonwealth Scientific and Industrial Research Organisation",
+        "GA", "Geoscience Australia Thesaurus: Rock Types (Lithology)",
+        "Ngā Kupu Māori", "Vocabulário Controlado", "Тезаурус",
+    };
+
+    /** Benchmark generation of slugs.
+     * @param blackhole Blackhole into which the results are consumed.
+     */
+    @Benchmark
+    @OperationsPerInvocation(14)
+    public final void generateSlugs(final Blackhole blackhole) {
+        for (String input : INPUTS) {
+            blackhole.consume(SlugGenerator.generateSlug(input));
+        }
+    }
+
+}
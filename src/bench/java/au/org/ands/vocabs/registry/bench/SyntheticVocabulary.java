@@ -0,0 +1,164 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.SKOS;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.Rio;
+
+/** A synthetic SKOS vocabulary of configurable size, generated
+ * on the fly, for use as input to benchmarks.
+ *
+ * The vocabulary has one concept scheme. The concepts form a tree
+ * with a fixed branching factor: the children of concept <i>p</i>
+ * are the concepts <i>p</i>&times;{@link #BRANCHING_FACTOR} to
+ * <i>p</i>&times;{@link #BRANCHING_FACTOR} + {@link #BRANCHING_FACTOR}
+ * &minus; 1. Concepts with no parent are top concepts of the
+ * concept scheme. Each concept has an English prefLabel and
+ * a dotted notation; some concepts also have a French prefLabel,
+ * an altLabel, and a definition. Both skos:broader and skos:narrower
+ * are asserted.
+ *
+ * The generated data is completely determined by the number of
+ * concepts, so that results can be compared across runs.
+ */
+public final class SyntheticVocabulary {
+
+    /** The number of children of each non-leaf concept. */
+    public static final int BRANCHING_FACTOR = 10;
+
+    /** Namespace of the generated resources. */
+    public static final String NAMESPACE = "http://example.com/bench/";
+
+    /** The primary language of the vocabulary. */
+    public static final String PRIMARY_LANGUAGE = "en";
+
+    /** Every this many concepts has a French prefLabel. */
+    private static final int FRENCH_INTERVAL = 2;
+
+    /** Every this many concepts has an altLabel. */
+    private static final int ALT_LABEL_INTERVAL = 3;
+
+    /** Every this many concepts has a definition. */
+    private static final int DEFINITION_INTERVAL = 5;
+
+    /** Estimate of the number of statements generated per concept,
+     * used to size the list of statements. */
+    private static final int STATEMENTS_PER_CONCEPT = 8;
+
+    /** The generated statements. */
+    private final List<Statement> statements;
+
+    /** Constructor.
+     * @param conceptCount The number of concepts to generate.
+     */
+    public SyntheticVocabulary(final int conceptCount) {
+        ValueFactory vf = ValueFactoryImpl.getInstance();
+        statements = new ArrayList<>(conceptCount * STATEMENTS_PER_CONCEPT);
+        URI scheme = vf.createURI(NAMESPACE, "scheme");
+        statements.add(vf.createStatement(scheme, RDF.TYPE,
+                SKOS.CONCEPT_SCHEME));
+        statements.add(vf.createStatement(scheme, SKOS.PREF_LABEL,
+                vf.createLiteral("Synthetic vocabulary", PRIMARY_LANGUAGE)));
+        // Element 0 is unused.
+        String[] notations = new String[conceptCount + 1];
+        for (int i = 1; i <= conceptCount; i++) {
+            URI concept = conceptURI(vf, i);
+            int parent = i / BRANCHING_FACTOR;
+            if (parent == 0) {
+                notations[i] = Integer.toString(i);
+            } else {
+                notations[i] = notations[parent] + "."
+                        + (i % BRANCHING_FACTOR + 1);
+            }
+            statements.add(vf.createStatement(concept, RDF.TYPE,
+                    SKOS.CONCEPT));
+            statements.add(vf.createStatement(concept, SKOS.IN_SCHEME,
+                    scheme));
+            statements.add(vf.createStatement(concept, SKOS.PREF_LABEL,
+                    vf.createLiteral("Concept " + notations[i],
+                            PRIMARY_LANGUAGE)));
+            statements.add(vf.createStatement(concept, SKOS.NOTATION,
+                    vf.createLiteral(notations[i])));
+            if (i % FRENCH_INTERVAL == 0) {
+                statements.add(vf.createStatement(concept, SKOS.PREF_LABEL,
+                        vf.createLiteral("Concept " + notations[i], "fr")));
+            }
+            if (i % ALT_LABEL_INTERVAL == 0) {
+                statements.add(vf.createStatement(concept, SKOS.ALT_LABEL,
+                        vf.createLiteral("Alternative " + i,
+                                PRIMARY_LANGUAGE)));
+            }
+            if (i % DEFINITION_INTERVAL == 0) {
+                statements.add(vf.createStatement(concept, SKOS.DEFINITION,
+                        vf.createLiteral("The definition of concept " + i,
+                                PRIMARY_LANGUAGE)));
+            }
+            if (parent == 0) {
+                statements.add(vf.createStatement(scheme,
+                        SKOS.HAS_TOP_CONCEPT, concept));
+                statements.add(vf.createStatement(concept,
+                        SKOS.TOP_CONCEPT_OF, scheme));
+            } else {
+                URI parentConcept = conceptURI(vf, parent);
+                statements.add(vf.createStatement(concept, SKOS.BROADER,
+                        parentConcept));
+                statements.add(vf.createStatement(parentConcept,
+                        SKOS.NARROWER, concept));
+            }
+        }
+    }
+
+    /** Create the URI of a concept.
+     * @param vf The ValueFactory to use.
+     * @param i The number of the concept.
+     * @return The URI of the concept.
+     */
+    private static URI conceptURI(final ValueFactory vf, final int i) {
+        return vf.createURI(NAMESPACE, "c" + i);
+    }
+
+    /** Get the generated statements.
+     * @return The generated statements.
+     */
+    public List<Statement> getStatements() {
+        return statements;
+    }
+
+    /** Send all of the generated statements to an RDF handler,
+     * in the same way that a parser would.
+     * @param handler The handler to which the statements are sent.
+     * @throws RDFHandlerException If the handler throws an exception.
+     */
+    public void replay(final RDFHandler handler) throws RDFHandlerException {
+        handler.startRDF();
+        for (Statement st : statements) {
+            handler.handleStatement(st);
+        }
+        handler.endRDF();
+    }
+
+    /** Serialize the generated statements.
+     * @param format The RDF format to use.
+     * @return The serialized statements.
+     * @throws RDFHandlerException If serialization fails.
+     */
+    public byte[] serialize(final RDFFormat format)
+            throws RDFHandlerException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Rio.write(statements, out, format);
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,4 @@
+/** See the file "LICENSE" for the full license governing this code. */
+/** JMH microbenchmarks of Registry code. Run them using the
+ * Ant {@code bench} target. */
+package au.org.ands.vocabs.registry.bench;
@@ -0,0 +1,142 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils.language;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import au.org.ands.vocabs.registry.utils.RegistryConfig;
+
+/** Benchmarks of the language subtag registry: parsing of the
+ * registry file itself, and parsing of language tags.
+ * The registry file is the one specified by the
+ * {@code Registry.lsr} property. */
+@State(Scope.Benchmark)
+@Fork(1)
+@SuppressWarnings("checkstyle:MagicNumber")
+public class LanguageSubtagRegistryBenchmark {
+
+    /** Language tags to be parsed. These are the tags used
+     * in the test suite, both valid and invalid. */
+    private static final String[] TAGS = {
+        "en", "en-gb", "en-CA", "en-MT", "de", "es", "es-UY", "fr",
+        "in", "it", "ja", "mi", "ru", "am-Ethi", "my-BU",
+        "EN-CYRL-Gb", "EN-LATN-Gb", "sr-Latn-BA", "zh-Hant-TW",
+        "sl-IT-biske", "sl-IT-biske-rozaj", "sl-rozaj-biske",
+        "ja-Latn-heploc", "tlh-Kore-AQ-fonipa",
+        "ja-JP-u-ca-japanese-x-lvariant-JP",
+        "th-TH-u-nu-thai-x-lvariant-TH",
+        "art-lojban", "cel-gaulish", "zh-wuu", "zh-Hans-cmn-CN",
+        "English", "Turkish", "", "-en", "en-", "en--GB", "en-GB-DE",
+        "en-GX", "en-Latx", "en-a-bbb", "en-toooolong",
+        "en-t-bbb-t-ccc", "en-x-abc-x-def", "x-abc", "u-abcd-t-efgh",
+    };
+
+    /** Language tags to be parsed. These are the values used as
+     * languages in the test fixtures: vocabulary metadata, and the
+     * language tags of literals in the RDF data. Most of them are
+     * valid; the language names are not. */
+    private static final String[] FIXTURE_TAGS = {
+        "en", "en-ca", "eng", "de", "fr",
+        "Armenian", "Basque", "Catalan", "Danish", "Dutch", "Estonian",
+        "Finnish", "French", "German2", "Hungarian", "Irish", "Italian",
+        "Norwegian", "Portuguese", "Romanian", "Russian", "Spanish",
+        "Swedish", "Turkish",
+    };
+
+    /** The language subtag registry. */
+    private LanguageSubtagRegistry lsr;
+
+    /** Temporary directory into which the registry parser writes
+     * its output. */
+    private Path lsrDirectory;
+
+    /** Get the language subtag registry, forcing it to be parsed
+     * before measurement begins, and create the temporary directory.
+     * @throws IOException If the temporary directory can't be created.
+     */
+    @Setup
+    public final void setup() throws IOException {
+        lsr = LanguageSubtagRegistry.getLSR();
+        lsrDirectory = Files.createTempDirectory("lsr-bench");
+    }
+
+    /** Remove the temporary directory.
+     * @throws IOException If the temporary directory can't be removed.
+     */
+    @TearDown
+    public final void tearDown() throws IOException {
+        FileUtils.deleteDirectory(lsrDirectory.toFile());
+    }
+
+    /** Benchmark parsing of language tags.
+     * @param blackhole Blackhole into which the results are consumed.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @OperationsPerInvocation(45)
+    public final void parseTags(final Blackhole blackhole) {
+        for (String tag : TAGS) {
+            blackhole.consume(lsr.parseTag(tag));
+        }
+    }
+
+    /** Benchmark parsing of the language tags used in the test fixtures.
+     * Run with {@code -prof gc} to confirm that the only allocation
+     * is that of the results.
+     * @param blackhole Blackhole into which the results are consumed.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @OperationsPerInvocation(24)
+    public final void parseFixtureTags(final Blackhole blackhole) {
+        for (String tag : FIXTURE_TAGS) {
+            blackhole.consume(lsr.parseTag(tag));
+        }
+    }
+
+    /** Benchmark parsing of the registry file, including the
+     * generation of the XML and JSON files derived from it.
+     * @return The parser.
+     * @throws IOException If there is an error creating one of the
+     *      output files.
+     * @throws JAXBException If there is an error marshalling the registry
+     *      into XML.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public final LanguageSubtagRegistryParser parseRegistry()
+            throws IOException, JAXBException {
+        return new LanguageSubtagRegistryParser(RegistryConfig.LSR_FILE_PATH,
+                lsrDirectory);
+    }
+
+}
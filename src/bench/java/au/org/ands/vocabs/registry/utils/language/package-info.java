@@ -0,0 +1,8 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+/** Benchmarks of the parsing of the IANA language subtag registry,
+ * and of language tags. They are in the same package as the classes
+ * being benchmarked, so that they can invoke the registry parser
+ * directly.
+ */
+package au.org.ands.vocabs.registry.utils.language;
@@ -0,0 +1,220 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.transform;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
+
+import au.org.ands.vocabs.registry.bench.SyntheticVocabulary;
+import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
+import au.org.ands.vocabs.registry.db.entity.BrowseFlagsParsed;
+import au.org.ands.vocabs.registry.enums.BrowseFlag;
+import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.ConceptResult;
+import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.ResourceOrRef;
+import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.StatementHandler;
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.ResourceBucketStore;
+
+/** Benchmarks of the RDF handlers of the JsonList, ResourceDocs,
+ * and ConceptTree transform providers, run over a
+ * {@link SyntheticVocabulary}. The statements are generated once,
+ * in advance, and replayed into a fresh handler for each invocation,
+ * so that (except for {@link #jsonListParseAndHandle()}) the cost
+ * of RDF parsing is not included.
+ *
+ * The ConceptTree benchmarks include sorting of the forest,
+ * either by prefLabel, or (using {@code NotationComparator}) by notation.
+ *
+ * To benchmark a million-concept vocabulary, run with, e.g.,
+ * {@code -Dbench-args="-p conceptCount=1000000"}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@SuppressWarnings("checkstyle:MagicNumber")
+public class TransformProvidersBenchmark {
+
+    /** The number of concepts in the synthetic vocabulary. */
+    @Param({"10000", "100000"})
+    @SuppressWarnings("checkstyle:VisibilityModifier")
+    public int conceptCount;
+
+    /** The synthetic vocabulary. */
+    private SyntheticVocabulary vocabulary;
+
+    /** The directory used by the ResourceDocs benchmark that
+     * writes resources to disk. */
+    private Path spillDirectory;
+
+    /** The synthetic vocabulary, serialized as Turtle. */
+    private byte[] vocabularyTurtle;
+
+    /** The browse flags used by the ConceptTree benchmark that
+     * sorts by prefLabel. */
+    private BrowseFlagsParsed bfParsedPrefLabel;
+
+    /** The browse flags used by the ConceptTree benchmark that
+     * sorts by notation. */
+    private BrowseFlagsParsed bfParsedNotation;
+
+    /** Generate the synthetic vocabulary.
+     * @throws IOException If the temporary directory can not be created.
+     * @throws RDFHandlerException If serialization of the vocabulary
+     *      fails.
+     */
+    @Setup
+    public final void setup() throws IOException, RDFHandlerException {
+        vocabulary = new SyntheticVocabulary(conceptCount);
+        spillDirectory = Files.createTempDirectory("resource-docs-bench-");
+        vocabularyTurtle = vocabulary.serialize(RDFFormat.TURTLE);
+        bfParsedPrefLabel = new BrowseFlagsParsed(new ArrayList<>());
+        List<BrowseFlag> browseFlags = new ArrayList<>();
+        browseFlags.add(BrowseFlag.MAY_SORT_BY_NOTATION);
+        browseFlags.add(BrowseFlag.DEFAULT_SORT_BY_NOTATION);
+        browseFlags.add(BrowseFlag.NOTATION_DOTTED);
+        bfParsedNotation = new BrowseFlagsParsed(browseFlags);
+    }
+
+    /** Remove the temporary directory created by {@link #setup()}.
+     * @throws IOException If the directory can not be removed.
+     */
+    @TearDown
+    public final void tearDown() throws IOException {
+        Files.deleteIfExists(spillDirectory);
+    }
+
+    /** Benchmark the JsonList transform provider's handler.
+     * @return The serialized concept map.
+     * @throws RDFHandlerException If the handler throws an exception.
+     */
+    @Benchmark
+    public final String jsonList() throws RDFHandlerException {
+        JsonListTransformProvider.ConceptHandler conceptHandler =
+                new JsonListTransformProvider().new ConceptHandler();
+        vocabulary.replay(conceptHandler);
+        return JSONSerialization.serializeObjectAsJsonString(
+                conceptHandler.getConceptMap());
+    }
+
+    /** Benchmark parsing the Turtle serialization of the vocabulary
+     * into the JsonList transform provider's handler.
+     * @return The concept map.
+     * @throws IOException If reading the Turtle fails.
+     * @throws RDFParseException If parsing the Turtle fails.
+     * @throws RDFHandlerException If the handler throws an exception.
+     */
+    @Benchmark
+    public final TreeMap<String, TreeMap<String, Object>>
+    jsonListParseAndHandle()
+            throws IOException, RDFParseException, RDFHandlerException {
+        JsonListTransformProvider.ConceptHandler conceptHandler =
+                new JsonListTransformProvider().new ConceptHandler();
+        RDFParser rdfParser = Rio.createParser(RDFFormat.TURTLE);
+        rdfParser.setRDFHandler(conceptHandler);
+        rdfParser.parse(new ByteArrayInputStream(vocabularyTurtle),
+                SyntheticVocabulary.NAMESPACE);
+        return conceptHandler.getConceptMap();
+    }
+
+    /** Benchmark the ResourceDocs transform provider's handler,
+     * keeping all resources in memory.
+     * @return The resource store.
+     * @throws RDFHandlerException If the handler throws an exception.
+     */
+    @Benchmark
+    public final ResourceBucketStore resourceDocs()
+            throws RDFHandlerException {
+        ResourceDocsTransformProvider.ResourceHandler resourceHandler =
+                new ResourceDocsTransformProvider().new ResourceHandler(
+                        new ResourceBucketStore(0, null));
+        vocabulary.replay(resourceHandler);
+        return resourceHandler.getResourceStore();
+    }
+
+    /** Benchmark the ResourceDocs transform provider's handler,
+     * writing resources to disk in runs of a quarter of the
+     * vocabulary, and then merging the runs.
+     * @return The number of resources.
+     * @throws IOException If writing or merging the runs fails.
+     * @throws RDFHandlerException If the handler throws an exception.
+     */
+    @Benchmark
+    public final int resourceDocsSpilled()
+            throws IOException, RDFHandlerException {
+        try (ResourceBucketStore resourceStore = new ResourceBucketStore(
+                Math.max(1, conceptCount / 4), spillDirectory)) {
+            ResourceDocsTransformProvider.ResourceHandler resourceHandler =
+                    new ResourceDocsTransformProvider().new ResourceHandler(
+                            resourceStore);
+            vocabulary.replay(resourceHandler);
+            int[] count = new int[1];
+            resourceStore.forEachResource((key, resource) -> count[0]++);
+            return count[0];
+        }
+    }
+
+    /** Run the ConceptTree transform provider's
+     * {@link StatementHandler}, including the construction of the
+     * forest and its serialization.
+     * @param bfParsed The browse flags to use.
+     * @return The serialized concept tree.
+     * @throws RDFHandlerException If the handler throws an exception.
+     */
+    private String conceptTree(final BrowseFlagsParsed bfParsed)
+            throws RDFHandlerException {
+        StatementHandler statementHandler = new StatementHandler(
+                SyntheticVocabulary.PRIMARY_LANGUAGE, bfParsed);
+        vocabulary.replay(statementHandler);
+        TreeSet<ResourceOrRef> conceptTree = statementHandler.buildForest();
+        ConceptResult conceptResult = new ConceptResult();
+        conceptResult.setForest(conceptTree);
+        return JSONSerialization.serializeObjectAsJsonString(conceptResult);
+    }
+
+    /** Benchmark the ConceptTree transform provider's
+     * {@link StatementHandler}, sorting by prefLabel.
+     * @return The serialized concept tree.
+     * @throws RDFHandlerException If the handler throws an exception.
+     */
+    @Benchmark
+    public final String conceptTreeByPrefLabel() throws RDFHandlerException {
+        return conceptTree(bfParsedPrefLabel);
+    }
+
+    /** Benchmark the ConceptTree transform provider's
+     * {@link StatementHandler}, sorting by dotted notation.
+     * @return The serialized concept tree.
+     * @throws RDFHandlerException If the handler throws an exception.
+     */
+    @Benchmark
+    public final String conceptTreeByNotation() throws RDFHandlerException {
+        return conceptTree(bfParsedNotation);
+    }
+
+}
@@ -0,0 +1,5 @@
+/** See the file "LICENSE" for the full license governing this code. */
+/** Benchmarks of the workflow transform providers. They are in
+ * the same package as the providers, so that they can use
+ * the providers' RDF handlers directly. */
+package au.org.ands.vocabs.registry.workflow.provider.transform;
@@ -28,6 +28,10 @@
   <xsl:param
       name="dao-package">au.org.ands.vocabs.registry.db.dao</xsl:param>
 
+  <!-- Package that contains the JSONSerialization class. -->
+  <xsl:param
+      name="converter-package">au.org.ands.vocabs.registry.db.converter</xsl:param>
+
   <!-- All other information required to turn the Liquibase data into Java
        code. E.g., name of the Java entity class, serial version UID,
        queries to generate, ...
@@ -123,6 +127,14 @@
     <xsl:variable name="entityListeners"
                   select="key('db-to-entity', lower-case(@tableName),
                           $db-entity-mapping)/@entityListeners" />
+    <!-- Whether or not historical rows of this entity may be moved
+         into a companion history table. If so, the fixed-time
+         queries also look in the history table, if that has been
+         enabled. See HistoryTables.java in the context package.
+    -->
+    <xsl:variable name="hasHistoryTable"
+                  select="key('db-to-entity', lower-case(@tableName),
+                          $db-entity-mapping)/@historyTable='true'" />
     <!-- Whether or not this entity has columns for
          start/end date/time used to support history.
          This is used to decide whether or not to include temporal
@@ -155,6 +167,15 @@
                   select="key('db-to-entity', lower-case(@tableName),
                           $db-entity-mapping)/extraQueries/extraQuery
                           [@type='update']" />
+    <!-- Whether or not this entity caches the deserialization
+         of its data column. This is used to decide whether or not
+         to import the JSONSerialization class.
+    -->
+    <xsl:variable name="cacheParsedData"
+                  select="(dcl:column[lower-case(@name)='data'])
+                          and
+                          (key('db-to-entity', lower-case(@tableName),
+                          $db-entity-mapping)/@cacheParsedData='true')" />
     <!-- The directory into which the generated entity class will go.
          Based on the entity class's package name. -->
     <xsl:variable name="entity-output-directory"
@@ -209,6 +230,9 @@ import javax.persistence.Table;
 <xsl:text>import </xsl:text><xsl:value-of select="$context-package"/>.TemporalUtils;
 /* import static <xsl:value-of select="$context-package"/>.TemporalUtils.E1; */
 
+</xsl:if>
+<xsl:if test="$cacheParsedData">
+<xsl:text>import </xsl:text><xsl:value-of select="$converter-package"/>.JSONSerialization;
 </xsl:if>
 <!-- Import enumerated types -->
 <xsl:for-each select="key('db-to-entity', lower-case(@tableName),
@@ -397,6 +421,9 @@ import javax.persistence.EntityManager;
 </xsl:if><xsl:text>import javax.persistence.TypedQuery;
 
 import </xsl:text><xsl:value-of select="$context-package"/>.DBContext;
+<xsl:if test="$hasHistoryTable">
+<xsl:text>import </xsl:text><xsl:value-of select="$context-package"/>.HistoryTables;
+</xsl:if>
 <xsl:if test="$requiresTemporalUtils">
 <xsl:text>import </xsl:text><xsl:value-of select="$context-package"/>.TemporalUtils;
 </xsl:if>
@@ -647,7 +674,13 @@ public final class <xsl:value-of select="$entityName" />DAO {
                 setParameter("id", id).
                 setParameter(TemporalUtils.FIXED_TIME_PARAMETER, fixedTime);
         List&lt;<xsl:value-of select="$entityName" />&gt; entityList = q.getResultList();
-        if (entityList.isEmpty()) {
+<xsl:if test="$hasHistoryTable">        if (entityList.isEmpty() &amp;&amp; HistoryTables.isEnabled()) {
+            HistoryTables.addFixedTimeRows(em, entityList,
+                    <xsl:value-of select="$entityName" />.class,
+                    <xsl:value-of select="$entityName" />.TABLE_NAME,
+                    "<xsl:value-of select="lower-case($idKey/@keyColumn)" />", id, fixedTime);
+        }
+</xsl:if>        if (entityList.isEmpty()) {
             return null;
         }
         return entityList.get(0);
@@ -658,6 +691,7 @@ public final class <xsl:value-of select="$entityName" />DAO {
 <xsl:apply-templates select="$foreignKeyQueries" mode="method">
   <xsl:with-param name="entityName" select="$entityName" />
   <xsl:with-param name="addTemporalVersion" select="$idKey" />
+  <xsl:with-param name="hasHistoryTable" select="$hasHistoryTable" />
 </xsl:apply-templates>
 <xsl:apply-templates select="$extraQueries" mode="method">
 </xsl:apply-templates>    /** Save a new <xsl:value-of select="$entityName" /> to the database.
@@ -918,7 +952,8 @@ public final class <xsl:value-of select="$entityName" />DAO {
   -->
   <xsl:template match="foreignKeyQuery" mode="method">
     <xsl:param name="entityName" />
-    <xsl:param name="addTemporalVersion" />    /** Get all <xsl:value-of select="$entityName" /> instances for a <xsl:value-of select="@entityName" />.
+    <xsl:param name="addTemporalVersion" />
+    <xsl:param name="hasHistoryTable" />    /** Get all <xsl:value-of select="$entityName" /> instances for a <xsl:value-of select="@entityName" />.
      * @param id The <xsl:value-of select="@entityName" />Id.
      * @return The list of <xsl:value-of select="$entityName" /> instances
      *     for this <xsl:value-of select="@entityName" />.
@@ -1076,7 +1111,13 @@ public final class <xsl:value-of select="$entityName" />DAO {
                         id).
                 setParameter(TemporalUtils.FIXED_TIME_PARAMETER, fixedTime);
         List&lt;<xsl:value-of select="$entityName" />&gt; entityList = q.getResultList();
-        return entityList;
+<xsl:if test="$hasHistoryTable">        if (HistoryTables.isEnabled()) {
+            HistoryTables.addFixedTimeRows(em, entityList,
+                    <xsl:value-of select="$entityName" />.class,
+                    <xsl:value-of select="$entityName" />.TABLE_NAME,
+                    "<xsl:value-of select="lower-case(replace(@keyColumn, '([A-Z])', '_$1'))" />", id, fixedTime);
+        }
+</xsl:if>        return entityList;
     }
 
 </xsl:if>
@@ -1202,6 +1243,13 @@ public final class <xsl:value-of select="$entityName" />DAO {
         <xsl:with-param name="text" select="lower-case(@name)" />
       </xsl:call-template>
     </xsl:variable>
+    <!-- Whether this is a data column, the deserialization of which
+         is to be cached. -->
+    <xsl:variable name="isCachedDataColumn"
+                  select="lower-case(@name)='data'
+                          and
+                          key('db-to-entity', ../lower-case(@tableName),
+                          $db-entity-mapping)/@cacheParsedData='true'" />
     <!-- Javadoc for the field. If the column has
          a remarks attribute, include that. -->
     <xsl:text>    /** </xsl:text>
@@ -1229,7 +1277,7 @@ public final class <xsl:value-of select="$entityName" />DAO {
      */
 </xsl:text>
 <xsl:value-of select="$extraAnnotations" />
-<xsl:text>    @Column(name = "</xsl:text><xsl:value-of select="lower-case(@name)" />"<xsl:value-of select="$extraColumnAnnotation" />, nullable = false)
+<xsl:text>    @Column(name = "</xsl:text><xsl:value-of select="lower-case(@name)" />"<xsl:value-of select="$extraColumnAnnotation" /><xsl:if test="dcl:constraints/@nullable='false'">, nullable = false</xsl:if>)
     public <xsl:value-of select="$fieldType" /> get<xsl:value-of select="$methodName" />() {
         return <xsl:value-of select="$fieldName" />;
     }
@@ -1244,9 +1292,50 @@ public final class <xsl:value-of select="$entityName" />DAO {
     <xsl:value-of select="$formalParameterName" />) {
         <xsl:value-of select="$fieldName" /> = <xsl:value-of select="$formalParameterName" />
         <xsl:text>;
+</xsl:text>
+<xsl:if test="$isCachedDataColumn">        parsedData = null;
+</xsl:if>
+<xsl:text>    }
+
+</xsl:text>
+<xsl:if test="$isCachedDataColumn">
+<xsl:text>    /** The deserialization of data, as most recently requested
+     * by an invocation of {@link #getDataAs(Class)}, or null, if there
+     * has not yet been such an invocation since data was last set.
+     * It is not persisted, and it is not included in serialization. */
+    private transient Object parsedData;
+
+    /** Get the value of data, deserialized as an instance of a
+     * JSON storage class. The result of deserialization is cached,
+     * so that repeated invocations with the same class do not
+     * parse data again. The cache is invalidated by
+     * {@link #setData(String)}.
+     * The result is shared with other callers of this method,
+     * so it is read-only: it must not be modified, and nor may
+     * any of the objects and collections it contains. Callers that
+     * pass it on must copy values out of it, as the DB-to-schema
+     * mappers do. A caller that needs to modify
+     * the result must instead invoke
+     * {@link JSONSerialization#deserializeStringAsJson(String, Class)}
+     * to get its own instance.
+     * @param &lt;T&gt; Type parameter of the JSON storage class.
+     * @param jsonClass The JSON storage class, e.g., VocabularyJson.
+     * @return The deserialization of data as an instance of jsonClass,
+     *      or null, if data is null or could not be deserialized.
+     */
+    public &lt;T&gt; T getDataAs(final Class&lt;T&gt; jsonClass) {
+        if (data == null) {
+            return null;
+        }
+        if (!jsonClass.isInstance(parsedData)) {
+            parsedData = JSONSerialization.deserializeStringAsJson(
+                    data, jsonClass);
+        }
+        return jsonClass.cast(parsedData);
     }
 
 </xsl:text>
+</xsl:if>
 </xsl:template>
 
   <!-- The following templates based on the accepted answer at
@@ -0,0 +1,96 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.api.admin;
+
+import java.lang.invoke.MethodHandles;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import org.apache.http.HttpStatus;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.jax.rs.annotations.Pac4JProfile;
+import org.pac4j.jax.rs.annotations.Pac4JSecurity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.org.ands.vocabs.registry.api.auth.AuthUtils;
+import au.org.ands.vocabs.registry.api.context.AdminApiPaths;
+import au.org.ands.vocabs.registry.api.context.ResponseUtils;
+import au.org.ands.vocabs.registry.api.context.SwaggerInterface;
+import au.org.ands.vocabs.registry.api.user.ErrorResult;
+import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
+import au.org.ands.vocabs.registry.log.Logging;
+import au.org.ands.vocabs.registry.utils.OutboundMetrics;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import io.swagger.annotations.Authorization;
+import io.swagger.annotations.ResponseHeader;
+
+/** REST web services for getting the metrics of requests made
+ * by the registry to external services. These methods are
+ * for admin users only. */
+@Path(AdminApiPaths.API_ADMIN + "/" + AdminApiPaths.NETWORK
+        + "/" + AdminApiPaths.METRICS)
+@Api(value = SwaggerInterface.TAG_ADMIN,
+        authorizations = {@Authorization(value = SwaggerInterface.BASIC_AUTH),
+        @Authorization(value = SwaggerInterface.API_KEY_AUTH)})
+public class AdminNetworkMetrics {
+
+    /** Logger for this class. */
+    private Logger logger = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** Get the metrics of requests made to external services,
+     * for each destination, since the registry was started.
+     * @param request The HTTP request.
+     * @param uriInfo The UriInfo of the request.
+     * @param profile The caller's security profile.
+     * @return The metrics, in JSON format. */
+    @Produces(MediaType.APPLICATION_JSON)
+    @Pac4JSecurity
+    @GET
+    @ApiOperation(value = "Get the metrics of requests made to "
+            + "external services.",
+            notes = "This method is only available to administrator users. "
+            + "The result is a JSON object, whose keys are destinations. "
+            + "Times are in milliseconds.")
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpStatus.SC_UNAUTHORIZED,
+                    message = "Not authenticated",
+                    response = ErrorResult.class,
+                    responseHeaders = {
+                            @ResponseHeader(name = "WWW-Authenticate",
+                                    response = String.class)
+                            }),
+            @ApiResponse(code = HttpStatus.SC_FORBIDDEN,
+                    message = "Not authenticated, or not authorized",
+                    response = ErrorResult.class)
+            })
+    public Response getNetworkMetrics(
+            @Context final HttpServletRequest request,
+            @Context final UriInfo uriInfo,
+            @ApiParam(hidden = true) @Pac4JProfile
+            final CommonProfile profile) {
+        logger.debug("called getNetworkMetrics");
+
+        if (!AuthUtils.profileIsSuperuser(profile)) {
+            return ResponseUtils.generateForbiddenResponseNotSuperuser();
+        }
+
+        Logging.logRequest(true, request, uriInfo, profile,
+                "Admin: get network metrics");
+        return Response.ok(JSONSerialization.serializeObjectAsJsonString(
+                OutboundMetrics.getSnapshot())).build();
+    }
+
+}
@@ -21,9 +21,21 @@ public final class AdminApiPaths {
     /** Subpath for email notification methods. */
     public static final String EMAIL = "email";
 
+    /** Subpath for database history table methods. */
+    public static final String HISTORY = "history";
+
     /** Subpath for model methods. */
     public static final String MODEL = "model";
 
+    /** Subpath for PoolParty metadata cache methods. */
+    public static final String POOLPARTY_CACHE = "poolPartyCache";
+
+    /** Subpath for network methods. */
+    public static final String NETWORK = "network";
+
+    /** Subpath for metrics methods. */
+    public static final String METRICS = "metrics";
+
     /** Subpath for notification methods. */
     public static final String NOTIFICATION = "notification";
 
@@ -42,6 +54,12 @@ public final class AdminApiPaths {
     /** Subpath for task set resources. */
     public static final String TASK_SET = "taskSet";
 
+    /** Subpath for batch job resources. */
+    public static final String BATCH_JOBS = "batchJobs";
+
+    /** Path parameter name for a batch job resource. */
+    public static final String BATCH_JOB_ID = "{batchJobId}";
+
     /** Path parameter name for a task resource. */
     public static final String TASK_ID = "{taskId}";
 
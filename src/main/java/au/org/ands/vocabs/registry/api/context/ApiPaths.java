@@ -56,6 +56,9 @@ public final class ApiPaths {
     /** Subpath for version artefact resources that are concept trees. */
     public static final String VERSION_ARTEFACTS_CONCEPT_TREE = "conceptTree";
 
+    /** Subpath for the nodes of concept trees. */
+    public static final String CONCEPT_TREE_NODES = "nodes";
+
     /** Subpath for file uploads. */
     public static final String UPLOADS = "uploads";
 
@@ -73,6 +76,9 @@ public final class ApiPaths {
     /** Path parameter name for a version resource. */
     public static final String VERSION_ID = "{versionId}";
 
+    /** Path parameter name for a node of a concept tree. */
+    public static final String NODE_ID = "{nodeId}";
+
     /** Path parameter name for a related entity resource. */
     public static final String RELATED_ENTITY_ID = "{relatedEntityId}";
 
@@ -122,4 +128,8 @@ public final class ApiPaths {
 
     /** Subpath for language lookups. */
     public static final String LANGUAGES = "languages";
+
+    /** Subpath for the language subtag registry. */
+    public static final String LANGUAGE_SUBTAG_REGISTRY =
+            "languageSubtagRegistry";
 }
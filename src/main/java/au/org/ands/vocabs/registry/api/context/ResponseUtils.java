@@ -2,9 +2,16 @@
 
 package au.org.ands.vocabs.registry.api.context;
 
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import au.org.ands.vocabs.registry.api.user.ErrorResult;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
 
 /** Utility methods to support generation of JAX-RS Responses. */
 public final class ResponseUtils {
@@ -55,4 +62,109 @@ public final class ResponseUtils {
                 entity(new ErrorResult(message)).build();
     }
 
+    /** The name of the gzip content encoding. */
+    private static final String GZIP = "gzip";
+
+    /** The name of the legacy x-gzip content encoding, which
+     * is to be treated as equivalent to gzip. */
+    private static final String X_GZIP = "x-gzip";
+
+    /** The name of the wildcard content encoding. */
+    private static final String ANY_ENCODING = "*";
+
+    /** Does the request allow a gzip-encoded response?
+     * @param headers The headers of the request.
+     * @return true, if the Accept-Encoding header of the request
+     *      allows gzip encoding, either explicitly or by means of
+     *      a wildcard.
+     */
+    public static boolean acceptsGzip(final HttpHeaders headers) {
+        return acceptsGzip(
+                headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    /** Do the values of the Accept-Encoding header of a request allow
+     * a gzip-encoded response? All of the codings are considered before
+     * deciding, as an explicit gzip (or x-gzip) coding takes precedence
+     * over the wildcard, regardless of the order in which they are given.
+     * A quality value of zero means "not acceptable".
+     * @param acceptEncodings The values of the Accept-Encoding header,
+     *      or null, if there is no such header.
+     * @return true, if gzip encoding is allowed.
+     */
+    static boolean acceptsGzip(final List<String> acceptEncodings) {
+        if (acceptEncodings == null) {
+            return false;
+        }
+        // The highest quality values given for gzip/x-gzip, and
+        // for the wildcard, or null, if not given.
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String acceptEncoding : acceptEncodings) {
+            for (String coding : acceptEncoding.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                boolean isGzip = GZIP.equals(name) || X_GZIP.equals(name);
+                if (!isGzip && !ANY_ENCODING.equals(name)) {
+                    continue;
+                }
+                double quality = 1;
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim().
+                            toLowerCase(Locale.ROOT);
+                    if (param.startsWith("q=")) {
+                        try {
+                            quality = Double.parseDouble(
+                                    param.substring(2));
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+                if (isGzip) {
+                    if (gzipQuality == null || quality > gzipQuality) {
+                        gzipQuality = quality;
+                    }
+                } else {
+                    if (anyQuality == null || quality > anyQuality) {
+                        anyQuality = quality;
+                    }
+                }
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return anyQuality != null && anyQuality > 0;
+    }
+
+    /** Generate a response builder with status code
+     * {@link Response.Status#OK} that returns the contents of a file.
+     * If the request allows gzip encoding, and there is an
+     * up-to-date gzip-compressed copy of the file (as written by
+     * {@link RegistryFileUtils#writeGzipCompressedCopy}),
+     * the compressed copy is returned as is, with a Content-Encoding
+     * header. In all cases, the response has a Vary header, so that
+     * caches distinguish the two encodings, and a Content-Length header.
+     * @param file The file to be returned.
+     * @param headers The headers of the request.
+     * @return The generated ResponseBuilder, to which further
+     *      headers may be added.
+     */
+    public static ResponseBuilder generateFileResponse(final File file,
+            final HttpHeaders headers) {
+        File entityFile = file;
+        ResponseBuilder builder = Response.ok().
+                header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(headers)) {
+            File gzFile = RegistryFileUtils.getGzipCompressedCopy(file);
+            if (gzFile != null) {
+                entityFile = gzFile;
+                builder.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+            }
+        }
+        return builder.entity(entityFile).
+                header(HttpHeaders.CONTENT_LENGTH, entityFile.length());
+    }
+
 }
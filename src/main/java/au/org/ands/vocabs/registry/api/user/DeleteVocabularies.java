@@ -21,7 +21,6 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.http.HttpStatus;
-import org.apache.solr.client.solrj.impl.BaseHttpSolrClient.RemoteSolrException;
 import org.pac4j.core.profile.CommonProfile;
 import org.pac4j.jax.rs.annotations.Pac4JProfile;
 import org.pac4j.jax.rs.annotations.Pac4JSecurity;
@@ -43,7 +42,7 @@ import au.org.ands.vocabs.registry.log.Analytics;
 import au.org.ands.vocabs.registry.log.Logging;
 import au.org.ands.vocabs.registry.model.ModelMethods;
 import au.org.ands.vocabs.registry.model.VocabularyModel;
-import au.org.ands.vocabs.registry.solr.EntityIndexer;
+import au.org.ands.vocabs.registry.solr.IndexingQueue;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -206,8 +205,8 @@ public class DeleteVocabularies {
                         Analytics.TITLE_FIELD, currentTitle,
                         Analytics.ENTITY_STATUS_FIELD, currentStatus,
                         Analytics.OWNER_FIELD, currentOwner);
-                // Solr unindexing.
-                EntityIndexer.unindexVocabulary(vocabularyId);
+                // Solr unindexing, done in the background.
+                IndexingQueue.getQueue().unindex(vocabularyId);
             }
             // Successful deletion, and no response body. noContent() creates
             // status code 204.
@@ -224,11 +223,6 @@ public class DeleteVocabularies {
             } else {
                 logger.error("Exception other than during transaction: ", t);
             }
-            if (t instanceof RemoteSolrException) {
-                // The vocabulary has been deleted, but it couldn't be
-                // unindexed. Oops.
-                logger.error("Solr unindexing failed");
-            }
             if (t instanceof IllegalArgumentException) {
                 // There was a validation error.
                 return ErrorResultUtils.badRequest(
@@ -2,8 +2,6 @@
 package au.org.ands.vocabs.registry.api.user;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
 import java.net.MalformedURLException;
@@ -21,6 +19,8 @@ import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -30,8 +30,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import au.org.ands.vocabs.registry.api.context.ApiPaths;
+import au.org.ands.vocabs.registry.api.context.ResponseUtils;
 import au.org.ands.vocabs.registry.api.context.SwaggerInterface;
-import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.dao.AccessPointDAO;
 import au.org.ands.vocabs.registry.db.dao.VersionDAO;
 import au.org.ands.vocabs.registry.db.dao.VocabularyDAO;
@@ -128,6 +128,8 @@ public class Download {
      * method does not include a filename, but allows for a format
      * query parameter.
      * @param response Asynchronous response for this request
+     * @param headers The headers of the request, used to determine
+     *      if a gzip-encoded response is acceptable.
      * @param accessPointId Access point id. The id of the access point
      *      in the access_points database table.
      * @param downloadFormat The download format. This may be
@@ -161,6 +163,7 @@ public class Download {
                     response = String.class)})
     public void download(
             @Suspended final AsyncResponse response,
+            @Context final HttpHeaders headers,
             @ApiParam(value = "The Id of the download.")
             @PathParam("downloadId")
             final int accessPointId,
@@ -191,7 +194,7 @@ public class Download {
             // and the downloadFormat parameter may need some care
             // (i.e., it may be wrong, but the wrongness may or may not be
             // a problem).
-            fileDownload(response, ap);
+            fileDownload(response, headers, ap);
             break;
         case SESAME_DOWNLOAD:
             // Have a look at the downloadFormat before proceeding.
@@ -226,6 +229,7 @@ public class Download {
      * extension variable is assigned only the component after
      * the last period.
      * @param response Asynchronous response for this request
+     * @param headers The headers of the request.
      * @param accessPointId Access point id.
      * @param filename The filename specified in the URL. This may
      * be ignored in constructing the response headers.
@@ -257,6 +261,7 @@ public class Download {
                     response = String.class)})
     public void downloadWithFilename(
             @Suspended final AsyncResponse response,
+            @Context final HttpHeaders headers,
             @ApiParam(value = "The Id of the download.")
             @PathParam("downloadId")
             final int accessPointId,
@@ -272,17 +277,18 @@ public class Download {
         logger.info("Called downloadWithFilename: " + accessPointId
                 + ", filename: " + filename
                 + ", extension: " + extension);
-        download(response, accessPointId, extension);
+        download(response, headers, accessPointId, extension);
     }
 
-    /** Return a file download.
+    /** Return a file download. If the client accepts gzip encoding,
+     * the precompressed copy of the file is returned, if there is one.
      * @param response The response back to the browser.
+     * @param headers The headers of the request.
      * @param ap The access point.
      */
     private void fileDownload(final AsyncResponse response,
-            final AccessPoint ap) {
-        ApFile apFile = JSONSerialization.deserializeStringAsJson(ap.getData(),
-                ApFile.class);
+            final HttpHeaders headers, final AccessPoint ap) {
+        ApFile apFile = ap.getDataAs(ApFile.class);
         String format = apFile.getFormat();
         if (format == null) {
             response.resume(Response.status(Status.NOT_FOUND).
@@ -313,20 +319,17 @@ public class Download {
                     + apFile.getUrl(), e);
         }
 
-        InputStream fileStream;
-        try {
-            fileStream = new FileInputStream(
-                    new File(localPath));
-        } catch (FileNotFoundException e) {
+        File file = new File(localPath);
+        if (!file.isFile()) {
             logger.error("download: file not found: "
-                    + localPath, e);
+                    + localPath);
             response.resume(Response.status(Status.NOT_FOUND).
                     type(MediaType.TEXT_PLAIN).
                     entity("File not found").build());
             return;
         }
 
-        response.resume(Response.ok(fileStream).
+        response.resume(ResponseUtils.generateFileResponse(file, headers).
                         header("Content-Disposition",
                                 "attachment; filename="
                         + downloadFilename).
@@ -346,8 +349,7 @@ public class Download {
             final int accessPointId, final AccessPoint ap,
             final String downloadFormat, final String mimeType) {
         ApSesameDownload apSesameDownload =
-                JSONSerialization.deserializeStringAsJson(ap.getData(),
-                        ApSesameDownload.class);
+                ap.getDataAs(ApSesameDownload.class);
         String sesameUri = apSesameDownload.getServerBase();
 
         final String downloadFilename = downloadFilename(ap, downloadFormat);
@@ -0,0 +1,170 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.api.user;
+
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.Variant;
+
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.org.ands.vocabs.registry.api.context.ApiPaths;
+import au.org.ands.vocabs.registry.api.context.SwaggerInterface;
+import au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+/** REST web service for getting the language subtag registry. */
+@Path(ApiPaths.API_UTILITIES + "/" + ApiPaths.LANGUAGE_SUBTAG_REGISTRY)
+@Api(value = SwaggerInterface.TAG_UTILITIES)
+public class GetLanguageSubtagRegistry {
+
+    /** Logger for this class. */
+    private final Logger logger = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** The name of the gzip content encoding. */
+    private static final String GZIP = "gzip";
+
+    /** The variants of the registry that can be returned. The gzipped
+     * variants are returned using the pre-compressed files,
+     * so they are listed first. */
+    private static final List<Variant> VARIANTS = Arrays.asList(
+            new Variant(MediaType.APPLICATION_XML_TYPE, (String) null, GZIP),
+            new Variant(MediaType.APPLICATION_JSON_TYPE, (String) null, GZIP),
+            new Variant(MediaType.APPLICATION_XML_TYPE, (String) null, null),
+            new Variant(MediaType.APPLICATION_JSON_TYPE, (String) null, null));
+
+    /** The variants of the registry that are not gzipped. */
+    private static final List<Variant> IDENTITY_VARIANTS =
+            VARIANTS.subList(2, VARIANTS.size());
+
+    /** Decide whether a request explicitly accepts the gzip content
+     * encoding. A request without an Accept-Encoding header is treated
+     * by variant selection as accepting any encoding, but a client that
+     * doesn't send the header can't be relied upon to decode
+     * a gzipped response.
+     * @param headers The headers of the request.
+     * @return true, if the request has an Accept-Encoding header that
+     *      mentions gzip.
+     */
+    private static boolean acceptsGzip(final HttpHeaders headers) {
+        List<String> acceptEncodings =
+                headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncodings == null) {
+            return false;
+        }
+        for (String acceptEncoding : acceptEncodings) {
+            for (String coding : acceptEncoding.split(",")) {
+                // Strip any quality value; variant selection
+                // takes care of those.
+                if (GZIP.equalsIgnoreCase(coding.split(";")[0].trim())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Get the language subtag registry. The response includes an
+     * entity tag based on the checksum of the registry file, so that
+     * clients can make conditional requests.
+     * @param request The request, used for content negotiation and
+     *      to evaluate preconditions.
+     * @param headers The headers of the request, used to determine
+     *      whether a gzipped response is acceptable.
+     * @return The language subtag registry. */
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    @GET
+    @ApiOperation(value = "Get the language subtag registry.",
+            notes = "This is a representation of some of the data "
+                    + "contained in the IANA Language Subtag Registry. "
+                    + "The response is gzip-encoded, if the client accepts "
+                    + "that. The response has an ETag header, and "
+                    + "conditional requests using If-None-Match are "
+                    + "supported.")
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpStatus.SC_NOT_MODIFIED,
+                    message = "Not modified"),
+            @ApiResponse(code = HttpStatus.SC_NOT_ACCEPTABLE,
+                    message = "No acceptable representation"),
+            @ApiResponse(code = HttpStatus.SC_INTERNAL_SERVER_ERROR,
+                    message = "Language subtag registry not available",
+                    response = ErrorResult.class)
+            })
+    public Response getLanguageSubtagRegistry(
+            @Context final Request request,
+            @Context final HttpHeaders headers) {
+        List<Variant> variants = IDENTITY_VARIANTS;
+        if (acceptsGzip(headers)) {
+            variants = VARIANTS;
+        }
+        Variant variant = request.selectVariant(variants);
+        if (variant == null) {
+            return Response.notAcceptable(variants).build();
+        }
+        LanguageSubtagRegistry lsr = LanguageSubtagRegistry.getLSR();
+        boolean isXml = MediaType.APPLICATION_XML_TYPE.equals(
+                variant.getMediaType());
+        boolean isGzip = GZIP.equals(variant.getEncoding());
+        String filename;
+        String format;
+        if (isXml) {
+            format = "xml";
+            if (isGzip) {
+                filename = lsr.getLsrXmlGzFilename();
+            } else {
+                filename = lsr.getLsrXmlFilename();
+            }
+        } else {
+            format = "json";
+            if (isGzip) {
+                filename = lsr.getLsrJsonGzFilename();
+            } else {
+                filename = lsr.getLsrJsonFilename();
+            }
+        }
+        if (filename == null || !new File(filename).isFile()) {
+            logger.error("Language subtag registry file not available: "
+                    + filename);
+            return Response.status(Status.INTERNAL_SERVER_ERROR).
+                    entity(new ErrorResult("Language subtag registry "
+                            + "not available")).build();
+        }
+        String checksum = lsr.getSourceChecksum();
+        if (checksum == null) {
+            return Response.ok(new File(filename), variant).build();
+        }
+        // Each variant has its own entity tag.
+        String tag = checksum + "-" + format;
+        if (isGzip) {
+            tag = tag + "-" + GZIP;
+        }
+        EntityTag entityTag = new EntityTag(tag);
+        ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        return Response.ok(new File(filename), variant).tag(entityTag).
+                build();
+    }
+
+}
@@ -26,7 +26,6 @@ import org.slf4j.LoggerFactory;
 import au.org.ands.vocabs.registry.api.context.ApiPaths;
 import au.org.ands.vocabs.registry.api.context.SwaggerInterface;
 import au.org.ands.vocabs.registry.db.context.TemporalUtils;
-import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.dao.VocabularyDAO;
 import au.org.ands.vocabs.registry.db.internal.VocabularyJson;
 import au.org.ands.vocabs.registry.log.Analytics;
@@ -121,9 +120,8 @@ public class GetOwnedVocabularies {
                 newOwnedVocabulary.setStatus(vocabulary.getStatus());
                 newOwnedVocabulary.setOwner(vocabulary.getOwner());
                 newOwnedVocabulary.setSlug(vocabulary.getSlug());
-                VocabularyJson vocabularyJson = JSONSerialization.
-                        deserializeStringAsJson(vocabulary.getData(),
-                                VocabularyJson.class);
+                VocabularyJson vocabularyJson =
+                        vocabulary.getDataAs(VocabularyJson.class);
                 newOwnedVocabulary.setTitle(vocabularyJson.getTitle());
                 // This relies on the vocabularies that come back
                 // from the database being ordered by
@@ -3,7 +3,6 @@ package au.org.ands.vocabs.registry.api.user;
 
 import java.lang.invoke.MethodHandles;
 import java.util.HashMap;
-import java.util.Map;
 
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.DefaultValue;
@@ -21,9 +20,8 @@ import org.slf4j.LoggerFactory;
 
 import au.org.ands.vocabs.registry.api.context.ApiPaths;
 import au.org.ands.vocabs.registry.api.context.SwaggerInterface;
-import au.org.ands.vocabs.registry.workflow.provider.harvest.PoolPartyHarvestProvider;
-import au.org.ands.vocabs.registry.workflow.provider.transform.GetMetadataTransformProvider;
-import au.org.ands.vocabs.registry.workflow.tasks.TaskRunner;
+import au.org.ands.vocabs.registry.workflow.provider.harvest.PoolPartyMetadataCache;
+import au.org.ands.vocabs.registry.workflow.provider.harvest.PoolPartyMetadataCache.MetadataResult;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -44,7 +42,8 @@ public class GetPoolPartyMetadata {
     private Logger logger = LoggerFactory.getLogger(
             MethodHandles.lookup().lookupClass());
 
-    /** Get the list of PoolParty projects.
+    /** Get the list of PoolParty projects. The list is cached;
+     * see {@link PoolPartyMetadataCache}.
      * @param pPServerId PoolParty server id.
      * @return The list of PoolParty projects, in JSON format,
      * as returned by PoolParty. */
@@ -75,8 +74,7 @@ public class GetPoolPartyMetadata {
             @PathParam("serverId") @DefaultValue("1")
             final Integer pPServerId) {
         logger.debug("called getInfoPoolParty");
-        PoolPartyHarvestProvider provider = new PoolPartyHarvestProvider();
-        String response = provider.getInfo(pPServerId);
+        String response = PoolPartyMetadataCache.getProjects(pPServerId);
         if (response.startsWith("[")) {
             // The PoolParty server should respond with a JSON list.
             return Response.ok(response).build();
@@ -85,7 +83,8 @@ public class GetPoolPartyMetadata {
         }
     }
 
-    /** Get metadata for a PoolParty project.
+    /** Get metadata for a PoolParty project. The metadata is cached;
+     * see {@link PoolPartyMetadataCache}.
      * @param pPServerId PoolParty server id.
      * @param pPProjectId PoolParty project id.
      * @return The metadata for this PoolParty project, in JSON format,
@@ -122,18 +121,15 @@ public class GetPoolPartyMetadata {
             @PathParam("projectId") final String pPProjectId) {
         HashMap<String, Object> result = new HashMap<>();
         logger.info("called getMetadata/poolParty " + pPProjectId);
-        Map<String, String> harvestResults =
-                new PoolPartyHarvestProvider().getMetadata(
-                        pPServerId, pPProjectId);
-        if (harvestResults != null
-                && harvestResults.containsKey(TaskRunner.ERROR)) {
+        MetadataResult metadataResult =
+                PoolPartyMetadataCache.getMetadata(pPServerId, pPProjectId);
+        if (metadataResult.getHarvestError() != null) {
             // There was a problem getting the data from PoolParty,
             // so stop here.
-            return ErrorResultUtils.badRequest(harvestResults.get(
-                    TaskRunner.ERROR));
+            return ErrorResultUtils.badRequest(
+                    metadataResult.getHarvestError());
         }
-        result.putAll(new GetMetadataTransformProvider().
-                extractMetadata(pPProjectId));
+        result.putAll(metadataResult.getMetadata());
         return Response.ok(result).build();
     }
 }
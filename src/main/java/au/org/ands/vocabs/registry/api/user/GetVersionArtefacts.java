@@ -3,18 +3,24 @@
 package au.org.ands.vocabs.registry.api.user;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
@@ -24,9 +30,11 @@ import org.pac4j.jax.rs.annotations.Pac4JProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 import au.org.ands.vocabs.registry.api.context.ApiPaths;
+import au.org.ands.vocabs.registry.api.context.ResponseUtils;
 import au.org.ands.vocabs.registry.api.context.SwaggerInterface;
-import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.converter.VersionArtefactDbSchemaMapper;
 import au.org.ands.vocabs.registry.db.dao.VersionArtefactDAO;
 import au.org.ands.vocabs.registry.db.internal.VaConceptTree;
@@ -34,6 +42,7 @@ import au.org.ands.vocabs.registry.enums.VersionArtefactType;
 import au.org.ands.vocabs.registry.log.Logging;
 import au.org.ands.vocabs.registry.schema.vocabulary201701.VersionArtefact;
 import au.org.ands.vocabs.registry.schema.vocabulary201701.VersionArtefactList;
+import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.ConceptTreeIndex;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -104,7 +113,11 @@ public class GetVersionArtefacts {
     }
 
     /** Get the current concept tree for a version.
+     * If the client accepts gzip encoding, the precompressed copy
+     * of the concept tree is returned, if there is one.
      * @param request The HTTP request.
+     * @param headers The headers of the request, used to determine
+     *      if a gzip-encoded response is acceptable.
      * @param uriInfo The UriInfo of the request.
      * @param profile The caller's security profile.
      * @param versionId The VersionId of the version from which the
@@ -116,6 +129,8 @@ public class GetVersionArtefacts {
     @GET
     @ApiOperation(value = "Get the current concept tree of a version, "
             + "by its version id.",
+            notes = "The response is gzip-encoded, if the client accepts "
+                    + "that.",
             response = String.class)
     @ApiResponses(value = {
             @ApiResponse(code = HttpStatus.SC_BAD_REQUEST,
@@ -124,6 +139,7 @@ public class GetVersionArtefacts {
             })
     public Response getVersionArtefactConceptTree(
             @Context final HttpServletRequest request,
+            @Context final HttpHeaders headers,
             @Context final UriInfo uriInfo,
             @ApiParam(hidden = true) @Pac4JProfile final CommonProfile profile,
             @ApiParam(value = "The ID of the version from which to "
@@ -151,8 +167,7 @@ public class GetVersionArtefacts {
                 dbVAs.get(0);
 
         VaConceptTree conceptTree =
-                JSONSerialization.deserializeStringAsJson(treeVA.getData(),
-                        VaConceptTree.class);
+                treeVA.getDataAs(VaConceptTree.class);
 
         File conceptTreeFile = new File(conceptTree.getPath());
         if (!conceptTreeFile.exists()) {
@@ -162,7 +177,129 @@ public class GetVersionArtefacts {
                     + "file not found.").build();
         }
 
-        return Response.ok(conceptTreeFile).build();
+        return ResponseUtils.generateFileResponse(conceptTreeFile,
+                headers).build();
+    }
+
+    /** Get a node of the current concept tree for a version,
+     * and its descendants down to a specified depth. Only the
+     * parts of the concept tree needed to generate the response
+     * are read, so that browse widgets can fetch a large tree
+     * incrementally, rather than all at once.
+     * @param request The HTTP request.
+     * @param jaxrsRequest The JAX-RS request, used to evaluate
+     *      preconditions.
+     * @param uriInfo The UriInfo of the request.
+     * @param profile The caller's security profile.
+     * @param versionId The VersionId of the version from which the
+     *      concept tree is to be returned.
+     * @param nodeId The node Id of the node to be returned.
+     *      Node 0 is the top level of the tree.
+     * @param depth The depth of descendants of the node to be returned.
+     * @return The node and its descendants, in JSON format. */
+    @Path(ApiPaths.VERSION_ID + "/" + ApiPaths.VERSION_ARTEFACTS
+            + "/" + ApiPaths.VERSION_ARTEFACTS_CONCEPT_TREE
+            + "/" + ApiPaths.CONCEPT_TREE_NODES
+            + "/" + ApiPaths.NODE_ID)
+    @Produces({MediaType.APPLICATION_JSON})
+    @GET
+    @ApiOperation(value = "Get a node of the current concept tree of a "
+            + "version, by its version id and node id, along with "
+            + "its descendants down to the specified depth.",
+            notes = "Node 0 is the top level of the tree; its children "
+                    + "are the top-level resources of the forest. "
+                    + "Each node has the additional fields nodeId "
+                    + "and childCount; the children of nodes at the "
+                    + "specified depth are omitted. "
+                    + "The response has an ETag header, and "
+                    + "conditional requests using If-None-Match are "
+                    + "supported.",
+            response = String.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpStatus.SC_NOT_MODIFIED,
+                    message = "Not modified"),
+            @ApiResponse(code = HttpStatus.SC_BAD_REQUEST,
+                    message = "No current concept tree for that version, "
+                            + "or no such node.",
+                    response = String.class)
+            })
+    public Response getVersionArtefactConceptTreeNode(
+            @Context final HttpServletRequest request,
+            @Context final Request jaxrsRequest,
+            @Context final UriInfo uriInfo,
+            @ApiParam(hidden = true) @Pac4JProfile final CommonProfile profile,
+            @ApiParam(value = "The ID of the version from which to "
+                    + "get the concept tree.")
+            @PathParam("versionId") final Integer versionId,
+            @ApiParam(value = "The ID of the node of the concept tree.")
+            @PathParam("nodeId") final Integer nodeId,
+            @ApiParam(value = "The depth of descendants to return. "
+                    + "With depth 0, only the node itself is returned; "
+                    + "with depth 1, its immediate children are also "
+                    + "returned, and so on.",
+                    defaultValue = "1")
+            @QueryParam("depth") @DefaultValue("1") final int depth) {
+        logger.debug("called getVersionArtefactConceptTreeNode");
+
+        Logging.logRequest(true, request, uriInfo, profile,
+                "Getting version artefact concept tree node");
+        if (depth < 0) {
+            return Response.status(Status.BAD_REQUEST).entity(
+                    "Depth must not be negative.").build();
+        }
+        List<au.org.ands.vocabs.registry.db.entity.VersionArtefact>
+            dbVAs = VersionArtefactDAO.
+            getCurrentVersionArtefactListForVersionByType(versionId,
+                    VersionArtefactType.CONCEPT_TREE);
+
+        if (dbVAs == null || dbVAs.isEmpty()) {
+            return Response.status(Status.BAD_REQUEST).entity(
+                    "No current concept tree for that version.").
+                    build();
+        }
+
+        // As for getVersionArtefactConceptTree(), choose the "first".
+        VaConceptTree conceptTree =
+                dbVAs.get(0).getDataAs(VaConceptTree.class);
+
+        File conceptTreeFile = new File(conceptTree.getPath());
+        if (!conceptTreeFile.exists()) {
+            logger.info("getVersionArtefactConceptTreeNode: "
+                    + "file not found: " + conceptTree.getPath());
+            return Response.serverError().entity("Internal error: "
+                    + "file not found.").build();
+        }
+
+        // The tree file is replaced (not modified in place) when
+        // the concept tree is regenerated, so its modification time
+        // and length identify its content.
+        EntityTag entityTag = new EntityTag(
+                Long.toHexString(conceptTreeFile.lastModified())
+                + "-" + Long.toHexString(conceptTreeFile.length()));
+        ResponseBuilder notModified =
+                jaxrsRequest.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+
+        ObjectNode node;
+        try {
+            File indexFile = ConceptTreeIndex.ensureIndex(conceptTreeFile);
+            node = ConceptTreeIndex.getSubtree(conceptTreeFile, indexFile,
+                    nodeId, depth);
+        } catch (IOException e) {
+            logger.error("getVersionArtefactConceptTreeNode: "
+                    + "unable to read concept tree: "
+                    + conceptTree.getPath(), e);
+            return Response.serverError().entity("Internal error: "
+                    + "unable to read concept tree.").build();
+        }
+        if (node == null) {
+            return Response.status(Status.BAD_REQUEST).entity(
+                    "No such node in the concept tree.").build();
+        }
+
+        return Response.ok(node.toString()).tag(entityTag).build();
     }
 
 }
@@ -64,7 +64,7 @@ import au.org.ands.vocabs.registry.log.Analytics;
 import au.org.ands.vocabs.registry.log.Logging;
 import au.org.ands.vocabs.registry.schema.vocabulary201701.RelatedEntity;
 import au.org.ands.vocabs.registry.schema.vocabulary201701.RelatedEntityIdentifier;
-import au.org.ands.vocabs.registry.solr.EntityIndexer;
+import au.org.ands.vocabs.registry.solr.IndexingQueue;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -702,7 +702,7 @@ public class PutRelatedEntities {
                         logger.info("RE with ID " + relatedEntityId
                                 + " was updated; re-indexing vocabulary "
                                 + "with ID: " + vocabularyId);
-                        EntityIndexer.indexVocabulary(vocabularyId);
+                        IndexingQueue.getQueue().index(vocabularyId);
                     }
                 }
             }
@@ -24,7 +24,6 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.http.HttpStatus;
-import org.apache.solr.client.solrj.impl.BaseHttpSolrClient.RemoteSolrException;
 import org.pac4j.core.profile.CommonProfile;
 import org.pac4j.jax.rs.annotations.Pac4JProfile;
 import org.pac4j.jax.rs.annotations.Pac4JSecurity;
@@ -50,7 +49,7 @@ import au.org.ands.vocabs.registry.log.Logging;
 import au.org.ands.vocabs.registry.model.ModelMethods;
 import au.org.ands.vocabs.registry.model.VocabularyModel;
 import au.org.ands.vocabs.registry.schema.vocabulary201701.Vocabulary;
-import au.org.ands.vocabs.registry.solr.EntityIndexer;
+import au.org.ands.vocabs.registry.solr.IndexingQueue;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -177,8 +176,10 @@ public class PutVocabularies {
             } else {
                 newVocabularyResponse =
                         ModelMethods.getCurrent(vm, true, true, true);
-                // Solr indexing.
-                EntityIndexer.indexVocabulary(newVocabularyId);
+                // Solr indexing, done in the background. Failures are
+                // retried, and counted in the status of the queue
+                // (adminApi/solr/indexQueue).
+                IndexingQueue.getQueue().index(newVocabularyId);
             }
             return Response.created(EntityPaths.getURIOfEntity(
                     newVocabularyResponse)).
@@ -195,11 +196,6 @@ public class PutVocabularies {
             } else {
                 logger.error("Exception other than during transaction: ", t);
             }
-            if (t instanceof RemoteSolrException) {
-                // The vocabulary has been created, but it couldn't be
-                // indexed. Oops.
-                logger.error("Solr indexing failed");
-            }
             if (t instanceof IllegalArgumentException) {
                 // There was a validation error.
                 ErrorResult errorResult =
@@ -384,8 +380,10 @@ public class PutVocabularies {
             } else {
                 updatedVocabularyResponse =
                         ModelMethods.getCurrent(vm, true, true, true);
-                // Solr indexing.
-                EntityIndexer.indexVocabulary(updatedVocabularyId);
+                // Solr indexing, done in the background. Failures are
+                // retried, and counted in the status of the queue
+                // (adminApi/solr/indexQueue).
+                IndexingQueue.getQueue().index(updatedVocabularyId);
             }
             return Response.ok(EntityPaths.getURIOfEntity(
                     updatedVocabularyResponse)).
@@ -402,12 +400,6 @@ public class PutVocabularies {
             } else {
                 logger.error("Exception other than during transaction: ", t);
             }
-            if (t instanceof RemoteSolrException) {
-                // The vocabulary has been updated, but it couldn't be
-                // indexed. Oops.
-                logger.error("Solr indexing failed");
-                // We fall through to returning an internal server error.
-            }
             if (t instanceof IllegalArgumentException) {
                 // There was a validation error.
                 Logging.logRequest(false, request, uriInfo, profile,
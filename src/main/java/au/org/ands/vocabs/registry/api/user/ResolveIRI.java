@@ -21,7 +21,6 @@ import org.slf4j.LoggerFactory;
 
 import au.org.ands.vocabs.registry.api.context.ApiPaths;
 import au.org.ands.vocabs.registry.api.context.SwaggerInterface;
-import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.dao.AccessPointDAO;
 import au.org.ands.vocabs.registry.db.dao.ResourceMapEntryDAO;
 import au.org.ands.vocabs.registry.db.entity.AccessPoint;
@@ -205,8 +204,7 @@ public class ResolveIRI {
             final ResourceMapEntry rme) {
         AccessPoint ap = AccessPointDAO.getCurrentAccessPointByAccessPointId(
                 rme.getAccessPointId());
-        ApSissvoc apSissvoc = JSONSerialization.deserializeStringAsJson(
-                ap.getData(), ApSissvoc.class);
+        ApSissvoc apSissvoc = ap.getDataAs(ApSissvoc.class);
         return apSissvoc.getUrlPrefix() + RESOURCE_ENDPOINT + rme.getIri();
     }
 
@@ -0,0 +1,200 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.api.validation;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.org.ands.vocabs.registry.db.dao.SubjectResolverEntryDAO;
+import au.org.ands.vocabs.registry.db.dao.SubjectResolverSourceDAO;
+import au.org.ands.vocabs.registry.db.entity.SubjectResolverEntry;
+import au.org.ands.vocabs.registry.db.entity.SubjectResolverSource;
+
+/** An immutable, in-memory copy of the contents of the
+ * subject_resolver_sources and subject_resolver tables,
+ * used to validate and resolve subjects without querying
+ * the database for each subject.
+ *
+ * <p>Those tables are only modified by {@link
+ * au.org.ands.vocabs.registry.db.utils.PopulateSubjectResolver},
+ * which calls {@link #refresh()} when it has finished. The current
+ * index is loaded when first needed, and replaced atomically
+ * by {@link #refresh()}; callers that get the index
+ * using {@link #getIndex()} see either the old or the new index,
+ * but never a mixture.</p>
+ */
+public final class SubjectResolverIndex {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** A resolved subject: its label and notation. */
+    public static final class ResolvedSubject {
+
+        /** The label of the subject. */
+        private final String label;
+
+        /** The notation of the subject. */
+        private final String notation;
+
+        /** Constructor.
+         * @param aLabel The label of the subject.
+         * @param aNotation The notation of the subject.
+         */
+        ResolvedSubject(final String aLabel, final String aNotation) {
+            label = aLabel;
+            notation = aNotation;
+        }
+
+        /** Get the label of the subject.
+         * @return The label of the subject.
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /** Get the notation of the subject.
+         * @return The notation of the subject.
+         */
+        public String getNotation() {
+            return notation;
+        }
+    }
+
+    /** The current index, or null, if it has not yet been loaded. */
+    private static volatile SubjectResolverIndex current;
+
+    /** The sources for which subjects can be resolved. */
+    private final Set<String> sources;
+
+    /** The subjects, keyed by source, then by IRI. */
+    private final Map<String, Map<String, ResolvedSubject>> subjects;
+
+    /** The IRIs that have more than one entry for the same source.
+     * Such subjects are valid, but are not resolved, as there is
+     * no way to choose between the entries. */
+    private final Map<String, Set<String>> ambiguous;
+
+    /** Constructor.
+     * @param aSources The sources for which subjects can be resolved.
+     * @param aSubjects The subjects, keyed by source, then by IRI.
+     * @param anAmbiguous The IRIs that have more than one entry
+     *      for the same source, keyed by source.
+     */
+    private SubjectResolverIndex(final Set<String> aSources,
+            final Map<String, Map<String, ResolvedSubject>> aSubjects,
+            final Map<String, Set<String>> anAmbiguous) {
+        sources = aSources;
+        subjects = aSubjects;
+        ambiguous = anAmbiguous;
+    }
+
+    /** Load a new index from the database.
+     * @return The new index.
+     */
+    private static SubjectResolverIndex load() {
+        Set<String> sources = new HashSet<>();
+        for (SubjectResolverSource source
+                : SubjectResolverSourceDAO.getAllSubjectResolverSource()) {
+            sources.add(source.getSource());
+        }
+        List<SubjectResolverEntry> entries =
+                SubjectResolverEntryDAO.getAllSubjectResolverEntry();
+        Map<String, Map<String, ResolvedSubject>> subjects = new HashMap<>();
+        Map<String, Set<String>> ambiguous = new HashMap<>();
+        for (SubjectResolverEntry entry : entries) {
+            ResolvedSubject previous = subjects.computeIfAbsent(
+                    entry.getSource(), k -> new HashMap<>()).
+                    put(entry.getIri(), new ResolvedSubject(
+                            entry.getLabel(), entry.getNotation()));
+            if (previous != null) {
+                ambiguous.computeIfAbsent(entry.getSource(),
+                        k -> new HashSet<>()).add(entry.getIri());
+            }
+        }
+        LOGGER.info("Loaded subject resolver index: " + sources.size()
+                + " sources, " + entries.size() + " entries");
+        return new SubjectResolverIndex(Collections.unmodifiableSet(sources),
+                Collections.unmodifiableMap(subjects),
+                Collections.unmodifiableMap(ambiguous));
+    }
+
+    /** Get the current index, loading it from the database
+     * if it has not yet been loaded.
+     * @return The current index.
+     */
+    public static SubjectResolverIndex getIndex() {
+        SubjectResolverIndex index = current;
+        if (index == null) {
+            synchronized (SubjectResolverIndex.class) {
+                index = current;
+                if (index == null) {
+                    index = load();
+                    current = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Reload the index from the database, and replace the
+     * current index with it. */
+    public static synchronized void refresh() {
+        current = load();
+    }
+
+    /** Discard the current index, so that it is reloaded
+     * when next needed. The production code should never call this!
+     * It's provided only for use in the test suite.
+     */
+    public static synchronized void reset() {
+        current = null;
+    }
+
+    /** Decide if subjects from a source can be resolved.
+     * @param source The subject source.
+     * @return true, if subjects from the source can be resolved.
+     */
+    public boolean isResolvingSource(final String source) {
+        return sources.contains(source);
+    }
+
+    /** Decide if a subject resolves.
+     * @param source The subject source.
+     * @param iri The IRI of the subject.
+     * @return true, if the source/IRI is valid.
+     */
+    public boolean doesSubjectResolve(final String source,
+            final String iri) {
+        Map<String, ResolvedSubject> sourceSubjects = subjects.get(source);
+        return sourceSubjects != null && sourceSubjects.containsKey(iri);
+    }
+
+    /** Resolve a subject.
+     * @param source The subject source.
+     * @param iri The IRI of the subject.
+     * @return The resolved subject, or null, if the subject does
+     *      not resolve to exactly one entry.
+     */
+    public ResolvedSubject resolve(final String source, final String iri) {
+        Map<String, ResolvedSubject> sourceSubjects = subjects.get(source);
+        if (sourceSubjects == null) {
+            return null;
+        }
+        Set<String> sourceAmbiguous = ambiguous.get(source);
+        if (sourceAmbiguous != null && sourceAmbiguous.contains(iri)) {
+            return null;
+        }
+        return sourceSubjects.get(iri);
+    }
+
+}
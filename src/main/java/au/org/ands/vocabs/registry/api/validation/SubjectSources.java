@@ -3,12 +3,7 @@
 package au.org.ands.vocabs.registry.api.validation;
 
 import java.util.HashSet;
-import java.util.List;
 
-import au.org.ands.vocabs.registry.db.dao.SubjectResolverEntryDAO;
-import au.org.ands.vocabs.registry.db.dao.SubjectResolverSourceDAO;
-import au.org.ands.vocabs.registry.db.entity.SubjectResolverEntry;
-import au.org.ands.vocabs.registry.db.entity.SubjectResolverSource;
 import au.org.ands.vocabs.registry.schema.vocabulary201701.Vocabulary.Subject;
 
 /** Determine the validity of subject sources specified in vocabulary metadata.
@@ -44,14 +39,6 @@ public final class SubjectSources {
         VALID_SUBJECT_SOURCES.add(LOCAL);
     }
 
-    /** Set of subject sources for which IRIs can be resolved
-     * to labels and notations. */
-    private static final HashSet<String> RESOLVING_SUBJECT_SOURCES =
-            new HashSet<>();
-
-    /** Is {@link RESOLVING_SUBJECT_SOURCES} populated? */
-    private static boolean resolvingSubjectSourcesPopulated = false;
-
     /** Decide if a String is a valid subject source.
      * @param testString The String to be validated.
      * @return true, if testString represents a valid subject source.
@@ -65,41 +52,17 @@ public final class SubjectSources {
      * @return true, if subject must include an IRI.
      */
     public static boolean subjectRequiresIRI(final Subject subject) {
-        if (!resolvingSubjectSourcesPopulated) {
-            populateResolvingSubjectSources();
-        }
-        return RESOLVING_SUBJECT_SOURCES.contains(subject.getSource());
-    }
-
-    /** Populate the {@link RESOLVING_SUBJECT_SOURCES} set with
-     * the sources for which we can resolve subjects.
-     */
-    private static void populateResolvingSubjectSources() {
-        if (resolvingSubjectSourcesPopulated) {
-            // Already done.
-            return;
-        }
-        List<SubjectResolverSource> subjectResolverSources =
-                SubjectResolverSourceDAO.getAllSubjectResolverSource();
-        for (SubjectResolverSource subjectResolverSource
-                : subjectResolverSources) {
-            RESOLVING_SUBJECT_SOURCES.add(subjectResolverSource.getSource());
-        }
-        resolvingSubjectSourcesPopulated = true;
+        return SubjectResolverIndex.getIndex().isResolvingSource(
+                subject.getSource());
     }
 
-    /** Reset the {@link RESOLVING_SUBJECT_SOURCES} set and
-     * the {@link resolvingSubjectSourcesPopulated} flag.
+    /** Reset the in-memory copy of the subject resolver,
+     * so that it is reloaded from the database when next needed.
      * The production code should never call this! It's provided
      * only for use in the test suite.
      */
     public static void resetResolvingSubjectSources() {
-        if (!resolvingSubjectSourcesPopulated) {
-            // Already done.
-            return;
-        }
-        RESOLVING_SUBJECT_SOURCES.clear();
-        resolvingSubjectSourcesPopulated = false;
+        SubjectResolverIndex.reset();
     }
 
     /** Decide if a Subject that has a source for which we resolve subjects,
@@ -109,8 +72,8 @@ public final class SubjectSources {
      * @return true, if subject has a valid IRI for this subject source.
      */
     public static boolean subjectHasValidIRI(final Subject subject) {
-        return SubjectResolverEntryDAO.doesSubjectResolve(subject.getSource(),
-                subject.getIri());
+        return SubjectResolverIndex.getIndex().doesSubjectResolve(
+                subject.getSource(), subject.getIri());
     }
 
     /** Resolve a Subject, based on its source and iri values.
@@ -121,12 +84,12 @@ public final class SubjectSources {
      * @param subject The subject to be resolved.
      */
     public static void resolveSubject(final Subject subject) {
-        List<SubjectResolverEntry> subjectResolverEntries =
-                SubjectResolverEntryDAO.getSubjectResolverEntries(
+        SubjectResolverIndex.ResolvedSubject resolvedSubject =
+                SubjectResolverIndex.getIndex().resolve(
                         subject.getSource(), subject.getIri());
-        if (subjectResolverEntries.size() == 1) {
-            subject.setLabel(subjectResolverEntries.get(0).getLabel());
-            subject.setNotation(subjectResolverEntries.get(0).getNotation());
+        if (resolvedSubject != null) {
+            subject.setLabel(resolvedSubject.getLabel());
+            subject.setNotation(resolvedSubject.getNotation());
         }
     }
 
@@ -0,0 +1,212 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.db.context;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import au.org.ands.vocabs.registry.db.entity.AccessPoint;
+import au.org.ands.vocabs.registry.db.entity.Version;
+import au.org.ands.vocabs.registry.db.entity.Vocabulary;
+import au.org.ands.vocabs.registry.utils.PropertyConstants;
+import au.org.ands.vocabs.registry.utils.RegistryProperties;
+
+/** Support for the optional storage of historical rows of temporal
+ * tables in companion history tables.
+ *
+ * <p>If history tables are enabled, rows of the tables that have
+ * a history table (as specified by the {@code historyTable}
+ * attribute in registry-db-entity-map.xml) that are no longer current
+ * (i.e., with an end date in the past) may be moved into the history
+ * table by {@link #archive(EntityManager, String, LocalDateTime)}.
+ * The history table has the same name as the table, with the suffix
+ * {@link #HISTORY_TABLE_SUFFIX}, and the same columns, in the same order.
+ * The history tables are created by the Liquibase changelog
+ * registry-history-tables.xml, which is not applied by default.</p>
+ *
+ * <p>Queries for current and draft rows only ever look at the
+ * main tables. Fixed-time queries (and the few other queries that
+ * need historical rows) also look in the history tables, if history
+ * tables are enabled. The history tables are queried using native SQL,
+ * with the results mapped to the same entity classes as the main
+ * tables.</p>
+ */
+public final class HistoryTables {
+
+    /** Private constructor for a utility class. */
+    private HistoryTables() {
+    }
+
+    /** The suffix added to the name of a table to give the name of
+     * its history table. */
+    public static final String HISTORY_TABLE_SUFFIX = "_history";
+
+    /** Whether or not history tables are enabled. Initialized from
+     * the Registry properties; may be changed by tests. */
+    private static volatile boolean enabled = Boolean.parseBoolean(
+            RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_DB_HISTORYTABLES, "false"));
+
+    /** The names of the tables that have history tables. */
+    private static final String[] TABLE_NAMES = {Vocabulary.TABLE_NAME,
+            Version.TABLE_NAME, AccessPoint.TABLE_NAME};
+
+    /** The name of the key parameter to use in native queries. */
+    private static final String KEY_PARAMETER = "key";
+
+    /** The name of the cutoff parameter to use in native queries. */
+    private static final String CUTOFF_PARAMETER = "cutoff";
+
+    /** Are history tables enabled?
+     * @return true, if history tables are enabled.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Enable or disable the use of history tables, overriding the
+     * setting in the Registry properties. Intended for use by tests,
+     * which create the history tables themselves.
+     * @param anEnabled Whether or not history tables are to be enabled.
+     */
+    public static void setEnabled(final boolean anEnabled) {
+        enabled = anEnabled;
+    }
+
+    /** Get the names of the tables that have history tables.
+     * @return The names of the tables that have history tables.
+     */
+    public static String[] getTableNames() {
+        return TABLE_NAMES.clone();
+    }
+
+    /** Add to a list of entities the rows of a history table that were
+     * valid at a fixed time, and which have a specified value
+     * (or one of a collection of values) for a key column.
+     * Rows that are already in the list are not added again. (That
+     * can happen if the rows were moved into the history table
+     * in between the query of the main table and this query.)
+     * @param <T> The entity class.
+     * @param em The EntityManager to be used.
+     * @param entityList The list of entities fetched from the main table,
+     *      to which the rows of the history table are added.
+     * @param entityClass The entity class.
+     * @param tableName The name of the main table.
+     * @param keyColumn The name of the key column.
+     * @param key The value of the key column, or a Collection of
+     *      values. If it is a Collection, it must not be empty.
+     * @param fixedTime The fixed time.
+     */
+    public static <T> void addFixedTimeRows(final EntityManager em,
+            final List<T> entityList,
+            final Class<T> entityClass, final String tableName,
+            final String keyColumn, final Object key,
+            final LocalDateTime fixedTime) {
+        @SuppressWarnings("unchecked")
+        List<T> historyList = em.createNativeQuery(
+                "SELECT * FROM " + tableName + HISTORY_TABLE_SUFFIX
+                + " WHERE " + keyColumn + " IN (:" + KEY_PARAMETER + ")"
+                + " AND start_date <= :" + TemporalUtils.FIXED_TIME_PARAMETER
+                + " AND end_date > :" + TemporalUtils.FIXED_TIME_PARAMETER,
+                entityClass).
+                setParameter(KEY_PARAMETER, key).
+                setParameter(TemporalUtils.FIXED_TIME_PARAMETER, fixedTime).
+                getResultList();
+        if (historyList.isEmpty()) {
+            return;
+        }
+        // Rows with the same id are resolved by the EntityManager to
+        // the same instance, so compare by identity.
+        Set<T> alreadyPresent =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        alreadyPresent.addAll(entityList);
+        for (T entity : historyList) {
+            if (alreadyPresent.add(entity)) {
+                entityList.add(entity);
+            }
+        }
+    }
+
+    /** Get the most recent row of a history table that has a specified
+     * value for a key column.
+     * @param <T> The entity class.
+     * @param em The EntityManager to be used.
+     * @param entityClass The entity class.
+     * @param tableName The name of the main table.
+     * @param keyColumn The name of the key column.
+     * @param key The value of the key column.
+     * @return A list containing the most recent row with that key value,
+     *      or an empty list, if there is no such row.
+     */
+    public static <T> List<T> getLastList(final EntityManager em,
+            final Class<T> entityClass, final String tableName,
+            final String keyColumn, final Object key) {
+        @SuppressWarnings("unchecked")
+        List<T> historyList = em.createNativeQuery(
+                "SELECT * FROM " + tableName + HISTORY_TABLE_SUFFIX
+                + " WHERE " + keyColumn + " = :" + KEY_PARAMETER
+                + " ORDER BY start_date DESC",
+                entityClass).
+                setParameter(KEY_PARAMETER, key).
+                setMaxResults(1).
+                getResultList();
+        return historyList;
+    }
+
+    /** Move the rows of a table that ceased to be valid before
+     * a cutoff time into the table's history table. Draft and
+     * currently-valid rows are never moved, as their end dates
+     * are in the future.
+     * This method uses an existing EntityManager
+     * provided as a parameter; transaction begin/end must be
+     * managed by the caller. The rows are copied and deleted in
+     * two statements; only rows that have been copied are deleted,
+     * so it is safe for other transactions to be ending the validity
+     * of rows at the same time.
+     * @param em The EntityManager to be used.
+     * @param tableName The name of the main table.
+     * @param cutoff Rows with an end date before this time are moved.
+     * @return The number of rows moved.
+     */
+    public static int archive(final EntityManager em,
+            final String tableName, final LocalDateTime cutoff) {
+        String historyTableName = tableName + HISTORY_TABLE_SUFFIX;
+        em.createNativeQuery("INSERT INTO " + historyTableName
+                + " SELECT * FROM " + tableName
+                + " WHERE end_date < :" + CUTOFF_PARAMETER
+                + " AND id NOT IN (SELECT id FROM " + historyTableName + ")").
+                setParameter(CUTOFF_PARAMETER, cutoff).
+                executeUpdate();
+        return em.createNativeQuery("DELETE FROM " + tableName
+                + " WHERE end_date < :" + CUTOFF_PARAMETER
+                + " AND id IN (SELECT id FROM " + historyTableName + ")").
+                setParameter(CUTOFF_PARAMETER, cutoff).
+                executeUpdate();
+    }
+
+    /** Move the rows of all of the tables that have history tables
+     * that ceased to be valid before a cutoff time into their
+     * history tables. See {@link #archive(EntityManager, String,
+     * LocalDateTime)}.
+     * This method uses an existing EntityManager
+     * provided as a parameter; transaction begin/end must be
+     * managed by the caller.
+     * @param em The EntityManager to be used.
+     * @param cutoff Rows with an end date before this time are moved.
+     * @return The total number of rows moved.
+     */
+    public static int archiveAll(final EntityManager em,
+            final LocalDateTime cutoff) {
+        int moved = 0;
+        for (String tableName : TABLE_NAMES) {
+            moved += archive(em, tableName, cutoff);
+        }
+        return moved;
+    }
+
+}
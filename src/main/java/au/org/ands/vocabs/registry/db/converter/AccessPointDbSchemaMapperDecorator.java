@@ -90,8 +90,7 @@ public abstract class AccessPointDbSchemaMapperDecorator
             ApCommon data;
             Class<? extends ApCommon> dbTargetClass =
                     dbJsonClassMap.get(source.getType());
-            data = JSONSerialization.deserializeStringAsJson(source.getData(),
-                            dbTargetClass);
+            data = source.getDataAs(dbTargetClass);
             Class<? extends au.org.ands.vocabs.registry.schema.
                     vocabulary201701.ApCommon> schemaTargetClass =
                     schemaJsonClassMap.get(source.getType());
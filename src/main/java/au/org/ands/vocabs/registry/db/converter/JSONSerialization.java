@@ -2,17 +2,25 @@
 
 package au.org.ands.vocabs.registry.db.converter;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.module.jaxb.JaxbAnnotationModule;
 
@@ -85,6 +93,37 @@ public final class JSONSerialization {
                 true);
     }
 
+    /** Cache of ObjectReaders, one per target class. Using an
+     * ObjectReader that has already been bound to the target class
+     * avoids the lookup of the class's deserializer that
+     * {@link ObjectMapper#readValue(String, Class)} does on
+     * every invocation. */
+    private static final ConcurrentHashMap<Class<?>, ObjectReader>
+        READERS = new ConcurrentHashMap<>();
+
+    /** Cache of ObjectWriters, one per class of object being serialized.
+     * See the comment for {@link #READERS}. */
+    private static final ConcurrentHashMap<Class<?>, ObjectWriter>
+        WRITERS = new ConcurrentHashMap<>();
+
+    /** Get the ObjectReader to use to deserialize JSON data into an
+     * instance of a class.
+     * @param jsonClass The target class.
+     * @return The ObjectReader for jsonClass.
+     */
+    private static ObjectReader getReader(final Class<?> jsonClass) {
+        return READERS.computeIfAbsent(jsonClass, jsonMapper::readerFor);
+    }
+
+    /** Get the ObjectWriter to use to serialize an instance of a class
+     * into JSON.
+     * @param objectClass The class of the object to be serialized.
+     * @return The ObjectWriter for objectClass.
+     */
+    private static ObjectWriter getWriter(final Class<?> objectClass) {
+        return WRITERS.computeIfAbsent(objectClass, jsonMapper::writerFor);
+    }
+
     /** Deserialize a String in JSON format.
      * @param jsonString The String to be deserialized. It should normally be
      *      an instance of one of our custom JSON storage objects,
@@ -97,7 +136,7 @@ public final class JSONSerialization {
     public static <T> T deserializeStringAsJson(final String jsonString,
             final Class<T> jsonClass) {
         try {
-            return jsonMapper.readValue(jsonString, jsonClass);
+            return getReader(jsonClass).readValue(jsonString);
         } catch (IOException e) {
             LOGGER.error("Unable to deserialize JSON", e);
             return null;
@@ -139,7 +178,7 @@ public final class JSONSerialization {
     public static <T> T deserializeStringAsJson(final File jsonFile,
             final Class<T> jsonClass) {
         try {
-            return jsonMapper.readValue(jsonFile, jsonClass);
+            return getReader(jsonClass).readValue(jsonFile);
         } catch (IOException e) {
             LOGGER.error("Unable to deserialize JSON", e);
             return null;
@@ -173,12 +212,65 @@ public final class JSONSerialization {
      * @return The serialization as a JSON String of object.
      */
     public static String serializeObjectAsJsonString(final Object object) {
+        if (object == null) {
+            return "null";
+        }
         try {
-            return jsonMapper.writeValueAsString(object);
+            return getWriter(object.getClass()).writeValueAsString(object);
         } catch (IOException e) {
             LOGGER.error("Unable to serialize as JSON", e);
             return null;
         }
     }
 
+    /** Serialize an object in JSON format directly into a file.
+     * The file is written using UTF-8 encoding.
+     * The result is the same as writing the result of
+     * {@link #serializeObjectAsJsonString(Object)} into the file,
+     * but without building the whole serialization as a String
+     * in memory first.
+     * @param object The Object to be serialized.
+     * @param jsonFile The File into which the serialization is written.
+     * @throws IOException If there is an error serializing the object
+     *      or writing the file.
+     */
+    public static void serializeObjectAsJsonFile(
+            final Object object, final File jsonFile) throws IOException {
+        Class<?> objectClass = Object.class;
+        if (object != null) {
+            objectClass = object.getClass();
+        }
+        getWriter(objectClass).writeValue(jsonFile, object);
+    }
+
+    /** Create a JsonGenerator that writes JSON data into a file,
+     * for incremental serialization. The file is written using
+     * UTF-8 encoding.
+     * Each value written using {@link JsonGenerator#writeObject(Object)}
+     * is serialized in the same way as by
+     * {@link #serializeObjectAsJsonString(Object)}.
+     * The caller is responsible for closing the generator.
+     * @param jsonFile The File into which the serialization is written.
+     * @return The JsonGenerator.
+     * @throws IOException If the file can not be opened for writing.
+     */
+    public static JsonGenerator createJsonGenerator(
+            final File jsonFile) throws IOException {
+        OutputStream out = new BufferedOutputStream(
+                new FileOutputStream(jsonFile));
+        JsonGenerator generator;
+        try {
+            generator = jsonMapper.getFactory().createGenerator(
+                    out, JsonEncoding.UTF8);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        // writeObject() flushes the generator after each value.
+        // Don't also flush the stream, which would mean a write
+        // to the file for each value.
+        generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        return generator;
+    }
+
 }
@@ -63,8 +63,7 @@ public abstract class SubscriptionDbSchemaMapperDecorator
                 target.setDeleted(true);
             } else {
                 VocabularyJson vocabularyJson =
-                        JSONSerialization.deserializeStringAsJson(
-                                vocabulary.getData(), VocabularyJson.class);
+                        vocabulary.getDataAs(VocabularyJson.class);
                 target.setTitle(vocabularyJson.getTitle());
                 if (!TemporalUtils.isCurrent(vocabulary)) {
                     target.setDeleted(true);
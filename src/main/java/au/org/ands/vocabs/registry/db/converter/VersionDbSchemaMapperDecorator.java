@@ -36,8 +36,7 @@ public abstract class VersionDbSchemaMapperDecorator
             target = delegate.sourceToTarget(source);
         if (source.getData() != null) {
             VersionJson data =
-                    JSONSerialization.deserializeStringAsJson(source.getData(),
-                            VersionJson.class);
+                    source.getDataAs(VersionJson.class);
             jsonDataIntoTarget(data, target);
         }
         return target;
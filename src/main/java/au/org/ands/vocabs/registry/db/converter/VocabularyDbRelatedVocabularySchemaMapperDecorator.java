@@ -40,8 +40,7 @@ public abstract class VocabularyDbRelatedVocabularySchemaMapperDecorator
         // And last, the JSON.
         if (source.getData() != null) {
             VocabularyJson data =
-                    JSONSerialization.deserializeStringAsJson(source.getData(),
-                            VocabularyJson.class);
+                    source.getDataAs(VocabularyJson.class);
             jsonDataIntoTarget(data, target);
         }
         return target;
@@ -95,8 +95,7 @@ public abstract class VocabularyDbSchemaMapperDecorator
         // And last, the JSON.
         if (source.getData() != null) {
             VocabularyJson data =
-                    JSONSerialization.deserializeStringAsJson(source.getData(),
-                            VocabularyJson.class);
+                    source.getDataAs(VocabularyJson.class);
             jsonDataIntoTarget(data, target);
         }
         return target;
@@ -0,0 +1,95 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.db.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDateTime;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.jax.rs.annotations.Pac4JProfile;
+import org.pac4j.jax.rs.annotations.Pac4JSecurity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.org.ands.vocabs.registry.api.auth.AuthUtils;
+import au.org.ands.vocabs.registry.api.context.AdminApiPaths;
+import au.org.ands.vocabs.registry.api.context.ResponseUtils;
+import au.org.ands.vocabs.registry.api.user.ErrorResult;
+import au.org.ands.vocabs.registry.api.user.SimpleResult;
+import au.org.ands.vocabs.registry.db.context.DBContext;
+import au.org.ands.vocabs.registry.db.context.HistoryTables;
+import au.org.ands.vocabs.registry.db.context.TemporalUtils;
+import io.swagger.annotations.ApiParam;
+
+/** Utility class for moving historical rows of the temporal tables
+ * into their history tables. See {@link HistoryTables}.
+ */
+@Path(AdminApiPaths.API_ADMIN + "/" + AdminApiPaths.DATABASE)
+public class ArchiveHistoryTables {
+
+    /** Logger for this class. */
+    private Logger logger = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** Move all rows of the vocabularies, versions, and access_points
+     * tables that are no longer valid into the history tables.
+     * All of the tables are processed in one transaction.
+     * @param profile The caller's security profile.
+     * @return The total number of rows moved.
+     */
+    @Path(AdminApiPaths.HISTORY + "/" + "archive")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    @Pac4JSecurity
+    @POST
+    public Response archive(@ApiParam(hidden = true) @Pac4JProfile
+            final CommonProfile profile) {
+        if (!AuthUtils.profileIsSuperuser(profile)) {
+            return ResponseUtils.generateForbiddenResponseNotSuperuser();
+        }
+        if (!HistoryTables.isEnabled()) {
+            return Response.status(Response.Status.BAD_REQUEST).
+                    entity(new ErrorResult("History tables are not enabled")).
+                    build();
+        }
+
+        EntityManager em = null;
+        EntityTransaction txn = null;
+        try {
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+            txn.begin();
+            LocalDateTime cutoff = TemporalUtils.nowUTC();
+            int moved = HistoryTables.archiveAll(em, cutoff);
+            txn.commit();
+            logger.info("Moved " + moved + " rows into history tables");
+            return Response.ok().entity(new SimpleResult(moved)).build();
+        } catch (Throwable t) {
+            if (txn != null && txn.isActive()) {
+                try {
+                    logger.error("Exception during transaction; rolling back",
+                            t);
+                    txn.rollback();
+                } catch (Exception e) {
+                    logger.error("Rollback failure!", e);
+                }
+            } else {
+                logger.error("Exception other than during transaction: ", t);
+            }
+            return ResponseUtils.generateInternalServerError(
+                    "Error during archiving");
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+    }
+
+}
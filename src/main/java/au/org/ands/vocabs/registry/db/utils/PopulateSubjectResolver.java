@@ -5,34 +5,43 @@ package au.org.ands.vocabs.registry.db.utils;
 import java.lang.invoke.MethodHandles;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import javax.persistence.EntityManager;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.core.Context;
 
 import org.openrdf.OpenRDFException;
-import org.openrdf.model.Value;
-import org.openrdf.query.BindingSet;
-import org.openrdf.query.QueryLanguage;
-import org.openrdf.query.TupleQuery;
-import org.openrdf.query.TupleQueryResult;
 import org.openrdf.repository.Repository;
-import org.openrdf.repository.RepositoryConnection;
-import org.openrdf.repository.sparql.SPARQLRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import au.org.ands.vocabs.registry.api.context.AdminApiPaths;
+import au.org.ands.vocabs.registry.api.validation.SubjectResolverIndex;
+import au.org.ands.vocabs.registry.db.context.DBContext;
 import au.org.ands.vocabs.registry.db.dao.SubjectResolverEntryDAO;
 import au.org.ands.vocabs.registry.db.dao.SubjectResolverSourceDAO;
 import au.org.ands.vocabs.registry.db.entity.SubjectResolverEntry;
 import au.org.ands.vocabs.registry.db.entity.SubjectResolverSource;
+import au.org.ands.vocabs.registry.db.utils.SubjectResolverSync.Changes;
+import au.org.ands.vocabs.registry.db.utils.SubjectResolverSync.SubjectRow;
+import au.org.ands.vocabs.registry.utils.RegistryNetUtils;
 
 /** Utility class for populating the subject_resolver table based on
  * the contents of the subject_resolver_sources table.
  * The populate method is accessible only via a loopback interface.
+ * When it has finished, the in-memory {@link SubjectResolverIndex}
+ * is reloaded.
  */
 @Path(AdminApiPaths.API_ADMIN + "/" + AdminApiPaths.DATABASE)
 public class PopulateSubjectResolver {
@@ -41,29 +50,23 @@ public class PopulateSubjectResolver {
     private Logger logger = LoggerFactory.getLogger(
             MethodHandles.lookup().lookupClass());
 
-    /** SPARQL Query to fetch subjects. Subjects are SKOS Concepts.
-     * Select only English labels (or fall back to unspecified
-     * language). Notations are optional. */
-    private static final String SUBJECT_QUERY_STRING =
-            "PREFIX skos: <http://www.w3.org/2004/02/skos/core#>\n"
-            + "SELECT DISTINCT ?iri ?label ?notation WHERE {\n"
-            + "  ?iri a skos:Concept .\n"
-            + "  ?iri skos:prefLabel ?label .\n"
-            + "  FILTER ( lang(?label) IN (\"\", \"en\"))\n"
-            + "  OPTIONAL { ?iri skos:notation ?notation }\n"
-            + "}";
+    /** The maximum number of subjects to fetch from a source
+     * with each query. */
+    private static final int PAGE_SIZE = 10000;
 
-    /** Populate the subject_resolver table with the subjects extracted
-     * from the sources given in the subject_resolver_sources table.
+    /** The maximum number of rows to delete with one statement,
+     * or to insert before flushing them to the database. */
+    private static final int BATCH_SIZE = 500;
+
+    /** The maximum number of sources to process concurrently. */
+    private static final int MAX_THREADS = 4;
+
+    /** Check that a request comes from a loopback interface.
      * @param request The HTTP request.
-     * @return Text indicating success.
+     * @return null, if the request comes from a loopback interface,
+     *      or otherwise, text indicating why access is forbidden.
      */
-    @Path("populateSubjectResolver")
-    @GET
-    public String populateSubjectResolver(
-            @Context final HttpServletRequest request) {
-        logger.info("In populateSubjectResolver");
-        // Only allow access from a loopback interface.
+    private String checkLoopback(final HttpServletRequest request) {
         String remoteAddress = request.getRemoteAddr();
         InetAddress ipAddress;
         try {
@@ -76,55 +79,206 @@ public class PopulateSubjectResolver {
         if (!ipAddress.isLoopbackAddress()) {
             return "Not localhost; forbidden";
         }
+        return null;
+    }
+
+    /** Populate the subject_resolver table with the subjects extracted
+     * from the sources given in the subject_resolver_sources table.
+     * The sources are processed concurrently. The existing rows for
+     * each source are compared with the subjects fetched from it,
+     * and only the differences are applied, in one transaction
+     * per source. Rows for sources that are no longer listed
+     * are deleted.
+     * @param request The HTTP request.
+     * @return Text indicating success, and the number of rows
+     *      processed for each source.
+     */
+    @Path("populateSubjectResolver")
+    @GET
+    public String populateSubjectResolver(
+            @Context final HttpServletRequest request) {
+        logger.info("In populateSubjectResolver");
+        String forbidden = checkLoopback(request);
+        if (forbidden != null) {
+            return forbidden;
+        }
 
-        // First, clean out any existing entries.
-        SubjectResolverEntryDAO.deleteAllResolverEntries();
         // Get the sources we will use ...
         List<SubjectResolverSource> subjectResolverSources =
                 SubjectResolverSourceDAO.getAllSubjectResolverSource();
-        // ... and iterate over them.
-        for (SubjectResolverSource source
-                : subjectResolverSources) {
-            logger.info("Getting subjects from source: " + source.getSource());
-            try {
-                Repository repo = new SPARQLRepository(source.getIri());
-                repo.initialize();
-                RepositoryConnection conn = repo.getConnection();
+        // ... clean out the entries of any other sources ...
+        if (subjectResolverSources.isEmpty()) {
+            SubjectResolverEntryDAO.deleteAllResolverEntries();
+        } else {
+            SubjectResolverEntryDAO.deleteResolverEntriesNotFromSources(
+                    subjectResolverSources.stream().
+                    map(SubjectResolverSource::getSource).
+                    collect(Collectors.toList()));
+        }
+        // ... and process them.
+        StringBuilder report = new StringBuilder();
+        boolean success = true;
+        if (!subjectResolverSources.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(
+                    Math.min(MAX_THREADS, subjectResolverSources.size()));
+            List<Future<String>> futures = new ArrayList<>();
+            for (SubjectResolverSource source : subjectResolverSources) {
+                futures.add(executor.submit(() -> populateSource(source)));
+            }
+            executor.shutdown();
+            for (int i = 0; i < futures.size(); i++) {
+                String sourceName = subjectResolverSources.get(i).getSource();
                 try {
-                    TupleQuery tupleQuery = conn.prepareTupleQuery(
-                            QueryLanguage.SPARQL, SUBJECT_QUERY_STRING);
-                    TupleQueryResult result = tupleQuery.evaluate();
-                    try {
-                        while (result.hasNext()) {
-                            BindingSet bindingSet = result.next();
-                            Value iri = bindingSet.getValue("iri");
-                            Value label = bindingSet.getValue("label");
-                            Value notation = bindingSet.getValue("notation");
-                            SubjectResolverEntry sre =
-                                    new SubjectResolverEntry();
-                            sre.setSource(source.getSource());
-                            sre.setIri(iri.stringValue());
-                            sre.setLabel(label.stringValue());
-                            // Cope with there being no notation.
-                            String notationString = "";
-                            if (notation != null) {
-                                notationString = notation.stringValue();
-                            }
-                            sre.setNotation(notationString);
-                            SubjectResolverEntryDAO.saveSubjectResolverEntry(
-                                    sre);
-                        }
-                    } finally {
-                        result.close();
-                    }
-                } finally {
-                    conn.close();
+                    report.append(futures.get(i).get()).append('\n');
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    executor.shutdownNow();
+                    logger.error("Interrupted", e);
+                    report.append(sourceName).append(": interrupted\n");
+                    success = false;
+                    break;
+                } catch (ExecutionException e) {
+                    logger.error("Got an exception processing source: "
+                            + sourceName, e.getCause());
+                    report.append(sourceName).append(
+                            ": there was an exception: ").
+                        append(e.getCause().toString()).append('\n');
+                    success = false;
+                }
+            }
+        }
+        // Whatever happened, some entries may have been changed,
+        // so the in-memory copy must be reloaded.
+        SubjectResolverIndex.refresh();
+        if (success) {
+            report.append("Done.");
+        }
+        return report.toString();
+    }
+
+    /** Get the values of a subject_resolver row that are compared
+     * with those fetched from its source. A null notation is
+     * treated as empty, as it is for the fetched subjects.
+     * @param sre The subject_resolver row.
+     * @return The values of the row.
+     */
+    private static SubjectRow toSubjectRow(final SubjectResolverEntry sre) {
+        String notation = sre.getNotation();
+        if (notation == null) {
+            notation = "";
+        }
+        return new SubjectRow(sre.getIri(), sre.getLabel(), notation);
+    }
+
+    /** Bring the subject_resolver rows of one source up to date.
+     * @param source The source.
+     * @return Text reporting the number of rows processed.
+     * @throws OpenRDFException If there is an error fetching the
+     *      subjects from the source.
+     */
+    private String populateSource(final SubjectResolverSource source)
+            throws OpenRDFException {
+        String sourceName = source.getSource();
+        logger.info("Getting subjects from source: " + sourceName);
+        long startTime = System.nanoTime();
+        Set<SubjectRow> fetched;
+        Repository repo = RegistryNetUtils.newSPARQLRepository(
+                source.getIri());
+        repo.initialize();
+        try {
+            fetched = SubjectResolverSync.fetchSubjects(repo, PAGE_SIZE);
+        } finally {
+            repo.shutDown();
+        }
+        long fetchTime = System.nanoTime();
+
+        Changes<SubjectResolverEntry> changes;
+        EntityManager em = DBContext.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<SubjectResolverEntry> existing = SubjectResolverEntryDAO.
+                    getSubjectResolverEntriesForSource(sourceName, em);
+            changes = SubjectResolverSync.diff(existing,
+                    PopulateSubjectResolver::toSubjectRow, fetched);
+            List<Integer> idsToDelete = changes.getToDelete().stream().
+                    map(SubjectResolverEntry::getId).
+                    collect(Collectors.toList());
+            for (int i = 0; i < idsToDelete.size(); i += BATCH_SIZE) {
+                SubjectResolverEntryDAO.deleteSubjectResolverEntriesById(
+                        idsToDelete.subList(i, Math.min(i + BATCH_SIZE,
+                                idsToDelete.size())), em);
+            }
+            // The bulk deletes bypass the persistence context,
+            // and the existing rows are no longer needed.
+            em.clear();
+            int added = 0;
+            for (SubjectRow row : changes.getToAdd()) {
+                SubjectResolverEntry sre = new SubjectResolverEntry();
+                sre.setSource(sourceName);
+                sre.setIri(row.getIri());
+                sre.setLabel(row.getLabel());
+                sre.setNotation(row.getNotation());
+                SubjectResolverEntryDAO.saveSubjectResolverEntry(em, sre);
+                added++;
+                if (added % BATCH_SIZE == 0) {
+                    em.flush();
+                    em.clear();
                 }
-            } catch (OpenRDFException e) {
-                logger.error("Got an exception", e);
-                return "There was an exception: " + e.toString();
             }
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+        long endTime = System.nanoTime();
+
+        String result = sourceName + ": fetched " + fetched.size()
+                + " subjects in "
+                + TimeUnit.NANOSECONDS.toMillis(fetchTime - startTime)
+                + " ms (" + rate(fetched.size(), fetchTime - startTime)
+                + " rows/sec); added " + changes.getToAdd().size()
+                + ", deleted " + changes.getToDelete().size()
+                + " rows in "
+                + TimeUnit.NANOSECONDS.toMillis(endTime - fetchTime)
+                + " ms";
+        logger.info(result);
+        return result;
+    }
+
+    /** Compute a rate per second.
+     * @param count The number of things done.
+     * @param nanos The time taken to do them, in nanoseconds.
+     * @return The number of things done per second.
+     */
+    private static long rate(final long count, final long nanos) {
+        if (nanos <= 0) {
+            return count;
+        }
+        return count * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    /** Reload the in-memory copy of the subject_resolver and
+     * subject_resolver_sources tables used for validating and
+     * resolving subjects. Use this after modifying those tables
+     * other than by using {@link
+     * #populateSubjectResolver(HttpServletRequest)}.
+     * @param request The HTTP request.
+     * @return Text indicating success.
+     */
+    @Path("refreshSubjectResolverIndex")
+    @GET
+    public String refreshSubjectResolverIndex(
+            @Context final HttpServletRequest request) {
+        logger.info("In refreshSubjectResolverIndex");
+        String forbidden = checkLoopback(request);
+        if (forbidden != null) {
+            return forbidden;
         }
+        SubjectResolverIndex.refresh();
         return "Done.";
     }
 
@@ -0,0 +1,233 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.db.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.openrdf.OpenRDFException;
+import org.openrdf.model.Value;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.TupleQuery;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.repository.Repository;
+import org.openrdf.repository.RepositoryConnection;
+
+/** Support for {@link PopulateSubjectResolver}: fetching the subjects
+ * of a subject resolver source, a page at a time, and working out
+ * the changes to be made to the existing subject_resolver rows
+ * for that source.
+ */
+public final class SubjectResolverSync {
+
+    /** Private constructor for a utility class. */
+    private SubjectResolverSync() {
+    }
+
+    /** SPARQL Query to fetch subjects. Subjects are SKOS Concepts.
+     * Select only English labels (or fall back to unspecified
+     * language). Notations are optional. The results are ordered,
+     * so that they can be fetched a page at a time; a LIMIT and
+     * OFFSET are appended for each page. */
+    private static final String SUBJECT_QUERY_STRING =
+            "PREFIX skos: <http://www.w3.org/2004/02/skos/core#>\n"
+            + "SELECT DISTINCT ?iri ?label ?notation WHERE {\n"
+            + "  ?iri a skos:Concept .\n"
+            + "  ?iri skos:prefLabel ?label .\n"
+            + "  FILTER ( lang(?label) IN (\"\", \"en\"))\n"
+            + "  OPTIONAL { ?iri skos:notation ?notation }\n"
+            + "}\n"
+            + "ORDER BY ?iri ?label ?notation\n";
+
+    /** The values of one row of the subject_resolver table,
+     * apart from its id and source. */
+    public static final class SubjectRow {
+
+        /** The IRI of the subject. */
+        private final String iri;
+
+        /** The label of the subject. */
+        private final String label;
+
+        /** The notation of the subject; the empty string, if
+         * there is none. */
+        private final String notation;
+
+        /** Constructor.
+         * @param anIri The IRI of the subject.
+         * @param aLabel The label of the subject.
+         * @param aNotation The notation of the subject; the empty
+         *      string, if there is none.
+         */
+        public SubjectRow(final String anIri, final String aLabel,
+                final String aNotation) {
+            iri = anIri;
+            label = aLabel;
+            notation = aNotation;
+        }
+
+        /** Get the IRI of the subject.
+         * @return The IRI of the subject.
+         */
+        public String getIri() {
+            return iri;
+        }
+
+        /** Get the label of the subject.
+         * @return The label of the subject.
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /** Get the notation of the subject.
+         * @return The notation of the subject; the empty string,
+         *      if there is none.
+         */
+        public String getNotation() {
+            return notation;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof SubjectRow)) {
+                return false;
+            }
+            SubjectRow otherRow = (SubjectRow) other;
+            return Objects.equals(iri, otherRow.iri)
+                    && Objects.equals(label, otherRow.label)
+                    && Objects.equals(notation, otherRow.notation);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return Objects.hash(iri, label, notation);
+        }
+    }
+
+    /** The changes to be made to the rows of one source.
+     * @param <E> The type of the existing rows.
+     */
+    public static final class Changes<E> {
+
+        /** The rows to be added. */
+        private final List<SubjectRow> toAdd;
+
+        /** The existing rows to be deleted. */
+        private final List<E> toDelete;
+
+        /** Constructor.
+         * @param aToAdd The rows to be added.
+         * @param aToDelete The existing rows to be deleted.
+         */
+        private Changes(final List<SubjectRow> aToAdd,
+                final List<E> aToDelete) {
+            toAdd = aToAdd;
+            toDelete = aToDelete;
+        }
+
+        /** Get the rows to be added.
+         * @return The rows to be added.
+         */
+        public List<SubjectRow> getToAdd() {
+            return toAdd;
+        }
+
+        /** Get the existing rows to be deleted.
+         * @return The existing rows to be deleted.
+         */
+        public List<E> getToDelete() {
+            return toDelete;
+        }
+    }
+
+    /** Fetch all the subjects from a SPARQL repository, a page
+     * at a time.
+     * @param repository The repository. It must already be initialized.
+     * @param pageSize The maximum number of results to fetch with
+     *      each query.
+     * @return The subjects, in the order returned by the repository.
+     * @throws OpenRDFException If there is an error querying
+     *      the repository.
+     */
+    public static Set<SubjectRow> fetchSubjects(final Repository repository,
+            final int pageSize) throws OpenRDFException {
+        Set<SubjectRow> subjects = new LinkedHashSet<>();
+        RepositoryConnection conn = repository.getConnection();
+        try {
+            int offset = 0;
+            while (true) {
+                TupleQuery tupleQuery = conn.prepareTupleQuery(
+                        QueryLanguage.SPARQL, SUBJECT_QUERY_STRING
+                        + "LIMIT " + pageSize + " OFFSET " + offset);
+                int pageCount = 0;
+                TupleQueryResult result = tupleQuery.evaluate();
+                try {
+                    while (result.hasNext()) {
+                        BindingSet bindingSet = result.next();
+                        Value iri = bindingSet.getValue("iri");
+                        Value label = bindingSet.getValue("label");
+                        Value notation = bindingSet.getValue("notation");
+                        // Cope with there being no notation.
+                        String notationString = "";
+                        if (notation != null) {
+                            notationString = notation.stringValue();
+                        }
+                        subjects.add(new SubjectRow(iri.stringValue(),
+                                label.stringValue(), notationString));
+                        pageCount++;
+                    }
+                } finally {
+                    result.close();
+                }
+                if (pageCount < pageSize) {
+                    break;
+                }
+                offset += pageSize;
+            }
+        } finally {
+            conn.close();
+        }
+        return subjects;
+    }
+
+    /** Work out the changes to be made to the existing rows of
+     * a source, so that they match the fetched subjects.
+     * Existing rows that are duplicates of other existing rows
+     * are deleted.
+     * @param <E> The type of the existing rows.
+     * @param existing The existing rows of the source.
+     * @param toRow Function that gets the values of an existing row.
+     * @param fetched The subjects fetched from the source.
+     * @return The changes to be made.
+     */
+    public static <E> Changes<E> diff(final Collection<E> existing,
+            final Function<E, SubjectRow> toRow,
+            final Set<SubjectRow> fetched) {
+        Set<SubjectRow> kept = new HashSet<>();
+        List<E> toDelete = new ArrayList<>();
+        for (E existingRow : existing) {
+            SubjectRow row = toRow.apply(existingRow);
+            if (!fetched.contains(row) || !kept.add(row)) {
+                toDelete.add(existingRow);
+            }
+        }
+        List<SubjectRow> toAdd = new ArrayList<>();
+        for (SubjectRow row : fetched) {
+            if (!kept.contains(row)) {
+                toAdd.add(row);
+            }
+        }
+        return new Changes<>(toAdd, toDelete);
+    }
+
+}
@@ -0,0 +1,134 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.db.utils.migration;
+
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.org.ands.vocabs.registry.db.context.DBContext;
+import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
+import au.org.ands.vocabs.registry.db.dao.VersionArtefactDAO;
+import au.org.ands.vocabs.registry.db.entity.VersionArtefact;
+import au.org.ands.vocabs.registry.db.internal.VaHarvestPoolparty;
+import au.org.ands.vocabs.registry.enums.VersionArtefactType;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
+
+/** Standalone program to compress the files of all currently-valid
+ * version artefacts of type HARVEST_POOLPARTY that were harvested
+ * before the PoolParty harvester stored its files gzip-compressed.
+ * Each file is replaced by a gzip-compressed copy, and its version
+ * artefact is updated to refer to the compressed copy.
+ * Files that have already been compressed are skipped, so the program
+ * may be run more than once, e.g., if it is interrupted.
+ * <p>Here is a suggested way to use this program.</p>
+ * <pre> ant compress-harvests &gt; compress-out.txt</pre>
+ */
+public final class CompressHarvestFiles {
+
+    /** Logger for this class. */
+    private static Logger logger = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** Private constructor for a standalone program. */
+    private CompressHarvestFiles() {
+    }
+
+    /** Compress the files of all currently-valid PoolParty harvest
+     * version artefacts, and update the version artefacts.
+     * @param args Command-line parameters. None are expected.
+     */
+    public static void main(final String[] args) {
+        logger.info("Starting CompressHarvestFiles");
+
+        EntityManager em = null;
+        EntityTransaction txn = null;
+        int compressed = 0;
+        long bytesBefore = 0;
+        long bytesAfter = 0;
+
+        try {
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+
+            // No DAO method to get all current VAs of a particular type,
+            // so get all current VAs, then check each one to see if
+            // it's the type we're looking for.
+            List<VersionArtefact> vaList =
+                    VersionArtefactDAO.getAllCurrentVersionArtefact();
+            for (VersionArtefact va : vaList) {
+                if (va.getType() != VersionArtefactType.HARVEST_POOLPARTY) {
+                    continue;
+                }
+                VaHarvestPoolparty vaHarvestPoolparty =
+                        JSONSerialization.deserializeStringAsJson(
+                                va.getData(), VaHarvestPoolparty.class);
+                Path path = Paths.get(vaHarvestPoolparty.getPath());
+                if (RegistryFileUtils.isGzipCompressed(path)) {
+                    logger.info("Skipping VA with id (surrogate key): "
+                            + va.getId() + "; already compressed");
+                    continue;
+                }
+                Path gzPath;
+                if (Files.exists(path)) {
+                    long sizeBefore = Files.size(path);
+                    gzPath = RegistryFileUtils.compressFile(path);
+                    bytesBefore += sizeBefore;
+                    bytesAfter += Files.size(gzPath);
+                } else {
+                    // Perhaps an earlier run compressed the file,
+                    // but didn't get as far as updating the VA.
+                    gzPath = Paths.get(path.toString()
+                            + RegistryFileUtils.GZIP_SUFFIX);
+                    if (!Files.exists(gzPath)) {
+                        logger.error("Ouch: file for VA with id "
+                                + "(surrogate key): " + va.getId()
+                                + " missing: " + path);
+                        continue;
+                    }
+                }
+                logger.info("Compressed file for VA with id "
+                        + "(surrogate key): " + va.getId() + ": " + gzPath);
+                vaHarvestPoolparty.setPath(gzPath.toString());
+                va.setData(JSONSerialization.serializeObjectAsJsonString(
+                        vaHarvestPoolparty));
+                txn.begin();
+                VersionArtefactDAO.updateVersionArtefact(em, va);
+                txn.commit();
+                compressed++;
+            }
+            logger.info("Compressed " + compressed + " files; "
+                    + bytesBefore + " bytes before, "
+                    + bytesAfter + " bytes after");
+        } catch (Throwable t) {
+            if (txn != null && txn.isActive()) {
+                try {
+                    logger.error("Exception during transaction; rolling back",
+                            t);
+                    txn.rollback();
+                } catch (Exception e) {
+                    logger.error("Rollback failure!", e);
+                }
+            } else {
+                logger.error("Exception, either during rollback, or "
+                        + "outside active transaction", t);
+            }
+            // Otherwise, don't throw, but fall through so that the user sees
+            // an error message.
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+
+    }
+
+}
@@ -65,6 +65,10 @@ import au.org.ands.vocabs.registry.workflow.tasks.TaskInfo;
  *     &amp;&gt;&gt; curl-out.txt
  * done</pre>
  * Have a look in {@code curl-out.txt} to confirm it worked OK.
+ * <p>For new migrations of this kind, prefer a batch job
+ * (see {@link au.org.ands.vocabs.registry.workflow.batch.BatchJobs}),
+ * which creates the tasks, runs them for several vocabularies at a time,
+ * and can be resumed if interrupted.</p>
  */
 public final class MigrateJsonTreesToConceptTrees {
 
@@ -6,7 +6,6 @@ import org.apache.commons.lang3.builder.DiffBuilder;
 import org.apache.commons.lang3.builder.DiffResult;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
-import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.entity.ComparisonUtils;
 import au.org.ands.vocabs.registry.db.entity.Version;
 import au.org.ands.vocabs.registry.db.entity.Vocabulary;
@@ -89,11 +88,9 @@ public final class EntityDiffUtils {
     public static DiffResult diffVocabularies(
             final Vocabulary v1, final Vocabulary v2) {
         VocabularyJson v1Json =
-                JSONSerialization.deserializeStringAsJson(v1.getData(),
-                        VocabularyJson.class);
+                v1.getDataAs(VocabularyJson.class);
         VocabularyJson v2Json =
-                JSONSerialization.deserializeStringAsJson(v2.getData(),
-                        VocabularyJson.class);
+                v2.getDataAs(VocabularyJson.class);
         return new DiffBuilder(v1, v2, ToStringStyle.SHORT_PREFIX_STYLE).
                 append(STATUS, v1.getStatus(), v2.getStatus()).
                 append(SLUG, v1.getSlug(), v2.getSlug()).
@@ -138,11 +135,9 @@ public final class EntityDiffUtils {
      */
     public static DiffResult diffVersions(final Version v1, final Version v2) {
         VersionJson v1Json =
-                JSONSerialization.deserializeStringAsJson(v1.getData(),
-                        VersionJson.class);
+                v1.getDataAs(VersionJson.class);
         VersionJson v2Json =
-                JSONSerialization.deserializeStringAsJson(v2.getData(),
-                        VersionJson.class);
+                v2.getDataAs(VersionJson.class);
         return new DiffBuilder(v1, v2, ToStringStyle.SHORT_PREFIX_STYLE).
                 append(STATUS, v1.getStatus(), v2.getStatus()).
                 append(SLUG, v1.getSlug(), v2.getSlug()).
@@ -90,6 +90,42 @@ public class TAccessPointsModel extends TModelBase {
         populateModel();
     }
 
+    /** Construct access points model for a vocabulary, using database
+     * entities that have already been fetched.
+     * @param anEm The EntityManager to be used to fetch and update
+     *      database data.
+     * @param aVocabularyId The Id of the vocabulary for which the model
+     *      is to be constructed.
+     * @param nowTime The fixed time at which the database entities
+     *      were fetched.
+     * @param aVocabularyModel The parent VocabularyModel of this instance.
+     * @param aVersionsModel The parent VersionsModel of this instance.
+     * @param aVersions The fixed-time version instances of the vocabulary.
+     * @param someAPs The instances of access points at the fixed time.
+     *      The keys are version Ids. Only the access points of the
+     *      versions in aVersions are used.
+     */
+    TAccessPointsModel(final EntityManager anEm,
+            final Integer aVocabularyId,
+            final LocalDateTime nowTime,
+            final TVocabularyModel aVocabularyModel,
+            final TVersionsModel aVersionsModel,
+            final Map<Integer, Version> aVersions,
+            final MultivaluedMap<Integer, AccessPoint> someAPs) {
+        setEm(anEm);
+        setVocabularyId(aVocabularyId);
+        setFixedTime(nowTime);
+        vocabularyModel = aVocabularyModel;
+        versionsModel = aVersionsModel;
+        versions = aVersions;
+        for (Integer versionId : versions.keySet()) {
+            List<AccessPoint> versionAPs = someAPs.get(versionId);
+            if (versionAPs != null) {
+                aps.addAll(versionId, versionAPs);
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void populateModel() {
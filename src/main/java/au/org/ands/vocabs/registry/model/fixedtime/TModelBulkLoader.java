@@ -0,0 +1,121 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.model.fixedtime;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import au.org.ands.vocabs.registry.db.dao.AccessPointDAO;
+import au.org.ands.vocabs.registry.db.dao.VersionDAO;
+import au.org.ands.vocabs.registry.db.dao.VocabularyDAO;
+import au.org.ands.vocabs.registry.db.entity.AccessPoint;
+import au.org.ands.vocabs.registry.db.entity.Version;
+import au.org.ands.vocabs.registry.db.entity.Vocabulary;
+
+/** Loader of fixed-time Vocabulary Models for many vocabularies at once.
+ * Rather than each model fetching its own vocabulary, versions, and
+ * access points (which requires a query per version), the rows of
+ * all of the vocabularies are fetched together, using one query per
+ * table for each batch of Ids, and the models are then
+ * constructed from those rows.
+ */
+final class TModelBulkLoader {
+
+    /** The maximum number of Ids to include in each query. This keeps
+     * the size of the IN lists within the limits of the database. */
+    private static final int BATCH_SIZE = 500;
+
+    /** The EntityManager to be used to fetch database data. */
+    private final EntityManager em;
+
+    /** The fixed time to use to fetch the database entities. */
+    private final LocalDateTime fixedTime;
+
+    /** Constructor.
+     * @param anEm The EntityManager to be used to fetch database data.
+     * @param aFixedTime The fixed time to use to fetch the database
+     *      entities.
+     */
+    TModelBulkLoader(final EntityManager anEm,
+            final LocalDateTime aFixedTime) {
+        em = anEm;
+        fixedTime = aFixedTime;
+    }
+
+    /** Create fixed-time Vocabulary Models for a collection of
+     * vocabularies.
+     * @param vocabularyIds The Ids of the vocabularies for which models
+     *      are to be constructed.
+     * @return A map of the vocabulary Ids to the models, in the
+     *      iteration order of vocabularyIds. The map contains a model
+     *      for each vocabulary Id, even if the vocabulary did not exist
+     *      at the fixed time; in that case, the model is empty.
+     */
+    Map<Integer, TVocabularyModel> load(
+            final Collection<Integer> vocabularyIds) {
+        List<Integer> ids = new ArrayList<>(vocabularyIds);
+        Map<Integer, Vocabulary> vocabularies = new HashMap<>();
+        for (Vocabulary vocabulary : fetch(ids, batch -> VocabularyDAO.
+                getFixedTimeVocabularyListForVocabularyIds(
+                        em, batch, fixedTime))) {
+            vocabularies.put(vocabulary.getVocabularyId(), vocabulary);
+        }
+        // Keys are vocabulary Ids; values are maps of version Ids
+        // to versions, as required by TVersionsModel.
+        Map<Integer, Map<Integer, Version>> versions = new HashMap<>();
+        List<Integer> versionIds = new ArrayList<>();
+        for (Version version : fetch(ids, batch -> VersionDAO.
+                getFixedTimeVersionListForVocabularyIds(
+                        em, batch, fixedTime))) {
+            versions.computeIfAbsent(version.getVocabularyId(),
+                    k -> new HashMap<>()).put(version.getVersionId(),
+                            version);
+            versionIds.add(version.getVersionId());
+        }
+        MultivaluedMap<Integer, AccessPoint> aps = new MultivaluedHashMap<>();
+        for (AccessPoint ap : fetch(versionIds, batch -> AccessPointDAO.
+                getFixedTimeAccessPointListForVersionIds(
+                        em, batch, fixedTime))) {
+            aps.add(ap.getVersionId(), ap);
+        }
+
+        Map<Integer, TVocabularyModel> models = new LinkedHashMap<>();
+        for (Integer vocabularyId : ids) {
+            models.put(vocabularyId, new TVocabularyModel(em, vocabularyId,
+                    fixedTime, vocabularies.get(vocabularyId),
+                    versions.getOrDefault(vocabularyId,
+                            Collections.emptyMap()),
+                    aps));
+        }
+        return models;
+    }
+
+    /** Run a query over a list of Ids, in batches of at most
+     * {@link #BATCH_SIZE} Ids.
+     * @param <T> The type of entity returned by the query.
+     * @param ids The Ids to be passed to the query.
+     * @param query The query to run for each batch of Ids.
+     * @return The concatenation of the results of the query.
+     */
+    private static <T> List<T> fetch(final List<Integer> ids,
+            final Function<List<Integer>, List<T>> query) {
+        List<T> results = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            int to = Math.min(ids.size(), from + BATCH_SIZE);
+            results.addAll(query.apply(ids.subList(from, to)));
+        }
+        return results;
+    }
+
+}
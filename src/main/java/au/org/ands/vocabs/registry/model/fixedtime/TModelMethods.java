@@ -3,6 +3,8 @@
 package au.org.ands.vocabs.registry.model.fixedtime;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 
@@ -35,6 +37,27 @@ public final class TModelMethods {
         return new TVocabularyModel(em, vocabularyId, fixedTime);
     }
 
+    /** Create instances of the fixed-time Vocabulary Model for
+     * a collection of vocabularies. The database entities for all
+     * of the vocabularies are fetched together, which is much faster
+     * than invoking {@link #createTVocabularyModel(EntityManager,
+     * Integer, LocalDateTime)} for each vocabulary. The vocabulary Ids
+     * are not validated.
+     * @param em The EntityManager to be used to fetch database data.
+     * @param vocabularyIds The Ids of the vocabularies for which models
+     *      are to be constructed.
+     * @param fixedTime The fixed time to use to fetch the database entities.
+     * @return A map of the vocabulary Ids to the created and populated
+     *      TVocabularyModel instances, in the iteration order of
+     *      vocabularyIds.
+     */
+    public static Map<Integer, TVocabularyModel> createTVocabularyModels(
+            final EntityManager em,
+            final Collection<Integer> vocabularyIds,
+            final LocalDateTime fixedTime) {
+        return new TModelBulkLoader(em, fixedTime).load(vocabularyIds);
+    }
+
     /** Get the fixed-time instance of the vocabulary, in registry schema
      * format. If there is no such instance, null is returned.
      * @param tvm The TVocabularyModel representing the vocabulary.
@@ -12,6 +12,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import javax.persistence.EntityManager;
+import javax.ws.rs.core.MultivaluedMap;
 
 import org.apache.commons.collections4.sequence.CommandVisitor;
 import org.apache.commons.collections4.sequence.SequencesComparator;
@@ -25,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.converter.VersionDbSchemaMapper;
 import au.org.ands.vocabs.registry.db.dao.VersionDAO;
+import au.org.ands.vocabs.registry.db.entity.AccessPoint;
 import au.org.ands.vocabs.registry.db.entity.Version;
 import au.org.ands.vocabs.registry.db.internal.VersionJson;
 import au.org.ands.vocabs.registry.enums.RegistryEventEventType;
@@ -90,6 +92,36 @@ public class TVersionsModel extends TModelBase {
         populateModel();
     }
 
+    /** Construct versions model for a vocabulary, using database
+     * entities that have already been fetched.
+     * @param anEm The EntityManager to be used to fetch and update
+     *      database data.
+     * @param aVocabularyId The Id of the vocabulary for which the model
+     *      is to be constructed.
+     * @param nowTime The fixed time at which the database entities
+     *      were fetched.
+     * @param aVocabularyModel The parent VocabularyModel of this instance.
+     * @param someVersions The instances of the versions of the vocabulary
+     *      at the fixed time. The keys are version Ids.
+     * @param someAPs The instances of access points at the fixed time.
+     *      The keys are version Ids.
+     */
+    TVersionsModel(final EntityManager anEm,
+            final Integer aVocabularyId,
+            final LocalDateTime nowTime,
+            final TVocabularyModel aVocabularyModel,
+            final Map<Integer, Version> someVersions,
+            final MultivaluedMap<Integer, AccessPoint> someAPs) {
+        setEm(anEm);
+        setVocabularyId(aVocabularyId);
+        setFixedTime(nowTime);
+        vocabularyModel = aVocabularyModel;
+        versions.putAll(someVersions);
+        apModel = new TAccessPointsModel(anEm, aVocabularyId, nowTime,
+                vocabularyModel, this, versions, someAPs);
+        subModels.add(apModel);
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void populateModel() {
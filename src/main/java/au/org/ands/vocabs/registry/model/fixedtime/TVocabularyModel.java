@@ -6,8 +6,10 @@ import java.lang.invoke.MethodHandles;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
+import javax.ws.rs.core.MultivaluedMap;
 
 import org.apache.commons.lang3.builder.Diff;
 import org.apache.commons.lang3.builder.DiffResult;
@@ -19,6 +21,8 @@ import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.converter.VocabularyDbSchemaMapper;
 import au.org.ands.vocabs.registry.db.dao.VocabularyDAO;
 import au.org.ands.vocabs.registry.db.dao.VocabularyIdDAO;
+import au.org.ands.vocabs.registry.db.entity.AccessPoint;
+import au.org.ands.vocabs.registry.db.entity.Version;
 import au.org.ands.vocabs.registry.db.entity.Vocabulary;
 import au.org.ands.vocabs.registry.db.internal.VocabularyJson;
 import au.org.ands.vocabs.registry.log.utils.EntityDiffUtils;
@@ -77,6 +81,39 @@ public class TVocabularyModel extends TModelBase {
         populateModel();
     }
 
+    /** Construct vocabulary model for a vocabulary, using database
+     * entities that have already been fetched. This is used by
+     * {@link TModelBulkLoader}; no further queries are made, and the
+     * vocabulary Id is not validated.
+     * @param anEm The EntityManager to be used to fetch and update
+     *      database data.
+     * @param aVocabularyId The Id of the vocabulary for which the model
+     *      is to be constructed.
+     * @param nowTime The fixed time at which the database entities
+     *      were fetched.
+     * @param aVocabulary The instance of the vocabulary at the fixed time,
+     *      or null, if there is none.
+     * @param someVersions The instances of the versions of the vocabulary
+     *      at the fixed time. The keys are version Ids.
+     * @param someAPs The instances of access points at the fixed time.
+     *      The keys are version Ids. It may contain access points of
+     *      versions of other vocabularies; they are ignored.
+     */
+    TVocabularyModel(final EntityManager anEm,
+            final Integer aVocabularyId,
+            final LocalDateTime nowTime,
+            final Vocabulary aVocabulary,
+            final Map<Integer, Version> someVersions,
+            final MultivaluedMap<Integer, AccessPoint> someAPs) {
+        setEm(anEm);
+        setVocabularyId(aVocabularyId);
+        setFixedTime(nowTime);
+        vocabulary = aVocabulary;
+        versionsModel = new TVersionsModel(anEm, aVocabularyId, nowTime,
+                this, someVersions, someAPs);
+        subModels.add(versionsModel);
+    }
+
     /** Get the instance of the vocabulary, or null, if there isn't one.
      * @return The instance of the vocabulary, or null.
      */
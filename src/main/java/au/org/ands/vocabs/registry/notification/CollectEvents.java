@@ -69,11 +69,10 @@ public class CollectEvents {
     }
 
     /** Set of vocabulary Ids that we have seen while working through
-     * the Registry Events. Used to help avoid duplicating work in
-     * the case that there is nothing to report for a vocabulary
-     * because it existed neither at the beginning nor the end
-     * of the reporting period, yet where there are multiple
-     * registry events for the vocabulary <i>during</i> the period.*/
+     * the Registry Events. Each vocabulary is processed only once,
+     * even if there are multiple registry events for the vocabulary
+     * during the period. The models of all of these vocabularies
+     * are fetched from the database together. */
     private Set<Integer> vocabularyIdsSeen = new HashSet<>();
 
     /** Map of owner Ids to sets of vocabulary Ids. */
@@ -126,7 +125,9 @@ public class CollectEvents {
         for (RegistryEvent re : reList) {
             switch (re.getElementType()) {
             case VOCABULARIES:
-                collectVocabularyEvent(em, re);
+                // Record that we've now "seen" this vocabulary Id.
+                // The vocabularies are processed together, below.
+                vocabularyIdsSeen.add(re.getElementId());
                 break;
             // (For now) we don't process events for versions and access points
             // separately from their containing vocabularies. (We rely on
@@ -146,24 +147,32 @@ public class CollectEvents {
                 break;
             }
         }
+        // Now fetch the state of all of the vocabularies at the start
+        // and end of the period, using a handful of queries, rather
+        // than many queries for each vocabulary.
+        Map<Integer, TVocabularyModel> startModels =
+                TModelMethods.createTVocabularyModels(em, vocabularyIdsSeen,
+                        fromDate);
+        Map<Integer, TVocabularyModel> endModels =
+                TModelMethods.createTVocabularyModels(em, vocabularyIdsSeen,
+                        toDate);
+        for (Integer vocabularyId : vocabularyIdsSeen) {
+            collectVocabularyEvent(vocabularyId,
+                    startModels.get(vocabularyId),
+                    endModels.get(vocabularyId));
+        }
     }
 
-    /** Process one Registry event of element type
-     * {@link RegistryEventElementType#VOCABULARIES}.
-     * @param em The EntityManager to be used to fetch the details of
-     *      Registry events from the database.
-     * @param re The RegistryEvent to be processed.
+    /** Process the Registry events of element type
+     * {@link RegistryEventElementType#VOCABULARIES} for one vocabulary.
+     * @param vocabularyId The vocabulary Id of the vocabulary
+     *      to be processed.
+     * @param vstart The model of the vocabulary at the start of the period.
+     * @param vend The model of the vocabulary at the end of the period.
      */
-    private void collectVocabularyEvent(final EntityManager em,
-            final RegistryEvent re) {
-        Integer vocabularyId = re.getElementId();
-        if (vocabularyIdsSeen.contains(vocabularyId)) {
-            // Already processed, and the result can't change.
-            return;
-        }
-        // Record that we've now "seen" this vocabulary Id ...
-        vocabularyIdsSeen.add(vocabularyId);
-        // .. and now we will find out if there should also be
+    private void collectVocabularyEvent(final Integer vocabularyId,
+            final TVocabularyModel vstart, final TVocabularyModel vend) {
+        // We will find out if there should be
         // a VocabularyDifferences for this vocabulary.
         // There _won't_ be, if the vocabulary didn't exist either
         // at fromDate or endDate.
@@ -171,10 +180,6 @@ public class CollectEvents {
         if (!vocabularyIdMap.containsKey(vocabularyId)) {
             VocabularyDifferences vdiff = new VocabularyDifferences();
             vocabularyIdMap.put(vocabularyId, vdiff);
-            TVocabularyModel vstart = TModelMethods.createTVocabularyModel(em,
-                    vocabularyId, fromDate);
-            TVocabularyModel vend = TModelMethods.createTVocabularyModel(em,
-                    vocabularyId, toDate);
             if (vend.isEmpty()) {
                 if (vstart.isEmpty()) {
                     // Vocabulary didn't exist either at fromDate or endDate,
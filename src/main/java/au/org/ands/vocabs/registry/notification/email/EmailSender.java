@@ -0,0 +1,304 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.notification.email;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+
+import org.apache.commons.mail.Email;
+import org.apache.commons.mail.EmailConstants;
+import org.apache.commons.mail.EmailException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.mail.smtp.SMTPSendFailedException;
+
+/** Sender of emails over a small pool of SMTP connections. Each
+ * connection is kept open and reused for subsequent messages, rather
+ * than a new connection being opened for every message.
+ * Sending is rate-limited across all connections, and a message that
+ * can't be sent because of a (possibly transient) problem with the
+ * connection is retried, using a new connection.
+ *
+ * Instances are safe for use by multiple threads. A thread that
+ * calls {@link #send(Email)} blocks until a connection is available.
+ */
+final class EmailSender implements AutoCloseable {
+
+    /** Logger for this class. */
+    private static Logger logger = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** The mail session shared by all the connections. */
+    private final Session session;
+
+    /** The connections that are not currently in use. */
+    private final BlockingQueue<Transport> transports;
+
+    /** All of the connections, so that they can be closed. */
+    private final List<Transport> allTransports = new ArrayList<>();
+
+    /** Source of time for the rate limit. The rate limit reads the
+     * time, and waits, only through this, so that tests can
+     * supply their own. */
+    interface Ticker {
+        /** Get the current time, in nanoseconds, measured from
+         * an arbitrary origin.
+         * @return The current time, in nanoseconds.
+         */
+        long read();
+
+        /** Wait for a period of time.
+         * @param nanos The time to wait, in nanoseconds.
+         * @throws InterruptedException If the thread is interrupted
+         *      while waiting.
+         */
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    /** The Ticker that uses the system clock. */
+    static final Ticker SYSTEM_TICKER = new Ticker() {
+        @Override
+        public long read() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void sleep(final long nanos) throws InterruptedException {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    };
+
+    /** The source of time for the rate limit. */
+    private final Ticker ticker;
+
+    /** The minimum interval between the sending of successive messages,
+     * in nanoseconds, or 0, if there is no limit. */
+    private final long sendIntervalNanos;
+
+    /** The time at which the next message may be sent, as a value
+     * of {@link Ticker#read()}. Guarded by this. */
+    private long nextSendNanos;
+
+    /** The maximum number of attempts to send each message. */
+    private final int maxAttempts;
+
+    /** The delay before the first retry of a message, in milliseconds.
+     * The delay before each subsequent retry is doubled. */
+    private final long retryDelayMillis;
+
+    /** The number of messages sent. */
+    private final AtomicInteger sentCount = new AtomicInteger();
+
+    /** The number of messages that could not be sent. */
+    private final AtomicInteger failedCount = new AtomicInteger();
+
+    /** Constructor. No connections are opened until they are needed.
+     * @param smtpHost The hostname of the SMTP server.
+     * @param smtpPort The port number of the SMTP server.
+     * @param connections The maximum number of connections to open.
+     * @param maxMessagesPerSecond The maximum number of messages
+     *      to send per second, or 0, if there is to be no limit.
+     * @param aMaxAttempts The maximum number of attempts to send
+     *      each message.
+     * @param aRetryDelayMillis The delay before the first retry of a
+     *      message, in milliseconds.
+     */
+    EmailSender(final String smtpHost, final int smtpPort,
+            final int connections, final double maxMessagesPerSecond,
+            final int aMaxAttempts, final long aRetryDelayMillis) {
+        this(smtpHost, smtpPort, connections, maxMessagesPerSecond,
+                aMaxAttempts, aRetryDelayMillis, SYSTEM_TICKER);
+    }
+
+    /** Constructor that specifies the source of time for the rate limit.
+     * No connections are opened until they are needed.
+     * @param smtpHost The hostname of the SMTP server.
+     * @param smtpPort The port number of the SMTP server.
+     * @param connections The maximum number of connections to open.
+     * @param maxMessagesPerSecond The maximum number of messages
+     *      to send per second, or 0, if there is to be no limit.
+     * @param aMaxAttempts The maximum number of attempts to send
+     *      each message.
+     * @param aRetryDelayMillis The delay before the first retry of a
+     *      message, in milliseconds.
+     * @param aTicker The source of time for the rate limit.
+     */
+    EmailSender(final String smtpHost, final int smtpPort,
+            final int connections, final double maxMessagesPerSecond,
+            final int aMaxAttempts, final long aRetryDelayMillis,
+            final Ticker aTicker) {
+        ticker = aTicker;
+        nextSendNanos = ticker.read();
+        Properties properties = new Properties();
+        properties.setProperty(EmailConstants.MAIL_TRANSPORT_PROTOCOL,
+                EmailConstants.SMTP);
+        properties.setProperty(EmailConstants.MAIL_HOST, smtpHost);
+        properties.setProperty(EmailConstants.MAIL_PORT,
+                Integer.toString(smtpPort));
+        properties.setProperty(EmailConstants.MAIL_SMTP_CONNECTIONTIMEOUT,
+                Integer.toString(EmailConstants.SOCKET_TIMEOUT_MS));
+        properties.setProperty(EmailConstants.MAIL_SMTP_TIMEOUT,
+                Integer.toString(EmailConstants.SOCKET_TIMEOUT_MS));
+        session = Session.getInstance(properties);
+        int poolSize = Math.max(1, connections);
+        transports = new ArrayBlockingQueue<>(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                Transport transport = session.getTransport();
+                allTransports.add(transport);
+                transports.add(transport);
+            }
+        } catch (MessagingException e) {
+            // Only thrown if there's no provider for SMTP.
+            throw new IllegalStateException("Unable to get SMTP transport",
+                    e);
+        }
+        if (maxMessagesPerSecond > 0) {
+            sendIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1)
+                    / maxMessagesPerSecond);
+        } else {
+            sendIntervalNanos = 0;
+        }
+        maxAttempts = Math.max(1, aMaxAttempts);
+        retryDelayMillis = aRetryDelayMillis;
+    }
+
+    /** Send an email. The email should be completely set up, except
+     * for the SMTP server settings, which are ignored.
+     * @param email The email to be sent.
+     * @return true, if the email was sent.
+     * @throws InterruptedException If the thread is interrupted while
+     *      waiting for a connection, or between attempts.
+     */
+    boolean send(final Email email) throws InterruptedException {
+        MimeMessage message;
+        try {
+            email.setMailSession(session);
+            email.buildMimeMessage();
+            message = email.getMimeMessage();
+            message.saveChanges();
+        } catch (EmailException | MessagingException e) {
+            logger.error("Error configuring email", e);
+            failedCount.incrementAndGet();
+            return false;
+        }
+        long delay = retryDelayMillis;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            Transport transport = transports.take();
+            try {
+                awaitSendPermit();
+                if (!transport.isConnected()) {
+                    transport.connect();
+                }
+                transport.sendMessage(message, message.getAllRecipients());
+                sentCount.incrementAndGet();
+                return true;
+            } catch (MessagingException e) {
+                if (isPermanentFailure(e)) {
+                    logger.error("Email rejected by server", e);
+                    break;
+                }
+                logger.error("Error sending email; attempt " + attempt
+                        + " of " + maxAttempts, e);
+                // Start again with a fresh connection.
+                closeQuietly(transport);
+            } finally {
+                transports.add(transport);
+            }
+            if (attempt < maxAttempts) {
+                Thread.sleep(delay);
+                delay = delay * 2;
+            }
+        }
+        failedCount.incrementAndGet();
+        return false;
+    }
+
+    /** Decide whether a failure to send a message is permanent, i.e.,
+     * that trying again won't help. That is the case if the server
+     * rejected the message (or its sender or recipient) with a 5xx
+     * (permanent) reply code. If the connection was dropped, there is
+     * no reply code, and the failure is treated as transient.
+     * @param e The exception thrown when sending the message.
+     * @return true, if the failure is permanent.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static boolean isPermanentFailure(final MessagingException e) {
+        if (e instanceof SMTPSendFailedException) {
+            int returnCode = ((SMTPSendFailedException) e).getReturnCode();
+            return returnCode >= 500 && returnCode < 600;
+        }
+        return e instanceof SendFailedException;
+    }
+
+    /** Wait until the rate limit allows another message to be sent.
+     * @throws InterruptedException If the thread is interrupted
+     *      while waiting.
+     */
+    private void awaitSendPermit() throws InterruptedException {
+        if (sendIntervalNanos == 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = ticker.read();
+            if (nextSendNanos < now) {
+                nextSendNanos = now;
+            }
+            waitNanos = nextSendNanos - now;
+            nextSendNanos += sendIntervalNanos;
+        }
+        if (waitNanos > 0) {
+            ticker.sleep(waitNanos);
+        }
+    }
+
+    /** Close a connection, ignoring any error.
+     * @param transport The connection to be closed.
+     */
+    private static void closeQuietly(final Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            logger.warn("Error closing SMTP connection", e);
+        }
+    }
+
+    /** Get the number of messages sent so far.
+     * @return The number of messages sent.
+     */
+    int getSentCount() {
+        return sentCount.get();
+    }
+
+    /** Get the number of messages that could not be sent.
+     * @return The number of messages that could not be sent.
+     */
+    int getFailedCount() {
+        return failedCount.get();
+    }
+
+    /** Close all of the connections. */
+    @Override
+    public void close() {
+        for (Transport transport : allTransports) {
+            if (transport.isConnected()) {
+                closeQuietly(transport);
+            }
+        }
+    }
+
+}
@@ -10,10 +10,17 @@ import java.lang.invoke.MethodHandles;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
@@ -188,6 +195,22 @@ public final class SendEmailNotifications {
     /** The beginning of the subject line to use. */
     private String subject;
 
+    /** The number of worker threads used to generate and send emails. */
+    private int threads;
+
+    /** The maximum number of connections to the SMTP server. */
+    private int smtpConnections;
+
+    /** The maximum number of emails to send per second, or 0,
+     * if there is no limit. */
+    private double maxMessagesPerSecond;
+
+    /** The maximum number of attempts to send each email. */
+    private int maxAttempts;
+
+    /** The delay before the first retry of an email, in milliseconds. */
+    private long retryDelay;
+
     /** Get the values of properties used for configuring email sending,
      * and store them in local fields.
      */
@@ -212,71 +235,156 @@ public final class SendEmailNotifications {
         subject = RegistryProperties.getProperty(
                 PropertyConstants.NOTIFICATIONS_EMAIL_SUBJECT, "").trim()
                 + " " + formattedDate;
+        threads = Integer.parseInt(RegistryProperties.getProperty(
+                PropertyConstants.NOTIFICATIONS_EMAIL_THREADS, "4"));
+        smtpConnections = Integer.parseInt(RegistryProperties.getProperty(
+                PropertyConstants.NOTIFICATIONS_EMAIL_SMTPCONNECTIONS, "2"));
+        maxMessagesPerSecond = Double.parseDouble(
+                RegistryProperties.getProperty(PropertyConstants.
+                        NOTIFICATIONS_EMAIL_MAXMESSAGESPERSECOND, "0"));
+        maxAttempts = Integer.parseInt(RegistryProperties.getProperty(
+                PropertyConstants.NOTIFICATIONS_EMAIL_MAXATTEMPTS, "3"));
+        retryDelay = Long.parseLong(RegistryProperties.getProperty(
+                PropertyConstants.NOTIFICATIONS_EMAIL_RETRYDELAY, "1000"));
     }
 
-    /** Generate and send the notification emails.
+    /** Get the current email addresses of all subscribers, using
+     * one query.
+     * @return A map of subscriber Ids to the list of the subscriber's
+     *      current email addresses.
      */
-    private void sendEmails() {
-        for (Entry<Integer, SubscriberSubscriptionsModel> modelEntry
-                : subscriberSubscriptionsModels.entrySet()) {
-            Integer subscriberId = modelEntry.getKey();
-//            Subscriber subscriber = subscribersMap.get(subscriberId);
-            List<SubscriberEmailAddress> seaList = SubscriberEmailAddressDAO.
-                    getCurrentSubscriberEmailAddressListForSubscriber(
-                            subscriberId);
-            if (seaList.isEmpty()) {
-                logger.error("No current email address recorded for "
-                        + "subscriber; subscriber Id: " + subscriberId);
-            }
-            SubscriberSubscriptionsModel model = modelEntry.getValue();
-            if (model.isEmpty()) {
-                // Nothing to notify for this subscriber.
-                logger.info("Nothing to report for subscriber: "
-                        + subscriberId);
-                continue;
-            }
-            // Send to all recorded email addresses for the subscriber.
-            for (SubscriberEmailAddress sea : seaList) {
-                String emailAddress = sea.getEmailAddress();
-//                logger.info("Email for address: " + emailAddress);
+    private Map<Integer, List<String>> getEmailAddressesBySubscriber() {
+        Map<Integer, List<String>> emailAddresses = new HashMap<>();
+        for (SubscriberEmailAddress sea : SubscriberEmailAddressDAO.
+                getAllCurrentSubscriberEmailAddress()) {
+            emailAddresses.computeIfAbsent(sea.getSubscriberId(),
+                    k -> new ArrayList<>()).add(sea.getEmailAddress());
+        }
+        return emailAddresses;
+    }
+
+    /** Generate and send the notification emails. The emails for
+     * each subscriber are generated and sent by a pool of worker threads.
+     * The times of last notification of subscribers are updated
+     * by the calling thread, as the EntityManager can't be shared.
+     * If a worker fails, the workers for the other subscribers are
+     * still waited for, and the times of last notification are
+     * updated for all the subscribers whose emails were sent, so that
+     * they are not sent the same emails again on the next run.
+     * @return The exception thrown by the first worker that failed,
+     *      or null, if all of the workers succeeded.
+     * @throws InterruptedException If the thread is interrupted while
+     *      waiting for the workers.
+     */
+    private Throwable sendEmails() throws InterruptedException {
+        Map<Integer, List<String>> emailAddresses =
+                getEmailAddressesBySubscriber();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (EmailSender sender = new EmailSender(smtpHost, smtpPort,
+                smtpConnections, maxMessagesPerSecond, maxAttempts,
+                retryDelay)) {
+            // Keep the futures in the same order as the models.
+            Map<Integer, Future<?>> futures = new LinkedHashMap<>();
+            for (Entry<Integer, SubscriberSubscriptionsModel> modelEntry
+                    : subscriberSubscriptionsModels.entrySet()) {
+                Integer subscriberId = modelEntry.getKey();
+                List<String> subscriberEmailAddresses =
+                        emailAddresses.getOrDefault(subscriberId,
+                                Collections.emptyList());
+                if (subscriberEmailAddresses.isEmpty()) {
+                    logger.error("No current email address recorded for "
+                            + "subscriber; subscriber Id: " + subscriberId);
+                }
+                SubscriberSubscriptionsModel model = modelEntry.getValue();
+                if (model.isEmpty()) {
+                    // Nothing to notify for this subscriber.
+                    logger.info("Nothing to report for subscriber: "
+                            + subscriberId);
+                    continue;
+                }
                 // Set system properties, as they weren't set during
                 // model generation.
                 model.setProperties(properties);
-                Writer htmlWriter = new StringWriter();
-                Writer plaintextWriter = new StringWriter();
+                futures.put(subscriberId, executor.submit(() -> {
+                    sendEmailsForSubscriber(sender, model,
+                            subscriberEmailAddresses);
+                    return null;
+                }));
+            }
+            Throwable firstFailure = null;
+            for (Entry<Integer, Future<?>> futureEntry : futures.entrySet()) {
                 try {
-                    templateHTML.process(modelEntry.getValue(), htmlWriter);
-                    templatePlaintext.process(modelEntry.getValue(),
-                            plaintextWriter);
-                    String html = htmlWriter.toString();
-//                    logger.info("HTML: " + html);
-                    String plaintext = plaintextWriter.toString();
-//                    logger.info("plaintext: " + plaintext);
-                    sendOneEmail(emailAddress, html, plaintext);
-                } catch (TemplateException e) {
-                    logger.error("Exception processing template", e);
-                    continue;
-                } catch (IOException e) {
-                    logger.error("Exception writing output", e);
+                    futureEntry.getValue().get();
+                } catch (ExecutionException e) {
+                    logger.error("Exception generating or sending email "
+                            + "for subscriber; subscriber Id: "
+                            + futureEntry.getKey(), e.getCause());
+                    if (firstFailure == null) {
+                        firstFailure = e.getCause();
+                    }
                     continue;
                 }
+                collectSubscriptions.updateLastNotificationForSubscriber(
+                        futureEntry.getKey(), TemporalUtils.nowUTC());
             }
-            collectSubscriptions.updateLastNotificationForSubscriber(
-                    subscriberId, TemporalUtils.nowUTC());
+            logger.info("Emails sent: " + sender.getSentCount()
+                    + "; emails that could not be sent: "
+                    + sender.getFailedCount());
+            return firstFailure;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Generate and send the notification email for one subscriber,
+     * to each of the subscriber's email addresses.
+     * @param sender The EmailSender to use to send the emails.
+     * @param model The model of the subscriber's subscriptions.
+     * @param recipients The email addresses of the subscriber.
+     * @throws InterruptedException If the thread is interrupted while
+     *      sending.
+     */
+    private void sendEmailsForSubscriber(final EmailSender sender,
+            final SubscriberSubscriptionsModel model,
+            final List<String> recipients) throws InterruptedException {
+        if (recipients.isEmpty()) {
+            return;
+        }
+        // The content is the same for all the subscriber's
+        // email addresses, so generate it only once.
+        Writer htmlWriter = new StringWriter();
+        Writer plaintextWriter = new StringWriter();
+        try {
+            templateHTML.process(model, htmlWriter);
+            templatePlaintext.process(model, plaintextWriter);
+        } catch (TemplateException e) {
+            logger.error("Exception processing template", e);
+            return;
+        } catch (IOException e) {
+            logger.error("Exception writing output", e);
+            return;
+        }
+        String html = htmlWriter.toString();
+        String plaintext = plaintextWriter.toString();
+        for (String recipient : recipients) {
+            sendOneEmail(sender, recipient, html, plaintext);
         }
     }
 
     /** Send one notification email.
+     * @param sender The EmailSender to use to send the email.
      * @param recipient The email address of the intended recipient.
      * @param html The HTML content to include in the email.
      * @param plaintext The plain text content to include in the email.
+     * @throws InterruptedException If the thread is interrupted while
+     *      sending.
      */
-    private void sendOneEmail(final String recipient,
-            final String html, final String plaintext) {
+    private void sendOneEmail(final EmailSender sender,
+            final String recipient,
+            final String html, final String plaintext)
+                    throws InterruptedException {
         HtmlEmail email = new HtmlEmail();
         email.setCharset(EmailConstants.UTF_8);
-        email.setHostName(smtpHost);
-        email.setSmtpPort(smtpPort);
         email.setSubject(subject);
         try {
             email.setFrom(senderEmailAddress, senderFullName);
@@ -284,11 +392,12 @@ public final class SendEmailNotifications {
             email.addTo(recipient);
             email.setHtmlMsg(html);
             email.setTextMsg(plaintext);
-            logger.info("Sending an email to: " + recipient);
-            email.send();
         } catch (EmailException e) {
-            logger.error("Error configuring or sending email", e);
+            logger.error("Error configuring email", e);
+            return;
         }
+        logger.info("Sending an email to: " + recipient);
+        sender.send(email);
     }
 
     /** Main method.
@@ -311,8 +420,18 @@ public final class SendEmailNotifications {
 
             txn = em.getTransaction();
             txn.begin();
-            sendEmails();
+            Throwable workerFailure = sendEmails();
+            // Commit even if a worker failed, so that the times of last
+            // notification of the subscribers who were sent their
+            // emails are recorded.
             txn.commit();
+            if (workerFailure != null) {
+                // As though the exception had been thrown
+                // by this thread.
+                throw new IllegalStateException(
+                        "Exception generating or sending email",
+                        workerFailure);
+            }
         } catch (Throwable t) {
             if (txn != null && txn.isActive()) {
                 try {
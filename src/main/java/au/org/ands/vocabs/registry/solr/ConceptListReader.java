@@ -0,0 +1,78 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.solr;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import au.org.ands.vocabs.registry.workflow.provider.transform.JsonListTransformProvider;
+
+/** Reader of the values needed for indexing from concept list files,
+ * as generated by {@link JsonListTransformProvider}.
+ * It is kept separate from {@link EntityIndexer}, so that it
+ * can be used (and tested) without a connection to Solr.
+ */
+final class ConceptListReader {
+
+    /** Private constructor for a utility class. */
+    private ConceptListReader() {
+    }
+
+    /** The JsonFactory used to read concept list files.
+     * The top-level keys of a concept list are concept IRIs, which are
+     * all distinct, so there is no point in canonicalizing field names.
+     * Not doing so also avoids Jackson's check for hash collisions in its
+     * symbol table, which a large concept list can otherwise trip.
+     */
+    private static final JsonFactory CONCEPT_LIST_JSON_FACTORY =
+            new JsonFactory().disable(
+                    JsonFactory.Feature.CANONICALIZE_FIELD_NAMES);
+
+    /** Read the prefLabels of the concepts in a concept list file.
+     * The file is read using a streaming parser, so that only the
+     * prefLabels are kept, rather than the entire concept map.
+     * The prefLabels are added in the order in which they appear
+     * in the file. Values of prefLabel that are not strings are skipped.
+     * @param conceptsFile The concept list file.
+     * @param prefLabels The list to which the prefLabels are added.
+     * @throws IOException If the file can not be read, or does not
+     *      contain valid JSON data in the expected format.
+     */
+    static void readPrefLabels(final File conceptsFile,
+            final List<String> prefLabels) throws IOException {
+        try (JsonParser parser =
+                CONCEPT_LIST_JSON_FACTORY.createParser(conceptsFile)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser,
+                        "Concept list is not a JSON object");
+            }
+            // The top-level keys are concept IRIs; the values
+            // are objects containing the properties of each concept.
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new JsonParseException(parser,
+                            "Concept is not a JSON object");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.getCurrentName();
+                    JsonToken valueToken = parser.nextToken();
+                    if (valueToken == JsonToken.VALUE_STRING
+                            && JsonListTransformProvider.PREF_LABEL.equals(
+                                    fieldName)) {
+                        prefLabels.add(parser.getText());
+                    } else {
+                        // E.g., the arrays of broader/narrower concepts.
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+    }
+
+}
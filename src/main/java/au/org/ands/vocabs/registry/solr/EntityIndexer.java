@@ -38,6 +38,8 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -58,13 +60,11 @@ import org.jsoup.Jsoup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import au.org.ands.vocabs.registry.db.context.DBContext;
-import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.dao.AccessPointDAO;
 import au.org.ands.vocabs.registry.db.dao.RelatedEntityDAO;
 import au.org.ands.vocabs.registry.db.dao.VersionArtefactDAO;
@@ -92,7 +92,6 @@ import au.org.ands.vocabs.registry.enums.VersionStatus;
 import au.org.ands.vocabs.registry.utils.fileformat.FileFormatUtils;
 import au.org.ands.vocabs.registry.utils.language.Languages;
 import au.org.ands.vocabs.registry.utils.language.ParsedLanguage;
-import au.org.ands.vocabs.registry.workflow.provider.transform.JsonListTransformProvider;
 
 /** Methods to support Solr indexing, including creating a Solr document
  * for a registry entity, and for adding and deleting index entries.
@@ -229,8 +228,7 @@ public final class EntityIndexer {
         Integer vocabularyId = vocabulary.getVocabularyId();
         SolrInputDocument document = new SolrInputDocument();
         VocabularyJson vocabularyData =
-                JSONSerialization.deserializeStringAsJson(vocabulary.getData(),
-                        VocabularyJson.class);
+                vocabulary.getDataAs(VocabularyJson.class);
 
         // The order of the fields matches:
         // https://ardc-services.atlassian.net/wiki/spaces/PROJ/pages/
@@ -402,35 +400,16 @@ public final class EntityIndexer {
                             mostSuitableVersionId,
                             VersionArtefactType.CONCEPT_LIST, em);
             if (conceptLists != null && conceptLists.size() == 1) {
-                String artefactData = conceptLists.get(0).getData();
                 VaConceptList vaConceptList =
-                        JSONSerialization.deserializeStringAsJson(
-                                artefactData, VaConceptList.class);
+                        conceptLists.get(0).getDataAs(VaConceptList.class);
                 File conceptsFile = new File(vaConceptList.getPath());
                 try {
-                    Map<String, Map<String, Object>> conceptsData =
-                            JSONSerialization.deserializeStringAsJson(
-                                    conceptsFile,
-                                    new TypeReference<Map<String,
-                                    Map<String, Object>>>() { });
-                    for (Map<String, Object> concept : conceptsData.values()) {
-                        if (concept.containsKey(JsonListTransformProvider.
-                                PREF_LABEL)) {
-                            concepts.add((String) concept.get(
-                                    JsonListTransformProvider.PREF_LABEL));
-                        }
-                    }
-                } catch (IllegalStateException ise) {
-                    // This happens when Jackson's own hash implementation
-                    // thinks it has detected a DoS:
-                    // java.lang.IllegalStateException: Spill-over slots
-                    //   in symbol table with 7128 entries,
-                    //   hash area of 16384 slots is now full
-                    //   (all 2048 slots -- suspect a DoS attack based on
-                    //   hash collisions. You can disable the check via
-                    //   `JsonFactory.Feature.FAIL_ON_SYMBOL_HASH_OVERFLOW`
-                    LOGGER.error("Not indexing concepts, because Jackson says "
-                            + "it looks like a DoS", ise);
+                    ConceptListReader.readPrefLabels(conceptsFile, concepts);
+                } catch (IOException e) {
+                    LOGGER.error("Not indexing concepts, because the "
+                            + "concept list could not be read: "
+                            + conceptsFile, e);
+                    concepts.clear();
                 }
             }
             List<AccessPoint> accessPoints = AccessPointDAO.
@@ -442,8 +421,7 @@ public final class EntityIndexer {
                 case API_SPARQL:
                     break;
                 case FILE:
-                    ApFile apFile = JSONSerialization.deserializeStringAsJson(
-                            accessPoint.getData(), ApFile.class);
+                    ApFile apFile = accessPoint.getDataAs(ApFile.class);
                     formatList.add(apFile.getFormat());
                     break;
                 case SESAME_DOWNLOAD:
@@ -458,9 +436,8 @@ public final class EntityIndexer {
                     // before.
                     if (!widgetable) {
                         widgetable = true;
-                        ApSissvoc apSissvoc = JSONSerialization.
-                                deserializeStringAsJson(
-                                        accessPoint.getData(), ApSissvoc.class);
+                        ApSissvoc apSissvoc =
+                                accessPoint.getDataAs(ApSissvoc.class);
                         document.addField(SISSVOC_ENDPOINT,
                                 apSissvoc.getUrlPrefix());
                     }
@@ -513,27 +490,57 @@ public final class EntityIndexer {
      */
     public static void indexVocabulary(final int vocabularyId)
             throws IOException, SolrServerException, RemoteSolrException {
+        indexVocabularies(Collections.singletonList(vocabularyId));
+    }
+
+    /** Index a batch of current vocabularies in Solr. The documents for
+     * the registry collection are sent to Solr in one request.
+     * Vocabulary IDs for which there is no current vocabulary are
+     * ignored.
+     * @param vocabularyIds The vocabulary IDs of the vocabularies to be
+     *      added to the Solr indexes.
+     * @throws IOException If the Solr API generated an IOException.
+     * @throws SolrServerException If the Solr API generated a
+     *      SolrServerException.
+     * @throws RemoteSolrException If there is a problem communicating with
+     *      Zookeeper.
+     */
+    public static void indexVocabularies(
+            final Collection<Integer> vocabularyIds)
+            throws IOException, SolrServerException, RemoteSolrException {
         EntityManager em = null;
         try {
             em = DBContext.getEntityManager();
-            Vocabulary vocabulary =
-                    VocabularyDAO.getCurrentVocabularyByVocabularyId(em,
-                            vocabularyId);
-            if (vocabulary == null) {
-                // For now, do nothing. Maybe revisit this decision later,
-                // e.g., to throw an exception in this case.
+            List<Vocabulary> vocabularies = new ArrayList<>();
+            List<SolrInputDocument> documents = new ArrayList<>();
+            for (Integer vocabularyId : vocabularyIds) {
+                Vocabulary vocabulary =
+                        VocabularyDAO.getCurrentVocabularyByVocabularyId(em,
+                                vocabularyId);
+                if (vocabulary == null) {
+                    // For now, do nothing. Maybe revisit this decision later,
+                    // e.g., to throw an exception in this case.
+                    continue;
+                }
+                vocabularies.add(vocabulary);
+                documents.add(createSolrDocument(em, vocabulary));
+            }
+            if (documents.isEmpty()) {
                 return;
             }
-            SolrInputDocument document = createSolrDocument(em, vocabulary);
             try {
-                SOLR_CLIENT_REGISTRY.add(document);
+                SOLR_CLIENT_REGISTRY.add(documents);
             } catch (IOException | SolrServerException
                     | RemoteSolrException e) {
                 LOGGER.error("Exception when adding document to Solr index", e);
                 throw e;
             }
-            indexResourceDocsForVocabulary(em,
-                    vocabularyId, vocabulary, document);
+            for (int i = 0; i < vocabularies.size(); i++) {
+                Vocabulary vocabulary = vocabularies.get(i);
+                indexResourceDocsForVocabulary(em,
+                        vocabulary.getVocabularyId(), vocabulary,
+                        documents.get(i));
+            }
         } finally {
             if (em != null) {
                 em.close();
@@ -610,10 +617,33 @@ public final class EntityIndexer {
      */
     public static void unindexVocabulary(final int vocabularyId)
             throws IOException, SolrServerException, RemoteSolrException {
+        unindexVocabularies(Collections.singletonList(vocabularyId));
+    }
+
+    /** Remove a batch of vocabularies from the Solr registry index,
+     *      and remove their resource docs from the resources Solr index.
+     * @param vocabularyIds The vocabulary IDs of the vocabularies to be
+     *      removed from the Solr index.
+     * @throws IOException If the Solr API generated an IOException.
+     * @throws SolrServerException If the Solr API generated a
+     *      SolrServerException.
+     * @throws RemoteSolrException If there is a problem communicating with
+     *      Zookeeper.
+     */
+    public static void unindexVocabularies(
+            final Collection<Integer> vocabularyIds)
+            throws IOException, SolrServerException, RemoteSolrException {
+        if (vocabularyIds.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>();
+        for (Integer vocabularyId : vocabularyIds) {
+            ids.add(vocabularyId.toString());
+        }
         try {
-            SOLR_CLIENT_REGISTRY.deleteById(Integer.toString(vocabularyId));
-            SOLR_CLIENT_RESOURCES.deleteByQuery("vocabulary_id:"
-                    + vocabularyId);
+            SOLR_CLIENT_REGISTRY.deleteById(ids);
+            SOLR_CLIENT_RESOURCES.deleteByQuery("vocabulary_id:("
+                    + String.join(" OR ", ids) + ")");
         } catch (IOException | SolrServerException | RemoteSolrException e) {
             LOGGER.error("Exception when removing documents from Solr indexes",
                     e);
@@ -681,8 +711,7 @@ public final class EntityIndexer {
         // Extract the fields that we need to add to each Solr document,
         // that come from the vocabulary-level metadata.
         VocabularyJson vocabularyJson =
-                JSONSerialization.deserializeStringAsJson(
-                        vocabulary.getData(), VocabularyJson.class);
+                vocabulary.getDataAs(VocabularyJson.class);
 
         String vocabularyTitle = vocabularyJson.getTitle();
         String vocabularyIdString = Integer.toString(vocabularyId);
@@ -714,8 +743,7 @@ public final class EntityIndexer {
             // Extract the fields that we need to add to each Solr document,
             // that come from the version-level metadata.
             Integer versionId = version.getVersionId();
-            VersionJson versionJson = JSONSerialization.deserializeStringAsJson(
-                    version.getData(), VersionJson.class);
+            VersionJson versionJson = version.getDataAs(VersionJson.class);
             String versionTitle = versionJson.getTitle();
             String versionReleaseDate = version.getReleaseDate();
             String versionStatus = version.getStatus().toString();
@@ -725,10 +753,8 @@ public final class EntityIndexer {
                     getCurrentVersionArtefactListForVersionByType(
                             versionId, VersionArtefactType.RESOURCE_DOCS, em);
             if (resourceDocs != null && resourceDocs.size() == 1) {
-                String vaData = resourceDocs.get(0).getData();
                 VaResourceDocs vaResourceDocs =
-                        JSONSerialization.deserializeStringAsJson(
-                                vaData, VaResourceDocs.class);
+                        resourceDocs.get(0).getDataAs(VaResourceDocs.class);
                 File resourceDocsFile = new File(vaResourceDocs.getPath());
                 JsonNode jsonNode = jsonFileToJsonNode(mapper,
                         resourceDocsFile);
@@ -787,9 +813,8 @@ public final class EntityIndexer {
                 getCurrentAccessPointListForVersionByType(versionId,
                         AccessPointType.SISSVOC, em);
         if (accessPoints != null && accessPoints.size() > 0) {
-            ApSissvoc apSissvoc = JSONSerialization.
-                    deserializeStringAsJson(
-                            accessPoints.get(0).getData(), ApSissvoc.class);
+            ApSissvoc apSissvoc =
+                    accessPoints.get(0).getDataAs(ApSissvoc.class);
             return apSissvoc.getUrlPrefix();
         }
         // No currently-valid access point of type "sissvoc" for this version.
@@ -0,0 +1,639 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.solr;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.SolrServerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.org.ands.vocabs.registry.utils.PropertyConstants;
+import au.org.ands.vocabs.registry.utils.RegistryProperties;
+
+/** Queue of requests to (un)index vocabularies in Solr, processed in
+ * the background. The API methods that add, update, and delete
+ * vocabularies use this, so that the user does not have to wait
+ * for the Solr indexing to be done. This matters most when a related
+ * entity's title changes, as every vocabulary that it publishes
+ * then needs to be reindexed.
+ *
+ * Requests for the same vocabulary are coalesced: a request is not
+ * processed until there have been no further requests for the
+ * same vocabulary for the debounce time (but it is not delayed by
+ * more than the maximum delay). The last request wins: a request
+ * to index a vocabulary followed by a request to unindex it results
+ * only in the vocabulary being unindexed.
+ *
+ * Requests are processed in batches by a single worker thread, which
+ * is started on demand. If (un)indexing a batch fails, its
+ * vocabularies are (un)indexed one at a time, so that one vocabulary
+ * that can not be (un)indexed does not hold back the others.
+ * Requests that still fail are put back on the queue, and retried
+ * after a delay that doubles with each attempt, up to a maximum.
+ * After the maximum number of attempts, a request is abandoned.
+ *
+ * Use {@link #getQueue()} to get the queue used by the API methods.
+ * Use {@link #getStatus()} to get metrics, including the numbers of
+ * failed and abandoned requests, and {@link #awaitIdle(long)} to
+ * wait until all requests have been processed. Invoke
+ * {@link #shutdown()} on the queue during webapp shutdown.
+ */
+public final class IndexingQueue {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** The time to wait, in milliseconds, for the worker thread to
+     * finish during shutdown. */
+    private static final long SHUTDOWN_WAIT_MILLIS = 10000;
+
+    /** The operations used by the queue to (un)index vocabularies. */
+    interface Indexer {
+
+        /** Index a batch of vocabularies.
+         * @param vocabularyIds The vocabulary IDs of the vocabularies
+         *      to be indexed.
+         * @throws IOException If the Solr API generated an IOException.
+         * @throws SolrServerException If the Solr API generated a
+         *      SolrServerException.
+         */
+        void index(Collection<Integer> vocabularyIds)
+                throws IOException, SolrServerException;
+
+        /** Unindex a batch of vocabularies.
+         * @param vocabularyIds The vocabulary IDs of the vocabularies
+         *      to be unindexed.
+         * @throws IOException If the Solr API generated an IOException.
+         * @throws SolrServerException If the Solr API generated a
+         *      SolrServerException.
+         */
+        void unindex(Collection<Integer> vocabularyIds)
+                throws IOException, SolrServerException;
+    }
+
+    /** Holder of the queue used by the API methods. The queue is
+     * created, and its settings are read from the registry properties,
+     * when it is first used. */
+    private static final class DefaultQueue {
+
+        /** Private constructor for a holder class. */
+        private DefaultQueue() {
+        }
+
+        /** The queue used by the API methods. It uses
+         * {@link EntityIndexer} to (un)index vocabularies. */
+        private static final IndexingQueue QUEUE = new IndexingQueue(
+                getLongProperty(
+                        PropertyConstants.REGISTRY_SOLR_INDEXING_DEBOUNCE,
+                        "500"),
+                getLongProperty(
+                        PropertyConstants.REGISTRY_SOLR_INDEXING_MAXDELAY,
+                        "5000"),
+                (int) getLongProperty(
+                        PropertyConstants.REGISTRY_SOLR_INDEXING_BATCHSIZE,
+                        "100"),
+                getLongProperty(
+                        PropertyConstants.REGISTRY_SOLR_INDEXING_RETRYDELAY,
+                        "1000"),
+                getLongProperty(
+                        PropertyConstants.REGISTRY_SOLR_INDEXING_MAXRETRYDELAY,
+                        "300000"),
+                (int) getLongProperty(
+                        PropertyConstants.REGISTRY_SOLR_INDEXING_MAXATTEMPTS,
+                        "10"),
+                new Indexer() {
+                    @Override
+                    public void index(final Collection<Integer> ids)
+                            throws IOException, SolrServerException {
+                        EntityIndexer.indexVocabularies(ids);
+                    }
+
+                    @Override
+                    public void unindex(final Collection<Integer> ids)
+                            throws IOException, SolrServerException {
+                        EntityIndexer.unindexVocabularies(ids);
+                    }
+                });
+
+        /** Get the value of a numeric registry property.
+         * @param propName The name of the property.
+         * @param defaultValue The default value of the property.
+         * @return The value of the property.
+         */
+        private static long getLongProperty(final String propName,
+                final String defaultValue) {
+            return Long.parseLong(RegistryProperties.getProperty(propName,
+                    defaultValue));
+        }
+    }
+
+    /** The time to wait after a request, in nanoseconds, for further
+     * requests for the same vocabulary. */
+    private final long debounceNanos;
+
+    /** The maximum time, in nanoseconds, that a request may be delayed
+     * by further requests for the same vocabulary. */
+    private final long maxDelayNanos;
+
+    /** The maximum number of vocabularies processed in one batch. */
+    private final int batchSize;
+
+    /** The time, in nanoseconds, to wait before the first retry of
+     * a failed request. */
+    private final long retryDelayNanos;
+
+    /** The maximum time, in nanoseconds, to wait before retrying
+     * a failed request. */
+    private final long maxRetryDelayNanos;
+
+    /** The maximum number of attempts to process a request, after which
+     * it is abandoned. */
+    private final int maxAttempts;
+
+    /** The operations used to (un)index vocabularies. */
+    private final Indexer indexer;
+
+    /** Lock that guards all of the mutable state of the queue. */
+    private final Object lock = new Object();
+
+    /** The waiting requests, keyed by vocabulary ID. */
+    private final LinkedHashMap<Integer, PendingRequest> pending =
+            new LinkedHashMap<>();
+
+    /** The worker thread, or null, if it has not yet been started. */
+    private Thread worker;
+
+    /** Whether {@link #shutdown()} has been invoked. */
+    private boolean isShutdown;
+
+    /** The number of vocabularies in the batch currently being
+     * processed. */
+    private int inProgress;
+
+    /** The number of requests received. */
+    private long requested;
+
+    /** The number of requests coalesced with an earlier request. */
+    private long coalesced;
+
+    /** The number of vocabularies indexed. */
+    private long indexed;
+
+    /** The number of vocabularies unindexed. */
+    private long unindexed;
+
+    /** The number of attempts to (un)index a vocabulary that failed. */
+    private long failed;
+
+    /** The number of failed requests that were put back on the queue
+     * to be retried. */
+    private long retried;
+
+    /** The number of failed requests that were abandoned. */
+    private long abandoned;
+
+    /** The number of batches processed. */
+    private long batches;
+
+    /** The time, in milliseconds, taken to process the most recent
+     * batch. */
+    private long lastBatchMillis;
+
+    /** A waiting request. */
+    private static final class PendingRequest {
+
+        /** The time at which the first of the coalesced requests
+         * was received, as a value of {@link System#nanoTime()}. */
+        private final long firstRequested;
+
+        /** The time at which the request is to be processed,
+         * as a value of {@link System#nanoTime()}. */
+        private long due;
+
+        /** Whether the vocabulary is to be indexed (true)
+         * or unindexed (false). */
+        private boolean index;
+
+        /** The number of times that processing this request has
+         * already been attempted. */
+        private int attempts;
+
+        /** Constructor.
+         * @param now The current time, as a value of
+         *      {@link System#nanoTime()}.
+         */
+        PendingRequest(final long now) {
+            firstRequested = now;
+        }
+    }
+
+    /** Constructor.
+     * @param debounceMillis The time to wait after a request, in
+     *      milliseconds, for further requests for the same vocabulary.
+     * @param maxDelayMillis The maximum time, in milliseconds, that a
+     *      request may be delayed by further requests for the same
+     *      vocabulary.
+     * @param aBatchSize The maximum number of vocabularies processed
+     *      in one batch.
+     * @param retryDelayMillis The time, in milliseconds, to wait before
+     *      the first retry of a failed request.
+     * @param maxRetryDelayMillis The maximum time, in milliseconds, to
+     *      wait before retrying a failed request.
+     * @param aMaxAttempts The maximum number of attempts to process
+     *      a request.
+     * @param anIndexer The operations used to (un)index vocabularies.
+     */
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    IndexingQueue(final long debounceMillis, final long maxDelayMillis,
+            final int aBatchSize, final long retryDelayMillis,
+            final long maxRetryDelayMillis, final int aMaxAttempts,
+            final Indexer anIndexer) {
+        debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        batchSize = aBatchSize;
+        retryDelayNanos = TimeUnit.MILLISECONDS.toNanos(retryDelayMillis);
+        maxRetryDelayNanos = TimeUnit.MILLISECONDS.toNanos(
+                maxRetryDelayMillis);
+        maxAttempts = aMaxAttempts;
+        indexer = anIndexer;
+    }
+
+    /** Get the queue used by the API methods.
+     * @return The queue used by the API methods.
+     */
+    public static IndexingQueue getQueue() {
+        return DefaultQueue.QUEUE;
+    }
+
+    /** Request that a vocabulary be indexed.
+     * @param vocabularyId The vocabulary ID of the vocabulary to be
+     *      indexed.
+     */
+    public void index(final int vocabularyId) {
+        enqueue(vocabularyId, true);
+    }
+
+    /** Request that a vocabulary be unindexed.
+     * @param vocabularyId The vocabulary ID of the vocabulary to be
+     *      unindexed.
+     */
+    public void unindex(final int vocabularyId) {
+        enqueue(vocabularyId, false);
+    }
+
+    /** Add a request to the queue, coalescing it with any waiting
+     * request for the same vocabulary.
+     * @param vocabularyId The vocabulary ID of the vocabulary.
+     * @param index Whether the vocabulary is to be indexed (true)
+     *      or unindexed (false).
+     */
+    private void enqueue(final int vocabularyId, final boolean index) {
+        synchronized (lock) {
+            if (isShutdown) {
+                LOGGER.warn("Indexing queue has been shut down; ignoring "
+                        + "request for vocabulary " + vocabularyId);
+                return;
+            }
+            long now = System.nanoTime();
+            requested++;
+            PendingRequest pendingRequest = pending.get(vocabularyId);
+            if (pendingRequest == null) {
+                pendingRequest = new PendingRequest(now);
+                pending.put(vocabularyId, pendingRequest);
+            } else {
+                coalesced++;
+            }
+            pendingRequest.index = index;
+            // A new request is not held back by the failures of
+            // the request that it replaces.
+            pendingRequest.attempts = 0;
+            pendingRequest.due = Math.min(now + debounceNanos,
+                    pendingRequest.firstRequested + maxDelayNanos);
+            if (worker == null) {
+                worker = new Thread(this::work, "Solr indexing queue");
+                worker.setDaemon(true);
+                worker.start();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /** The body of the worker thread. */
+    private void work() {
+        while (true) {
+            Map<Integer, PendingRequest> batch;
+            try {
+                batch = takeBatch();
+            } catch (InterruptedException e) {
+                LOGGER.error("Indexing queue worker interrupted");
+                synchronized (lock) {
+                    // Let the next request start a new worker.
+                    worker = null;
+                }
+                return;
+            }
+            if (batch == null) {
+                // Shut down, and nothing left to do.
+                return;
+            }
+            long start = System.nanoTime();
+            processBatch(batch);
+            synchronized (lock) {
+                inProgress = 0;
+                batches++;
+                lastBatchMillis = TimeUnit.NANOSECONDS.toMillis(
+                        System.nanoTime() - start);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /** Wait until there are requests due to be processed, then remove
+     * them from the queue. On shutdown, all waiting requests are
+     * treated as being due.
+     * @return A map of the requests to be processed, keyed by
+     *      vocabulary ID; or null, if the queue has been shut down,
+     *      and there are no more waiting requests.
+     * @throws InterruptedException If the thread is interrupted while
+     *      waiting.
+     */
+    private Map<Integer, PendingRequest> takeBatch()
+            throws InterruptedException {
+        Map<Integer, PendingRequest> batch = new LinkedHashMap<>();
+        synchronized (lock) {
+            while (true) {
+                if (isShutdown && pending.isEmpty()) {
+                    return null;
+                }
+                long now = System.nanoTime();
+                long nextDue = Long.MAX_VALUE;
+                Iterator<Map.Entry<Integer, PendingRequest>> iterator =
+                        pending.entrySet().iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    Map.Entry<Integer, PendingRequest> entry =
+                            iterator.next();
+                    PendingRequest pendingRequest = entry.getValue();
+                    if (isShutdown || pendingRequest.due - now <= 0) {
+                        batch.put(entry.getKey(), pendingRequest);
+                        iterator.remove();
+                    } else {
+                        nextDue = Math.min(nextDue, pendingRequest.due);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    inProgress = batch.size();
+                    return batch;
+                }
+                if (nextDue == Long.MAX_VALUE) {
+                    lock.wait();
+                } else {
+                    lock.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(
+                            nextDue - now)));
+                }
+            }
+        }
+    }
+
+    /** Process a batch of requests. Requests that fail are put back
+     * on the queue to be retried, or abandoned.
+     * @param batch The batch of requests, as returned by
+     *      {@link #takeBatch()}.
+     */
+    private void processBatch(final Map<Integer, PendingRequest> batch) {
+        List<Integer> toIndex = new ArrayList<>();
+        List<Integer> toUnindex = new ArrayList<>();
+        for (Map.Entry<Integer, PendingRequest> entry : batch.entrySet()) {
+            if (entry.getValue().index) {
+                toIndex.add(entry.getKey());
+            } else {
+                toUnindex.add(entry.getKey());
+            }
+        }
+        List<Integer> unindexFailures = process(toUnindex, false);
+        List<Integer> indexFailures = process(toIndex, true);
+        synchronized (lock) {
+            unindexed += toUnindex.size() - unindexFailures.size();
+            indexed += toIndex.size() - indexFailures.size();
+            for (Integer vocabularyId : unindexFailures) {
+                requeue(vocabularyId, batch.get(vocabularyId));
+            }
+            for (Integer vocabularyId : indexFailures) {
+                requeue(vocabularyId, batch.get(vocabularyId));
+            }
+        }
+    }
+
+    /** (Un)index some vocabularies. First, they are (un)indexed
+     * all together. If that fails, they are (un)indexed one at a time,
+     * so as to find out which of them can not be (un)indexed.
+     * @param vocabularyIds The vocabulary IDs of the vocabularies.
+     * @param index Whether the vocabularies are to be indexed (true)
+     *      or unindexed (false).
+     * @return The vocabulary IDs of the vocabularies that could not
+     *      be (un)indexed.
+     */
+    private List<Integer> process(final List<Integer> vocabularyIds,
+            final boolean index) {
+        if (vocabularyIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String operation = describe(index);
+        try {
+            call(vocabularyIds, index);
+            return Collections.emptyList();
+        } catch (IOException | SolrServerException | RuntimeException e) {
+            if (vocabularyIds.size() == 1) {
+                LOGGER.error("Unable to " + operation + " vocabulary "
+                        + vocabularyIds.get(0), e);
+                return vocabularyIds;
+            }
+            LOGGER.warn("Unable to " + operation + " vocabularies "
+                    + vocabularyIds + "; trying them one at a time", e);
+        }
+        List<Integer> failures = new ArrayList<>();
+        for (Integer vocabularyId : vocabularyIds) {
+            try {
+                call(Collections.singletonList(vocabularyId), index);
+            } catch (IOException | SolrServerException
+                    | RuntimeException e) {
+                LOGGER.error("Unable to " + operation + " vocabulary "
+                        + vocabularyId, e);
+                failures.add(vocabularyId);
+            }
+        }
+        return failures;
+    }
+
+    /** (Un)index some vocabularies using the indexer.
+     * @param vocabularyIds The vocabulary IDs of the vocabularies.
+     * @param index Whether the vocabularies are to be indexed (true)
+     *      or unindexed (false).
+     * @throws IOException If the Solr API generated an IOException.
+     * @throws SolrServerException If the Solr API generated a
+     *      SolrServerException.
+     */
+    private void call(final Collection<Integer> vocabularyIds,
+            final boolean index) throws IOException, SolrServerException {
+        if (index) {
+            indexer.index(vocabularyIds);
+        } else {
+            indexer.unindex(vocabularyIds);
+        }
+    }
+
+    /** Put a failed request back on the queue, to be retried after
+     * a delay, or abandon it, if it has been attempted the maximum
+     * number of times. If there has been another request for the same
+     * vocabulary since the batch was taken, that request replaces the
+     * failed one. Invoke only while holding the lock.
+     * @param vocabularyId The vocabulary ID of the vocabulary.
+     * @param failedRequest The request that failed.
+     */
+    private void requeue(final int vocabularyId,
+            final PendingRequest failedRequest) {
+        failed++;
+        if (pending.containsKey(vocabularyId)) {
+            return;
+        }
+        int attempts = failedRequest.attempts + 1;
+        if (isShutdown || attempts >= maxAttempts) {
+            abandoned++;
+            LOGGER.error("Giving up on request to "
+                    + describe(failedRequest.index) + " vocabulary "
+                    + vocabularyId + " after " + attempts + " attempts");
+            return;
+        }
+        retried++;
+        long now = System.nanoTime();
+        PendingRequest retry = new PendingRequest(
+                failedRequest.firstRequested);
+        retry.index = failedRequest.index;
+        retry.attempts = attempts;
+        retry.due = now + retryDelay(attempts);
+        pending.put(vocabularyId, retry);
+    }
+
+    /** Describe the operation of a request, for logging.
+     * @param index Whether the vocabulary is to be indexed (true)
+     *      or unindexed (false).
+     * @return The description of the operation.
+     */
+    private static String describe(final boolean index) {
+        if (index) {
+            return "index";
+        }
+        return "unindex";
+    }
+
+    /** Compute the delay before retrying a failed request. The delay
+     * doubles with each attempt, up to the maximum delay.
+     * @param attempts The number of attempts already made.
+     * @return The delay, in nanoseconds.
+     */
+    long retryDelay(final int attempts) {
+        long delay = retryDelayNanos;
+        for (int i = 1; i < attempts && delay < maxRetryDelayNanos; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, maxRetryDelayNanos);
+    }
+
+    /** Wait until all requests have been processed. Any waiting requests,
+     * including retries of failed requests, are made due immediately,
+     * i.e., the debounce time and retry delays are skipped.
+     * Requests received while waiting are also waited for.
+     * @param timeoutMillis The maximum time to wait, in milliseconds.
+     * @return true, if all requests have been processed or abandoned;
+     *      false, if the timeout expired first.
+     * @throws InterruptedException If the thread is interrupted while
+     *      waiting.
+     */
+    public boolean awaitIdle(final long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (lock) {
+            while (!pending.isEmpty() || inProgress > 0) {
+                long now = System.nanoTime();
+                for (PendingRequest pendingRequest : pending.values()) {
+                    pendingRequest.due = now;
+                }
+                lock.notifyAll();
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    return false;
+                }
+                lock.wait(Math.max(1,
+                        TimeUnit.NANOSECONDS.toMillis(remaining)));
+            }
+            return true;
+        }
+    }
+
+    /** Get the current state and metrics of the queue.
+     * @return A snapshot of the state and metrics of the queue.
+     */
+    public IndexingQueueStatus getStatus() {
+        IndexingQueueStatus status = new IndexingQueueStatus();
+        synchronized (lock) {
+            status.setQueueDepth(pending.size());
+            status.setInProgress(inProgress);
+            long now = System.nanoTime();
+            long oldest = now;
+            for (PendingRequest pendingRequest : pending.values()) {
+                if (pendingRequest.firstRequested - oldest < 0) {
+                    oldest = pendingRequest.firstRequested;
+                }
+            }
+            status.setLagMillis(TimeUnit.NANOSECONDS.toMillis(now - oldest));
+            status.setRequested(requested);
+            status.setCoalesced(coalesced);
+            status.setIndexed(indexed);
+            status.setUnindexed(unindexed);
+            status.setFailed(failed);
+            status.setRetried(retried);
+            status.setAbandoned(abandoned);
+            status.setBatches(batches);
+            status.setLastBatchMillis(lastBatchMillis);
+        }
+        return status;
+    }
+
+    /** Shut down the queue. Waiting requests are processed immediately,
+     * and the worker thread is given a short time to finish.
+     * Failed requests are not retried.
+     * Invoke this method during webapp shutdown. After invoking this
+     * method, further requests are ignored. */
+    public void shutdown() {
+        Thread workerToJoin;
+        synchronized (lock) {
+            isShutdown = true;
+            lock.notifyAll();
+            workerToJoin = worker;
+        }
+        if (workerToJoin == null) {
+            return;
+        }
+        try {
+            workerToJoin.join(SHUTDOWN_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (workerToJoin.isAlive()) {
+            LOGGER.error("Indexing queue worker did not finish during "
+                    + "shutdown");
+        }
+    }
+
+}
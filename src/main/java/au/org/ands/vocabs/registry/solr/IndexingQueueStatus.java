@@ -0,0 +1,236 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.solr;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/** Snapshot of the state and metrics of the {@link IndexingQueue}.
+ * The counts are totals since webapp startup. */
+@SuppressWarnings("checkstyle:DesignForExtension")
+@XmlRootElement(name = "indexingQueueStatus")
+public class IndexingQueueStatus {
+
+    /** The number of vocabularies waiting to be (un)indexed. */
+    private int queueDepth;
+
+    /** The number of vocabularies currently being (un)indexed. */
+    private int inProgress;
+
+    /** The time, in milliseconds, for which the oldest waiting
+     * request has been waiting. */
+    private long lagMillis;
+
+    /** The number of requests received. */
+    private long requested;
+
+    /** The number of requests that were coalesced with an earlier
+     * request for the same vocabulary. */
+    private long coalesced;
+
+    /** The number of vocabularies indexed. */
+    private long indexed;
+
+    /** The number of vocabularies unindexed. */
+    private long unindexed;
+
+    /** The number of attempts to (un)index a vocabulary that failed. */
+    private long failed;
+
+    /** The number of failed requests that were put back on the queue
+     * to be retried. */
+    private long retried;
+
+    /** The number of failed requests that were abandoned. */
+    private long abandoned;
+
+    /** The number of batches processed. */
+    private long batches;
+
+    /** The time, in milliseconds, taken to process the most
+     * recent batch. */
+    private long lastBatchMillis;
+
+    /** Get the number of vocabularies waiting to be (un)indexed.
+     * @return The number of vocabularies waiting to be (un)indexed.
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /** Set the number of vocabularies waiting to be (un)indexed.
+     * @param aQueueDepth The number of vocabularies waiting to be
+     *      (un)indexed.
+     */
+    public void setQueueDepth(final int aQueueDepth) {
+        queueDepth = aQueueDepth;
+    }
+
+    /** Get the number of vocabularies currently being (un)indexed.
+     * @return The number of vocabularies currently being (un)indexed.
+     */
+    public int getInProgress() {
+        return inProgress;
+    }
+
+    /** Set the number of vocabularies currently being (un)indexed.
+     * @param anInProgress The number of vocabularies currently being
+     *      (un)indexed.
+     */
+    public void setInProgress(final int anInProgress) {
+        inProgress = anInProgress;
+    }
+
+    /** Get the time for which the oldest waiting request has been waiting.
+     * @return The time, in milliseconds, for which the oldest waiting
+     *      request has been waiting, or 0, if there are no waiting
+     *      requests.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /** Set the time for which the oldest waiting request has been waiting.
+     * @param aLagMillis The time, in milliseconds, for which the oldest
+     *      waiting request has been waiting.
+     */
+    public void setLagMillis(final long aLagMillis) {
+        lagMillis = aLagMillis;
+    }
+
+    /** Get the number of requests received.
+     * @return The number of requests received.
+     */
+    public long getRequested() {
+        return requested;
+    }
+
+    /** Set the number of requests received.
+     * @param aRequested The number of requests received.
+     */
+    public void setRequested(final long aRequested) {
+        requested = aRequested;
+    }
+
+    /** Get the number of requests that were coalesced with an earlier
+     * request for the same vocabulary.
+     * @return The number of requests that were coalesced.
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    /** Set the number of requests that were coalesced with an earlier
+     * request for the same vocabulary.
+     * @param aCoalesced The number of requests that were coalesced.
+     */
+    public void setCoalesced(final long aCoalesced) {
+        coalesced = aCoalesced;
+    }
+
+    /** Get the number of vocabularies indexed.
+     * @return The number of vocabularies indexed.
+     */
+    public long getIndexed() {
+        return indexed;
+    }
+
+    /** Set the number of vocabularies indexed.
+     * @param anIndexed The number of vocabularies indexed.
+     */
+    public void setIndexed(final long anIndexed) {
+        indexed = anIndexed;
+    }
+
+    /** Get the number of vocabularies unindexed.
+     * @return The number of vocabularies unindexed.
+     */
+    public long getUnindexed() {
+        return unindexed;
+    }
+
+    /** Set the number of vocabularies unindexed.
+     * @param anUnindexed The number of vocabularies unindexed.
+     */
+    public void setUnindexed(final long anUnindexed) {
+        unindexed = anUnindexed;
+    }
+
+    /** Get the number of attempts to (un)index a vocabulary that failed.
+     * @return The number of attempts to (un)index a vocabulary
+     *      that failed.
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /** Set the number of attempts to (un)index a vocabulary that failed.
+     * @param aFailed The number of attempts to (un)index a vocabulary
+     *      that failed.
+     */
+    public void setFailed(final long aFailed) {
+        failed = aFailed;
+    }
+
+    /** Get the number of failed requests that were put back on the
+     * queue to be retried.
+     * @return The number of failed requests that were retried.
+     */
+    public long getRetried() {
+        return retried;
+    }
+
+    /** Set the number of failed requests that were put back on the
+     * queue to be retried.
+     * @param aRetried The number of failed requests that were retried.
+     */
+    public void setRetried(final long aRetried) {
+        retried = aRetried;
+    }
+
+    /** Get the number of failed requests that were abandoned, either
+     * after the maximum number of attempts, or during shutdown.
+     * @return The number of failed requests that were abandoned.
+     */
+    public long getAbandoned() {
+        return abandoned;
+    }
+
+    /** Set the number of failed requests that were abandoned.
+     * @param anAbandoned The number of failed requests that were
+     *      abandoned.
+     */
+    public void setAbandoned(final long anAbandoned) {
+        abandoned = anAbandoned;
+    }
+
+    /** Get the number of batches processed.
+     * @return The number of batches processed.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /** Set the number of batches processed.
+     * @param aBatches The number of batches processed.
+     */
+    public void setBatches(final long aBatches) {
+        batches = aBatches;
+    }
+
+    /** Get the time taken to process the most recent batch.
+     * @return The time, in milliseconds, taken to process the most
+     *      recent batch.
+     */
+    public long getLastBatchMillis() {
+        return lastBatchMillis;
+    }
+
+    /** Set the time taken to process the most recent batch.
+     * @param aLastBatchMillis The time, in milliseconds, taken to
+     *      process the most recent batch.
+     */
+    public void setLastBatchMillis(final long aLastBatchMillis) {
+        lastBatchMillis = aLastBatchMillis;
+    }
+
+}
@@ -4,12 +4,15 @@ package au.org.ands.vocabs.registry.solr.admin;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -34,6 +37,8 @@ import au.org.ands.vocabs.registry.api.user.ErrorResult;
 import au.org.ands.vocabs.registry.api.user.SimpleResult;
 import au.org.ands.vocabs.registry.log.Logging;
 import au.org.ands.vocabs.registry.solr.EntityIndexer;
+import au.org.ands.vocabs.registry.solr.IndexingQueue;
+import au.org.ands.vocabs.registry.solr.IndexingQueueStatus;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -199,4 +204,123 @@ public class AdminRestMethods {
         return Response.ok().entity(new SimpleResult("OK")).build();
     }
 
+    /** Get the state and metrics of the background Solr indexing queue.
+     * @param profile The caller's security profile.
+     * @return The state and metrics of the indexing queue.
+     */
+    @Path("indexQueue")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    @Pac4JSecurity
+    @GET
+    @ApiOperation(value = "Get the state and metrics of the background "
+            + "Solr indexing queue.",
+            notes = "This method is only available to administrator users.",
+            response = IndexingQueueStatus.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpStatus.SC_UNAUTHORIZED,
+                    message = "Not authenticated",
+                    response = ErrorResult.class,
+                    responseHeaders = {
+                            @ResponseHeader(name = "WWW-Authenticate",
+                                    response = String.class)
+                            }),
+            @ApiResponse(code = HttpStatus.SC_FORBIDDEN,
+                    message = "Not authenticated, or not authorized",
+                    response = ErrorResult.class)
+            })
+    public Response getIndexQueueStatus(
+            @ApiParam(hidden = true) @Pac4JProfile
+            final CommonProfile profile) {
+        if (!AuthUtils.profileIsSuperuser(profile)) {
+            return ResponseUtils.generateForbiddenResponseNotSuperuser();
+        }
+        return Response.ok().entity(
+                IndexingQueue.getQueue().getStatus()).build();
+    }
+
+    /** Wait until the background Solr indexing queue has processed
+     * all requests, then force a soft commit, so that the
+     * results are visible to searches. Intended for use by tests.
+     * Failed requests are retried straight away, rather than after
+     * the usual delay. If any requests were abandoned while waiting,
+     * an internal server error is returned.
+     * @param request The HTTP request.
+     * @param uriInfo The UriInfo of the request.
+     * @param profile The caller's security profile.
+     * @param timeoutSeconds The maximum time to wait, in seconds.
+     * @return The state and metrics of the indexing queue, if
+     *      all requests have been processed, or an error, if the
+     *      timeout expired first.
+     */
+    @Path("indexQueue/wait")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    @Pac4JSecurity
+    @GET
+    @ApiOperation(value = "Wait until the background Solr indexing queue "
+            + "has processed all requests, then force a soft commit.",
+            notes = "This method is only available to administrator users.",
+            response = IndexingQueueStatus.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpStatus.SC_UNAUTHORIZED,
+                    message = "Not authenticated",
+                    response = ErrorResult.class,
+                    responseHeaders = {
+                            @ResponseHeader(name = "WWW-Authenticate",
+                                    response = String.class)
+                            }),
+            @ApiResponse(code = HttpStatus.SC_FORBIDDEN,
+                    message = "Not authenticated, or not authorized",
+                    response = ErrorResult.class),
+            @ApiResponse(code = HttpStatus.SC_SERVICE_UNAVAILABLE,
+                    message = "Timed out waiting for the queue",
+                    response = ErrorResult.class),
+            @ApiResponse(code = HttpStatus.SC_INTERNAL_SERVER_ERROR,
+                    message = "Requests could not be processed",
+                    response = ErrorResult.class)
+            })
+    public Response waitForIndexQueue(
+            @Context final HttpServletRequest request,
+            @Context final UriInfo uriInfo,
+            @ApiParam(hidden = true) @Pac4JProfile
+            final CommonProfile profile,
+            @ApiParam(value = "The maximum time to wait, in seconds")
+            @QueryParam("timeout") @DefaultValue("60")
+            final int timeoutSeconds) {
+        logger.info("Called waitForIndexQueue");
+        if (!AuthUtils.profileIsSuperuser(profile)) {
+            return ResponseUtils.generateForbiddenResponseNotSuperuser();
+        }
+        IndexingQueue queue = IndexingQueue.getQueue();
+        long abandonedBefore = queue.getStatus().getAbandoned();
+        try {
+            if (!queue.awaitIdle(
+                    TimeUnit.SECONDS.toMillis(timeoutSeconds))) {
+                return Response.status(Status.SERVICE_UNAVAILABLE).entity(
+                        new ErrorResult("Timed out waiting for the "
+                                + "indexing queue")).build();
+            }
+            EntityIndexer.commit();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.status(Status.SERVICE_UNAVAILABLE).entity(
+                    new ErrorResult("Interrupted while waiting for the "
+                            + "indexing queue")).build();
+        } catch (IOException | SolrServerException | RemoteSolrException e) {
+            logger.error("waitForIndexQueue: got exception",  e);
+            return Response.status(Status.INTERNAL_SERVER_ERROR).entity(
+                    new ErrorResult("Exception: " + e.toString())).build();
+        }
+        IndexingQueueStatus status = queue.getStatus();
+        long abandoned = status.getAbandoned() - abandonedBefore;
+        if (abandoned > 0) {
+            return Response.status(Status.INTERNAL_SERVER_ERROR).entity(
+                    new ErrorResult("Unable to process " + abandoned
+                            + " requests to (un)index vocabularies")).
+                    build();
+        }
+        Logging.logRequest(true, request, uriInfo, profile,
+                "Admin: wait for index queue");
+        return Response.ok().entity(status).build();
+    }
+
 }
@@ -0,0 +1,183 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Metrics of the requests made by the registry to external services,
+ * kept separately for each destination (i.e., scheme, host, and port).
+ * The metrics are recorded by {@link RegistryNetUtils}'s clients;
+ * they are kept in memory, and are reset when the registry is
+ * restarted.
+ */
+public final class OutboundMetrics {
+
+    /** Private constructor for a utility class. */
+    private OutboundMetrics() {
+    }
+
+    /** The metrics of one destination. */
+    public static final class DestinationMetrics {
+
+        /** The number of requests for which a response was received. */
+        private final LongAdder requests = new LongAdder();
+
+        /** The number of requests that failed, either because the
+         * response had an error status code, or because no response
+         * was received. (Requests made using the JAX-RS clients
+         * that fail without a response are not counted, as
+         * JAX-RS provides no way to observe them.) */
+        private final LongAdder errors = new LongAdder();
+
+        /** The total time taken to receive response headers,
+         * in nanoseconds. */
+        private final LongAdder totalLatency = new LongAdder();
+
+        /** The maximum time taken to receive response headers,
+         * in nanoseconds. */
+        private final LongAccumulator maxLatency =
+                new LongAccumulator(Math::max, 0);
+
+        /** The number of bytes of response bodies read. */
+        private final LongAdder bytes = new LongAdder();
+
+        /** Get the metrics as a map, suitable for serialization.
+         * Times are given in milliseconds.
+         * @return The metrics as a map.
+         */
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new TreeMap<>();
+            long requestCount = requests.sum();
+            map.put("requests", requestCount);
+            map.put("errors", errors.sum());
+            map.put("bytes", bytes.sum());
+            long total = TimeUnit.NANOSECONDS.toMillis(totalLatency.sum());
+            map.put("totalLatencyMillis", total);
+            long mean = 0;
+            if (requestCount > 0) {
+                mean = total / requestCount;
+            }
+            map.put("meanLatencyMillis", mean);
+            map.put("maxLatencyMillis",
+                    TimeUnit.NANOSECONDS.toMillis(maxLatency.get()));
+            return map;
+        }
+    }
+
+    /** The metrics, keyed by destination. */
+    private static final ConcurrentHashMap<String, DestinationMetrics>
+        METRICS = new ConcurrentHashMap<>();
+
+    /** Get the metrics of a destination, creating them if necessary.
+     * @param destination The destination, e.g.,
+     *      "https://example.com:443".
+     * @return The metrics of the destination.
+     */
+    private static DestinationMetrics forDestination(
+            final String destination) {
+        return METRICS.computeIfAbsent(destination,
+                k -> new DestinationMetrics());
+    }
+
+    /** Get the name of a destination, for use as the key of
+     * its metrics.
+     * @param scheme The scheme of the destination, e.g., "https".
+     * @param host The host name of the destination.
+     * @param port The port of the destination, or -1, if the
+     *      default port of the scheme is used.
+     * @return The name of the destination.
+     */
+    public static String getDestination(final String scheme,
+            final String host, final int port) {
+        if (port < 0) {
+            return scheme + "://" + host;
+        }
+        return scheme + "://" + host + ":" + port;
+    }
+
+    /** Record the start of a request.
+     * @return The start time of the request, to be passed to
+     *      {@link #recordResponse(String, long, int)}.
+     */
+    public static long recordStart() {
+        return System.nanoTime();
+    }
+
+    /** Record the receipt of the response headers of a request.
+     * @param destination The destination of the request.
+     * @param startTime The start time of the request, as returned by
+     *      {@link #recordStart()}.
+     * @param status The status code of the response.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static void recordResponse(final String destination,
+            final long startTime, final int status) {
+        long latency = System.nanoTime() - startTime;
+        DestinationMetrics metrics = forDestination(destination);
+        metrics.requests.increment();
+        metrics.totalLatency.add(latency);
+        metrics.maxLatency.accumulate(latency);
+        if (status >= 400) {
+            metrics.errors.increment();
+        }
+    }
+
+    /** Record the failure of a request for which no response
+     * was received.
+     * @param destination The destination of the request.
+     */
+    public static void recordFailure(final String destination) {
+        forDestination(destination).errors.increment();
+    }
+
+    /** Wrap the stream of a response body, so that the bytes read from
+     * it are counted.
+     * @param destination The destination of the request.
+     * @param stream The stream of the response body.
+     * @return The wrapped stream.
+     */
+    public static InputStream countingStream(final String destination,
+            final InputStream stream) {
+        final LongAdder bytes = forDestination(destination).bytes;
+        return new FilterInputStream(stream) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    bytes.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(final byte[] buffer, final int offset,
+                    final int length) throws IOException {
+                int count = super.read(buffer, offset, length);
+                if (count > 0) {
+                    bytes.add(count);
+                }
+                return count;
+            }
+        };
+    }
+
+    /** Get a snapshot of the metrics of all destinations.
+     * @return The metrics, as a map of destinations to maps
+     *      of metric names to values.
+     */
+    public static Map<String, Map<String, Object>> getSnapshot() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        METRICS.forEach((destination, metrics) ->
+            snapshot.put(destination, metrics.toMap()));
+        return snapshot;
+    }
+
+}
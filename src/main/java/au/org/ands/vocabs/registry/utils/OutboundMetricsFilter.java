@@ -0,0 +1,62 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils;
+
+import java.net.URI;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+
+/** JAX-RS client filter that records {@link OutboundMetrics} for
+ * each request: the time taken to receive the response headers,
+ * the status code, and the number of bytes of the response body
+ * that are read. It is registered on the clients provided by
+ * {@link RegistryNetUtils}.
+ */
+public final class OutboundMetricsFilter
+    implements ClientRequestFilter, ClientResponseFilter {
+
+    /** Name of the request property used to store the start time
+     * of the request. */
+    private static final String START_TIME_PROPERTY =
+            OutboundMetricsFilter.class.getName() + ".startTime";
+
+    /** Get the destination of a request.
+     * @param requestContext The context of the request.
+     * @return The destination of the request.
+     */
+    private static String getDestination(
+            final ClientRequestContext requestContext) {
+        URI uri = requestContext.getUri();
+        return OutboundMetrics.getDestination(uri.getScheme(),
+                uri.getHost(), uri.getPort());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void filter(final ClientRequestContext requestContext) {
+        requestContext.setProperty(START_TIME_PROPERTY,
+                OutboundMetrics.recordStart());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void filter(final ClientRequestContext requestContext,
+            final ClientResponseContext responseContext) {
+        Object startTime = requestContext.getProperty(START_TIME_PROPERTY);
+        if (!(startTime instanceof Long)) {
+            return;
+        }
+        String destination = getDestination(requestContext);
+        OutboundMetrics.recordResponse(destination, (Long) startTime,
+                responseContext.getStatus());
+        if (responseContext.hasEntity()) {
+            responseContext.setEntityStream(
+                    OutboundMetrics.countingStream(destination,
+                            responseContext.getEntityStream()));
+        }
+    }
+
+}
@@ -5,7 +5,6 @@ package au.org.ands.vocabs.registry.utils;
 import java.lang.invoke.MethodHandles;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
@@ -71,13 +70,14 @@ public final class PoolPartyUtils {
         String username = poolPartyServer.getUsername();
         String password = poolPartyServer.getPassword();
 
-        Client client = ClientBuilder.newClient();
-        // Need to register the Jackson provider in order
-        // to deserialize the JSON returned by PoolParty.
-        client.register(JacksonJaxbJsonProvider.class);
+        Client client = RegistryNetUtils.getClient();
 
         WebTarget target = client.target(remoteUrl)
                 .path(API_PROJECTS);
+        // Need to register the Jackson provider in order
+        // to deserialize the JSON returned by PoolParty.
+        // Register it on the target, not the shared client.
+        target.register(JacksonJaxbJsonProvider.class);
         LOGGER.debug("Getting PoolParty metadata from " + target.getUri());
         HttpAuthenticationFeature feature =
                 HttpAuthenticationFeature.basic(username, password);
@@ -179,7 +179,7 @@ public final class PoolPartyUtils {
         String username = poolPartyServer.getUsername();
         String password = poolPartyServer.getPassword();
 
-        Client client = ClientBuilder.newClient();
+        Client client = RegistryNetUtils.getClient();
 
         String uriSupplement = poolPartyProject.getUriSupplement();
         WebTarget target = client.target(remoteUrl)
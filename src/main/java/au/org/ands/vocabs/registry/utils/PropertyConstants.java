@@ -54,6 +54,21 @@ public final class PropertyConstants {
 //  public static final String REGISTRY_ =
 //          "Registry.";
 
+    /* Database. */
+
+    /** Whether or not historical rows of temporal tables may have been
+     * moved into companion history tables. If true, fixed-time queries
+     * also look in the history tables. */
+    public static final String REGISTRY_DB_HISTORYTABLES =
+            "Registry.db.historyTables";
+
+    /* Workflow batch jobs. */
+
+    /** Default number of vocabularies processed concurrently by a
+     * batch job. */
+    public static final String REGISTRY_BATCHJOB_THREADS =
+            "Registry.batchJob.threads";
+
     /* Configure the Swagger view of the API. */
 
     /** Swagger scheme. */
@@ -72,8 +87,7 @@ public final class PropertyConstants {
     public static final String REGISTRY_LOGGING_GEOIPDB =
             "Registry.logging.GeoIPDb";
 
-    /* Timeouts for network connections to external services.
-     * For now, that means to PoolParty. */
+    /* Network connections to external services. */
 
     /** Timeout to use for connecting to an external service,
      * in milliseconds. */
@@ -81,10 +95,32 @@ public final class PropertyConstants {
             "Registry.network.timeout.connect";
 
     /** Timeout to use for reads from an external service,
-     * in milliseconds. */
+     * in milliseconds. Applies to requests that are expected to
+     * be answered quickly. */
     public static final String REGISTRY_NETWORK_TIMEOUT_READ =
             "Registry.network.timeout.read";
 
+    /** Timeout to use for reads from an external service during
+     * transfers that may take a long time, e.g., harvests and
+     * backups, in milliseconds. This is the maximum time
+     * to wait for more data, not the maximum time for the transfer. */
+    public static final String REGISTRY_NETWORK_TIMEOUT_TRANSFER =
+            "Registry.network.timeout.transfer";
+
+    /** Maximum number of pooled connections to external services. */
+    public static final String REGISTRY_NETWORK_MAX_CONNECTIONS =
+            "Registry.network.maxConnections";
+
+    /** Maximum number of pooled connections to any one
+     * external service. */
+    public static final String REGISTRY_NETWORK_MAX_CONNECTIONS_PER_ROUTE =
+            "Registry.network.maxConnectionsPerRoute";
+
+    /** Maximum time for which an idle pooled connection to an
+     * external service is kept open, in milliseconds. */
+    public static final String REGISTRY_NETWORK_IDLE_TIMEOUT =
+            "Registry.network.idleTimeout";
+
     /* Solr. */
 
     /** Solr base URL. Used for CoreAdmin requests, e.g.,
@@ -117,6 +153,39 @@ public final class PropertyConstants {
     public static final String REGISTRY_SOLR_RESOURCES_COLLECTION_URL =
             "Registry.Solr.resources.collectionURL";
 
+    /** Solr indexing queue: the time to wait, in milliseconds, after
+     * a request to index a vocabulary, for further requests for the
+     * same vocabulary, before the vocabulary is indexed. */
+    public static final String REGISTRY_SOLR_INDEXING_DEBOUNCE =
+            "Registry.Solr.indexing.debounce";
+
+    /** Solr indexing queue: the maximum time, in milliseconds, that a
+     * request to index a vocabulary may be delayed by further requests
+     * for the same vocabulary. */
+    public static final String REGISTRY_SOLR_INDEXING_MAXDELAY =
+            "Registry.Solr.indexing.maxDelay";
+
+    /** Solr indexing queue: the maximum number of vocabularies
+     * indexed in one batch. */
+    public static final String REGISTRY_SOLR_INDEXING_BATCHSIZE =
+            "Registry.Solr.indexing.batchSize";
+
+    /** Solr indexing queue: the time to wait, in milliseconds, before
+     * the first retry of a request to (un)index a vocabulary that
+     * failed. The wait doubles with each further attempt. */
+    public static final String REGISTRY_SOLR_INDEXING_RETRYDELAY =
+            "Registry.Solr.indexing.retryDelay";
+
+    /** Solr indexing queue: the maximum time to wait, in milliseconds,
+     * before retrying a request that failed. */
+    public static final String REGISTRY_SOLR_INDEXING_MAXRETRYDELAY =
+            "Registry.Solr.indexing.maxRetryDelay";
+
+    /** Solr indexing queue: the maximum number of attempts to process
+     * a request, after which it is abandoned. */
+    public static final String REGISTRY_SOLR_INDEXING_MAXATTEMPTS =
+            "Registry.Solr.indexing.maxAttempts";
+
     /* Public-facing Sesame. */
 
     /** Sesame importer SPARQL prefix. */
@@ -139,10 +208,49 @@ public final class PropertyConstants {
     public static final String POOLPARTYHARVESTER_DEFAULTEXPORTMODULE =
             "PoolPartyHarvester.defaultExportModule";
 
+    /** PoolParty harvester: whether harvested files are stored
+     * gzip-compressed. Either "true" or "false". */
+    public static final String POOLPARTYHARVESTER_COMPRESS =
+            "PoolPartyHarvester.compress";
+
+    /** PoolParty metadata cache: the time for which cached project
+     * lists and project metadata are fresh, in seconds. */
+    public static final String REGISTRY_POOLPARTY_CACHE_TTL =
+            "Registry.poolParty.cache.ttl";
+
+    /** PoolParty metadata cache: the time for which cached project
+     * lists and project metadata may still be used while they are
+     * refreshed in the background, after they cease to be fresh,
+     * in seconds. */
+    public static final String REGISTRY_POOLPARTY_CACHE_STALE =
+            "Registry.poolParty.cache.stale";
+
     /** Metadata transform provider metadata rewrite map path. */
     public static final String REGISTRY_METADATAREWRITEMAPPATH =
             "Registry.metadataRewriteMapPath";
 
+    /** ResourceDocs transform provider: the number of resources to be
+     * kept in memory, before they are written to disk. Zero means
+     * that they are never written to disk. */
+    public static final String REGISTRY_RESOURCEDOCS_SPILLTHRESHOLD =
+            "Registry.resourceDocs.spillThreshold";
+
+    /** Transform providers: the maximum number of harvested files
+     * to be parsed concurrently, across all transforms. */
+    public static final String REGISTRY_TRANSFORM_PARSETHREADS =
+            "Registry.transform.parseThreads";
+
+    /** ResourceMap transform provider: the default way of computing
+     * resource map entries, for subtasks that don't specify one.
+     * Either "sparql" or "harvest". */
+    public static final String REGISTRY_RESOURCEMAP_SOURCE =
+            "Registry.resourceMap.source";
+
+    /** PoolParty backup provider: the number of projects to back up
+     * at the same time. */
+    public static final String REGISTRY_BACKUP_THREADS =
+            "Registry.backup.threads";
+
     /* Importers. */
 
     /* Sesame importer. */
@@ -223,6 +331,27 @@ public final class PropertyConstants {
     public static final String NOTIFICATIONS_EMAIL_SUBJECT =
             "Notifications.email.subject";
 
+    /** Number of worker threads used to generate and send emails. */
+    public static final String NOTIFICATIONS_EMAIL_THREADS =
+            "Notifications.email.threads";
+
+    /** Maximum number of connections to the SMTP server that are
+     * kept open and reused while sending emails. */
+    public static final String NOTIFICATIONS_EMAIL_SMTPCONNECTIONS =
+            "Notifications.email.smtpConnections";
+
+    /** Maximum number of emails to send per second; 0 means no limit. */
+    public static final String NOTIFICATIONS_EMAIL_MAXMESSAGESPERSECOND =
+            "Notifications.email.maxMessagesPerSecond";
+
+    /** Maximum number of attempts to send each email. */
+    public static final String NOTIFICATIONS_EMAIL_MAXATTEMPTS =
+            "Notifications.email.maxAttempts";
+
+    /** Delay, in milliseconds, before the first retry of an email. */
+    public static final String NOTIFICATIONS_EMAIL_RETRYDELAY =
+            "Notifications.email.retryDelay";
+
     /** Path to file containing HTML template. */
     public static final String NOTIFICATIONS_EMAIL_TEMPLATE_HTML =
             "Notifications.email.template.HTML";
@@ -2,10 +2,12 @@
 
 package au.org.ands.vocabs.registry.utils;
 
+import java.nio.file.Path;
 import java.util.Hashtable;
 import java.util.Locale;
 
 import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.Rio;
 
 /** Utility methods for working with RDF data. */
 public final class RDFUtils {
@@ -51,4 +53,18 @@ public final class RDFUtils {
         return FORMAT_TO_RDFFORMAT_MAP.get(name.toLowerCase(Locale.ROOT));
     }
 
+    /** Get the RDFFormat of a file, based on its name. Files that are
+     * stored gzip-compressed (see {@link
+     * RegistryFileUtils#isGzipCompressed(Path)}) are supported:
+     * the format is determined by the extension that precedes
+     * {@link RegistryFileUtils#GZIP_SUFFIX}.
+     * @param path The path of the file.
+     * @return The RDFFormat of the file, or null, if the file name
+     *      does not correspond to a supported RDF format.
+     */
+    public static RDFFormat getParserFormatForPath(final Path path) {
+        return Rio.getParserFormatForFileName(
+                RegistryFileUtils.getUncompressedFileName(path));
+    }
+
 }
@@ -0,0 +1,290 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** A cache of values that are expensive to fetch, e.g., because
+ * they come from a remote server.
+ *
+ * <p>A value is fresh for a time-to-live period after it is loaded,
+ * during which it is returned without reloading. After that, it is
+ * stale for a further period, during which it is still returned
+ * immediately, but a reload is started in the background
+ * ("stale-while-revalidate"). After that, a request for the value
+ * waits for it to be reloaded.</p>
+ *
+ * <p>Concurrent loads of the same key are deduplicated: if a load
+ * of a key is in progress, other requests for that key wait for
+ * the result of that load, rather than starting another.</p>
+ *
+ * <p>Only values that satisfy the cacheability predicate are stored,
+ * so that (for example) error responses are not cached. Values can
+ * be removed by {@link #invalidate(Object)} and
+ * {@link #invalidateAll()}; a load that is in progress at the time
+ * of an invalidation of its key (or of the whole cache) does not
+ * store its result.</p>
+ *
+ * @param <K> The type of the keys of the cache.
+ * @param <V> The type of the values of the cache.
+ */
+public class RefreshingCache<K, V> {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** A value stored in the cache, with the time it was loaded.
+     * @param <V> The type of the value.
+     */
+    private static final class Entry<V> {
+        /** The value. */
+        private final V value;
+        /** The value of {@link System#nanoTime()} when the value
+         * was loaded. */
+        private final long loadTime;
+
+        /** Constructor.
+         * @param aValue The value.
+         * @param aLoadTime The time the value was loaded.
+         */
+        Entry(final V aValue, final long aLoadTime) {
+            value = aValue;
+            loadTime = aLoadTime;
+        }
+    }
+
+    /** The function used to load values. */
+    private final Function<K, V> loader;
+
+    /** The predicate used to decide if a loaded value is to be stored. */
+    private final Predicate<V> cacheable;
+
+    /** The time for which a value is fresh, in nanoseconds. */
+    private final long ttlNanos;
+
+    /** The time for which a value is stale (but still usable),
+     * after it ceases to be fresh, in nanoseconds. */
+    private final long staleNanos;
+
+    /** The executor used to reload stale values in the background. */
+    private final Executor refreshExecutor;
+
+    /** The values stored in the cache. */
+    private final ConcurrentHashMap<K, Entry<V>> entries =
+            new ConcurrentHashMap<>();
+
+    /** The loads in progress. */
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight =
+            new ConcurrentHashMap<>();
+
+    /** The generation of the cache, incremented on each invalidation
+     * of the whole cache. A load only stores its result if neither
+     * this generation nor the generation of its key has changed since
+     * the load began. */
+    private final AtomicLong generation = new AtomicLong();
+
+    /** The generations of keys, each incremented on each invalidation
+     * of the key. Keys that have never been invalidated have no entry,
+     * and are treated as being at generation 0. */
+    private final ConcurrentHashMap<K, AtomicLong> keyGenerations =
+            new ConcurrentHashMap<>();
+
+    /** The number of times the loader has been invoked. */
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /** Constructor.
+     * @param aLoader The function used to load values. It may be
+     *      invoked by the thread requesting a value, or by
+     *      the refresh executor.
+     * @param aCacheable The predicate used to decide if a loaded value
+     *      is to be stored.
+     * @param ttl The time for which a value is fresh.
+     * @param stale The time for which a value is stale, after it
+     *      ceases to be fresh.
+     * @param unit The unit of ttl and stale.
+     * @param aRefreshExecutor The executor used to reload stale values
+     *      in the background.
+     */
+    public RefreshingCache(final Function<K, V> aLoader,
+            final Predicate<V> aCacheable,
+            final long ttl, final long stale, final TimeUnit unit,
+            final Executor aRefreshExecutor) {
+        loader = aLoader;
+        cacheable = aCacheable;
+        ttlNanos = unit.toNanos(ttl);
+        staleNanos = unit.toNanos(stale);
+        refreshExecutor = aRefreshExecutor;
+    }
+
+    /** Get the value for a key. If there is a fresh value in the
+     * cache, it is returned. If there is a stale value, it is returned,
+     * and a reload is started in the background. Otherwise,
+     * the value is loaded, and the method waits for the result.
+     * @param key The key.
+     * @return The value for the key.
+     */
+    public V get(final K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            long age = System.nanoTime() - entry.loadTime;
+            if (age < ttlNanos) {
+                return entry.value;
+            }
+            if (age < ttlNanos + staleNanos) {
+                refreshInBackground(key);
+                return entry.value;
+            }
+        }
+        return join(load(key));
+    }
+
+    /** Start a background reload of the value for a key,
+     * unless a load of that key is already in progress.
+     * @param key The key.
+     */
+    private void refreshInBackground(final K key) {
+        if (inFlight.containsKey(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    join(load(key));
+                } catch (RuntimeException e) {
+                    LOGGER.error("Exception refreshing cache for key: "
+                            + key, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The stale value will be used until the next attempt.
+            LOGGER.warn("Unable to schedule cache refresh for key: " + key);
+        }
+    }
+
+    /** Load the value for a key, unless a load of that key is
+     * already in progress, in which case, that load is used.
+     * If this thread starts the load, the loader is invoked
+     * in this thread, so that the returned future is already
+     * complete.
+     * @param key The key.
+     * @return A future for the result of the load.
+     */
+    private CompletableFuture<V> load(final K key) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        long startGeneration = generation.get();
+        long startKeyGeneration = getKeyGeneration(key);
+        try {
+            loadCount.incrementAndGet();
+            V value = loader.apply(key);
+            // Store before completing the future, so that a request
+            // that arrives in between doesn't start another load.
+            // The generations are checked within compute(), so that
+            // this is atomic with respect to invalidate(key).
+            if (cacheable.test(value)) {
+                entries.compute(key, (k, oldEntry) -> {
+                    if (generation.get() == startGeneration
+                            && getKeyGeneration(k) == startKeyGeneration) {
+                        return new Entry<>(value, System.nanoTime());
+                    }
+                    return oldEntry;
+                });
+            }
+            future.complete(value);
+        } catch (Throwable t) {
+            // Catch Errors too: otherwise, the future would never be
+            // completed, and any other requests waiting for it
+            // would wait forever.
+            future.completeExceptionally(t);
+        } finally {
+            inFlight.remove(key, future);
+        }
+        return future;
+    }
+
+    /** Get the current generation of a key.
+     * @param key The key.
+     * @return The current generation of the key.
+     */
+    private long getKeyGeneration(final K key) {
+        AtomicLong keyGeneration = keyGenerations.get(key);
+        if (keyGeneration == null) {
+            return 0;
+        }
+        return keyGeneration.get();
+    }
+
+    /** Wait for the result of a load. If the load threw an exception
+     * (or an Error), it is rethrown.
+     * @param future The future for the result of the load.
+     * @return The result of the load.
+     */
+    private V join(final CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted while waiting for cache load", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /** Remove the value for a key from the cache. A load of the key
+     * that is in progress does not store its result; loads of other
+     * keys are not affected.
+     * @param key The key.
+     */
+    public void invalidate(final K key) {
+        entries.compute(key, (k, oldEntry) -> {
+            keyGenerations.computeIfAbsent(k, k2 -> new AtomicLong()).
+                incrementAndGet();
+            return null;
+        });
+    }
+
+    /** Remove all values from the cache. */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /** Get the number of values stored in the cache.
+     * @return The number of values stored in the cache.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /** Get the number of times the loader has been invoked.
+     * @return The number of times the loader has been invoked.
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+}
@@ -1,6 +1,8 @@
 /** See the file "LICENSE" for the full license governing this code. */
 package au.org.ands.vocabs.registry.utils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -9,9 +11,13 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.lang.invoke.MethodHandles;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,22 +59,47 @@ public final class RegistryFileUtils {
     public static String saveRDFToFile(final String dirName,
             final String fileName,
             final String format, final String data) {
+        return saveRDFToFile(dirName, fileName, format, data, false);
+    }
+
+    /** Save RDF data to a file, optionally gzip-compressed.
+     * If the data is compressed, {@link #GZIP_SUFFIX} is appended
+     * to the name of the file, after the extension for the format,
+     * and any uncompressed file of the same name left over from
+     * before is removed.
+     * @param dirName The full directory name
+     * @param fileName The base name of the file to create
+     * @param format The format to use; a key in
+     *  ToolkitConfig.FORMAT_TO_FILEEXT_MAP.
+     * @param data The data to be written
+     * @param compress Whether or not to gzip-compress the data.
+     * @return The complete, full path to the file.
+     */
+    public static String saveRDFToFile(final String dirName,
+            final String fileName,
+            final String format, final String data,
+            final boolean compress) {
         logger.info("saveRDFToFile: " + dirName + "," + fileName);
         String fileExtension =
                 RDFUtils.FORMAT_TO_FILEEXT_MAP.get(
                         format.toLowerCase(Locale.ROOT));
-        String filePath = dirName
+        String uncompressedFilePath = dirName
                 + File.separator + fileName + fileExtension;
+        String filePath = uncompressedFilePath;
+        if (compress) {
+            filePath += GZIP_SUFFIX;
+        }
         requireDirectory(dirName);
-        File oFile = new File(filePath);
         // See, e.g.,
         // http://stackoverflow.com/questions/9852978/
         //        write-a-file-in-utf-8-using-filewriter-java
         try (OutputStreamWriter writer =
-                new OutputStreamWriter(new FileOutputStream(oFile),
+                new OutputStreamWriter(newOutputStream(Paths.get(filePath)),
                         StandardCharsets.UTF_8)) {
             writer.write(data);
-            writer.close();
+            if (compress) {
+                Files.deleteIfExists(Paths.get(uncompressedFilePath));
+            }
         } catch (IOException e) {
             logger.error("Exception in ToolkitFileUtils.saveFile(): ", e);
             return "Exception: " + e.toString();
@@ -169,4 +200,213 @@ public final class RegistryFileUtils {
         }
     }
 
+    /** The suffix of gzip-compressed copies of files. */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    /** The suffix of temporary files used while writing
+     * gzip-compressed copies of files. */
+    private static final String GZIP_TEMP_SUFFIX = ".gz.tmp";
+
+    /** The maximum ratio of the size of a gzip-compressed copy of a file
+     * to the size of the file, for the compressed copy to be kept.
+     * Files that don't compress well (e.g., those that are in a
+     * compressed format already) aren't worth serving compressed. */
+    private static final double GZIP_MAXIMUM_RATIO = 0.9;
+
+    /** Get the file used to store a gzip-compressed copy of a file.
+     * @param file The file.
+     * @return The file used to store the gzip-compressed copy of the file.
+     *      The file may or may not exist.
+     */
+    public static File getGzipCompressedCopyFile(final File file) {
+        return new File(file.getPath() + GZIP_SUFFIX);
+    }
+
+    /** Get the gzip-compressed copy of a file, if there is one that
+     * is up to date. The compressed copy is up to date if it has
+     * the same modification time as the file, as set by
+     * {@link #writeGzipCompressedCopy(Path)}.
+     * @param file The file.
+     * @return The gzip-compressed copy of the file, or null, if
+     *      there is no up-to-date compressed copy.
+     */
+    public static File getGzipCompressedCopy(final File file) {
+        File gzFile = getGzipCompressedCopyFile(file);
+        if (gzFile.isFile() && gzFile.lastModified() == file.lastModified()) {
+            return gzFile;
+        }
+        return null;
+    }
+
+    /** Write a gzip-compressed copy of a file, alongside the file.
+     * The copy is given the same modification time as the file,
+     * so that a compressed copy that is out of date (i.e., because
+     * the file has since been overwritten) can be detected.
+     * If the file does not compress well, no copy is kept,
+     * and any existing copy is removed.
+     * @param path The path of the file to be compressed.
+     * @return true, if a compressed copy was written.
+     */
+    public static boolean writeGzipCompressedCopy(final Path path) {
+        Path gzPath = Paths.get(path.toString() + GZIP_SUFFIX);
+        Path tempPath = Paths.get(path.toString() + GZIP_TEMP_SUFFIX);
+        try {
+            try (InputStream input = Files.newInputStream(path);
+                    OutputStream output = new GZIPOutputStream(
+                            Files.newOutputStream(tempPath))) {
+                copy(input, output);
+            }
+            if (Files.size(tempPath)
+                    > Files.size(path) * GZIP_MAXIMUM_RATIO) {
+                Files.delete(tempPath);
+                Files.deleteIfExists(gzPath);
+                return false;
+            }
+            Files.setLastModifiedTime(tempPath,
+                    Files.getLastModifiedTime(path));
+            Files.move(tempPath, gzPath,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            logger.error("Exception in RegistryFileUtils."
+                    + "writeGzipCompressedCopy(): " + path, e);
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException e2) {
+                logger.error("Unable to remove temporary file: "
+                        + tempPath, e2);
+            }
+            return false;
+        }
+    }
+
+    /** Delete the gzip-compressed copy of a file, if there is one.
+     * Use this whenever the file is deleted, or is no longer to be
+     * served, so that the compressed copy is not left behind.
+     * The file itself is not deleted.
+     * @param path The path of the file, the compressed copy of which
+     *      is to be deleted.
+     * @return true, if there was a compressed copy, and it was deleted.
+     */
+    public static boolean deleteGzipCompressedCopy(final Path path) {
+        Path gzPath = getGzipCompressedCopyFile(path.toFile()).toPath();
+        try {
+            return Files.deleteIfExists(gzPath);
+        } catch (IOException e) {
+            logger.error("Exception in RegistryFileUtils."
+                    + "deleteGzipCompressedCopy(): " + gzPath, e);
+            return false;
+        }
+    }
+
+    /** Size of buffer to use for reading and writing files that
+     * may be stored gzip-compressed. */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    /** Decide if a file is stored gzip-compressed, based on its name.
+     * The name of such a file is the name it would have if it were
+     * not compressed, followed by {@link #GZIP_SUFFIX}, e.g.,
+     * "concepts.ttl.gz".
+     * @param path The path of the file.
+     * @return true, if the file is stored gzip-compressed.
+     */
+    public static boolean isGzipCompressed(final Path path) {
+        Path fileName = path.getFileName();
+        return fileName != null
+                && fileName.toString().endsWith(GZIP_SUFFIX);
+    }
+
+    /** Get the name that a file would have, if it were not stored
+     * gzip-compressed. Use this, e.g., to determine the format of
+     * a file from its extension.
+     * @param path The path of the file.
+     * @return The path of the file, as a String, without any
+     *      {@link #GZIP_SUFFIX}.
+     */
+    public static String getUncompressedFileName(final Path path) {
+        String name = path.toString();
+        if (isGzipCompressed(path)) {
+            return name.substring(0, name.length() - GZIP_SUFFIX.length());
+        }
+        return name;
+    }
+
+    /** Open a file for reading. If the file is stored gzip-compressed,
+     * its contents are decompressed as they are read.
+     * The stream is buffered.
+     * @param path The path of the file.
+     * @return A stream of the (uncompressed) contents of the file.
+     * @throws IOException If the file can not be opened, or if it
+     *      is not in gzip format, despite its name.
+     */
+    public static InputStream newInputStream(final Path path)
+            throws IOException {
+        InputStream is = Files.newInputStream(path);
+        try {
+            if (isGzipCompressed(path)) {
+                is = new GZIPInputStream(is, STREAM_BUFFER_SIZE);
+            }
+            return new BufferedInputStream(is, STREAM_BUFFER_SIZE);
+        } catch (IOException e) {
+            is.close();
+            throw e;
+        }
+    }
+
+    /** Open a file for writing. If the name of the file ends with
+     * {@link #GZIP_SUFFIX}, the contents are gzip-compressed as they
+     * are written. The stream is buffered.
+     * @param path The path of the file.
+     * @return A stream to which the (uncompressed) contents of the file
+     *      are to be written.
+     * @throws IOException If the file can not be opened.
+     */
+    public static OutputStream newOutputStream(final Path path)
+            throws IOException {
+        OutputStream os = Files.newOutputStream(path);
+        if (isGzipCompressed(path)) {
+            return new GZIPOutputStream(os, STREAM_BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(os, STREAM_BUFFER_SIZE);
+    }
+
+    /** Replace a file with a gzip-compressed copy, which has the same
+     * name, followed by {@link #GZIP_SUFFIX}. The copy is given the
+     * same modification time as the file. The file is only removed
+     * once the copy has been written successfully.
+     * Don't use this on files for which
+     * {@link #writeGzipCompressedCopy(Path)} has been used.
+     * @param path The path of the file to be compressed.
+     * @return The path of the compressed file. If the file was
+     *      already stored gzip-compressed, this is the same as path.
+     * @throws IOException If the compressed copy can not be written,
+     *      or the file can not be removed.
+     */
+    public static Path compressFile(final Path path) throws IOException {
+        if (isGzipCompressed(path)) {
+            return path;
+        }
+        Path gzPath = Paths.get(path.toString() + GZIP_SUFFIX);
+        Path tempPath = Paths.get(path.toString() + GZIP_TEMP_SUFFIX);
+        try {
+            try (InputStream input = Files.newInputStream(path);
+                    OutputStream output = new GZIPOutputStream(
+                            Files.newOutputStream(tempPath),
+                            STREAM_BUFFER_SIZE)) {
+                copy(input, output);
+            }
+            Files.setLastModifiedTime(tempPath,
+                    Files.getLastModifiedTime(path));
+            Files.move(tempPath, gzPath,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        Files.delete(path);
+        return gzPath;
+    }
+
 }
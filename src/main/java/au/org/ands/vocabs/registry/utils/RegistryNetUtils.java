@@ -2,26 +2,129 @@
 
 package au.org.ands.vocabs.registry.utils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Invocation;
 
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpRequestExecutor;
 import org.glassfish.jersey.client.ClientProperties;
 import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
+import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.manager.RemoteRepositoryManager;
+import org.openrdf.repository.manager.RepositoryManager;
+import org.openrdf.repository.sparql.SPARQLRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-/** Utility methods for working with the network. */
+/** Utility methods for working with the network.
+ *
+ * <p>All requests to external services are to be made using the
+ * clients provided by this class, so that connections are reused,
+ * timeouts are applied consistently, and {@link OutboundMetrics}
+ * are recorded for each destination. There are two kinds
+ * of client:</p>
+ * <ul>
+ *   <li>JAX-RS clients ({@link #getClient()}, etc.). These use
+ *   Jersey's default connector, which is based on
+ *   {@link java.net.HttpURLConnection}.</li>
+ *   <li>A pooled Apache HttpClient ({@link #getHttpClient()}), used
+ *   for SPARQL endpoints via {@link #newSPARQLRepository(String)},
+ *   and for Sesame servers via
+ *   {@link #getRepositoryManager(String)}.</li>
+ * </ul>
+ */
 public final class RegistryNetUtils {
 
+    /** Logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** Timeout to use when establishing a connection to an external service. */
+    private static final int TARGET_CONNECT_TIMEOUT =
+            Integer.valueOf(RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_NETWORK_TIMEOUT_CONNECT,
+                    "10000"));
+
+    /** Timeout to use when reading from an external service. */
+    private static final int TARGET_READ_TIMEOUT =
+            Integer.valueOf(RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_NETWORK_TIMEOUT_READ,
+                    "10000"));
+
+    /** Timeout to use when reading from an external service during
+     * a transfer that may take a long time. This is the default
+     * read timeout of all clients. */
+    private static final int TARGET_TRANSFER_TIMEOUT =
+            Integer.valueOf(RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_NETWORK_TIMEOUT_TRANSFER,
+                    "600000"));
+
+    /** Maximum number of pooled connections. */
+    private static final int MAX_CONNECTIONS =
+            Integer.valueOf(RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_NETWORK_MAX_CONNECTIONS,
+                    "50"));
+
+    /** Maximum number of pooled connections to any one destination. */
+    private static final int MAX_CONNECTIONS_PER_ROUTE =
+            Integer.valueOf(RegistryProperties.getProperty(
+                    PropertyConstants.
+                    REGISTRY_NETWORK_MAX_CONNECTIONS_PER_ROUTE,
+                    "8"));
+
+    /** Maximum time for which an idle pooled connection is kept open,
+     * in milliseconds. */
+    private static final long IDLE_TIMEOUT =
+            Long.valueOf(RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_NETWORK_IDLE_TIMEOUT,
+                    "30000"));
+
+    /** Create a new JAX-RS client with the settings common to
+     * all of the shared clients: the connect timeout, the
+     * transfer timeout as the default read timeout, and
+     * the recording of metrics.
+     * @return The new client.
+     */
+    private static Client newClient() {
+        return ClientBuilder.newClient().
+                property(ClientProperties.CONNECT_TIMEOUT,
+                        TARGET_CONNECT_TIMEOUT).
+                property(ClientProperties.READ_TIMEOUT,
+                        TARGET_TRANSFER_TIMEOUT).
+                register(new OutboundMetricsFilter());
+    }
+
     /** A shared Client resource, initialized on class loading.
      * Follows redirects. */
     // According to the documentation, FOLLOW_REDIRECTS is the default.
     // Specify it anyway, just in case that changes.
-    private static Client client = ClientBuilder.newClient().
+    private static Client client = newClient().
             property(ClientProperties.FOLLOW_REDIRECTS, true);
 
     /** A shared Client resource, initialized on class loading.
      * Does not follow redirects. */
-    private static Client clientNoRedirects = ClientBuilder.newClient().
+    private static Client clientNoRedirects = newClient().
             property(ClientProperties.FOLLOW_REDIRECTS, false);
 
     /** Jersey Basic authentication feature. Used to initialize
@@ -32,9 +135,86 @@ public final class RegistryNetUtils {
     /** A shared Client resource, initialized on class loading.
      * Uses basic authentication. */
     private static Client clientBasicAuthentication =
-            ClientBuilder.newClient().
+            newClient().
             register(basicAuthFeature);
 
+    /** Request executor for the pooled HttpClient that records
+     * {@link OutboundMetrics} for each request. */
+    private static final class MetricsRequestExecutor
+        extends HttpRequestExecutor {
+
+        /** {@inheritDoc} */
+        @Override
+        public HttpResponse execute(final HttpRequest request,
+                final HttpClientConnection conn,
+                final HttpContext context)
+                        throws IOException, HttpException {
+            HttpHost target = HttpCoreContext.adapt(context).getTargetHost();
+            String destination;
+            if (target == null) {
+                destination = "unknown";
+            } else {
+                destination = OutboundMetrics.getDestination(
+                        target.getSchemeName(), target.getHostName(),
+                        target.getPort());
+            }
+            long startTime = OutboundMetrics.recordStart();
+            HttpResponse response;
+            try {
+                response = super.execute(request, conn, context);
+            } catch (IOException | HttpException | RuntimeException e) {
+                OutboundMetrics.recordFailure(destination);
+                throw e;
+            }
+            OutboundMetrics.recordResponse(destination, startTime,
+                    response.getStatusLine().getStatusCode());
+            HttpEntity entity = response.getEntity();
+            if (entity != null) {
+                response.setEntity(new HttpEntityWrapper(entity) {
+                    @Override
+                    public InputStream getContent() throws IOException {
+                        return OutboundMetrics.countingStream(destination,
+                                super.getContent());
+                    }
+                });
+            }
+            return response;
+        }
+    }
+
+    /** The connection manager of the shared HttpClient. */
+    private static PoolingHttpClientConnectionManager connectionManager =
+            new PoolingHttpClientConnectionManager();
+
+    static {
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+    }
+
+    /** A shared, pooled Apache HttpClient, initialized on class loading.
+     * Connections are kept alive for as long as the server permits,
+     * up to the idle timeout. */
+    private static CloseableHttpClient httpClient = HttpClients.custom().
+            useSystemProperties().
+            setConnectionManager(connectionManager).
+            setDefaultRequestConfig(RequestConfig.custom().
+                    setConnectTimeout(TARGET_CONNECT_TIMEOUT).
+                    setConnectionRequestTimeout(TARGET_CONNECT_TIMEOUT).
+                    setSocketTimeout(TARGET_TRANSFER_TIMEOUT).
+                    build()).
+            setKeepAliveStrategy((response, context) -> {
+                long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.
+                        getKeepAliveDuration(response, context);
+                if (duration > 0 && duration < IDLE_TIMEOUT) {
+                    return duration;
+                }
+                return IDLE_TIMEOUT;
+            }).
+            evictExpiredConnections().
+            evictIdleConnections(IDLE_TIMEOUT, TimeUnit.MILLISECONDS).
+            setRequestExecutor(new MetricsRequestExecutor()).
+            build();
+
     /** Private constructor for a utility class. */
     private RegistryNetUtils() {
     }
@@ -60,17 +240,57 @@ public final class RegistryNetUtils {
         return clientBasicAuthentication;
     }
 
-    /** Timeout to use when establishing a connection to an external service. */
-    private static final int TARGET_CONNECT_TIMEOUT =
-            Integer.valueOf(RegistryProperties.getProperty(
-                    PropertyConstants.REGISTRY_NETWORK_TIMEOUT_CONNECT,
-                    "10000"));
+    /** Get the shared, pooled HttpClient.
+     * @return The shared HttpClient.
+     */
+    public static CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
 
-    /** Timeout to use when reading from an external service. */
-    private static final int TARGET_READ_TIMEOUT =
-            Integer.valueOf(RegistryProperties.getProperty(
-                    PropertyConstants.REGISTRY_NETWORK_TIMEOUT_READ,
-                    "10000"));
+    /** Create a SPARQL repository for a SPARQL endpoint that uses the
+     * shared, pooled HttpClient. The caller is responsible for
+     * initializing and shutting down the repository; shutting down
+     * the repository does not close the shared HttpClient.
+     * @param endpoint The URL of the SPARQL endpoint.
+     * @return The new SPARQL repository.
+     */
+    public static SPARQLRepository newSPARQLRepository(
+            final String endpoint) {
+        SPARQLRepository repository = new SPARQLRepository(endpoint);
+        repository.setHttpClient(httpClient);
+        return repository;
+    }
+
+    /** The repository managers returned by
+     * {@link #getRepositoryManager(String)}, keyed by server URL. */
+    private static Map<String, RemoteRepositoryManager> repositoryManagers =
+            new HashMap<>();
+
+    /** Get a repository manager for a Sesame server that uses the
+     * shared, pooled HttpClient. Repository managers are shared,
+     * so there is one for each server URL, which is created and
+     * initialized when it is first requested. Callers must not
+     * shut down the repository manager; that is done by
+     * {@link #doShutdown()}. Use this method in preference to
+     * Sesame's {@link org.openrdf.repository.manager.RepositoryProvider},
+     * the repository managers of which use their own, unpooled,
+     * HttpClient.
+     * @param serverUrl The URL of the Sesame server.
+     * @return The repository manager for the Sesame server.
+     * @throws RepositoryException If the repository manager
+     *      can not be initialized.
+     */
+    public static synchronized RepositoryManager getRepositoryManager(
+            final String serverUrl) throws RepositoryException {
+        RemoteRepositoryManager manager = repositoryManagers.get(serverUrl);
+        if (manager == null) {
+            manager = new RemoteRepositoryManager(serverUrl);
+            manager.setHttpClient(httpClient);
+            manager.initialize();
+            repositoryManagers.put(serverUrl, manager);
+        }
+        return manager;
+    }
 
     /** Set the connect timeout and read timeout on an invocation builder
      * as per the matching Registry properties.
@@ -93,9 +313,23 @@ public final class RegistryNetUtils {
 
     /** Prepare for shutdown. Call this only in webapp context shutdown! */
     public static void doShutdown() {
+        synchronized (RegistryNetUtils.class) {
+            // Shutting down a repository manager does not close
+            // the shared HttpClient.
+            for (RemoteRepositoryManager manager
+                    : repositoryManagers.values()) {
+                manager.shutDown();
+            }
+            repositoryManagers.clear();
+        }
         client.close();
         clientNoRedirects.close();
         clientBasicAuthentication.close();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            LOGGER.error("Exception closing the shared HttpClient", e);
+        }
     }
 
 }
@@ -120,6 +120,13 @@ public final class LanguageSubtagRegistryParser {
     /** The map of extlangs in the registry. */
     private Map<String, Entry> extlangsMap = new HashMap<>();
 
+    /** Get the parsed registry.
+     * @return The parsed registry.
+     */
+    Lsr getLsr() {
+        return lsr;
+    }
+
     /** Get the list of language subtags.
      * @return The list of language subtags.
      */
@@ -329,6 +336,72 @@ public final class LanguageSubtagRegistryParser {
         writeLsr(lsrDirectory.toAbsolutePath());
     }
 
+    /** Use language subtag registry data that has already been parsed,
+     * e.g., as read back from an {@link LsrSnapshot}. The parsed results
+     * in the file system are only written if any of them is missing.
+     * @param anLsr The parsed language subtag registry data.
+     * @param lsrDirectory The name of the directory into which the
+     *   parsed results have been cached.
+     * @throws JAXBException If there is an error marshalling the registry
+     *      into XML.
+     * @throws IOException If there is an error creating one of the
+     *      output files.
+     */
+    LanguageSubtagRegistryParser(final Lsr anLsr,
+            final Path lsrDirectory) throws IOException, JAXBException {
+        lsr = anLsr;
+        languages = lsr.getLanguages().getEntry();
+        scripts = lsr.getScripts().getEntry();
+        regions = lsr.getRegions().getEntry();
+        grandfathereds = lsr.getGrandfathereds().getEntry();
+        redundants = lsr.getRedundants().getEntry();
+        variants = lsr.getVariants().getEntry();
+        extlangs = lsr.getExtlangs().getEntry();
+
+        // Rebuild the maps in the same way as parseEntry().
+        // Ranges have already been excluded from the lists.
+        putAllBySubtag(languagesMap, languages);
+        putAllBySubtag(scriptsMap, scripts);
+        putAllBySubtag(regionsMap, regions);
+        for (Entry entry : grandfathereds) {
+            grandfatheredsMap.put(entry.getTag().toLowerCase(Locale.ROOT),
+                    entry);
+        }
+        for (Entry entry : redundants) {
+            redundantsMap.put(entry.getTag().toLowerCase(Locale.ROOT),
+                    entry);
+        }
+        putAllBySubtag(variantsMap, variants);
+        putAllBySubtag(extlangsMap, extlangs);
+
+        Path absoluteLsrDirectory = lsrDirectory.toAbsolutePath();
+        lsrXmlFilename = absoluteLsrDirectory.resolve("lsr.xml").toString();
+        lsrXmlGzFilename =
+                absoluteLsrDirectory.resolve("lsr.xml.gz").toString();
+        lsrJsonFilename = absoluteLsrDirectory.resolve("lsr.json").toString();
+        lsrJsonGzFilename =
+                absoluteLsrDirectory.resolve("lsr.json.gz").toString();
+        for (String filename : new String[] {lsrXmlFilename,
+                lsrXmlGzFilename, lsrJsonFilename, lsrJsonGzFilename}) {
+            if (!new File(filename).isFile()) {
+                logger.info("Regenerating missing LSR file: " + filename);
+                writeLsr(absoluteLsrDirectory);
+                break;
+            }
+        }
+    }
+
+    /** Add entries to a map, keyed by their lowercased subtags.
+     * @param map The map to which the entries are to be added.
+     * @param entries The entries to be added.
+     */
+    private static void putAllBySubtag(final Map<String, Entry> map,
+            final List<Entry> entries) {
+        for (Entry entry : entries) {
+            map.put(entry.getSubtag().toLowerCase(Locale.ROOT), entry);
+        }
+    }
+
     /** Open the registry file and extract its contents.
      * @param filename The filename of the file to be parsed.
      */
@@ -0,0 +1,1087 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils.language;
+
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_BEGINS_EXTENSION;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_BEGINS_PRIVATE_USE;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_BEGIN_END_HYPHEN;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_DISALLOWED_LANGUAGE_SUBTAG;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_DUPLICATE_SINGLETON;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_DUPLICATE_VARIANT_SUBTAG;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_EMPTY_SUBTAG;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_EMPTY_TAG;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_EXTENSION_COMPONENT_LENGTH;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_EXTLANG_NOT_ALLOWED;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_EXTLANG_PREFIX_DIFFERS;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_GRANDFATHERED_DEPRECATED;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_INTERNAL_SPACE;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_INVALID_CHARACTER;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_INVALID_SINGLETON;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_MULTIPLE_PRIVATE_USE;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_NULL_TAG;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_PRIVATE_USE_COMPONENT_LENGTH;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_PRIVATE_USE_LANGUAGE_UNSUPPORTED;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_REGION_NOT_ALLOWED;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_SCRIPT_NOT_ALLOWED;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_SUBTAG_TOO_LONG;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_UNKNOWN_EXTLANG_SUBTAG;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_UNKNOWN_LANGUAGE_SUBTAG;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_UNKNOWN_REGION_SUBTAG;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_UNKNOWN_SCRIPT_SUBTAG;
+import static au.org.ands.vocabs.registry.utils.language.LanguageSubtagRegistry.ERROR_UNKNOWN_VARIANT_SUBTAG;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+import au.org.ands.vocabs.registry.utils.language.lsr.Entry;
+
+/** Parser of language tags, that works directly on the characters
+ * of a tag, without splitting it into strings. The subtags are looked
+ * up in perfect hash tables built once from the maps of the parsed
+ * language subtag registry. The only objects allocated during parsing
+ * are those that make up the result.
+ *
+ * The results are exactly the same as those of the original
+ * implementation of {@link LanguageSubtagRegistry#parseTag(String)},
+ * which worked on a trimmed, lower-cased copy of the tag,
+ * and used regular expressions and {@link String#split(String)}.
+ * In particular, that implementation did not lower-case preferred
+ * values taken from grandfathered and redundant tags, so a
+ * subtag of such a value that contains upper-case letters is not found.
+ *
+ * As before, the structure follows that of the parseTag() function
+ * in Richard Ishida's app-subtag code (functions.js).
+ *
+ * The text being parsed is always represented as a character
+ * sequence, a range within it, and a flag that says whether
+ * ASCII upper-case letters are to be treated as lower-case.
+ */
+final class LanguageTagParser {
+
+    /** Maximum length of each subtag. */
+    private static final int SUBTAG_MAX_LENGTH = 8;
+
+    /** Length of a private use language subtag ("qaa".."qtz"). */
+    private static final int PRIVATE_USE_LANGUAGE_SUBTAG_LENGTH = 3;
+
+    /** Length of a three-digit region subtag. */
+    private static final int REGION_DIGITS_LENGTH = 3;
+
+    /** Length of a script subtag, and of a variant subtag
+     * that begins with a digit. */
+    private static final int SCRIPT_LENGTH = 4;
+
+    /** The Unicode "next line" character, which is a line terminator. */
+    private static final char NEXT_LINE = 0x85;
+
+    /** The Unicode line separator, which is a line terminator. */
+    private static final char LINE_SEPARATOR = 0x2028;
+
+    /** The Unicode paragraph separator, which is a line terminator. */
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    /** Table of languages. */
+    private final SubtagTable languages;
+
+    /** Table of scripts. */
+    private final SubtagTable scripts;
+
+    /** Table of regions. */
+    private final SubtagTable regions;
+
+    /** Table of grandfathered tags. */
+    private final SubtagTable grandfathereds;
+
+    /** Table of redundant tags. */
+    private final SubtagTable redundants;
+
+    /** Table of variants. */
+    private final SubtagTable variants;
+
+    /** Table of extlangs. */
+    private final SubtagTable extlangs;
+
+    /** Constructor.
+     * @param lsrParser The parsed language subtag registry, from
+     *      the maps of which the tables are built.
+     */
+    LanguageTagParser(final LanguageSubtagRegistryParser lsrParser) {
+        languages = new SubtagTable(lsrParser.getLanguagesMap());
+        scripts = new SubtagTable(lsrParser.getScriptsMap());
+        regions = new SubtagTable(lsrParser.getRegionsMap());
+        grandfathereds = new SubtagTable(lsrParser.getGrandfatheredsMap());
+        redundants = new SubtagTable(lsrParser.getRedundantsMap());
+        variants = new SubtagTable(lsrParser.getVariantsMap());
+        extlangs = new SubtagTable(lsrParser.getExtlangsMap());
+    }
+
+    /** Get a character of the text being parsed.
+     * @param text The text being parsed.
+     * @param index The index of the character.
+     * @param fold Whether ASCII upper-case letters are to be
+     *      converted to lower case.
+     * @return The character at index, converted to lower case,
+     *      if fold is true and it is an ASCII upper-case letter.
+     */
+    private static char charAt(final CharSequence text, final int index,
+            final boolean fold) {
+        char c = text.charAt(index);
+        if (fold && c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c;
+    }
+
+    /** Get a range of the text being parsed, as a string.
+     * This is only used to produce values that go into the result.
+     * @param text The text being parsed.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @param fold Whether ASCII upper-case letters are to be
+     *      converted to lower case.
+     * @return The range of the text, as a string.
+     */
+    private static String substring(final CharSequence text, final int from,
+            final int to, final boolean fold) {
+        String s = text.subSequence(from, to).toString();
+        if (fold) {
+            // Only ever used for text that is pure ASCII.
+            return s.toLowerCase(Locale.ROOT);
+        }
+        return s;
+    }
+
+    /** Decide whether a range of the text being parsed is equal to
+     * a string.
+     * @param expected The string with which to compare the range.
+     * @param text The text being parsed.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @param fold Whether ASCII upper-case letters are to be
+     *      converted to lower case.
+     * @return true, if the range is equal to expected.
+     */
+    private static boolean rangeEquals(final String expected,
+            final CharSequence text, final int from, final int to,
+            final boolean fold) {
+        if (to - from != expected.length()) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (charAt(text, i, fold) != expected.charAt(i - from)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Decide whether a character is one that is not matched by
+     * "." in a regular expression, i.e., a line terminator.
+     * @param c The character to be tested.
+     * @return true, if c is a line terminator.
+     */
+    private static boolean isLineTerminator(final char c) {
+        return c == '\n' || c == '\r' || c == NEXT_LINE
+                || c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR;
+    }
+
+    /** Decide whether a character is allowed in a tag, after it
+     * has been converted to lower case. (Spaces are checked for
+     * separately.)
+     * @param c The character to be tested.
+     * @return true, if c is allowed.
+     */
+    private static boolean isValidCharacter(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '-' || c == ' ';
+    }
+
+    /** Find the next occurrence of "-x-", that marks the
+     * start of a private use subtag.
+     * @param text The text being parsed.
+     * @param from The position at which to start searching.
+     * @param to The end of the range to be searched, exclusive.
+     * @param fold Whether ASCII upper-case letters are to be
+     *      converted to lower case.
+     * @return The index of the occurrence, or -1, if there is none.
+     */
+    private static int findPrivateUse(final CharSequence text,
+            final int from, final int to, final boolean fold) {
+        for (int i = from; i + 2 < to; i++) {
+            if (text.charAt(i) == '-' && charAt(text, i + 1, fold) == 'x'
+                    && text.charAt(i + 2) == '-') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Find the next occurrence of a hyphen, a character other than a
+     * line terminator, then a hyphen, that marks the start
+     * of an extension.
+     * @param text The text being parsed.
+     * @param from The position at which to start searching.
+     * @param to The end of the range to be searched, exclusive.
+     * @return The index of the occurrence, or -1, if there is none.
+     */
+    private static int findExtension(final CharSequence text,
+            final int from, final int to) {
+        for (int i = from; i + 2 < to; i++) {
+            if (text.charAt(i) == '-' && !isLineTerminator(text.charAt(i + 1))
+                    && text.charAt(i + 2) == '-') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Find the end of the subtag or component that starts at a position.
+     * @param text The text being parsed.
+     * @param from The start of the subtag.
+     * @param to The end of the range to be searched, exclusive.
+     * @return The index of the next hyphen, or to, if there is none.
+     */
+    private static int endOfSubtag(final CharSequence text, final int from,
+            final int to) {
+        int i = from;
+        while (i < to && text.charAt(i) != '-') {
+            i++;
+        }
+        return i;
+    }
+
+    /** Decide whether a range of the text, divided into components
+     * by hyphens, contains a component that is too long.
+     * @param text The text being parsed.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return true, if there is a component that is longer than
+     *      {@link #SUBTAG_MAX_LENGTH}.
+     */
+    private static boolean hasLongComponent(final CharSequence text,
+            final int from, final int to) {
+        int start = from;
+        while (start < to) {
+            int end = endOfSubtag(text, start, to);
+            if (end - start > SUBTAG_MAX_LENGTH) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /** Parse a tag. See {@link LanguageSubtagRegistry#parseTag(String)}
+     * for the details.
+     * @param tag A supposed language tag.
+     * @return The parsed tag.
+     */
+    ParsedLanguage parseTag(final String tag) {
+        ParsedLanguage parsedLanguage = new ParsedLanguage();
+        // Start by assuming that the tag is valid.
+        // FYI: addError() sets valid to false.
+        parsedLanguage.setValid(true);
+        if (tag == null) {
+            parsedLanguage.addError(ERROR_NULL_TAG);
+            return parsedLanguage;
+        }
+        // Trim, in the same way as String.trim(), but without copying.
+        int from = 0;
+        int to = tag.length();
+        while (from < to && tag.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && tag.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        CharSequence text = tag;
+        boolean fold = true;
+        for (int i = from; i < to; i++) {
+            if (tag.charAt(i) > '\u007f') {
+                // Converting non-ASCII characters to lower case can
+                // change the length of the tag. Such a tag can't
+                // be valid, but do the conversion anyway, so as to
+                // report exactly the same errors as before.
+                text = tag.trim().toLowerCase(Locale.ROOT);
+                from = 0;
+                to = text.length();
+                fold = false;
+                break;
+            }
+        }
+        if (from == to) {
+            parsedLanguage.addError(ERROR_EMPTY_TAG);
+            return parsedLanguage;
+        }
+        checkCharacters(text, from, to, fold, parsedLanguage);
+        // Bail out if we got any of the above errors.
+        if (!parsedLanguage.isValid()) {
+            return parsedLanguage;
+        }
+
+        // Grandfathered.
+        Entry entry = grandfathereds.get(text, from, to, fold);
+        if (entry != null) {
+            String preferredValue = entry.getPreferredValue();
+            if (preferredValue == null) {
+                parsedLanguage.addError(ERROR_GRANDFATHERED_DEPRECATED);
+                return parsedLanguage;
+            }
+            // Canonicalize to the preferred value. NB: it is not
+            // converted to lower case.
+            text = preferredValue;
+            from = 0;
+            to = preferredValue.length();
+            fold = false;
+        }
+
+        // Redundant.
+        entry = redundants.get(text, from, to, fold);
+        if (entry != null && entry.getPreferredValue() != null) {
+            text = entry.getPreferredValue();
+            from = 0;
+            to = text.length();
+            fold = false;
+        }
+
+        // Extensions and private use
+        int end = stripExtensionsPrivateUse(text, from, to, fold,
+                parsedLanguage);
+        if (end <= from) {
+            // Nothing left after removal of extensions and private use.
+            return parsedLanguage;
+        }
+        parseSubtags(text, from, end, fold, parsedLanguage);
+        return parsedLanguage;
+    }
+
+    /** Check that a tag contains only allowed characters, and that
+     * it doesn't contain empty subtags.
+     * @param text The text being parsed.
+     * @param from The start of the tag, inclusive.
+     * @param to The end of the tag, exclusive.
+     * @param fold Whether ASCII upper-case letters are to be
+     *      converted to lower case.
+     * @param parsedLanguage The parsed representation of the tag,
+     *      to which any errors are added.
+     */
+    private static void checkCharacters(final CharSequence text,
+            final int from, final int to, final boolean fold,
+            final ParsedLanguage parsedLanguage) {
+        boolean emptySubtag = false;
+        boolean space = false;
+        boolean invalidCharacter = false;
+        int lineTerminators = 0;
+        for (int i = from; i < to; i++) {
+            char c = charAt(text, i, fold);
+            if (c == '-' && i + 1 < to && text.charAt(i + 1) == '-') {
+                emptySubtag = true;
+            }
+            if (c == ' ') {
+                space = true;
+            }
+            if (!isValidCharacter(c)) {
+                invalidCharacter = true;
+            }
+            if (isLineTerminator(c)) {
+                lineTerminators++;
+            }
+        }
+        if (emptySubtag) {
+            parsedLanguage.addError(ERROR_EMPTY_SUBTAG);
+        }
+        if (space) {
+            parsedLanguage.addError(ERROR_INTERNAL_SPACE);
+        }
+        if (text.charAt(from) == '-' || text.charAt(to - 1) == '-') {
+            parsedLanguage.addError(ERROR_BEGIN_END_HYPHEN);
+        }
+        // The original test was that the tag matched the regular
+        // expression ".*[^a-z0-9- ].*". As "." doesn't match a
+        // line terminator, that fails if there is more than one
+        // line terminator (and one line terminator is itself an
+        // invalid character).
+        if (invalidCharacter && lineTerminators < 2) {
+            parsedLanguage.addError(ERROR_INVALID_CHARACTER);
+        }
+    }
+
+    /** Parse any extensions and private use components of a tag.
+     * @param text The text being parsed.
+     * @param from The start of the tag, inclusive.
+     * @param to The end of the tag, exclusive.
+     * @param fold Whether ASCII upper-case letters are to be
+     *      converted to lower case.
+     * @param parsedLanguage The parsed representation of the tag. It
+     *      is updated to contain any errors found, and any extensions
+     *      and private use subtags found.
+     * @return The end of what is left of the tag, once the extensions
+     *      and private use components have been removed, or -1,
+     *      if nothing is left.
+     */
+    private static int stripExtensionsPrivateUse(final CharSequence text,
+            final int from, final int to, final boolean fold,
+            final ParsedLanguage parsedLanguage) {
+        // Forbid tags that begin with a private use tag.
+        if (to - from >= 2 && charAt(text, from, fold) == 'x'
+                && text.charAt(from + 1) == '-') {
+            parsedLanguage.addError(ERROR_BEGINS_PRIVATE_USE);
+            return -1;
+        }
+        int remainderEnd = to;
+        int start = findPrivateUse(text, from, to, fold);
+        if (start >= 0) {
+            boolean privateUseOK = true;
+            remainderEnd = start;
+            if (hasLongComponent(text, start + 1, to)) {
+                privateUseOK = false;
+                parsedLanguage.addError(ERROR_PRIVATE_USE_COMPONENT_LENGTH);
+            }
+            // Continue searching after the end of the first match.
+            if (findPrivateUse(text, start + "-x-".length(), to, fold) >= 0) {
+                privateUseOK = false;
+                parsedLanguage.addError(ERROR_MULTIPLE_PRIVATE_USE);
+            }
+            if (privateUseOK) {
+                parsedLanguage.setPrivateUse(
+                        substring(text, start + 1, to, fold));
+            }
+        }
+
+        // Now, extensions. As before, we hard-code just "t" and "u".
+        if (remainderEnd - from > 1 && text.charAt(from + 1) == '-') {
+            parsedLanguage.addError(ERROR_BEGINS_EXTENSION);
+            return -1;
+        }
+        start = findExtension(text, from, remainderEnd);
+        if (start < 0) {
+            return remainderEnd;
+        }
+        int extensionsStart = start + 1;
+        int extensionStart = extensionsStart;
+        while (extensionStart < remainderEnd) {
+            int next = findExtension(text, extensionStart, remainderEnd);
+            int extensionEnd = remainderEnd;
+            if (next >= 0) {
+                extensionEnd = next;
+            }
+            char singleton = charAt(text, extensionStart, fold);
+            if (singletonSeen(text, extensionsStart, extensionStart,
+                    singleton, fold)) {
+                parsedLanguage.addError(ERROR_DUPLICATE_SINGLETON);
+            }
+            if (singleton != 't' && singleton != 'u') {
+                parsedLanguage.addError(ERROR_INVALID_SINGLETON);
+            }
+            if (hasLongComponent(text, extensionStart, extensionEnd)) {
+                parsedLanguage.addError(ERROR_EXTENSION_COMPONENT_LENGTH);
+            } else {
+                parsedLanguage.addExtension(
+                        substring(text, extensionStart, extensionEnd, fold));
+            }
+            if (next < 0) {
+                break;
+            }
+            extensionStart = next + 1;
+        }
+        return start;
+    }
+
+    /** Decide whether an extension singleton has already been seen,
+     * by going over the extensions that precede it.
+     * @param text The text being parsed.
+     * @param extensionsStart The start of the first extension.
+     * @param extensionStart The start of the extension whose singleton
+     *      is to be checked.
+     * @param singleton The singleton to be checked.
+     * @param fold Whether ASCII upper-case letters are to be
+     *      converted to lower case.
+     * @return true, if one of the preceding extensions has the
+     *      same singleton.
+     */
+    private static boolean singletonSeen(final CharSequence text,
+            final int extensionsStart, final int extensionStart,
+            final char singleton, final boolean fold) {
+        int start = extensionsStart;
+        while (start < extensionStart) {
+            if (charAt(text, start, fold) == singleton) {
+                return true;
+            }
+            int next = findExtension(text, start, extensionStart);
+            if (next < 0) {
+                return false;
+            }
+            start = next + 1;
+        }
+        return false;
+    }
+
+    /** Get the "preferred" entry for a subtag. For most subtags, this
+     * means the entry contained in the table for the subtag. But if
+     * that entry has a Preferred-Value, then the entry for the
+     * preferred value is returned.
+     * @param table The table to be used for the lookup.
+     * @param text The text being parsed.
+     * @param from The start of the subtag, inclusive.
+     * @param to The end of the subtag, exclusive.
+     * @param fold Whether ASCII upper-case letters are to be
+     *      converted to lower case.
+     * @return The "preferred" entry for the subtag, or null, if there is
+     *      no entry in the table for the subtag.
+     */
+    private static Entry getPreferredEntry(final SubtagTable table,
+            final CharSequence text, final int from, final int to,
+            final boolean fold) {
+        Entry entry = table.get(text, from, to, fold);
+        if (entry == null) {
+            return null;
+        }
+        String preferredValue = entry.getPreferredValue();
+        if (preferredValue == null) {
+            return entry;
+        }
+        return table.get(preferredValue, 0, preferredValue.length(), true);
+    }
+
+    /** Parse the language, extlang, script, region, and variant subtags
+     * of a tag, from which extensions and private use components
+     * have been removed.
+     * @param text The text being parsed.
+     * @param from The start of the tag, inclusive.
+     * @param to The end of the tag, exclusive.
+     * @param fold Whether ASCII upper-case letters are to be
+     *      converted to lower case.
+     * @param parsedLanguage The parsed representation of the tag,
+     *      which is updated with the subtags and any errors found.
+     */
+    // The structure follows that of the original implementation.
+    @SuppressWarnings("checkstyle:MethodLength")
+    private void parseSubtags(final CharSequence text,
+            final int from, final int to, final boolean fold,
+            final ParsedLanguage parsedLanguage) {
+        int languageEnd = endOfSubtag(text, from, to);
+        // The canonical language subtag, once it has been replaced
+        // by a preferred value. Until then, it is the range of text
+        // from "from" to "languageEnd".
+        String language = null;
+        Entry languageEntry = languages.get(text, from, languageEnd, fold);
+        if (languageEntry == null) {
+            if (charAt(text, from, fold) == 'q'
+                    && languageEnd - from == PRIVATE_USE_LANGUAGE_SUBTAG_LENGTH
+                    && charAt(text, from + 1, fold) < 'u') {
+                parsedLanguage.addError(ERROR_PRIVATE_USE_LANGUAGE_UNSUPPORTED);
+            } else {
+                parsedLanguage.addError(ERROR_UNKNOWN_LANGUAGE_SUBTAG);
+            }
+        } else {
+            String preferredValue = languageEntry.getPreferredValue();
+            if (preferredValue != null) {
+                languageEntry = languages.get(preferredValue);
+                language = languageEntry.getSubtag();
+            }
+            parsedLanguage.setLanguage(languageEntry);
+            // But as per RFC 5646, page 57, we don't allow "mis".
+            if (languageEquals("mis", language, text, from, languageEnd,
+                    fold)) {
+                parsedLanguage.addError(ERROR_DISALLOWED_LANGUAGE_SUBTAG);
+            }
+        }
+
+        // This is the automaton that enforces the sequence:
+        // extlang, script, region, variants.
+        boolean extlangAllowed = true;
+        boolean scriptAllowed = true;
+        boolean regionAllowed = true;
+        // Encodings of the variants found so far; only allocated
+        // if there are any variants.
+        long[] variantsFound = null;
+        int variantsFoundCount = 0;
+        Entry regionEntry;
+        Entry variantEntry;
+        int end = languageEnd;
+        while (end < to) {
+            int start = end + 1;
+            end = endOfSubtag(text, start, to);
+            int length = end - start;
+            if (length > SUBTAG_MAX_LENGTH) {
+                parsedLanguage.addError(ERROR_SUBTAG_TOO_LONG);
+                continue;
+            }
+            switch (length) {
+            case 2:
+                // It's a two-character region. Only variants may follow.
+                extlangAllowed = false;
+                scriptAllowed = false;
+                if (!regionAllowed) {
+                    parsedLanguage.addError(ERROR_REGION_NOT_ALLOWED);
+                    continue;
+                }
+                regionAllowed = false;
+                regionEntry = getPreferredEntry(regions, text, start, end,
+                        fold);
+                if (regionEntry == null) {
+                    parsedLanguage.addError(ERROR_UNKNOWN_REGION_SUBTAG);
+                    continue;
+                }
+                parsedLanguage.setRegion(regionEntry);
+                break;
+            case REGION_DIGITS_LENGTH:
+                // Either a three-digit region, or an extlang.
+                if (isDigits(text, start, end)) {
+                    if (!regionAllowed) {
+                        parsedLanguage.addError(ERROR_REGION_NOT_ALLOWED);
+                        continue;
+                    }
+                    // Only variants may follow.
+                    extlangAllowed = false;
+                    scriptAllowed = false;
+                    regionAllowed = false;
+                    regionEntry = getPreferredEntry(regions, text, start,
+                            end, fold);
+                    if (regionEntry == null) {
+                        parsedLanguage.addError(ERROR_UNKNOWN_REGION_SUBTAG);
+                        continue;
+                    }
+                    parsedLanguage.setRegion(regionEntry);
+                } else {
+                    if (!extlangAllowed) {
+                        parsedLanguage.addError(ERROR_EXTLANG_NOT_ALLOWED);
+                        continue;
+                    }
+                    extlangAllowed = false;
+                    Entry extlangEntry = extlangs.get(text, start, end, fold);
+                    if (extlangEntry == null) {
+                        parsedLanguage.addError(ERROR_UNKNOWN_EXTLANG_SUBTAG);
+                        continue;
+                    }
+                    String prefix = extlangEntry.getPrefix().get(0);
+                    if (languageEquals(prefix, language, text, from,
+                            languageEnd, fold)) {
+                        languageEntry = languages.get(
+                                extlangEntry.getPreferredValue());
+                        parsedLanguage.setLanguage(languageEntry);
+                        language = languageEntry.getSubtag();
+                    } else {
+                        parsedLanguage.addError(ERROR_EXTLANG_PREFIX_DIFFERS);
+                    }
+                    // Store it, but we won't use it.
+                    parsedLanguage.setExtlang(extlangEntry);
+                }
+                break;
+            case SCRIPT_LENGTH:
+                // Either a four-character variant (beginning with a digit),
+                // or a script.
+                if (Character.isDigit(charAt(text, start, fold))) {
+                    // Only more variants may follow.
+                    extlangAllowed = false;
+                    scriptAllowed = false;
+                    regionAllowed = false;
+                    if (variantsFound == null) {
+                        variantsFound = new long[(to - start) / 2 + 1];
+                    }
+                    // The duplicate check is on the subtag as given.
+                    long variantCode =
+                            SubtagTable.encode(text, start, end, fold);
+                    if (contains(variantsFound, variantsFoundCount,
+                            variantCode)) {
+                        parsedLanguage.addError(
+                                ERROR_DUPLICATE_VARIANT_SUBTAG);
+                        continue;
+                    }
+                    variantsFound[variantsFoundCount++] = variantCode;
+                    variantEntry = variants.get(text, start, end, fold);
+                    if (variantEntry == null) {
+                        parsedLanguage.addError(ERROR_UNKNOWN_VARIANT_SUBTAG);
+                        continue;
+                    }
+                    parsedLanguage.addVariant(variantEntry);
+                } else {
+                    if (!scriptAllowed) {
+                        parsedLanguage.addError(ERROR_SCRIPT_NOT_ALLOWED);
+                        continue;
+                    }
+                    // Only regions and variants may follow.
+                    extlangAllowed = false;
+                    scriptAllowed = false;
+                    Entry scriptEntry = getPreferredEntry(scripts, text,
+                            start, end, fold);
+                    if (scriptEntry == null) {
+                        parsedLanguage.addError(ERROR_UNKNOWN_SCRIPT_SUBTAG);
+                        continue;
+                    }
+                    parsedLanguage.setScript(scriptEntry);
+                }
+                break;
+            default:
+                // It must be a variant, and only more variants may follow.
+                extlangAllowed = false;
+                scriptAllowed = false;
+                regionAllowed = false;
+                variantEntry = getPreferredEntry(variants, text, start, end,
+                        fold);
+                if (variantEntry == null) {
+                    parsedLanguage.addError(ERROR_UNKNOWN_VARIANT_SUBTAG);
+                    continue;
+                }
+                if (variantsFound == null) {
+                    variantsFound = new long[(to - start) / 2 + 1];
+                }
+                // The duplicate check is on the preferred subtag.
+                String subtag = variantEntry.getSubtag();
+                long variantCode = SubtagTable.encode(subtag, 0,
+                        subtag.length(), false);
+                if (contains(variantsFound, variantsFoundCount,
+                        variantCode)) {
+                    parsedLanguage.addError(ERROR_DUPLICATE_VARIANT_SUBTAG);
+                    continue;
+                }
+                variantsFound[variantsFoundCount++] = variantCode;
+                parsedLanguage.addVariant(variantEntry);
+                break;
+            }
+        }
+    }
+
+    /** Decide whether the language subtag is equal to a string.
+     * @param expected The string with which to compare the language.
+     * @param language The canonical language subtag, if it has been
+     *      replaced by a preferred value, or null, if the language
+     *      subtag is still the range of the text.
+     * @param text The text being parsed.
+     * @param from The start of the language subtag, inclusive.
+     * @param to The end of the language subtag, exclusive.
+     * @param fold Whether ASCII upper-case letters are to be
+     *      converted to lower case.
+     * @return true, if the language subtag is equal to expected.
+     */
+    private static boolean languageEquals(final String expected,
+            final String language, final CharSequence text,
+            final int from, final int to, final boolean fold) {
+        if (language != null) {
+            return expected.equals(language);
+        }
+        return rangeEquals(expected, text, from, to, fold);
+    }
+
+    /** Decide whether a range of the text consists only of ASCII digits.
+     * @param text The text being parsed.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return true, if the range consists only of ASCII digits.
+     */
+    private static boolean isDigits(final CharSequence text, final int from,
+            final int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Decide whether the encoding of a variant has already been seen.
+     * Encodings of -1 (which are only used for subtags that can't be
+     * valid) are never considered to have been seen.
+     * @param codes The encodings seen so far.
+     * @param count The number of elements of codes in use.
+     * @param code The encoding to look for.
+     * @return true, if code is among the first count elements of codes.
+     */
+    private static boolean contains(final long[] codes, final int count,
+            final long code) {
+        if (code < 0) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (codes[i] == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Table that maps (lower-case) subtags to registry entries,
+     * using a perfect hash function. Each key is encoded as
+     * a long, by treating it as a number in base {@link #RADIX}.
+     * Keys are placed using the "hash, displace, and compress"
+     * technique: keys are first divided into buckets, then, for
+     * each bucket, a displacement is found that puts all of the
+     * keys of the bucket into free slots. A lookup then costs
+     * two hash computations and a comparison of longs.
+     * Keys that can't be encoded are looked up in the
+     * original map; there are none in the IANA registry.
+     */
+    static final class SubtagTable {
+
+        /** The number of values of each character of an encoded key:
+         * zero (which is not used), a-z, 0-9, and the hyphen. */
+        private static final int RADIX = 38;
+
+        /** The maximum length of a key that can be encoded.
+         * 38^12 is less than 2^63. */
+        private static final int MAX_ENCODED_LENGTH = 12;
+
+        /** The value in {@link #keys} that marks an empty slot. */
+        private static final long EMPTY = -1;
+
+        /** Multiplier used to vary the hash function by displacement. */
+        private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+        /** Approximate number of keys per bucket. */
+        private static final int KEYS_PER_BUCKET_BITS = 2;
+
+        /** The maximum number of displacements tried for one bucket,
+         * before trying again with a bigger table. */
+        private static final int MAX_DISPLACEMENT = 65536;
+
+        /** The original map, used for keys that can't be encoded. */
+        private final Map<String, Entry> map;
+
+        /** Whether the original map has any keys that can't be encoded. */
+        private boolean hasUnencodableKeys;
+
+        /** The number of bits of the index of a slot. */
+        private int slotBits;
+
+        /** Mask used to compute the bucket of a key. */
+        private int bucketMask;
+
+        /** The displacement to be used for each bucket. */
+        private int[] displacements;
+
+        /** The encoded keys, indexed by slot. */
+        private long[] keys;
+
+        /** The entries, indexed by slot. */
+        private Entry[] entries;
+
+        /** Constructor.
+         * @param aMap The map from which the table is built. The keys
+         *      are expected to be in lower case.
+         */
+        SubtagTable(final Map<String, Entry> aMap) {
+            map = aMap;
+            long[] codes = new long[aMap.size()];
+            Entry[] values = new Entry[aMap.size()];
+            int count = 0;
+            for (Map.Entry<String, Entry> mapEntry : aMap.entrySet()) {
+                String key = mapEntry.getKey();
+                long code = encode(key, 0, key.length(), false);
+                if (code < 0) {
+                    hasUnencodableKeys = true;
+                } else {
+                    codes[count] = code;
+                    values[count] = mapEntry.getValue();
+                    count++;
+                }
+            }
+            slotBits = 1;
+            while ((1 << slotBits) < count) {
+                slotBits++;
+            }
+            while (!build(codes, values, count)) {
+                slotBits++;
+            }
+        }
+
+        /** Encode a key as a long.
+         * @param text The text containing the key.
+         * @param from The start of the key, inclusive.
+         * @param to The end of the key, exclusive.
+         * @param fold Whether ASCII upper-case letters are to be
+         *      converted to lower case.
+         * @return The encoding of the key, or -1, if it is too long,
+         *      or contains a character other than a lower-case ASCII
+         *      letter, an ASCII digit, or a hyphen.
+         */
+        static long encode(final CharSequence text, final int from,
+                final int to, final boolean fold) {
+            if (to - from > MAX_ENCODED_LENGTH) {
+                return -1;
+            }
+            long code = 0;
+            for (int i = from; i < to; i++) {
+                char c = charAt(text, i, fold);
+                int value;
+                if (c >= 'a' && c <= 'z') {
+                    value = c - 'a' + 1;
+                } else if (c >= '0' && c <= '9') {
+                    value = c - '0' + ('z' - 'a' + 2);
+                } else if (c == '-') {
+                    value = RADIX - 1;
+                } else {
+                    return -1;
+                }
+                code = code * RADIX + value;
+            }
+            return code;
+        }
+
+        /** Mix the bits of a long. This is the finalizer of
+         * the SplitMix64 generator.
+         * @param value The value to be mixed.
+         * @return The mixed value.
+         */
+        @SuppressWarnings("checkstyle:MagicNumber")
+        private static long mix(final long value) {
+            long z = value;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+
+        /** Compute the bucket of an encoded key.
+         * @param code The encoded key.
+         * @return The bucket of the key.
+         */
+        private int bucket(final long code) {
+            return (int) mix(code) & bucketMask;
+        }
+
+        /** Compute the slot of an encoded key, for a displacement.
+         * @param code The encoded key.
+         * @param displacement The displacement of the key's bucket.
+         * @return The slot of the key.
+         */
+        private int slot(final long code, final int displacement) {
+            return (int) (mix(code ^ (displacement * GOLDEN_GAMMA))
+                    >>> (Long.SIZE - slotBits));
+        }
+
+        /** Try to build the table, using the current value
+         * of {@link #slotBits}.
+         * @param codes The encoded keys.
+         * @param values The entries for the keys.
+         * @param count The number of keys.
+         * @return true, if the table was built.
+         */
+        private boolean build(final long[] codes, final Entry[] values,
+                final int count) {
+            int slotCount = 1 << slotBits;
+            int bucketCount = Math.max(1,
+                    slotCount >> (KEYS_PER_BUCKET_BITS + 1));
+            bucketMask = bucketCount - 1;
+            displacements = new int[bucketCount];
+            keys = new long[slotCount];
+            Arrays.fill(keys, EMPTY);
+            entries = new Entry[slotCount];
+            // Group the keys by bucket: sort the indexes of the keys
+            // by bucket, and then process the buckets biggest first.
+            int[] bucketSizes = new int[bucketCount];
+            for (int i = 0; i < count; i++) {
+                bucketSizes[bucket(codes[i])]++;
+            }
+            int[] bucketStarts = new int[bucketCount + 1];
+            for (int b = 0; b < bucketCount; b++) {
+                bucketStarts[b + 1] = bucketStarts[b] + bucketSizes[b];
+            }
+            int[] members = new int[count];
+            int[] fill = Arrays.copyOf(bucketStarts, bucketCount);
+            for (int i = 0; i < count; i++) {
+                members[fill[bucket(codes[i])]++] = i;
+            }
+            Integer[] order = new Integer[bucketCount];
+            for (int b = 0; b < bucketCount; b++) {
+                order[b] = b;
+            }
+            Arrays.sort(order, (b1, b2) ->
+                    Integer.compare(bucketSizes[b2], bucketSizes[b1]));
+            int[] bucketSlots = new int[count];
+            for (int b : order) {
+                int start = bucketStarts[b];
+                int size = bucketSizes[b];
+                if (size == 0) {
+                    break;
+                }
+                int displacement = findDisplacement(codes, members, start,
+                        size, bucketSlots);
+                if (displacement < 0) {
+                    return false;
+                }
+                displacements[b] = displacement;
+                for (int j = 0; j < size; j++) {
+                    int i = members[start + j];
+                    keys[bucketSlots[j]] = codes[i];
+                    entries[bucketSlots[j]] = values[i];
+                }
+            }
+            return true;
+        }
+
+        /** Find a displacement that puts all the keys of a bucket
+         * into distinct empty slots.
+         * @param codes The encoded keys.
+         * @param members The indexes of the keys, grouped by bucket.
+         * @param start The start of the bucket's keys within members.
+         * @param size The number of keys in the bucket.
+         * @param bucketSlots Array into which the slots of the keys
+         *      are stored.
+         * @return The displacement, or -1, if none was found.
+         */
+        private int findDisplacement(final long[] codes, final int[] members,
+                final int start, final int size, final int[] bucketSlots) {
+            for (int displacement = 0; displacement < MAX_DISPLACEMENT;
+                    displacement++) {
+                boolean ok = true;
+                for (int j = 0; j < size && ok; j++) {
+                    int s = slot(codes[members[start + j]], displacement);
+                    if (keys[s] != EMPTY) {
+                        ok = false;
+                    }
+                    for (int k = 0; k < j && ok; k++) {
+                        if (bucketSlots[k] == s) {
+                            ok = false;
+                        }
+                    }
+                    bucketSlots[j] = s;
+                }
+                if (ok) {
+                    return displacement;
+                }
+            }
+            return -1;
+        }
+
+        /** Look up a key given as a range of text.
+         * @param text The text containing the key.
+         * @param from The start of the key, inclusive.
+         * @param to The end of the key, exclusive.
+         * @param fold Whether ASCII upper-case letters are to be
+         *      converted to lower case.
+         * @return The entry for the key, or null, if there is none.
+         */
+        Entry get(final CharSequence text, final int from, final int to,
+                final boolean fold) {
+            long code = encode(text, from, to, fold);
+            if (code < 0) {
+                if (!hasUnencodableKeys) {
+                    return null;
+                }
+                String key = text.subSequence(from, to).toString();
+                if (fold) {
+                    key = key.toLowerCase(Locale.ROOT);
+                }
+                return map.get(key);
+            }
+            int s = slot(code, displacements[bucket(code)]);
+            if (keys[s] == code) {
+                return entries[s];
+            }
+            return null;
+        }
+
+        /** Look up a key given as a string, exactly as it is.
+         * @param key The key.
+         * @return The entry for the key, or null, if there is none.
+         */
+        Entry get(final String key) {
+            if (key == null) {
+                return null;
+            }
+            return get(key, 0, key.length(), false);
+        }
+    }
+
+}
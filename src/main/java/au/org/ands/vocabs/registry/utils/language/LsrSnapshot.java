@@ -0,0 +1,291 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils.language;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.org.ands.vocabs.registry.utils.language.lsr.Entry;
+import au.org.ands.vocabs.registry.utils.language.lsr.Lsr;
+
+/** Compact binary snapshot of a parsed language subtag registry.
+ * The snapshot records the checksum of the registry file from which
+ * it was generated, so that on a subsequent startup, the parsed registry
+ * can be read back (using a memory-mapped file) instead of parsing
+ * the registry file again, as long as the registry file has not changed.
+ *
+ * The snapshot consists of a header (magic number, format version,
+ * checksum of the source file), then the file date, then
+ * the entries of each of the seven categories of the registry.
+ * Strings are written as their length in bytes (or -1 for null),
+ * followed by their UTF-8 encoding.
+ */
+final class LsrSnapshot {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** Private constructor for a utility class. */
+    private LsrSnapshot() {
+    }
+
+    /** The name of the snapshot file, within the LSR output directory. */
+    static final String SNAPSHOT_FILENAME = "lsr.bin";
+
+    /** The magic number at the start of a snapshot file: "LSRS". */
+    private static final int MAGIC = 0x4C535253;
+
+    /** The version of the snapshot format. Increment this, whenever
+     * either the format or the behaviour of
+     * {@link LanguageSubtagRegistryParser} changes, so that existing
+     * snapshots are discarded. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** The algorithm used to compute the checksum of the source file. */
+    private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+    /** The size of the buffer used when computing a checksum. */
+    private static final int CHECKSUM_BUFFER_SIZE = 65536;
+
+    /** Compute the checksum of a file.
+     * @param path The path of the file.
+     * @return The checksum of the file, as a lower-case hexadecimal string.
+     * @throws IOException If there is an error reading the file.
+     */
+    static String checksum(final Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java implementation is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[CHECKSUM_BUFFER_SIZE];
+        try (InputStream is = Files.newInputStream(path)) {
+            int count;
+            while ((count = is.read(buffer)) > 0) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /** Write a snapshot of a parsed registry. The snapshot is written to
+     * a temporary file, which then replaces any existing snapshot,
+     * so that a snapshot is never seen partly written.
+     * Note that the getters of the generated Entry class create
+     * empty lists on first use, so writing a snapshot of a registry
+     * changes how it is subsequently serialized as JSON. Write the
+     * snapshot only after the generated files have been written.
+     * @param snapshotPath The path of the snapshot file.
+     * @param checksum The checksum of the registry file that was parsed.
+     * @param lsr The parsed registry.
+     * @throws IOException If there is an error writing the snapshot.
+     */
+    static void write(final Path snapshotPath, final String checksum,
+            final Lsr lsr) throws IOException {
+        Path tempPath = snapshotPath.resolveSibling(
+                snapshotPath.getFileName() + ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            dos.writeInt(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            writeString(dos, checksum);
+            writeString(dos, lsr.getFileDate());
+            writeEntries(dos, lsr.getLanguages().getEntry());
+            writeEntries(dos, lsr.getScripts().getEntry());
+            writeEntries(dos, lsr.getRegions().getEntry());
+            writeEntries(dos, lsr.getGrandfathereds().getEntry());
+            writeEntries(dos, lsr.getRedundants().getEntry());
+            writeEntries(dos, lsr.getVariants().getEntry());
+            writeEntries(dos, lsr.getExtlangs().getEntry());
+        }
+        Files.move(tempPath, snapshotPath,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Read a snapshot of a parsed registry, if there is one that
+     * was generated from a registry file with the given checksum.
+     * @param snapshotPath The path of the snapshot file.
+     * @param checksum The checksum of the current registry file.
+     * @return The parsed registry, or null, if there is no snapshot,
+     *      or it was generated from a different registry file,
+     *      or it can't be read.
+     */
+    static Lsr read(final Path snapshotPath, final String checksum) {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotPath,
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC
+                    || buffer.getInt() != FORMAT_VERSION
+                    || !checksum.equals(readString(buffer))) {
+                LOGGER.info("Language subtag registry snapshot is out of "
+                        + "date; it will be regenerated");
+                return null;
+            }
+            Lsr lsr = new Lsr();
+            lsr.setFileDate(readString(buffer));
+            lsr.setLanguages(new Lsr.Languages());
+            readEntries(buffer, lsr.getLanguages()::getEntry);
+            lsr.setScripts(new Lsr.Scripts());
+            readEntries(buffer, lsr.getScripts()::getEntry);
+            lsr.setRegions(new Lsr.Regions());
+            readEntries(buffer, lsr.getRegions()::getEntry);
+            lsr.setGrandfathereds(new Lsr.Grandfathereds());
+            readEntries(buffer, lsr.getGrandfathereds()::getEntry);
+            lsr.setRedundants(new Lsr.Redundants());
+            readEntries(buffer, lsr.getRedundants()::getEntry);
+            lsr.setVariants(new Lsr.Variants());
+            readEntries(buffer, lsr.getVariants()::getEntry);
+            lsr.setExtlangs(new Lsr.Extlangs());
+            readEntries(buffer, lsr.getExtlangs()::getEntry);
+            return lsr;
+        } catch (IOException | BufferUnderflowException
+                | IllegalArgumentException e) {
+            LOGGER.warn("Unable to read language subtag registry snapshot; "
+                    + "it will be regenerated", e);
+            return null;
+        }
+    }
+
+    /** Write a list of entries.
+     * @param dos The stream to which the entries are written.
+     * @param entries The entries to be written.
+     * @throws IOException If there is an error writing the entries.
+     */
+    private static void writeEntries(final DataOutputStream dos,
+            final List<Entry> entries) throws IOException {
+        dos.writeInt(entries.size());
+        for (Entry entry : entries) {
+            writeString(dos, entry.getSubtag());
+            writeString(dos, entry.getTag());
+            writeString(dos, entry.getDeprecated());
+            writeString(dos, entry.getMacrolanguage());
+            writeString(dos, entry.getPreferredValue());
+            writeString(dos, entry.getScope());
+            writeString(dos, entry.getSuppressScript());
+            writeStrings(dos, entry.getDescription());
+            writeStrings(dos, entry.getComments());
+            writeStrings(dos, entry.getPrefix());
+        }
+    }
+
+    /** Read a list of entries. As for {@link #readStrings(ByteBuffer,
+     * Supplier)}, the list is only fetched if there are entries to be
+     * added to it.
+     * @param buffer The buffer from which the entries are read.
+     * @param entries Supplier of the list to which the entries are added.
+     */
+    private static void readEntries(final ByteBuffer buffer,
+            final Supplier<List<Entry>> entries) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            Entry entry = new Entry();
+            entry.setSubtag(readString(buffer));
+            entry.setTag(readString(buffer));
+            entry.setDeprecated(readString(buffer));
+            entry.setMacrolanguage(readString(buffer));
+            entry.setPreferredValue(readString(buffer));
+            entry.setScope(readString(buffer));
+            entry.setSuppressScript(readString(buffer));
+            readStrings(buffer, entry::getDescription);
+            readStrings(buffer, entry::getComments);
+            readStrings(buffer, entry::getPrefix);
+            entries.get().add(entry);
+        }
+    }
+
+    /** Write a list of strings.
+     * @param dos The stream to which the strings are written.
+     * @param strings The strings to be written.
+     * @throws IOException If there is an error writing the strings.
+     */
+    private static void writeStrings(final DataOutputStream dos,
+            final List<String> strings) throws IOException {
+        dos.writeInt(strings.size());
+        for (String s : strings) {
+            writeString(dos, s);
+        }
+    }
+
+    /** Read a list of strings. The getters of the generated Entry class
+     * create an empty list on first use, and such an empty list is
+     * included when the registry is serialized as JSON. So the list is
+     * only fetched if there are strings to be added to it, in order that
+     * an entry read from a snapshot is serialized in the same way as
+     * one parsed from the registry file.
+     * @param buffer The buffer from which the strings are read.
+     * @param strings Supplier of the list to which the strings are added.
+     */
+    private static void readStrings(final ByteBuffer buffer,
+            final Supplier<List<String>> strings) {
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            strings.get().add(readString(buffer));
+        }
+    }
+
+    /** Write a string, which may be null.
+     * @param dos The stream to which the string is written.
+     * @param s The string to be written.
+     * @throws IOException If there is an error writing the string.
+     */
+    private static void writeString(final DataOutputStream dos,
+            final String s) throws IOException {
+        if (s == null) {
+            dos.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    /** Read a string, which may be null.
+     * @param buffer The buffer from which the string is read.
+     * @return The string that was read.
+     */
+    private static String readString(final ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            // A corrupt snapshot.
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -290,6 +290,8 @@ public final class WorkflowMethods {
                 // done as a symbolic link.
                 Files.copy(RegistryFileUtils.getUploadPath(uploadId),
                         destPath, StandardCopyOption.REPLACE_EXISTING);
+                // And make a compressed copy to be used for downloads.
+                RegistryFileUtils.writeGzipCompressedCopy(destPath);
             } catch (IOException e) {
                 logger.error("Error attempting to copy uploaded file", e);
             }
@@ -361,6 +363,9 @@ public final class WorkflowMethods {
             } catch (IOException e) {
                 logger.error("Error deleting file: " + apFile.getPath(), e);
             }
+            // And the compressed copy made for downloads.
+            RegistryFileUtils.deleteGzipCompressedCopy(
+                    Paths.get(apFile.getPath()));
             doDatabaseDeletion = true;
             // We deleted a file, therefore we need to run the
             // concept and resource docs tasks ... unless we're deleting
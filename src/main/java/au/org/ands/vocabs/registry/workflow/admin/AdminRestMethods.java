@@ -10,7 +10,10 @@ import java.util.List;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityTransaction;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -43,10 +46,14 @@ import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.dao.TaskDAO;
 import au.org.ands.vocabs.registry.db.dao.VersionDAO;
 import au.org.ands.vocabs.registry.db.dao.VocabularyDAO;
+import au.org.ands.vocabs.registry.db.entity.BatchJob;
 import au.org.ands.vocabs.registry.db.entity.Version;
 import au.org.ands.vocabs.registry.db.entity.Vocabulary;
 import au.org.ands.vocabs.registry.log.Logging;
 import au.org.ands.vocabs.registry.schema.vocabulary201701.WorkflowOutcome;
+import au.org.ands.vocabs.registry.workflow.batch.BatchJobParams;
+import au.org.ands.vocabs.registry.workflow.batch.BatchJobReport;
+import au.org.ands.vocabs.registry.workflow.batch.BatchJobs;
 import au.org.ands.vocabs.registry.workflow.converter.WorkflowOutcomeSchemaMapper;
 import au.org.ands.vocabs.registry.workflow.tasks.Subtask;
 import au.org.ands.vocabs.registry.workflow.tasks.Task;
@@ -372,5 +379,211 @@ public class AdminRestMethods {
         return ResponseUtils.generateInternalServerError("Exception: see log");
     }
 
+    /** Create a batch job, and start running it in the background.
+     * @param request The HTTP request.
+     * @param uriInfo The UriInfo of the request.
+     * @param profile The caller's security profile.
+     * @param threads The number of vocabularies to process at the
+     *      same time. If not specified, the default is used.
+     * @param params The parameters of the batch job.
+     * @return The report of the new batch job.
+     */
+    @Path(AdminApiPaths.BATCH_JOBS)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    @Pac4JSecurity
+    @POST
+    @ApiOperation(value = "Create and run a batch job.",
+            notes = "This method is only available to administrator users. "
+                    + "A task is created for each current version selected "
+                    + "by the parameters, and the tasks are then run in "
+                    + "the background. Use the GET method to follow "
+                    + "the progress of the batch job.",
+            response = BatchJobReport.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpStatus.SC_BAD_REQUEST,
+                    message = "Invalid input",
+                    response = ErrorResult.class),
+            @ApiResponse(code = HttpStatus.SC_UNAUTHORIZED,
+                    message = "Not authenticated",
+                    response = ErrorResult.class,
+                    responseHeaders = {
+                            @ResponseHeader(name = "WWW-Authenticate",
+                                    response = String.class)
+                            }),
+            @ApiResponse(code = HttpStatus.SC_FORBIDDEN,
+                    message = "Not authenticated, or not authorized",
+                    response = ErrorResult.class)
+            })
+    public Response createBatchJob(
+            @Context final HttpServletRequest request,
+            @Context final UriInfo uriInfo,
+            @ApiParam(hidden = true) @Pac4JProfile
+            final CommonProfile profile,
+            @ApiParam(value = "The number of vocabularies to process "
+                    + "at the same time.")
+            @QueryParam("threads") final Integer threads,
+            @ApiParam(value = "The vocabularies to select, and the "
+                    + "subtasks to run for each of their current versions.",
+                    required = true)
+            final BatchJobParams params) {
+        logger.info("Called createBatchJob");
+        if (!AuthUtils.profileIsSuperuser(profile)) {
+            return ResponseUtils.generateForbiddenResponseNotSuperuser();
+        }
+        if (threads != null && threads < 1) {
+            return ErrorResultUtils.badRequest("threads must be positive");
+        }
+        if (params == null) {
+            return ErrorResultUtils.badRequest(
+                    "No batch job parameters specified");
+        }
+
+        BatchJob batchJob;
+        try {
+            batchJob = BatchJobs.createBatchJob(params,
+                    profile.getUsername());
+        } catch (IllegalArgumentException e) {
+            return ErrorResultUtils.badRequest(e.getMessage());
+        } catch (Throwable t) {
+            logger.error("Exception creating batch job", t);
+            Logging.logRequest(false, request, uriInfo, profile,
+                    "Admin: create batch job");
+            return ResponseUtils.generateInternalServerError(
+                    "Exception: see log");
+        }
+        int threadCount = BatchJobs.getDefaultThreads();
+        if (threads != null) {
+            threadCount = threads;
+        }
+        BatchJobs.startBatchJob(batchJob.getId(), threadCount,
+                false, profile.getUsername());
+        Logging.logRequest(true, request, uriInfo, profile,
+                "Admin: create batch job");
+        return Response.ok(BatchJobs.getReport(batchJob.getId())).build();
+    }
+
+    /** Get the progress of a batch job.
+     * @param request The HTTP request.
+     * @param uriInfo The UriInfo of the request.
+     * @param profile The caller's security profile.
+     * @param batchJobId The batch job Id.
+     * @return The report of the batch job.
+     */
+    @Path(AdminApiPaths.BATCH_JOBS + "/" + AdminApiPaths.BATCH_JOB_ID)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    @Pac4JSecurity
+    @GET
+    @ApiOperation(value = "Get the progress of a batch job.",
+            notes = "This method is only available to administrator users.",
+            response = BatchJobReport.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpStatus.SC_BAD_REQUEST,
+                    message = "Invalid input",
+                    response = ErrorResult.class),
+            @ApiResponse(code = HttpStatus.SC_UNAUTHORIZED,
+                    message = "Not authenticated",
+                    response = ErrorResult.class,
+                    responseHeaders = {
+                            @ResponseHeader(name = "WWW-Authenticate",
+                                    response = String.class)
+                            }),
+            @ApiResponse(code = HttpStatus.SC_FORBIDDEN,
+                    message = "Not authenticated, or not authorized",
+                    response = ErrorResult.class)
+            })
+    public Response getBatchJob(
+            @Context final HttpServletRequest request,
+            @Context final UriInfo uriInfo,
+            @ApiParam(hidden = true) @Pac4JProfile
+            final CommonProfile profile,
+            @ApiParam(value = "The ID of the batch job.")
+            @PathParam("batchJobId") final Integer batchJobId) {
+        logger.info("Called getBatchJob, id: " + batchJobId);
+        if (!AuthUtils.profileIsSuperuser(profile)) {
+            return ResponseUtils.generateForbiddenResponseNotSuperuser();
+        }
+
+        BatchJobReport report = BatchJobs.getReport(batchJobId);
+        if (report == null) {
+            return ErrorResultUtils.badRequest("No batch job with that id");
+        }
+        Logging.logRequest(true, request, uriInfo, profile,
+                "Admin: get batch job by Id");
+        return Response.ok(report).build();
+    }
+
+    /** Resume a batch job in the background. The tasks of the batch
+     * job that have not yet been run are run.
+     * @param request The HTTP request.
+     * @param uriInfo The UriInfo of the request.
+     * @param profile The caller's security profile.
+     * @param batchJobId The batch job Id.
+     * @param threads The number of vocabularies to process at the
+     *      same time. If not specified, the default is used.
+     * @param retryFailed If true, the tasks that failed are also rerun.
+     * @return The report of the batch job.
+     */
+    @Path(AdminApiPaths.BATCH_JOBS + "/" + AdminApiPaths.BATCH_JOB_ID)
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    @Pac4JSecurity
+    @PUT
+    @ApiOperation(value = "Resume a batch job.",
+            notes = "This method is only available to administrator users. "
+                    + "The tasks of the batch job that have not yet been "
+                    + "run are run in the background.",
+            response = BatchJobReport.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpStatus.SC_BAD_REQUEST,
+                    message = "Invalid input",
+                    response = ErrorResult.class),
+            @ApiResponse(code = HttpStatus.SC_UNAUTHORIZED,
+                    message = "Not authenticated",
+                    response = ErrorResult.class,
+                    responseHeaders = {
+                            @ResponseHeader(name = "WWW-Authenticate",
+                                    response = String.class)
+                            }),
+            @ApiResponse(code = HttpStatus.SC_FORBIDDEN,
+                    message = "Not authenticated, or not authorized",
+                    response = ErrorResult.class)
+            })
+    public Response resumeBatchJob(
+            @Context final HttpServletRequest request,
+            @Context final UriInfo uriInfo,
+            @ApiParam(hidden = true) @Pac4JProfile
+            final CommonProfile profile,
+            @ApiParam(value = "The ID of the batch job.")
+            @PathParam("batchJobId") final Integer batchJobId,
+            @ApiParam(value = "The number of vocabularies to process "
+                    + "at the same time.")
+            @QueryParam("threads") final Integer threads,
+            @ApiParam(value = "Whether to rerun the tasks that failed.")
+            @QueryParam("retryFailed") @DefaultValue("false")
+            final boolean retryFailed) {
+        logger.info("Called resumeBatchJob, id: " + batchJobId);
+        if (!AuthUtils.profileIsSuperuser(profile)) {
+            return ResponseUtils.generateForbiddenResponseNotSuperuser();
+        }
+        if (threads != null && threads < 1) {
+            return ErrorResultUtils.badRequest("threads must be positive");
+        }
+
+        if (BatchJobs.getReport(batchJobId) == null) {
+            return ErrorResultUtils.badRequest("No batch job with that id");
+        }
+        int threadCount = BatchJobs.getDefaultThreads();
+        if (threads != null) {
+            threadCount = threads;
+        }
+        if (!BatchJobs.startBatchJob(batchJobId, threadCount,
+                retryFailed, profile.getUsername())) {
+            return ErrorResultUtils.badRequest(
+                    "Batch job is already running");
+        }
+        Logging.logRequest(true, request, uriInfo, profile,
+                "Admin: resume batch job by Id");
+        return Response.ok(BatchJobs.getReport(batchJobId)).build();
+    }
 
 }
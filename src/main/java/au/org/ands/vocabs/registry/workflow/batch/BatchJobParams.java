@@ -0,0 +1,90 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.batch;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import au.org.ands.vocabs.registry.workflow.tasks.Subtask;
+
+/** The parameters of a batch job: which versions to process, and
+ * the subtasks to run for each of them. A task is created for each
+ * currently-valid version of each currently-valid vocabulary
+ * that matches all of the selectors that are specified. */
+@XmlRootElement(name = "batchJobParams")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BatchJobParams {
+
+    /** If specified, only these vocabularies are selected. */
+    private List<Integer> vocabularyIds;
+
+    /** Get the value of vocabularyIds.
+     * @return The value of vocabularyIds.
+     */
+    public List<Integer> getVocabularyIds() {
+        return vocabularyIds;
+    }
+
+    /** Set the value of vocabularyIds.
+     * @param aVocabularyIds The value of vocabularyIds to set.
+     */
+    public void setVocabularyIds(final List<Integer> aVocabularyIds) {
+        vocabularyIds = aVocabularyIds;
+    }
+
+    /** If specified, only vocabularies with this owner are selected. */
+    private String owner;
+
+    /** Get the value of owner.
+     * @return The value of owner.
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /** Set the value of owner.
+     * @param anOwner The value of owner to set.
+     */
+    public void setOwner(final String anOwner) {
+        owner = anOwner;
+    }
+
+    /** If specified, only versions for which the harvest provider
+     * is (if true), or is not (if false), PoolParty are selected. */
+    private Boolean poolPartyHarvest;
+
+    /** Get the value of poolPartyHarvest.
+     * @return The value of poolPartyHarvest.
+     */
+    public Boolean getPoolPartyHarvest() {
+        return poolPartyHarvest;
+    }
+
+    /** Set the value of poolPartyHarvest.
+     * @param aPoolPartyHarvest The value of poolPartyHarvest to set.
+     */
+    public void setPoolPartyHarvest(final Boolean aPoolPartyHarvest) {
+        poolPartyHarvest = aPoolPartyHarvest;
+    }
+
+    /** The subtasks to be run for each selected version. */
+    private List<Subtask> subtasks;
+
+    /** Get the value of subtasks.
+     * @return The value of subtasks.
+     */
+    public List<Subtask> getSubtasks() {
+        return subtasks;
+    }
+
+    /** Set the value of subtasks.
+     * @param aSubtasks The value of subtasks to set.
+     */
+    public void setSubtasks(final List<Subtask> aSubtasks) {
+        subtasks = aSubtasks;
+    }
+
+}
@@ -0,0 +1,209 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import au.org.ands.vocabs.registry.enums.TaskStatus;
+
+/** The progress of a batch job, as recorded in the database,
+ * and the throughput of its most recent run. */
+@XmlRootElement(name = "batchJobReport")
+/* lastRunVocabulariesPerMinute is serialized, but it is always computed,
+ * so it is ignored during parsing. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class BatchJobReport {
+
+    /** The Id of the batch job. */
+    private Integer batchJobId;
+
+    /** Get the value of batchJobId.
+     * @return The value of batchJobId.
+     */
+    public Integer getBatchJobId() {
+        return batchJobId;
+    }
+
+    /** Set the value of batchJobId.
+     * @param aBatchJobId The value of batchJobId to set.
+     */
+    public void setBatchJobId(final Integer aBatchJobId) {
+        batchJobId = aBatchJobId;
+    }
+
+    /** The status of the batch job. It remains NEW while any of its
+     * tasks have not yet been run. */
+    private TaskStatus status;
+
+    /** Get the value of status.
+     * @return The value of status.
+     */
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    /** Set the value of status.
+     * @param aStatus The value of status to set.
+     */
+    public void setStatus(final TaskStatus aStatus) {
+        status = aStatus;
+    }
+
+    /** Whether the batch job is running now. */
+    private boolean running;
+
+    /** Get the value of running.
+     * @return The value of running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Set the value of running.
+     * @param aRunning The value of running to set.
+     */
+    public void setRunning(final boolean aRunning) {
+        running = aRunning;
+    }
+
+    /** The number of vocabularies for which tasks were created. */
+    private int vocabularyCount;
+
+    /** Get the value of vocabularyCount.
+     * @return The value of vocabularyCount.
+     */
+    public int getVocabularyCount() {
+        return vocabularyCount;
+    }
+
+    /** Set the value of vocabularyCount.
+     * @param aVocabularyCount The value of vocabularyCount to set.
+     */
+    public void setVocabularyCount(final int aVocabularyCount) {
+        vocabularyCount = aVocabularyCount;
+    }
+
+    /** The number of tasks that have not yet been run. */
+    private int newCount;
+
+    /** Get the value of newCount.
+     * @return The value of newCount.
+     */
+    public int getNewCount() {
+        return newCount;
+    }
+
+    /** Set the value of newCount.
+     * @param aNewCount The value of newCount to set.
+     */
+    public void setNewCount(final int aNewCount) {
+        newCount = aNewCount;
+    }
+
+    /** The number of tasks that completed successfully. */
+    private int successCount;
+
+    /** Get the value of successCount.
+     * @return The value of successCount.
+     */
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    /** Set the value of successCount.
+     * @param aSuccessCount The value of successCount to set.
+     */
+    public void setSuccessCount(final int aSuccessCount) {
+        successCount = aSuccessCount;
+    }
+
+    /** The number of tasks that completed with a warning. */
+    private int partialCount;
+
+    /** Get the value of partialCount.
+     * @return The value of partialCount.
+     */
+    public int getPartialCount() {
+        return partialCount;
+    }
+
+    /** Set the value of partialCount.
+     * @param aPartialCount The value of partialCount to set.
+     */
+    public void setPartialCount(final int aPartialCount) {
+        partialCount = aPartialCount;
+    }
+
+    /** The Ids of the tasks that failed. */
+    private List<Integer> failedTaskIds = new ArrayList<>();
+
+    /** Get the value of failedTaskIds.
+     * @return The value of failedTaskIds.
+     */
+    public List<Integer> getFailedTaskIds() {
+        return failedTaskIds;
+    }
+
+    /** Set the value of failedTaskIds.
+     * @param aFailedTaskIds The value of failedTaskIds to set.
+     */
+    public void setFailedTaskIds(final List<Integer> aFailedTaskIds) {
+        failedTaskIds = aFailedTaskIds;
+    }
+
+    /** The number of vocabularies processed by the most recent run. */
+    private int lastRunVocabularyCount;
+
+    /** Get the value of lastRunVocabularyCount.
+     * @return The value of lastRunVocabularyCount.
+     */
+    public int getLastRunVocabularyCount() {
+        return lastRunVocabularyCount;
+    }
+
+    /** Set the value of lastRunVocabularyCount.
+     * @param aLastRunVocabularyCount The value of lastRunVocabularyCount
+     *      to set.
+     */
+    public void setLastRunVocabularyCount(
+            final int aLastRunVocabularyCount) {
+        lastRunVocabularyCount = aLastRunVocabularyCount;
+    }
+
+    /** The elapsed time of the most recent run, in milliseconds. */
+    private long lastRunElapsedMillis;
+
+    /** Get the value of lastRunElapsedMillis.
+     * @return The value of lastRunElapsedMillis.
+     */
+    public long getLastRunElapsedMillis() {
+        return lastRunElapsedMillis;
+    }
+
+    /** Set the value of lastRunElapsedMillis.
+     * @param aLastRunElapsedMillis The value of lastRunElapsedMillis
+     *      to set.
+     */
+    public void setLastRunElapsedMillis(final long aLastRunElapsedMillis) {
+        lastRunElapsedMillis = aLastRunElapsedMillis;
+    }
+
+    /** Get the throughput of the most recent run, in vocabularies
+     * per minute.
+     * @return The throughput of the most recent run, or 0, if there
+     *      has not yet been a run.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public double getLastRunVocabulariesPerMinute() {
+        if (lastRunElapsedMillis == 0) {
+            return 0;
+        }
+        return lastRunVocabularyCount * 60000.0 / lastRunElapsedMillis;
+    }
+
+}
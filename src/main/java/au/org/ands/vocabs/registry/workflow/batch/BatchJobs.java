@@ -0,0 +1,664 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.batch;
+
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.org.ands.vocabs.registry.api.auth.AuthConstants;
+import au.org.ands.vocabs.registry.db.context.DBContext;
+import au.org.ands.vocabs.registry.db.context.TemporalUtils;
+import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
+import au.org.ands.vocabs.registry.db.dao.BatchJobDAO;
+import au.org.ands.vocabs.registry.db.dao.TaskDAO;
+import au.org.ands.vocabs.registry.db.dao.VersionDAO;
+import au.org.ands.vocabs.registry.db.dao.VocabularyDAO;
+import au.org.ands.vocabs.registry.db.entity.BatchJob;
+import au.org.ands.vocabs.registry.db.entity.Task;
+import au.org.ands.vocabs.registry.db.entity.Version;
+import au.org.ands.vocabs.registry.db.entity.Vocabulary;
+import au.org.ands.vocabs.registry.db.internal.VersionJson;
+import au.org.ands.vocabs.registry.enums.TaskStatus;
+import au.org.ands.vocabs.registry.utils.PropertyConstants;
+import au.org.ands.vocabs.registry.utils.RegistryProperties;
+import au.org.ands.vocabs.registry.workflow.tasks.TaskInfo;
+
+/** Batch jobs, that run the same subtasks for many vocabularies.
+ *
+ * <p>A batch job is created in two steps. First, the batch job
+ * and one task for each selected version are persisted
+ * (see {@link #createBatchJob(BatchJobParams, String)}). Then, the
+ * tasks are run (see {@link #runBatchJob(int, int, boolean, String)}).
+ * The tasks of each vocabulary are run together in their own
+ * transaction, as for {@code adminApi/workflow/taskSet}, and
+ * several vocabularies are processed at the same time.
+ * An exception during the processing of one vocabulary
+ * does not affect the other vocabularies; the vocabulary's tasks
+ * are marked as having failed.</p>
+ *
+ * <p>The status of each task is updated when its vocabulary
+ * has been processed, so the tasks table records the progress
+ * of the batch job. If a run is interrupted (e.g., by a restart),
+ * running the batch job again processes only the tasks that have
+ * not yet been run.</p>
+ *
+ * <p>The batch job can be run through the admin API
+ * ({@code adminApi/workflow/batchJobs}), or using the standalone
+ * program provided by {@link #main(String[])}.</p>
+ */
+public final class BatchJobs {
+
+    /** Logger for this class. */
+    private static Logger logger = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** Private constructor for a utility class. */
+    private BatchJobs() {
+    }
+
+    /** The default number of vocabularies to process at the same time. */
+    private static final int DEFAULT_THREADS = Integer.parseInt(
+            RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_BATCHJOB_THREADS, "4"));
+
+    /** The Ids of the batch jobs that are running now. */
+    private static final Set<Integer> RUNNING =
+            ConcurrentHashMap.newKeySet();
+
+    /** Executor used to run batch jobs in the background. Batch jobs
+     * started in the background are run one at a time. */
+    private static final ExecutorService BACKGROUND =
+            Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Batch job runner");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /** Get the default number of vocabularies to process at the same time.
+     * @return The default number of threads.
+     */
+    public static int getDefaultThreads() {
+        return DEFAULT_THREADS;
+    }
+
+    /** Create a batch job, and persist a task for each version
+     * selected by the parameters. The tasks are not run.
+     * @param params The parameters of the batch job.
+     * @param modifiedBy The value to use for "modifiedBy".
+     * @return The new batch job.
+     * @throws IllegalArgumentException If no parameters or
+     *      no subtasks are specified.
+     */
+    public static BatchJob createBatchJob(final BatchJobParams params,
+            final String modifiedBy) {
+        if (params == null) {
+            throw new IllegalArgumentException(
+                    "No batch job parameters specified");
+        }
+        if (params.getSubtasks() == null || params.getSubtasks().isEmpty()) {
+            throw new IllegalArgumentException("No subtasks specified");
+        }
+        String subtasksJson = JSONSerialization.serializeObjectAsJsonString(
+                params.getSubtasks());
+        // Getting the current vocabularies uses its own EntityManager.
+        List<Vocabulary> vocabularies = VocabularyDAO.getAllCurrentVocabulary();
+
+        EntityManager em = null;
+        EntityTransaction txn = null;
+        try {
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+            txn.begin();
+            BatchJob batchJob = new BatchJob();
+            batchJob.setModifiedBy(modifiedBy);
+            batchJob.setParams(
+                    JSONSerialization.serializeObjectAsJsonString(params));
+            batchJob.setStatus(TaskStatus.NEW);
+            batchJob.setResponse("");
+            BatchJobDAO.saveBatchJob(em, batchJob);
+            int taskCount = 0;
+            for (Vocabulary vocabulary : vocabularies) {
+                if (!isSelected(params, vocabulary)) {
+                    continue;
+                }
+                for (Version version : VersionDAO.
+                        getCurrentVersionListForVocabulary(em,
+                                vocabulary.getVocabularyId())) {
+                    if (!isSelected(params, version)) {
+                        continue;
+                    }
+                    Task dbTask = new Task();
+                    dbTask.setVocabularyId(vocabulary.getVocabularyId());
+                    dbTask.setVersionId(version.getVersionId());
+                    dbTask.setBatchJobId(batchJob.getId());
+                    dbTask.setStatus(TaskStatus.NEW);
+                    dbTask.setResponse("");
+                    dbTask.setParams(subtasksJson);
+                    TaskDAO.saveTask(em, dbTask);
+                    taskCount++;
+                }
+            }
+            txn.commit();
+            logger.info("Created batch job " + batchJob.getId()
+                    + " with " + taskCount + " tasks");
+            return batchJob;
+        } catch (Throwable t) {
+            if (txn != null && txn.isActive()) {
+                try {
+                    logger.error("Exception during transaction; rolling back",
+                            t);
+                    txn.rollback();
+                } catch (Exception e) {
+                    logger.error("Rollback failure!", e);
+                }
+            }
+            throw t;
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+    }
+
+    /** Decide if a vocabulary is selected by the parameters
+     * of a batch job.
+     * @param params The parameters of the batch job.
+     * @param vocabulary The vocabulary.
+     * @return true, if the vocabulary is selected.
+     */
+    private static boolean isSelected(final BatchJobParams params,
+            final Vocabulary vocabulary) {
+        if (params.getVocabularyIds() != null
+                && !params.getVocabularyIds().contains(
+                        vocabulary.getVocabularyId())) {
+            return false;
+        }
+        return params.getOwner() == null
+                || params.getOwner().equals(vocabulary.getOwner());
+    }
+
+    /** Decide if a version is selected by the parameters of a batch job.
+     * @param params The parameters of the batch job.
+     * @param version The version.
+     * @return true, if the version is selected.
+     */
+    private static boolean isSelected(final BatchJobParams params,
+            final Version version) {
+        if (params.getPoolPartyHarvest() == null) {
+            return true;
+        }
+        VersionJson versionJson = version.getDataAs(VersionJson.class);
+        return params.getPoolPartyHarvest().booleanValue()
+                == versionJson.isDoPoolpartyHarvest();
+    }
+
+    /** Run a batch job in the background. The batch job is queued
+     * behind any other batch jobs that have been started in the
+     * background.
+     * @param batchJobId The Id of the batch job.
+     * @param threads The number of vocabularies to process at the
+     *      same time.
+     * @param retryFailed If true, also rerun the tasks that failed
+     *      during a previous run.
+     * @param modifiedBy The value to use for "modifiedBy".
+     * @return true, if the batch job was queued; false, if the batch job
+     *      is already running.
+     */
+    public static boolean startBatchJob(final int batchJobId,
+            final int threads, final boolean retryFailed,
+            final String modifiedBy) {
+        if (!RUNNING.add(batchJobId)) {
+            return false;
+        }
+        BACKGROUND.execute(() -> {
+            try {
+                doRunBatchJob(batchJobId, threads, retryFailed, modifiedBy);
+            } catch (Throwable t) {
+                logger.error("Exception running batch job " + batchJobId, t);
+            } finally {
+                RUNNING.remove(batchJobId);
+            }
+        });
+        return true;
+    }
+
+    /** Run a batch job, and wait for it to complete.
+     * Only the tasks that have not yet been run (and, if
+     * {@code retryFailed} is true, the tasks that failed) are run.
+     * @param batchJobId The Id of the batch job.
+     * @param threads The number of vocabularies to process at the
+     *      same time.
+     * @param retryFailed If true, also rerun the tasks that failed
+     *      during a previous run.
+     * @param modifiedBy The value to use for "modifiedBy".
+     * @return The report of the batch job.
+     * @throws IllegalStateException If the batch job is already running.
+     * @throws InterruptedException If the thread is interrupted while
+     *      waiting for the workers.
+     */
+    public static BatchJobReport runBatchJob(final int batchJobId,
+            final int threads, final boolean retryFailed,
+            final String modifiedBy) throws InterruptedException {
+        if (!RUNNING.add(batchJobId)) {
+            throw new IllegalStateException("Batch job " + batchJobId
+                    + " is already running");
+        }
+        try {
+            return doRunBatchJob(batchJobId, threads, retryFailed,
+                    modifiedBy);
+        } finally {
+            RUNNING.remove(batchJobId);
+        }
+    }
+
+    /** Run a batch job, and wait for it to complete. The caller
+     * must already have added the batch job to {@link #RUNNING}.
+     * @param batchJobId The Id of the batch job.
+     * @param threads The number of vocabularies to process at the
+     *      same time.
+     * @param retryFailed If true, also rerun the tasks that failed
+     *      during a previous run.
+     * @param modifiedBy The value to use for "modifiedBy".
+     * @return The report of the batch job.
+     * @throws InterruptedException If the thread is interrupted while
+     *      waiting for the workers.
+     */
+    private static BatchJobReport doRunBatchJob(final int batchJobId,
+            final int threads, final boolean retryFailed,
+            final String modifiedBy) throws InterruptedException {
+        // Group the Ids of the tasks still to be run by vocabulary.
+        Map<Integer, List<Integer>> pending = new LinkedHashMap<>();
+        EntityManager em = DBContext.getEntityManager();
+        try {
+            if (BatchJobDAO.getBatchJobById(em, batchJobId) == null) {
+                throw new IllegalArgumentException("No batch job with Id "
+                        + batchJobId);
+            }
+            for (Task dbTask : TaskDAO.getTasksForBatchJob(em, batchJobId)) {
+                if (dbTask.getStatus() == TaskStatus.NEW
+                        || (retryFailed
+                                && dbTask.getStatus() == TaskStatus.ERROR)) {
+                    pending.computeIfAbsent(dbTask.getVocabularyId(),
+                            k -> new ArrayList<>()).add(dbTask.getId());
+                }
+            }
+        } finally {
+            em.close();
+        }
+        int vocabularyCount = pending.size();
+        logger.info("Running batch job " + batchJobId + ": "
+                + vocabularyCount + " vocabularies; threads: " + threads);
+
+        long start = System.nanoTime();
+        AtomicInteger completed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<Integer, List<Integer>> entry
+                    : pending.entrySet()) {
+                futures.add(executor.submit(() -> {
+                    processVocabulary(entry.getKey(), entry.getValue(),
+                            modifiedBy);
+                    logProgress(batchJobId, completed.incrementAndGet(),
+                            vocabularyCount, start);
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // processVocabulary() catches everything it can;
+                    // log anything else, and carry on.
+                    logger.error("Exception in batch job worker",
+                            e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(
+                System.nanoTime() - start);
+        return saveReport(batchJobId, vocabularyCount, elapsedMillis);
+    }
+
+    /** Log the progress of a batch job.
+     * @param batchJobId The Id of the batch job.
+     * @param completed The number of vocabularies processed so far.
+     * @param total The number of vocabularies to be processed.
+     * @param start The value of {@link System#nanoTime()} at the start
+     *      of the run.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static void logProgress(final int batchJobId,
+            final int completed, final int total, final long start) {
+        double elapsedMinutes = (System.nanoTime() - start) / 6e10;
+        logger.info("Batch job " + batchJobId + ": processed " + completed
+                + " of " + total + " vocabularies; "
+                + String.format("%.1f", completed / elapsedMinutes)
+                + " vocabularies per minute");
+    }
+
+    /** Run the tasks of one vocabulary in one transaction.
+     * As for {@code adminApi/workflow/taskSet}, the subtasks
+     * with a negative priority are run for all of the tasks first,
+     * then all of the other subtasks.
+     * If there is an exception, the transaction is rolled back,
+     * and the tasks are marked as having failed.
+     * @param vocabularyId The vocabulary Id.
+     * @param taskIds The Ids of the tasks to be run.
+     * @param modifiedBy The value to use for "modifiedBy".
+     */
+    private static void processVocabulary(final Integer vocabularyId,
+            final List<Integer> taskIds, final String modifiedBy) {
+        EntityManager em = null;
+        EntityTransaction txn = null;
+        try {
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+            txn.begin();
+            LocalDateTime now = TemporalUtils.nowUTC();
+            Vocabulary vocabulary = VocabularyDAO.
+                    getCurrentVocabularyByVocabularyId(em, vocabularyId);
+            List<TaskInfo> taskInfos = new ArrayList<>();
+            for (Integer taskId : taskIds) {
+                Task dbTask = TaskDAO.getTaskById(em, taskId);
+                Version version = VersionDAO.getCurrentVersionByVersionId(
+                        em, dbTask.getVersionId());
+                if (vocabulary == null || version == null) {
+                    // Deleted since the batch job was created.
+                    markFailed(em, dbTask,
+                            "Vocabulary or version is no longer current");
+                    continue;
+                }
+                TaskInfo taskInfo = new TaskInfo(dbTask, vocabulary, version);
+                taskInfo.setEm(em);
+                taskInfo.setNowTime(now);
+                taskInfo.setModifiedBy(modifiedBy);
+                taskInfos.add(taskInfo);
+            }
+            for (TaskInfo taskInfo : taskInfos) {
+                if (!taskInfo.getTask().getSubtasks().isEmpty()) {
+                    taskInfo.processOnlyNegativePrioritySubtasks();
+                }
+            }
+            for (TaskInfo taskInfo : taskInfos) {
+                if (!taskInfo.getTask().getSubtasks().isEmpty()) {
+                    taskInfo.processRemainingSubtasks();
+                }
+            }
+            txn.commit();
+        } catch (Throwable t) {
+            if (txn != null && txn.isActive()) {
+                try {
+                    logger.error("Exception during transaction; rolling back",
+                            t);
+                    txn.rollback();
+                } catch (Exception e) {
+                    logger.error("Rollback failure!", e);
+                }
+            } else {
+                logger.error("Exception other than during transaction: ", t);
+            }
+            if (em != null) {
+                em.close();
+                em = null;
+            }
+            markAllFailed(taskIds, t.toString());
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+    }
+
+    /** Mark a task as having failed. The caller manages the transaction.
+     * @param em The EntityManager to be used.
+     * @param dbTask The task.
+     * @param message The message to record as the result of the task.
+     */
+    private static void markFailed(final EntityManager em,
+            final Task dbTask, final String message) {
+        dbTask.setStatus(TaskStatus.ERROR);
+        dbTask.setResponse(JSONSerialization.serializeObjectAsJsonString(
+                Collections.singletonMap("exception", message)));
+        TaskDAO.updateTask(em, dbTask);
+    }
+
+    /** Mark tasks as having failed, in a new transaction.
+     * @param taskIds The Ids of the tasks.
+     * @param message The message to record as the result of the tasks.
+     */
+    private static void markAllFailed(final List<Integer> taskIds,
+            final String message) {
+        EntityManager em = null;
+        EntityTransaction txn = null;
+        try {
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+            txn.begin();
+            for (Integer taskId : taskIds) {
+                markFailed(em, TaskDAO.getTaskById(em, taskId), message);
+            }
+            txn.commit();
+        } catch (Throwable t) {
+            if (txn != null && txn.isActive()) {
+                try {
+                    txn.rollback();
+                } catch (Exception e) {
+                    logger.error("Rollback failure!", e);
+                }
+            }
+            logger.error("Unable to mark tasks as failed: " + taskIds, t);
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+    }
+
+    /** Compute the report of a batch job from the status of its tasks.
+     * @param em The EntityManager to be used.
+     * @param batchJobId The Id of the batch job.
+     * @return The report of the batch job.
+     */
+    private static BatchJobReport computeReport(final EntityManager em,
+            final int batchJobId) {
+        BatchJobReport report = new BatchJobReport();
+        report.setBatchJobId(batchJobId);
+        report.setRunning(RUNNING.contains(batchJobId));
+        Set<Integer> vocabularyIds = new HashSet<>();
+        int newCount = 0;
+        int successCount = 0;
+        int partialCount = 0;
+        for (Task dbTask : TaskDAO.getTasksForBatchJob(em, batchJobId)) {
+            vocabularyIds.add(dbTask.getVocabularyId());
+            switch (dbTask.getStatus()) {
+            case NEW:
+                newCount++;
+                break;
+            case SUCCESS:
+                successCount++;
+                break;
+            case PARTIAL:
+                partialCount++;
+                break;
+            case ERROR:
+            default:
+                report.getFailedTaskIds().add(dbTask.getId());
+                break;
+            }
+        }
+        report.setVocabularyCount(vocabularyIds.size());
+        report.setNewCount(newCount);
+        report.setSuccessCount(successCount);
+        report.setPartialCount(partialCount);
+        if (newCount > 0) {
+            report.setStatus(TaskStatus.NEW);
+        } else if (!report.getFailedTaskIds().isEmpty()) {
+            report.setStatus(TaskStatus.ERROR);
+        } else if (partialCount > 0) {
+            report.setStatus(TaskStatus.PARTIAL);
+        } else {
+            report.setStatus(TaskStatus.SUCCESS);
+        }
+        return report;
+    }
+
+    /** Compute the report of a batch job at the end of a run,
+     * and save it, and the status of the batch job, in the database.
+     * @param batchJobId The Id of the batch job.
+     * @param vocabularyCount The number of vocabularies processed
+     *      by the run.
+     * @param elapsedMillis The elapsed time of the run, in milliseconds.
+     * @return The report of the batch job.
+     */
+    private static BatchJobReport saveReport(final int batchJobId,
+            final int vocabularyCount, final long elapsedMillis) {
+        EntityManager em = null;
+        EntityTransaction txn = null;
+        try {
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+            txn.begin();
+            BatchJobReport report = computeReport(em, batchJobId);
+            report.setRunning(false);
+            report.setLastRunVocabularyCount(vocabularyCount);
+            report.setLastRunElapsedMillis(elapsedMillis);
+            BatchJob batchJob = BatchJobDAO.getBatchJobById(em, batchJobId);
+            batchJob.setStatus(report.getStatus());
+            batchJob.setResponse(
+                    JSONSerialization.serializeObjectAsJsonString(report));
+            BatchJobDAO.updateBatchJob(em, batchJob);
+            txn.commit();
+            logger.info("Batch job " + batchJobId + " run complete: "
+                    + "status: " + report.getStatus()
+                    + "; vocabularies: " + vocabularyCount
+                    + "; elapsed time (ms): " + elapsedMillis
+                    + "; failed tasks: " + report.getFailedTaskIds());
+            return report;
+        } catch (Throwable t) {
+            if (txn != null && txn.isActive()) {
+                try {
+                    logger.error("Exception during transaction; rolling back",
+                            t);
+                    txn.rollback();
+                } catch (Exception e) {
+                    logger.error("Rollback failure!", e);
+                }
+            }
+            throw t;
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+    }
+
+    /** Get the report of a batch job. The counts of tasks reflect
+     * the current progress of the batch job; the throughput is
+     * that of the most recent completed run.
+     * @param batchJobId The Id of the batch job.
+     * @return The report of the batch job, or null, if there is no
+     *      batch job with that Id.
+     */
+    public static BatchJobReport getReport(final int batchJobId) {
+        EntityManager em = DBContext.getEntityManager();
+        try {
+            BatchJob batchJob = BatchJobDAO.getBatchJobById(em, batchJobId);
+            if (batchJob == null) {
+                return null;
+            }
+            BatchJobReport report = computeReport(em, batchJobId);
+            if (!batchJob.getResponse().isEmpty()) {
+                BatchJobReport lastReport =
+                        JSONSerialization.deserializeStringAsJson(
+                                batchJob.getResponse(), BatchJobReport.class);
+                report.setLastRunVocabularyCount(
+                        lastReport.getLastRunVocabularyCount());
+                report.setLastRunElapsedMillis(
+                        lastReport.getLastRunElapsedMillis());
+            }
+            return report;
+        } finally {
+            em.close();
+        }
+    }
+
+    /** Standalone program to create and run batch jobs.
+     * Usage:
+     * <ul>
+     * <li>{@code create params.json [threads]}: create a batch job
+     *   using the parameters in the JSON file (the JSON representation
+     *   of {@link BatchJobParams}), and run it.</li>
+     * <li>{@code resume batchJobId [threads] [retryFailed]}: run the
+     *   tasks of an existing batch job that have not yet been run,
+     *   and, if "retryFailed" is specified, the tasks that failed.</li>
+     * <li>{@code report batchJobId}: report the progress of a batch job.
+     *   </li>
+     * </ul>
+     * @param args Command-line parameters, as above.
+     * @throws InterruptedException If the batch job is interrupted.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static void main(final String[] args)
+            throws InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: create params.json [threads] | "
+                    + "resume batchJobId [threads] [retryFailed] | "
+                    + "report batchJobId");
+            System.exit(1);
+        }
+        int threads = DEFAULT_THREADS;
+        if (args.length >= 3) {
+            threads = Integer.parseInt(args[2]);
+        }
+        BatchJobReport report;
+        switch (args[0]) {
+        case "create":
+            BatchJobParams params = JSONSerialization.deserializeStringAsJson(
+                    new File(args[1]), BatchJobParams.class);
+            BatchJob batchJob = createBatchJob(params,
+                    AuthConstants.SYSTEM_USER);
+            report = runBatchJob(batchJob.getId(), threads, false,
+                    AuthConstants.SYSTEM_USER);
+            break;
+        case "resume":
+            boolean retryFailed = args.length >= 4
+                    && "retryFailed".equals(args[3]);
+            report = runBatchJob(Integer.parseInt(args[1]), threads,
+                    retryFailed, AuthConstants.SYSTEM_USER);
+            break;
+        case "report":
+            report = getReport(Integer.parseInt(args[1]));
+            break;
+        default:
+            System.err.println("Unknown command: " + args[0]);
+            System.exit(1);
+            return;
+        }
+        System.out.println(
+                JSONSerialization.serializeObjectAsJsonString(report));
+    }
+
+}
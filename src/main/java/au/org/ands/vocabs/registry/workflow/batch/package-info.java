@@ -0,0 +1,4 @@
+/** See the file "LICENSE" for the full license governing this code. */
+/** Batch jobs, that run the same workflow subtasks for many
+ * vocabularies. */
+package au.org.ands.vocabs.registry.workflow.batch;
@@ -10,8 +10,14 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.json.Json;
 import javax.json.JsonArray;
@@ -34,8 +40,10 @@ import org.slf4j.LoggerFactory;
 import au.org.ands.vocabs.registry.db.dao.PoolPartyServerDAO;
 import au.org.ands.vocabs.registry.db.entity.PoolPartyServer;
 import au.org.ands.vocabs.registry.utils.PoolPartyUtils;
+import au.org.ands.vocabs.registry.utils.PropertyConstants;
 import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
 import au.org.ands.vocabs.registry.utils.RegistryNetUtils;
+import au.org.ands.vocabs.registry.utils.RegistryProperties;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskRunner;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskUtils;
 import ch.qos.logback.classic.Level;
@@ -252,8 +260,14 @@ public class PoolPartyBackupProvider {
         return result;
     }
 
+    /** The number of projects to back up at the same time. */
+    private static final int THREADS = Integer.parseInt(
+            RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_BACKUP_THREADS, "4"));
+
     /** Do a backup. Update the result parameter with the result
-     * of the backup.
+     * of the backup. If all projects are to be backed up,
+     * several projects are backed up at the same time.
      * @param pPProjectId Either the PoolParty project ID, or null for all
      * projects.
      * @return the complete list of the backup files.
@@ -265,26 +279,68 @@ public class PoolPartyBackupProvider {
 
         if (pPProjectId == null || pPProjectId.isEmpty()) {
             pList = getProjectIDs();
+            if (pList == null) {
+                results.put(TaskRunner.ERROR,
+                        "Unable to get the list of projects");
+                return results;
+            }
         } else {
             pList = new ArrayList<>();
             pList.add(pPProjectId);
         }
 
-        for (String projectId : pList) {
-            try {
-                TaskUtils.compressBackupFolder(projectId);
-            } catch (IOException ex) {
-                results.put(TaskRunner.ERROR, "Unable to compress folder"
-                        + " for projectId:" + projectId);
-                logger.error("Unable to compress folder", ex);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(THREADS, pList.size())));
+        try {
+            // Keep the futures in the same order as the projects.
+            Map<String, Future<HashMap<String, Object>>> futures =
+                    new LinkedHashMap<>();
+            for (String projectId : pList) {
+                futures.put(projectId,
+                        executor.submit(() -> backupProject(projectId)));
+            }
+            for (Map.Entry<String, Future<HashMap<String, Object>>> entry
+                    : futures.entrySet()) {
+                try {
+                    results.putAll(entry.getValue().get());
+                } catch (ExecutionException e) {
+                    results.put(TaskRunner.ERROR, "Unable to back up"
+                            + " projectId:" + entry.getKey());
+                    logger.error("Exception backing up project",
+                            e.getCause());
+                }
             }
-            results.put(projectId, getBackupFiles(projectId,
-                    TaskUtils.getBackupPath(projectId)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            results.put(TaskRunner.ERROR, "Interrupted");
+            logger.error("Interrupted while backing up projects", e);
+        } finally {
+            executor.shutdownNow();
         }
 
         return results;
     }
 
+    /** Do a backup of one project: first, archive the files of
+     * earlier backups, then fetch the new backup.
+     * @param projectId The PoolParty project ID.
+     * @return The result of the backup of the project, to be added
+     *      to the result of {@link #backup(String)}.
+     */
+    private HashMap<String, Object> backupProject(final String projectId) {
+        HashMap<String, Object> results = new HashMap<>();
+        try {
+            TaskUtils.compressBackupFolder(projectId);
+        } catch (IOException ex) {
+            results.put(TaskRunner.ERROR, "Unable to compress folder"
+                    + " for projectId:" + projectId);
+            logger.error("Unable to compress folder", ex);
+        }
+        results.put(projectId, getBackupFiles(projectId,
+                TaskUtils.getBackupPath(projectId)));
+        return results;
+    }
+
     /**
      * Main method to allow running backups from the command line.
      * @param args Command-line arguments.
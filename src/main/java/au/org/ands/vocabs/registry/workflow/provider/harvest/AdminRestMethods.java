@@ -0,0 +1,172 @@
+/** See the file "LICENSE" for the full license governing this code. */
+package au.org.ands.vocabs.registry.workflow.provider.harvest;
+
+import java.lang.invoke.MethodHandles;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.http.HttpStatus;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.jax.rs.annotations.Pac4JProfile;
+import org.pac4j.jax.rs.annotations.Pac4JSecurity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.org.ands.vocabs.registry.api.auth.AuthUtils;
+import au.org.ands.vocabs.registry.api.context.AdminApiPaths;
+import au.org.ands.vocabs.registry.api.context.ResponseUtils;
+import au.org.ands.vocabs.registry.api.context.SwaggerInterface;
+import au.org.ands.vocabs.registry.api.user.ErrorResult;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import io.swagger.annotations.Authorization;
+import io.swagger.annotations.ResponseHeader;
+
+/** REST web services for managing the cache of PoolParty project
+ * lists and project metadata. */
+@Path(AdminApiPaths.API_ADMIN + "/" + AdminApiPaths.POOLPARTY_CACHE)
+@Api(value = SwaggerInterface.TAG_ADMIN,
+        authorizations = {@Authorization(value = SwaggerInterface.BASIC_AUTH),
+        @Authorization(value = SwaggerInterface.API_KEY_AUTH)})
+public class AdminRestMethods {
+
+    /** Path component for PoolParty server Id. */
+    private static final String SERVER_ID = "serverId";
+
+    /** Path component for PoolParty project Id. */
+    private static final String PROJECT_ID = "projectId";
+
+    /** Logger for this class. */
+    private Logger logger = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** Remove all entries from the PoolParty metadata cache.
+     * @param profile The caller's security profile.
+     * @return An empty response. */
+    @Produces(MediaType.APPLICATION_JSON)
+    @Pac4JSecurity
+    @DELETE
+    @ApiOperation(value = "Remove all entries from the PoolParty "
+            + "metadata cache.",
+            notes = "This method is only available to administrator users.")
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpStatus.SC_NO_CONTENT,
+                    message = "Cache cleared"),
+            @ApiResponse(code = HttpStatus.SC_UNAUTHORIZED,
+                    message = "Not authenticated",
+                    response = ErrorResult.class,
+                    responseHeaders = {
+                            @ResponseHeader(name = "WWW-Authenticate",
+                                    response = String.class)
+                            }),
+            @ApiResponse(code = HttpStatus.SC_FORBIDDEN,
+                    message = "Not authenticated, or not authorized",
+                    response = ErrorResult.class)
+            })
+    public Response invalidateAll(
+            @ApiParam(hidden = true) @Pac4JProfile
+            final CommonProfile profile) {
+        if (!AuthUtils.profileIsSuperuser(profile)) {
+            return ResponseUtils.generateForbiddenResponseNotSuperuser();
+        }
+        logger.info("Clearing PoolParty metadata cache");
+        PoolPartyMetadataCache.invalidateAll();
+        return Response.noContent().build();
+    }
+
+    /** Remove the entries for a PoolParty server from the PoolParty
+     * metadata cache.
+     * @param profile The caller's security profile.
+     * @param serverId The PoolParty server Id.
+     * @return An empty response. */
+    @Path("{" + SERVER_ID + "}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Pac4JSecurity
+    @DELETE
+    @ApiOperation(value = "Remove the entries for a PoolParty server "
+            + "from the PoolParty metadata cache.",
+            notes = "This method is only available to administrator users. "
+                    + "The cached metadata of all projects is also removed.")
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpStatus.SC_NO_CONTENT,
+                    message = "Cache entries removed"),
+            @ApiResponse(code = HttpStatus.SC_UNAUTHORIZED,
+                    message = "Not authenticated",
+                    response = ErrorResult.class,
+                    responseHeaders = {
+                            @ResponseHeader(name = "WWW-Authenticate",
+                                    response = String.class)
+                            }),
+            @ApiResponse(code = HttpStatus.SC_FORBIDDEN,
+                    message = "Not authenticated, or not authorized",
+                    response = ErrorResult.class)
+            })
+    public Response invalidateServer(
+            @ApiParam(hidden = true) @Pac4JProfile
+            final CommonProfile profile,
+            @ApiParam(value = "The PoolParty server Id.")
+            @PathParam(SERVER_ID)
+            final Integer serverId) {
+        if (!AuthUtils.profileIsSuperuser(profile)) {
+            return ResponseUtils.generateForbiddenResponseNotSuperuser();
+        }
+        logger.info("Clearing PoolParty metadata cache for server "
+                + serverId);
+        PoolPartyMetadataCache.invalidateServer(serverId);
+        return Response.noContent().build();
+    }
+
+    /** Remove the entry for a PoolParty project from the PoolParty
+     * metadata cache.
+     * @param profile The caller's security profile.
+     * @param serverId The PoolParty server Id.
+     * @param projectId The PoolParty project Id.
+     * @return An empty response. */
+    @Path("{" + SERVER_ID + "}/{" + PROJECT_ID + "}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Pac4JSecurity
+    @DELETE
+    @ApiOperation(value = "Remove the entry for a PoolParty project "
+            + "from the PoolParty metadata cache.",
+            notes = "This method is only available to administrator users.")
+    @ApiResponses(value = {
+            @ApiResponse(code = HttpStatus.SC_NO_CONTENT,
+                    message = "Cache entry removed"),
+            @ApiResponse(code = HttpStatus.SC_UNAUTHORIZED,
+                    message = "Not authenticated",
+                    response = ErrorResult.class,
+                    responseHeaders = {
+                            @ResponseHeader(name = "WWW-Authenticate",
+                                    response = String.class)
+                            }),
+            @ApiResponse(code = HttpStatus.SC_FORBIDDEN,
+                    message = "Not authenticated, or not authorized",
+                    response = ErrorResult.class)
+            })
+    public Response invalidateProject(
+            @ApiParam(hidden = true) @Pac4JProfile
+            final CommonProfile profile,
+            @ApiParam(value = "The PoolParty server Id.")
+            @PathParam(SERVER_ID)
+            final Integer serverId,
+            @ApiParam(value = "The PoolParty project Id.")
+            @PathParam(PROJECT_ID)
+            final String projectId) {
+        if (!AuthUtils.profileIsSuperuser(profile)) {
+            return ResponseUtils.generateForbiddenResponseNotSuperuser();
+        }
+        logger.info("Clearing PoolParty metadata cache for project "
+                + projectId + " of server " + serverId);
+        PoolPartyMetadataCache.invalidateProject(serverId, projectId);
+        return Response.noContent().build();
+    }
+
+}
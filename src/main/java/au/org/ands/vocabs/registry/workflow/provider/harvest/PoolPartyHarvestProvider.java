@@ -3,8 +3,11 @@ package au.org.ands.vocabs.registry.workflow.provider.harvest;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.invoke.MethodHandles;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -66,6 +69,13 @@ public class PoolPartyHarvestProvider implements WorkflowProvider {
     private final Logger logger = LoggerFactory.getLogger(
             MethodHandles.lookup().lookupClass());
 
+    /** Whether harvested files are stored gzip-compressed.
+     * Files fetched only to get project metadata are never
+     * compressed. */
+    private static final boolean COMPRESS = Boolean.parseBoolean(
+            RegistryProperties.getProperty(
+                    PropertyConstants.POOLPARTYHARVESTER_COMPRESS, "true"));
+
     /** Get status information about the PoolParty server.
      * @param ppServerId The PoolParty server id.
      * @return Status information: a list of the projects on the server.
@@ -267,7 +277,8 @@ public class PoolPartyHarvestProvider implements WorkflowProvider {
             String responseData = response.readEntity(String.class);
 
             String filePath = RegistryFileUtils.saveRDFToFile(outputDir,
-                    exportModule, format, responseData);
+                    exportModule, format, responseData,
+                    COMPRESS && taskInfo != null);
             if (taskInfo != null) {
                 VersionArtefactUtils.createPoolpartyHarvestVersionArtefact(
                         taskInfo, filePath);
@@ -361,14 +372,28 @@ public class PoolPartyHarvestProvider implements WorkflowProvider {
                 poolPartyProject,
                 queryTemplate,
                 outputFileMimeType);
+        boolean compress = COMPRESS && taskInfo != null;
         File queryResultsFile = new File(outputDirPath.
                 resolve(outputFile).
                 toString());
+        if (compress) {
+            queryResultsFile = new File(queryResultsFile.getPath()
+                    + RegistryFileUtils.GZIP_SUFFIX);
+        }
         try {
             logger.info("fetchDataUsingQuery: "
                     + queryResultsFile.getAbsolutePath());
-            FileUtils.writeStringToFile(queryResultsFile, queryResults,
-                    StandardCharsets.UTF_8);
+            RegistryFileUtils.requireDirectory(outputDirPath.toString());
+            try (Writer writer = new OutputStreamWriter(
+                    RegistryFileUtils.newOutputStream(
+                            queryResultsFile.toPath()),
+                    StandardCharsets.UTF_8)) {
+                writer.write(queryResults);
+            }
+            if (compress) {
+                // Remove any uncompressed file from an earlier harvest.
+                Files.deleteIfExists(outputDirPath.resolve(outputFile));
+            }
             if (taskInfo != null) {
                 VersionArtefactUtils.createPoolpartyHarvestVersionArtefact(
                         taskInfo, queryResultsFile.getAbsolutePath());
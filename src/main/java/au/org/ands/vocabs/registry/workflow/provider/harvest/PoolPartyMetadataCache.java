@@ -0,0 +1,198 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.harvest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import au.org.ands.vocabs.registry.utils.PropertyConstants;
+import au.org.ands.vocabs.registry.utils.RefreshingCache;
+import au.org.ands.vocabs.registry.utils.RegistryProperties;
+import au.org.ands.vocabs.registry.workflow.provider.transform.GetMetadataTransformProvider;
+import au.org.ands.vocabs.registry.workflow.tasks.TaskRunner;
+
+/** Caches of the information fetched from PoolParty servers
+ * for the benefit of the vocabulary editor: the lists of projects
+ * on each server, and the metadata of each project. Fetching this
+ * information requires one or more requests to the PoolParty server;
+ * the caches mean that the time taken to load the editor
+ * does not usually depend on the PoolParty server's response time.
+ * See {@link RefreshingCache} for the caching policy.
+ * The times for which values are fresh and stale are configured
+ * by the properties {@link PropertyConstants#REGISTRY_POOLPARTY_CACHE_TTL}
+ * and {@link PropertyConstants#REGISTRY_POOLPARTY_CACHE_STALE}.
+ */
+public final class PoolPartyMetadataCache {
+
+    /** Private constructor for a utility class. */
+    private PoolPartyMetadataCache() {
+    }
+
+    /** The result of getting the metadata of a PoolParty project. */
+    public static final class MetadataResult {
+
+        /** The error returned when harvesting the metadata from
+         * PoolParty, or null, if there was no error. */
+        private final String harvestError;
+
+        /** The metadata extracted from the harvested data. */
+        private final HashMap<String, Object> metadata;
+
+        /** Constructor.
+         * @param aHarvestError The error returned when harvesting
+         *      the metadata, or null, if there was no error.
+         * @param aMetadata The metadata extracted from the harvested
+         *      data.
+         */
+        private MetadataResult(final String aHarvestError,
+                final HashMap<String, Object> aMetadata) {
+            harvestError = aHarvestError;
+            metadata = aMetadata;
+        }
+
+        /** Get the error returned when harvesting the metadata.
+         * @return The error returned when harvesting the metadata from
+         *      PoolParty, or null, if there was no error.
+         */
+        public String getHarvestError() {
+            return harvestError;
+        }
+
+        /** Get the metadata extracted from the harvested data.
+         * @return The metadata extracted from the harvested data.
+         *      Callers must not modify the returned map, as it
+         *      is shared with other callers.
+         */
+        public HashMap<String, Object> getMetadata() {
+            return metadata;
+        }
+
+        /** Decide if this result may be cached. Results that
+         * contain an error are not cached.
+         * @return true, if this result may be cached.
+         */
+        private boolean isCacheable() {
+            return harvestError == null
+                    && !metadata.containsKey(TaskRunner.ERROR);
+        }
+    }
+
+    /** The default time for which cached values are fresh,
+     * in seconds. */
+    private static final String DEFAULT_TTL = "300";
+
+    /** The default time for which cached values are stale (but
+     * still usable), after they cease to be fresh, in seconds. */
+    private static final String DEFAULT_STALE = "3600";
+
+    /** The time for which cached values are fresh, in seconds. */
+    private static final long TTL = Long.parseLong(
+            RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_POOLPARTY_CACHE_TTL,
+                    DEFAULT_TTL));
+
+    /** The time for which cached values are stale, in seconds. */
+    private static final long STALE = Long.parseLong(
+            RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_POOLPARTY_CACHE_STALE,
+                    DEFAULT_STALE));
+
+    /** Executor used to refresh stale values in the background. */
+    private static final ExecutorService REFRESH_EXECUTOR =
+            Executors.newFixedThreadPool(2, runnable -> {
+                Thread thread = new Thread(runnable,
+                        "PoolParty metadata cache refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /** Cache of the lists of projects, keyed by PoolParty server Id.
+     * Only responses that are JSON lists are cached. */
+    private static final RefreshingCache<Integer, String> PROJECTS =
+            new RefreshingCache<>(
+                    serverId -> new PoolPartyHarvestProvider().
+                        getInfo(serverId),
+                    projects -> projects != null && projects.startsWith("["),
+                    TTL, STALE, TimeUnit.SECONDS, REFRESH_EXECUTOR);
+
+    /** Cache of the metadata of projects, keyed by PoolParty server Id
+     * and project Id. */
+    private static final RefreshingCache<Pair<Integer, String>,
+        MetadataResult> METADATA = new RefreshingCache<>(
+                PoolPartyMetadataCache::loadMetadata,
+                MetadataResult::isCacheable,
+                TTL, STALE, TimeUnit.SECONDS, REFRESH_EXECUTOR);
+
+    /** Fetch the metadata of a PoolParty project from the PoolParty
+     * server. Because the harvested data is stored in a directory
+     * specific to the project, concurrent fetches for the same
+     * project must be avoided; the deduplication of concurrent loads
+     * done by the cache ensures that.
+     * @param key The PoolParty server Id and project Id.
+     * @return The result of getting the metadata.
+     */
+    private static MetadataResult loadMetadata(
+            final Pair<Integer, String> key) {
+        Map<String, String> harvestResults =
+                new PoolPartyHarvestProvider().getMetadata(
+                        key.getLeft(), key.getRight());
+        if (harvestResults != null
+                && harvestResults.containsKey(TaskRunner.ERROR)) {
+            return new MetadataResult(
+                    harvestResults.get(TaskRunner.ERROR), new HashMap<>());
+        }
+        return new MetadataResult(null, new GetMetadataTransformProvider().
+                extractMetadata(key.getRight()));
+    }
+
+    /** Get the list of projects on a PoolParty server.
+     * @param serverId The PoolParty server Id.
+     * @return The list of projects, in JSON format, as returned
+     *      by PoolParty, or an error message.
+     */
+    public static String getProjects(final Integer serverId) {
+        return PROJECTS.get(serverId);
+    }
+
+    /** Get the metadata of a PoolParty project.
+     * @param serverId The PoolParty server Id.
+     * @param projectId The PoolParty project Id.
+     * @return The result of getting the metadata.
+     */
+    public static MetadataResult getMetadata(final Integer serverId,
+            final String projectId) {
+        return METADATA.get(Pair.of(serverId, projectId));
+    }
+
+    /** Remove the cached list of projects of a PoolParty server,
+     * and the cached metadata of all of its projects.
+     * @param serverId The PoolParty server Id.
+     */
+    public static void invalidateServer(final Integer serverId) {
+        PROJECTS.invalidate(serverId);
+        // The metadata cache isn't indexed by server, and invalidation
+        // is rare, so just clear all of it.
+        METADATA.invalidateAll();
+    }
+
+    /** Remove the cached metadata of a PoolParty project.
+     * @param serverId The PoolParty server Id.
+     * @param projectId The PoolParty project Id.
+     */
+    public static void invalidateProject(final Integer serverId,
+            final String projectId) {
+        METADATA.invalidate(Pair.of(serverId, projectId));
+    }
+
+    /** Remove all cached values. */
+    public static void invalidateAll() {
+        PROJECTS.invalidateAll();
+        METADATA.invalidateAll();
+    }
+
+}
@@ -15,7 +15,6 @@ import org.openrdf.query.QueryLanguage;
 import org.openrdf.repository.Repository;
 import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
-import org.openrdf.repository.sparql.SPARQLRepository;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFWriter;
@@ -23,6 +22,7 @@ import org.openrdf.rio.Rio;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import au.org.ands.vocabs.registry.utils.RegistryNetUtils;
 import au.org.ands.vocabs.toolkit.db.TaskUtils;
 import au.org.ands.vocabs.toolkit.tasks.TaskInfo;
 import au.org.ands.vocabs.toolkit.tasks.TaskStatus;
@@ -82,7 +82,8 @@ public class SPARQLHarvestProvider extends HarvestProvider {
         try {
             logger.debug("SPARQL harvest attempting to connect to remote "
                     + "endpoint: " + sparqlEndpoint);
-            remoteRepository = new SPARQLRepository(sparqlEndpoint);
+            remoteRepository =
+                    RegistryNetUtils.newSPARQLRepository(sparqlEndpoint);
             remoteRepository.initialize();
             conn = remoteRepository.getConnection();
             String queryString = "CONSTRUCT {?s ?p ?o} WHERE {?s ?p ?o}";
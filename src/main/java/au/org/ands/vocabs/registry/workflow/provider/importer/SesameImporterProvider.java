@@ -1,8 +1,8 @@
 /** See the file "LICENSE" for the full license governing this code. */
 package au.org.ands.vocabs.registry.workflow.provider.importer;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
 import java.nio.file.Path;
 import java.util.Collection;
@@ -20,11 +20,9 @@ import org.openrdf.repository.config.RepositoryConfigException;
 import org.openrdf.repository.config.RepositoryImplConfig;
 import org.openrdf.repository.manager.RepositoryInfo;
 import org.openrdf.repository.manager.RepositoryManager;
-import org.openrdf.repository.manager.RepositoryProvider;
 import org.openrdf.repository.sail.config.SailRepositoryConfig;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFParseException;
-import org.openrdf.rio.Rio;
 import org.openrdf.sail.config.SailImplConfig;
 import org.openrdf.sail.inferencer.fc.config.ForwardChainingRDFSInferencerConfig;
 import org.openrdf.sail.nativerdf.config.NativeStoreConfig;
@@ -32,7 +30,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import au.org.ands.vocabs.registry.db.context.TemporalUtils;
-import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.dao.AccessPointDAO;
 import au.org.ands.vocabs.registry.db.entity.AccessPoint;
 import au.org.ands.vocabs.registry.db.internal.ApSesameDownload;
@@ -43,6 +40,8 @@ import au.org.ands.vocabs.registry.enums.ApSource;
 import au.org.ands.vocabs.registry.enums.SubtaskOperationType;
 import au.org.ands.vocabs.registry.enums.TaskStatus;
 import au.org.ands.vocabs.registry.utils.PropertyConstants;
+import au.org.ands.vocabs.registry.utils.RDFUtils;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
 import au.org.ands.vocabs.registry.utils.RegistryNetUtils;
 import au.org.ands.vocabs.registry.utils.RegistryProperties;
 import au.org.ands.vocabs.registry.workflow.provider.DefaultPriorities;
@@ -117,11 +116,11 @@ public class SesameImporterProvider implements WorkflowProvider {
     public final Collection<RepositoryInfo> getInfo() {
         RepositoryManager manager = null;
         try {
-            manager = RepositoryProvider.getRepositoryManager(sesameServer);
+            manager = RegistryNetUtils.getRepositoryManager(sesameServer);
             Collection<RepositoryInfo> infos =
                     manager.getAllRepositoryInfos(true);
             return infos;
-        } catch (RepositoryConfigException | RepositoryException e) {
+        } catch (RepositoryException e) {
             logger.error("Exception in Sesame getInfo()", e);
         }
         return null;
@@ -172,16 +171,12 @@ public class SesameImporterProvider implements WorkflowProvider {
             final Subtask subtask) {
         RepositoryManager manager = null;
         try {
-            manager = RepositoryProvider.getRepositoryManager(sesameServer);
+            manager = RegistryNetUtils.getRepositoryManager(sesameServer);
 
             VocabularyJson vocabularyJson =
-                    JSONSerialization.deserializeStringAsJson(
-                            taskInfo.getVocabulary().getData(),
-                            VocabularyJson.class);
+                    taskInfo.getVocabulary().getDataAs(VocabularyJson.class);
             VersionJson versionJson =
-                    JSONSerialization.deserializeStringAsJson(
-                            taskInfo.getVersion().getData(),
-                            VersionJson.class);
+                    taskInfo.getVersion().getDataAs(VersionJson.class);
             String repositoryID = TaskUtils.getSesameRepositoryId(
                     taskInfo);
             String versionID = versionJson.getTitle();
@@ -243,7 +238,7 @@ public class SesameImporterProvider implements WorkflowProvider {
             final Subtask subtask) {
         RepositoryManager manager = null;
         try {
-            manager = RepositoryProvider.getRepositoryManager(sesameServer);
+            manager = RegistryNetUtils.getRepositoryManager(sesameServer);
 
             String repositoryID = TaskUtils.getSesameRepositoryId(
                     taskInfo);
@@ -271,16 +266,19 @@ public class SesameImporterProvider implements WorkflowProvider {
                         TaskUtils.getPathsToProcessForVersion(taskInfo);
                 for (Path entry: pathsToProcess) {
                     try {
-                        File file = new File(entry.toString());
                         logger.debug("Full path:"
                                 + entry.toAbsolutePath().toString());
                         RDFFormat parserFormat =
-                                Rio.getParserFormatForFileName(
-                                        entry.toString());
+                                RDFUtils.getParserFormatForPath(entry);
                         // CC-2962 Silently ignore file formats not supported
                         // by Sesame (e.g., PDF).
                         if (parserFormat != null) {
-                            con.add(file, "", parserFormat);
+                            // Harvested files may be stored
+                            // gzip-compressed.
+                            try (InputStream is =
+                                    RegistryFileUtils.newInputStream(entry)) {
+                                con.add(is, "", parserFormat);
+                            }
                         }
                     } catch (IOException ex) {
                         // I/O error encountered during the iteration,
@@ -331,9 +329,8 @@ public class SesameImporterProvider implements WorkflowProvider {
                         taskInfo.getEm());
         for (AccessPoint ap : aps) {
             if (ap.getSource() == ApSource.SYSTEM) {
-                ApSesameDownload apSesameDownload = JSONSerialization.
-                        deserializeStringAsJson(ap.getData(),
-                                ApSesameDownload.class);
+                ApSesameDownload apSesameDownload =
+                        ap.getDataAs(ApSesameDownload.class);
                 String apServerBase = apSesameDownload.getServerBase();
                 String apRepositoryID = apSesameDownload.getRepository();
 
@@ -349,7 +346,7 @@ public class SesameImporterProvider implements WorkflowProvider {
                 // in future.
                 RepositoryManager manager = null;
                 try {
-                    manager = RepositoryProvider.getRepositoryManager(
+                    manager = RegistryNetUtils.getRepositoryManager(
                             apServerBase);
                     Repository repository = manager.getRepository(
                             apRepositoryID);
@@ -22,7 +22,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import au.org.ands.vocabs.registry.db.context.TemporalUtils;
-import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.dao.AccessPointDAO;
 import au.org.ands.vocabs.registry.db.entity.AccessPoint;
 import au.org.ands.vocabs.registry.db.internal.ApSissvoc;
@@ -118,8 +117,7 @@ public class SISSVocPublishProvider implements WorkflowProvider {
                 ap.setModifiedBy(taskInfo.getModifiedBy());
                 AccessPointDAO.updateAccessPoint(taskInfo.getEm(), ap);
                 ApSissvoc apSissvoc =
-                        JSONSerialization.deserializeStringAsJson(ap.getData(),
-                                ApSissvoc.class);
+                        ap.getDataAs(ApSissvoc.class);
                 String existingPath = apSissvoc.getPath();
                 if (StringUtils.isNotBlank(existingPath)) {
                     truncateSpecFileIfExists(subtask, existingPath);
@@ -150,9 +148,7 @@ public class SISSVocPublishProvider implements WorkflowProvider {
      */
     private void addBasicSpecProperties(final TaskInfo taskInfo) {
         VocabularyJson vocabularyJson =
-                JSONSerialization.deserializeStringAsJson(
-                        taskInfo.getVocabulary().getData(),
-                        VocabularyJson.class);
+                taskInfo.getVocabulary().getDataAs(VocabularyJson.class);
         // Top-level of deployment path
         specProperties.put("DEPLOYPATH",
                 RegistryProperties.getProperty(
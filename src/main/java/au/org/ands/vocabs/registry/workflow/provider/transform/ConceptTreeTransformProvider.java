@@ -2,21 +2,18 @@
 package au.org.ands.vocabs.registry.workflow.provider.transform;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryIteratorException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.TreeSet;
 
 import org.apache.commons.io.FileUtils;
-import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFParseException;
-import org.openrdf.rio.RDFParser;
-import org.openrdf.rio.Rio;
 import org.openrdf.rio.UnsupportedRDFormatException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,17 +25,21 @@ import au.org.ands.vocabs.registry.db.entity.BrowseFlagsParsed;
 import au.org.ands.vocabs.registry.db.entity.Version;
 import au.org.ands.vocabs.registry.db.entity.VersionArtefact;
 import au.org.ands.vocabs.registry.db.entity.Vocabulary;
+import au.org.ands.vocabs.registry.db.internal.VaConceptTree;
 import au.org.ands.vocabs.registry.db.internal.VersionJson;
 import au.org.ands.vocabs.registry.db.internal.VocabularyJson;
 import au.org.ands.vocabs.registry.enums.BrowseFlag;
 import au.org.ands.vocabs.registry.enums.SubtaskOperationType;
 import au.org.ands.vocabs.registry.enums.TaskStatus;
 import au.org.ands.vocabs.registry.enums.VersionArtefactType;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
 import au.org.ands.vocabs.registry.workflow.provider.DefaultPriorities;
 import au.org.ands.vocabs.registry.workflow.provider.WorkflowProvider;
 import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.ConceptResult;
+import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.ConceptTreeIndex;
 import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.ResourceOrRef;
 import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.StatementHandler;
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.RdfFileSource;
 import au.org.ands.vocabs.registry.workflow.tasks.Subtask;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskInfo;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskRunner;
@@ -390,13 +391,11 @@ public class ConceptTreeTransformProvider implements WorkflowProvider {
 
         Vocabulary vocabulary = taskInfo.getVocabulary();
         VocabularyJson vocabularyJson =
-                JSONSerialization.deserializeStringAsJson(vocabulary.getData(),
-                        VocabularyJson.class);
+                vocabulary.getDataAs(VocabularyJson.class);
         String primaryLanguage = vocabularyJson.getPrimaryLanguage();
         Version version = taskInfo.getVersion();
         VersionJson versionJson =
-                JSONSerialization.deserializeStringAsJson(version.getData(),
-                        VersionJson.class);
+                version.getDataAs(VersionJson.class);
         List<BrowseFlag> browseFlags = versionJson.getBrowseFlag();
 
         BrowseFlagsParsed bfParsed = new BrowseFlagsParsed(browseFlags);
@@ -416,13 +415,7 @@ public class ConceptTreeTransformProvider implements WorkflowProvider {
                 TaskUtils.getPathsToProcessForVersion(taskInfo);
         for (Path entry: pathsToProcess) {
             try {
-                RDFFormat format = Rio.getParserFormatForFileName(
-                        entry.toString());
-                RDFParser rdfParser = Rio.createParser(format);
-                rdfParser.setRDFHandler(statementHandler);
-                FileInputStream is = new FileInputStream(entry.toString());
-                logger.debug("Reading RDF: " + entry.toString());
-                rdfParser.parse(is, entry.toString());
+                RdfFileSource.parse(entry, statementHandler);
             } catch (RDFParseException ex) {
                 logger.error("Exception in ConceptTreeTransform "
                         + "while Parsing RDF", ex);
@@ -592,6 +585,9 @@ public class ConceptTreeTransformProvider implements WorkflowProvider {
                             JSONSerialization.serializeObjectAsJsonString(
                                     conceptResult),
                             StandardCharsets.UTF_8);
+                    // Also write the index used to serve parts of
+                    // the tree on demand.
+                    ConceptTreeIndex.writeIndex(out);
                     VersionArtefactUtils.createConceptTreeVersionArtefact(
                             taskInfo, resultFileNameTree);
                 } else {
@@ -675,13 +671,25 @@ public class ConceptTreeTransformProvider implements WorkflowProvider {
                         VersionArtefactType.CONCEPT_TREE,
                         taskInfo.getEm());
         for (VersionArtefact va : vas) {
-            // We _don't_ delete the file. But if we did:
-            /*
             VaConceptTree vaConceptTree =
                     JSONSerialization.deserializeStringAsJson(
                             va.getData(), VaConceptTree.class);
+            // We _don't_ delete the file. But if we did:
+            /*
             Files.deleteIfExists(Paths.get(vaConceptTree.getPath()));
             */
+            // But we do delete its index and its gzip-compressed copy,
+            // which are only used to serve the current VA, and which
+            // would otherwise be left behind.
+            try {
+                ConceptTreeIndex.deleteIndex(
+                        new File(vaConceptTree.getPath()));
+            } catch (IOException e) {
+                logger.error("Unable to delete concept tree index for "
+                        + vaConceptTree.getPath(), e);
+            }
+            RegistryFileUtils.deleteGzipCompressedCopy(
+                    Paths.get(vaConceptTree.getPath()));
             TemporalUtils.makeHistorical(va, taskInfo.getNowTime());
             va.setModifiedBy(taskInfo.getModifiedBy());
             VersionArtefactDAO.updateVersionArtefact(taskInfo.getEm(), va);
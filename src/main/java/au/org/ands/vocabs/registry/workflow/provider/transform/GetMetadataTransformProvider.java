@@ -2,7 +2,6 @@
 package au.org.ands.vocabs.registry.workflow.provider.transform;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.nio.file.DirectoryIteratorException;
@@ -30,14 +29,13 @@ import org.openrdf.model.vocabulary.SKOS;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFParseException;
-import org.openrdf.rio.RDFParser;
-import org.openrdf.rio.Rio;
 import org.openrdf.rio.helpers.RDFHandlerBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import au.org.ands.vocabs.registry.utils.PropertyConstants;
 import au.org.ands.vocabs.registry.utils.RegistryProperties;
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.RdfFileSource;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskRunner;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskUtils;
 
@@ -116,16 +114,10 @@ public class GetMetadataTransformProvider {
         if (Files.exists(usersGraphPath)) {
             UsersConceptHandler usersConceptHandler = new UsersConceptHandler();
             usersConceptHandler.setUsersMap(usersMap);
-            RDFFormat usersMapFormat = Rio.getParserFormatForFileName(
-                    usersGraphPath.toString());
-            RDFParser usersMapRDFParser = Rio.createParser(usersMapFormat);
-            usersMapRDFParser.setRDFHandler(usersConceptHandler);
-            FileInputStream is;
             try {
-                is = new FileInputStream(usersGraphPath.toString());
                 logger.debug("Reading users graph RDF:"
                         + usersGraphPath.toString());
-                usersMapRDFParser.parse(is, usersGraphPath.toString());
+                RdfFileSource.parse(usersGraphPath, usersConceptHandler);
             } catch (RDFParseException
                     | RDFHandlerException
                     | IOException ex) {
@@ -152,13 +144,7 @@ public class GetMetadataTransformProvider {
                 // Strip file suffix (".ttl", ".trig").
                 conceptHandler.setSource(FilenameUtils.removeExtension(
                         entry.getFileName().toString()));
-                RDFFormat format = Rio.getParserFormatForFileName(
-                        entry.toString());
-                RDFParser rdfParser = Rio.createParser(format);
-                rdfParser.setRDFHandler(conceptHandler);
-                FileInputStream is = new FileInputStream(entry.toString());
-                logger.debug("Reading RDF: " + entry.toString());
-                rdfParser.parse(is, entry.toString());
+                RdfFileSource.parse(entry, conceptHandler);
             }
         } catch (DirectoryIteratorException
                 | IOException
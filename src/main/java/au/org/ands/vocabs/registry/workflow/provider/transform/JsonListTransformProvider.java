@@ -2,25 +2,17 @@
 package au.org.ands.vocabs.registry.workflow.provider.transform;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.DirectoryIteratorException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
-import org.apache.commons.io.FileUtils;
 import org.openrdf.model.Statement;
 import org.openrdf.model.vocabulary.SKOS;
-import org.openrdf.rio.RDFFormat;
-import org.openrdf.rio.RDFHandlerException;
-import org.openrdf.rio.RDFParseException;
-import org.openrdf.rio.RDFParser;
-import org.openrdf.rio.Rio;
-import org.openrdf.rio.UnsupportedRDFormatException;
 import org.openrdf.rio.helpers.RDFHandlerBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,11 +21,14 @@ import au.org.ands.vocabs.registry.db.context.TemporalUtils;
 import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.dao.VersionArtefactDAO;
 import au.org.ands.vocabs.registry.db.entity.VersionArtefact;
+import au.org.ands.vocabs.registry.db.internal.VaConceptList;
 import au.org.ands.vocabs.registry.enums.SubtaskOperationType;
 import au.org.ands.vocabs.registry.enums.TaskStatus;
 import au.org.ands.vocabs.registry.enums.VersionArtefactType;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
 import au.org.ands.vocabs.registry.workflow.provider.DefaultPriorities;
 import au.org.ands.vocabs.registry.workflow.provider.WorkflowProvider;
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.ParallelRdfParser;
 import au.org.ands.vocabs.registry.workflow.tasks.Subtask;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskInfo;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskRunner;
@@ -64,31 +59,36 @@ public class JsonListTransformProvider implements WorkflowProvider {
         ConceptHandler conceptHandler = new ConceptHandler();
         List<Path> pathsToProcess =
                 TaskUtils.getPathsToProcessForVersion(taskInfo);
-        for (Path entry: pathsToProcess) {
-            try {
-                RDFFormat format = Rio.getParserFormatForFileName(
-                        entry.toString());
-                RDFParser rdfParser = Rio.createParser(format);
-                rdfParser.setRDFHandler(conceptHandler);
-                logger.debug("Reading RDF:" + entry.toString());
-                FileInputStream is = new FileInputStream(entry.toString());
-                rdfParser.parse(is, entry.toString());
-            } catch (DirectoryIteratorException
-                    | IOException
-                    | RDFParseException
-                    | RDFHandlerException
-                    | UnsupportedRDFormatException ex) {
-                // Hmm, don't register an error, but keep going.
-                //    subtask.setStatus(TaskStatus.ERROR);
-                // But do log the parse error for this file.
-                subtask.addResult(PARSE_PREFIX + entry.getFileName(),
-                        "Exception in JsonListTransform while Parsing RDF");
-                logger.error("Exception in JsonListTransform "
-                        + "while Parsing RDF:", ex);
-            }
+        // Parse the files concurrently, each with its own handler,
+        // then combine the results in the order of the files.
+        try {
+            ParallelRdfParser.parseFiles(pathsToProcess,
+                    path -> new ConceptHandler(),
+                    (path, fileHandler, ex) -> {
+                        if (ex != null) {
+                            // Hmm, don't register an error, but keep going.
+                            //    subtask.setStatus(TaskStatus.ERROR);
+                            // But do log the parse error for this file.
+                            subtask.addResult(PARSE_PREFIX
+                                    + path.getFileName(),
+                                    "Exception in JsonListTransform "
+                                    + "while Parsing RDF");
+                            logger.error("Exception in JsonListTransform "
+                                    + "while Parsing RDF:", ex);
+                        }
+                        conceptHandler.absorb(fileHandler);
+                    });
+        } catch (IOException ex) {
+            // Not expected: combining the results doesn't do I/O.
+            subtask.setStatus(TaskStatus.ERROR);
+            subtask.addResult(TaskRunner.ERROR,
+                    "Exception in JsonListTransform while Parsing RDF");
+            logger.error("Exception in JsonListTransform "
+                    + "while Parsing RDF:", ex);
+            return;
         }
 
-        HashMap<String, HashMap<String, Object>> conceptMap =
+        TreeMap<String, TreeMap<String, Object>> conceptMap =
                 conceptHandler.getConceptMap();
 
         if (!conceptMap.isEmpty()) {
@@ -96,10 +96,8 @@ public class JsonListTransformProvider implements WorkflowProvider {
                     "concepts_list.json");
             try {
                 File out = new File(resultFileName);
-                FileUtils.writeStringToFile(out,
-                        JSONSerialization.serializeObjectAsJsonString(
-                                conceptMap),
-                        StandardCharsets.UTF_8);
+                JSONSerialization.serializeObjectAsJsonFile(
+                        conceptMap, out);
                 VersionArtefactUtils.createConceptListVersionArtefact(taskInfo,
                         resultFileName);
             } catch (IOException ex) {
@@ -123,18 +121,20 @@ public class JsonListTransformProvider implements WorkflowProvider {
     class ConceptHandler extends RDFHandlerBase {
 
         /** Map from concept IRI to a map that maps
-         * property name to the property value(s). */
-        private HashMap<String, HashMap<String, Object>> conceptMap =
-                new HashMap<>();
+         * property name to the property value(s). Both levels
+         * are TreeMaps, so that the keys are already in the order
+         * required for serialization. */
+        private TreeMap<String, TreeMap<String, Object>> conceptMap =
+                new TreeMap<>();
 
         @Override
         public void handleStatement(final Statement st) {
-            if (conceptMap.get(st.getSubject().stringValue()) == null) {
-                conceptMap.put(st.getSubject().stringValue(),
-                        new HashMap<String, Object>());
+            String subject = st.getSubject().stringValue();
+            TreeMap<String, Object> concept = conceptMap.get(subject);
+            if (concept == null) {
+                concept = new TreeMap<>();
+                conceptMap.put(subject, concept);
             }
-            HashMap<String, Object> concept =
-                    conceptMap.get(st.getSubject().stringValue());
             if (st.getPredicate().equals(SKOS.PREF_LABEL)) {
                 concept.put(JsonListTransformProvider.PREF_LABEL,
                         st.getObject().stringValue());
@@ -164,9 +164,44 @@ public class JsonListTransformProvider implements WorkflowProvider {
             }
         }
 
+        /** Add the concepts of another handler to this handler's
+         * concept map, as though the other handler's statements had
+         * been received by this handler after its own. For each concept,
+         * the other handler's prefLabel and notation replace any
+         * in this handler, and its broader and narrower concepts
+         * are added to those in this handler.
+         * @param later The other handler.
+         */
+        void absorb(final ConceptHandler later) {
+            for (Map.Entry<String, TreeMap<String, Object>> entry
+                    : later.conceptMap.entrySet()) {
+                TreeMap<String, Object> concept =
+                        conceptMap.get(entry.getKey());
+                if (concept == null) {
+                    conceptMap.put(entry.getKey(), entry.getValue());
+                    continue;
+                }
+                for (Map.Entry<String, Object> property
+                        : entry.getValue().entrySet()) {
+                    Object existing = concept.get(property.getKey());
+                    if (existing instanceof ArrayList) {
+                        @SuppressWarnings("unchecked")
+                        ArrayList<String> existingList =
+                            (ArrayList<String>) existing;
+                        @SuppressWarnings("unchecked")
+                        ArrayList<String> laterList =
+                            (ArrayList<String>) property.getValue();
+                        existingList.addAll(laterList);
+                    } else {
+                        concept.put(property.getKey(), property.getValue());
+                    }
+                }
+            }
+        }
+
         /** Getter for concepts list.
          * @return The completed concept map. */
-        public HashMap<String, HashMap<String, Object>> getConceptMap() {
+        public TreeMap<String, TreeMap<String, Object>> getConceptMap() {
             return conceptMap;
         }
     }
@@ -187,13 +222,17 @@ public class JsonListTransformProvider implements WorkflowProvider {
                         VersionArtefactType.CONCEPT_LIST,
                         taskInfo.getEm());
         for (VersionArtefact va : vas) {
-            // We _don't_ delete the file. But if we did:
-            /*
             VaConceptList vaConceptList =
                     JSONSerialization.deserializeStringAsJson(
                             va.getData(), VaConceptList.class);
+            // We _don't_ delete the file. But if we did:
+            /*
             Files.deleteIfExists(Paths.get(vaConceptList.getPath()));
             */
+            // But we do delete its gzip-compressed copy, which is only
+            // used to serve the current VA.
+            RegistryFileUtils.deleteGzipCompressedCopy(
+                    Paths.get(vaConceptList.getPath()));
             TemporalUtils.makeHistorical(va, taskInfo.getNowTime());
             va.setModifiedBy(taskInfo.getModifiedBy());
             VersionArtefactDAO.updateVersionArtefact(taskInfo.getEm(), va);
@@ -2,12 +2,12 @@
 package au.org.ands.vocabs.registry.workflow.provider.transform;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryIteratorException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -23,11 +23,8 @@ import org.openrdf.model.URI;
 import org.openrdf.model.Value;
 import org.openrdf.model.vocabulary.RDF;
 import org.openrdf.model.vocabulary.SKOS;
-import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFParseException;
-import org.openrdf.rio.RDFParser;
-import org.openrdf.rio.Rio;
 import org.openrdf.rio.UnsupportedRDFormatException;
 import org.openrdf.rio.helpers.RDFHandlerBase;
 import org.slf4j.Logger;
@@ -39,11 +36,15 @@ import au.org.ands.vocabs.registry.db.context.TemporalUtils;
 import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.dao.VersionArtefactDAO;
 import au.org.ands.vocabs.registry.db.entity.VersionArtefact;
+import au.org.ands.vocabs.registry.db.internal.VaConceptTree;
 import au.org.ands.vocabs.registry.enums.SubtaskOperationType;
 import au.org.ands.vocabs.registry.enums.TaskStatus;
 import au.org.ands.vocabs.registry.enums.VersionArtefactType;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
 import au.org.ands.vocabs.registry.workflow.provider.DefaultPriorities;
 import au.org.ands.vocabs.registry.workflow.provider.WorkflowProvider;
+import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.ConceptTreeIndex;
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.RdfFileSource;
 import au.org.ands.vocabs.registry.workflow.tasks.Subtask;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskInfo;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskRunner;
@@ -198,13 +199,7 @@ public class JsonTreeTransformProvider implements WorkflowProvider {
                 TaskUtils.getPathsToProcessForVersion(taskInfo);
         for (Path entry: pathsToProcess) {
             try {
-                RDFFormat format = Rio.getParserFormatForFileName(
-                        entry.toString());
-                RDFParser rdfParser = Rio.createParser(format);
-                rdfParser.setRDFHandler(conceptHandler);
-                FileInputStream is = new FileInputStream(entry.toString());
-                rdfParser.parse(is, entry.toString());
-                logger.debug("Reading RDF: " + entry.toString());
+                RdfFileSource.parse(entry, conceptHandler);
             } catch (DirectoryIteratorException
                     | IOException
                     | RDFParseException
@@ -940,13 +935,25 @@ public class JsonTreeTransformProvider implements WorkflowProvider {
                         VersionArtefactType.CONCEPT_TREE,
                         taskInfo.getEm());
         for (VersionArtefact va : vas) {
-            // We _don't_ delete the file. But if we did:
-            /*
             VaConceptTree vaConceptTree =
                     JSONSerialization.deserializeStringAsJson(
                             va.getData(), VaConceptTree.class);
+            // We _don't_ delete the file. But if we did:
+            /*
             Files.deleteIfExists(Paths.get(vaConceptTree.getPath()));
             */
+            // But we do delete its index and its gzip-compressed copy,
+            // which are only used to serve the current VA, and which
+            // would otherwise be left behind.
+            try {
+                ConceptTreeIndex.deleteIndex(
+                        new File(vaConceptTree.getPath()));
+            } catch (IOException e) {
+                logger.error("Unable to delete concept tree index for "
+                        + vaConceptTree.getPath(), e);
+            }
+            RegistryFileUtils.deleteGzipCompressedCopy(
+                    Paths.get(vaConceptTree.getPath()));
             TemporalUtils.makeHistorical(va, taskInfo.getNowTime());
             va.setModifiedBy(taskInfo.getModifiedBy());
             VersionArtefactDAO.updateVersionArtefact(taskInfo.getEm(), va);
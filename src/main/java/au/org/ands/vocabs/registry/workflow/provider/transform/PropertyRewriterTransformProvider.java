@@ -13,9 +13,8 @@
 package au.org.ands.vocabs.registry.workflow.provider.transform;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
@@ -23,30 +22,33 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.HierarchicalINIConfiguration;
 import org.apache.commons.configuration.SubnodeConfiguration;
-import org.openrdf.model.Model;
 import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.model.ValueFactory;
-import org.openrdf.model.impl.LinkedHashModel;
 import org.openrdf.model.impl.ValueFactoryImpl;
 import org.openrdf.model.vocabulary.DCTERMS;
 import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFParseException;
-import org.openrdf.rio.RDFParser;
 import org.openrdf.rio.Rio;
 import org.openrdf.rio.UnsupportedRDFormatException;
-import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import au.org.ands.vocabs.registry.utils.RDFUtils;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.RdfFileSource;
 import au.org.ands.vocabs.toolkit.tasks.TaskInfo;
 import au.org.ands.vocabs.toolkit.tasks.TaskStatus;
 import au.org.ands.vocabs.toolkit.utils.PropertyConstants;
@@ -77,13 +79,11 @@ public class PropertyRewriterTransformProvider extends TransformProvider {
        metadataToLookFor.put(DCTERMS.CONTRIBUTOR, "dcterms:contributor");
    }
 
-   /** The path to the metadata rewrite configuration file. */
-   protected static final String METADATA_REWRITE_MAP_PATH =
-           ToolkitProperties.getProperty(
-                   PropertyConstants.TOOLKIT_METADATAREWRITEMAPPATH);
-
-   /** The configuration for property rewriting. */
-   private HierarchicalINIConfiguration metadataRewriteConf;
+   /** The rewritings to be done, compiled from the metadata rewrite
+    * configuration file. Keys are the predicates of
+    * {@link #metadataToLookFor}; values are maps of the original
+    * values of those predicates to their replacements. */
+   private Map<URI, Map<String, String>> rewriteTables;
 
     @Override
     public final String getInfo() {
@@ -132,25 +132,29 @@ public class PropertyRewriterTransformProvider extends TransformProvider {
                 Files.newDirectoryStream(originalHarvestdir)) {
             // ... and iterate over every file in the harvest directory.
             for (Path entry: stream) {
-                // First, parse the file into a model and do rewriting.
-                Model model = new LinkedHashModel();
-                RDFFormat format = Rio.getParserFormatForFileName(
-                        entry.toString());
-                RDFParser rdfParser = Rio.createParser(format);
-                ConceptHandler conceptHandler = new ConceptHandler(
-                        metadataRewriteConf, model);
-                rdfParser.setRDFHandler(conceptHandler);
-                FileInputStream is = new FileInputStream(entry.toString());
-                logger.debug("Reading RDF:" + entry.toString());
-                rdfParser.parse(is, entry.toString());
-                // And now serialize the result.
-                String resultFileName =
-                        transformOutputDirPath.resolve(
-                                entry.getFileName()).toString();
-                FileOutputStream out = new FileOutputStream(resultFileName);
-                // Write in the same format we read.
-                Rio.write(model, out, format);
-                out.close();
+                // Rewrite each statement as it is parsed, and write
+                // it straight out again, with the same file name,
+                // and so, compressed, if the original was.
+                RDFFormat format = RDFUtils.getParserFormatForPath(entry);
+                Path resultPath = transformOutputDirPath.resolve(
+                        entry.getFileName());
+                try {
+                    try (OutputStream out =
+                            RegistryFileUtils.newOutputStream(resultPath)) {
+                        // Write in the same format we read.
+                        ConceptHandler conceptHandler = new ConceptHandler(
+                                rewriteTables,
+                                Rio.createWriter(format, out));
+                        RdfFileSource.parse(entry, conceptHandler);
+                    }
+                } catch (IOException
+                        | RDFParseException
+                        | RDFHandlerException
+                        | UnsupportedRDFormatException ex) {
+                    // Don't leave behind a partly-rewritten file.
+                    Files.deleteIfExists(resultPath);
+                    throw ex;
+                }
             }
         } catch (DirectoryIteratorException
                 | IOException
@@ -179,13 +183,17 @@ public class PropertyRewriterTransformProvider extends TransformProvider {
         return true;
     }
 
-    /** Loads the rewrite map into metadataRewriteConf.
+    /** Loads the rewrite map, and compiles it into rewriteTables.
+     * The path to the map is looked up here, rather than when the
+     * class is initialized, so that the rewriting itself can be
+     * tested without the toolkit properties.
      * @return True if loading was successful. */
     private boolean loadRewriteMap() {
-        File metadataRewriteMap = new File(METADATA_REWRITE_MAP_PATH);
+        File metadataRewriteMap = new File(ToolkitProperties.getProperty(
+                PropertyConstants.TOOLKIT_METADATAREWRITEMAPPATH));
         try {
-            metadataRewriteConf = new HierarchicalINIConfiguration(
-                    metadataRewriteMap);
+            rewriteTables = compileRewriteTables(
+                    new HierarchicalINIConfiguration(metadataRewriteMap));
             return true;
         } catch (ConfigurationException e) {
             logger.error("Toolkit.metadataRewriteMapPath is empty, or file"
@@ -194,71 +202,90 @@ public class PropertyRewriterTransformProvider extends TransformProvider {
         }
     }
 
-    /** RDF Handler to rewrite properties. */
-    private static class ConceptHandler extends RDFHandlerBase {
+    /** Compile the rewriting configuration into lookup tables, so
+     * that rewriting a statement does not require any lookups
+     * in the configuration itself.
+     * Each section of the configuration whose name is one of the
+     * values of {@link #metadataToLookFor} becomes the table of the
+     * corresponding predicate. The keys of each table are the keys
+     * of the section exactly as the configuration reports them, so
+     * that a value matches only if looking it up in the section
+     * would also have succeeded.
+     * @param metadataRewriteConf The configuration for property
+     *      rewriting.
+     * @return The lookup tables, keyed by predicate.
+     */
+    static Map<URI, Map<String, String>> compileRewriteTables(
+            final HierarchicalINIConfiguration metadataRewriteConf) {
+        Map<URI, Map<String, String>> tables = new HashMap<>();
+        for (Entry<URI, String> term : metadataToLookFor.entrySet()) {
+            SubnodeConfiguration section =
+                    metadataRewriteConf.getSection(term.getValue());
+            Map<String, String> table = new HashMap<>();
+            Iterator<String> keys = section.getKeys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                table.put(key, section.getString(key));
+            }
+            tables.put(term.getKey(), table);
+        }
+        return tables;
+    }
 
-        /** The configuration for metadata replacement. */
-        private HierarchicalINIConfiguration metadataRewriteConf;
+    /** RDF Handler to rewrite properties. Statements are passed on
+     * to another handler (typically, an RDF writer) as soon as they
+     * have been rewritten. */
+    static class ConceptHandler extends RDFHandlerWrapper {
 
-        /** The model in which to store triples after rewriting. */
-        private Model model;
+        /** The rewritings to be done, keyed by predicate. */
+        private Map<URI, Map<String, String>> rewriteTables;
 
         /** A factory for creating RDF values. */
         private ValueFactory valueFactory = ValueFactoryImpl.getInstance();
 
-        /** Constructor. Initializes the metadata rewrite map.
-         * @param aMetadataRewriteConf The rewriting configuration
-         * @param aModel The model in which to store triples after
-         * rewriting.
+        /** Constructor.
+         * @param aRewriteTables The rewritings to be done,
+         *      keyed by predicate.
+         * @param handler The handler to which statements are passed
+         *      after rewriting.
          */
         ConceptHandler(
-                final HierarchicalINIConfiguration aMetadataRewriteConf,
-                final Model aModel) {
-            metadataRewriteConf = aMetadataRewriteConf;
-            model = aModel;
+                final Map<URI, Map<String, String>> aRewriteTables,
+                final RDFHandler handler) {
+            super(handler);
+            rewriteTables = aRewriteTables;
         }
 
         @Override
-        public void handleStatement(final Statement st) {
-            for (Entry<URI, String> term : metadataToLookFor.entrySet()) {
-                if (st.getPredicate().equals(term.getKey())) {
-                    String key = term.getValue();
-                    String value = st.getObject().stringValue();
-                    if (value.isEmpty()) {
-                        // Special case: don't throw away empty object
-                        // literals.
-                        break;
-                    }
-                    String valueToBeReturned = getMatchedContent(key, value);
-                    if (!valueToBeReturned.isEmpty()) {
-                        model.add(st.getSubject(),
-                                st.getPredicate(),
-                                valueFactory.createLiteral(valueToBeReturned));
-                    }
-                    // Matched the predicate, so whether there was a
-                    // rewriting or not, no need to go further.
-                    return;
-                }
+        public void handleStatement(final Statement st)
+                throws RDFHandlerException {
+            Map<String, String> table = rewriteTables.get(
+                    st.getPredicate());
+            if (table == null) {
+                // Not one of our known predicates, so pass on the
+                // triple as it is.
+                super.handleStatement(st);
+                return;
             }
-            // Didn't match any of our known predicates, so add the triple
-            // as it is.
-            model.add(st);
-         }
-
-        /** Get the replacement string for a key in a section.
-         * @param section The section to look for.
-         * @param key The key to be replaced.
-         * @return The replacement value, or the original value
-         *  if there is no match.
-         */
-        public String getMatchedContent(final String section,
-                final String key) {
-            SubnodeConfiguration sObj = metadataRewriteConf.getSection(section);
-            String replacement = sObj.getString(key);
-            if (replacement != null) {
-                return replacement;
+            String value = st.getObject().stringValue();
+            if (value.isEmpty()) {
+                // Special case: don't throw away empty object
+                // literals.
+                super.handleStatement(st);
+                return;
+            }
+            String valueToBeReturned = table.get(value);
+            if (valueToBeReturned == null) {
+                valueToBeReturned = value;
+            }
+            // An empty replacement means the triple is to be removed.
+            if (!valueToBeReturned.isEmpty()) {
+                super.handleStatement(valueFactory.createStatement(
+                        st.getSubject(),
+                        st.getPredicate(),
+                        valueFactory.createLiteral(valueToBeReturned),
+                        st.getContext()));
             }
-            return key;
         }
 
     }
@@ -2,23 +2,21 @@
 package au.org.ands.vocabs.registry.workflow.provider.transform;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.DirectoryIteratorException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeMap;
 
 import javax.persistence.EntityManager;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.solr.common.SolrInputDocument;
 import org.openrdf.model.Literal;
@@ -30,22 +28,20 @@ import org.openrdf.model.vocabulary.DCTERMS;
 import org.openrdf.model.vocabulary.RDF;
 import org.openrdf.model.vocabulary.RDFS;
 import org.openrdf.model.vocabulary.SKOS;
-import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFHandlerException;
-import org.openrdf.rio.RDFParseException;
-import org.openrdf.rio.RDFParser;
-import org.openrdf.rio.Rio;
-import org.openrdf.rio.UnsupportedRDFormatException;
 import org.openrdf.rio.helpers.RDFHandlerBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
 import au.org.ands.vocabs.registry.db.context.TemporalUtils;
 import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.dao.VersionArtefactDAO;
 import au.org.ands.vocabs.registry.db.entity.Version;
 import au.org.ands.vocabs.registry.db.entity.VersionArtefact;
 import au.org.ands.vocabs.registry.db.entity.Vocabulary;
+import au.org.ands.vocabs.registry.db.internal.VaResourceDocs;
 import au.org.ands.vocabs.registry.db.internal.VocabularyJson;
 import au.org.ands.vocabs.registry.enums.SubtaskOperationType;
 import au.org.ands.vocabs.registry.enums.TaskStatus;
@@ -53,9 +49,15 @@ import au.org.ands.vocabs.registry.enums.VersionArtefactType;
 import au.org.ands.vocabs.registry.enums.VersionStatus;
 import au.org.ands.vocabs.registry.solr.EntityIndexer;
 import au.org.ands.vocabs.registry.solr.FieldConstants;
+import au.org.ands.vocabs.registry.utils.PropertyConstants;
+import au.org.ands.vocabs.registry.utils.RegistryConfig;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
+import au.org.ands.vocabs.registry.utils.RegistryProperties;
 import au.org.ands.vocabs.registry.workflow.provider.DefaultPriorities;
 import au.org.ands.vocabs.registry.workflow.provider.WorkflowProvider;
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.ParallelRdfParser;
 import au.org.ands.vocabs.registry.workflow.provider.transform.utils.PredicateInfo;
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.ResourceBucketStore;
 import au.org.ands.vocabs.registry.workflow.tasks.Subtask;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskInfo;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskRunner;
@@ -75,6 +77,15 @@ import au.org.ands.vocabs.registry.workflow.tasks.VersionArtefactUtils;
  * {@link EntityIndexer#indexResourceDocsForVocabulary(EntityManager,
  * int, Vocabulary, SolrInputDocument)}, which inserts fields for those
  * values into each document at indexing time.
+ * The harvested files are parsed concurrently by
+ * {@link ParallelRdfParser}, each into its own {@link ResourceBucketStore};
+ * the stores are then combined, in the order of the files.
+ * For a large vocabulary, once the number of resources exceeds the
+ * value of the
+ * {@link PropertyConstants#REGISTRY_RESOURCEDOCS_SPILLTHRESHOLD}
+ * property, the resources accumulated so far are written to disk,
+ * and they are merged again when the JSON file is generated.
+ * The JSON file is written incrementally, one resource at a time.
  * @see EntityIndexer
  *  */
 public class ResourceDocsTransformProvider implements WorkflowProvider {
@@ -97,6 +108,10 @@ public class ResourceDocsTransformProvider implements WorkflowProvider {
      * Solr documents are stored. */
     private static final String RESOURCE_DOCS_JSON = "resource_docs.json";
 
+    /** Default value of the number of resources to be kept in memory,
+     * before they are written to disk. */
+    private static final String DEFAULT_SPILL_THRESHOLD = "100000";
+
     /** Array of resource types of interest. */
     private static Set<String> resourceTypes = new HashSet<>();
 
@@ -180,66 +195,98 @@ public class ResourceDocsTransformProvider implements WorkflowProvider {
             final Subtask subtask) {
         // First, initialize all of our private convenience fields.
         initializeConvenienceFields(taskInfo);
-        ResourceHandler resourceHandler = new ResourceHandler();
-
-        List<Path> pathsToProcess =
-                TaskUtils.getPathsToProcessForVersion(taskInfo);
-        for (Path entry: pathsToProcess) {
-            try {
-                RDFFormat format = Rio.getParserFormatForFileName(
-                        entry.toString());
-                RDFParser rdfParser = Rio.createParser(format);
-                rdfParser.setRDFHandler(resourceHandler);
-                LOGGER.debug("Reading RDF:" + entry.toString());
-                FileInputStream is = new FileInputStream(entry.toString());
-                rdfParser.parse(is, entry.toString());
-            } catch (DirectoryIteratorException
-                    | IOException
-                    | RDFParseException
-                    | RDFHandlerException
-                    | UnsupportedRDFormatException ex) {
-                // Hmm, don't register an error, but keep going.
-                //    subtask.setStatus(TaskStatus.ERROR);
-                // But do log the parse error for this file.
-                subtask.addResult(PARSE_PREFIX + entry.getFileName(),
-                        "Exception in ResourceDocsTransform while Parsing RDF");
-                LOGGER.error("Exception in ResourceDocsTransform "
-                        + "while Parsing RDF:", ex);
-            }
+        // Each file is parsed into its own store; the stores are
+        // combined into resourceStore in the order of the files.
+        // Each file's store gets a share of the spill threshold.
+        // The property is read here, rather than once and for all,
+        // so that a change to it takes effect for the next transform.
+        int spillThreshold = Integer.parseInt(RegistryProperties.getProperty(
+                PropertyConstants.REGISTRY_RESOURCEDOCS_SPILLTHRESHOLD,
+                DEFAULT_SPILL_THRESHOLD));
+        int fileSpillThresholdShare = 0;
+        if (spillThreshold > 0) {
+            fileSpillThresholdShare = Math.max(1,
+                    spillThreshold / ParallelRdfParser.getParseThreads());
         }
-
-        HashMap<String, HashSetValuedHashMap<String, Object>> resourceMap =
-                resourceHandler.getResourceMap();
-
-        addTopConcepts(resourceMap);
-
-        if (!resourceMap.isEmpty()) {
-            String resultFileName = TaskUtils.getTaskOutputPath(taskInfo, true,
-                    RESOURCE_DOCS_JSON);
+        final int fileSpillThreshold = fileSpillThresholdShare;
+        List<ResourceBucketStore> fileStores = new ArrayList<>();
+        try (ResourceBucketStore resourceStore = new ResourceBucketStore(
+                spillThreshold, Paths.get(RegistryConfig.TEMP_FILES_PATH))) {
+            List<Path> pathsToProcess =
+                    TaskUtils.getPathsToProcessForVersion(taskInfo);
             try {
-                // Jackson won't serialize a HashSetValuedHashMap,
-                // so transform it into something it _will_.
-                ArrayList<HashMap<String, Object>> resources =
-                        transformResourceMap(resourceMap);
-                File out = new File(resultFileName);
-                FileUtils.writeStringToFile(out,
-                        JSONSerialization.serializeObjectAsJsonString(
-                                resources),
-                        StandardCharsets.UTF_8);
-                VersionArtefactUtils.createResourceDocsVersionArtefact(
-                        taskInfo, resultFileName);
+                ParallelRdfParser.parseFiles(pathsToProcess,
+                        path -> {
+                            ResourceBucketStore fileStore =
+                                    new ResourceBucketStore(
+                                            fileSpillThreshold,
+                                            Paths.get(RegistryConfig.
+                                                    TEMP_FILES_PATH));
+                            fileStores.add(fileStore);
+                            return new ResourceHandler(fileStore);
+                        },
+                        (path, fileHandler, ex) -> {
+                            if (ex != null) {
+                                // Hmm, don't register an error, but keep
+                                // going.
+                                //    subtask.setStatus(TaskStatus.ERROR);
+                                // But do log the parse error for this file.
+                                subtask.addResult(PARSE_PREFIX
+                                        + path.getFileName(),
+                                        "Exception in ResourceDocsTransform "
+                                        + "while Parsing RDF");
+                                LOGGER.error("Exception in "
+                                        + "ResourceDocsTransform "
+                                        + "while Parsing RDF:", ex);
+                            }
+                            resourceStore.absorb(
+                                    fileHandler.getResourceStore());
+                            fileHandler.getResourceStore().close();
+                        });
             } catch (IOException ex) {
                 subtask.setStatus(TaskStatus.ERROR);
                 subtask.addResult(TaskRunner.ERROR,
-                        "Exception in ResourceDocsTransform while Parsing RDF");
+                        "Exception in ResourceDocsTransform "
+                        + "while Parsing RDF");
                 LOGGER.error("Exception in ResourceDocsTransform "
-                        + "generating result:", ex);
+                        + "combining results:", ex);
                 return;
+            } finally {
+                // Clean up after any stores that weren't absorbed.
+                for (ResourceBucketStore fileStore : fileStores) {
+                    fileStore.close();
+                }
+            }
+
+            addTopConcepts(resourceStore);
+
+            if (!resourceStore.isEmpty()) {
+                String resultFileName = TaskUtils.getTaskOutputPath(taskInfo,
+                        true, RESOURCE_DOCS_JSON);
+                try {
+                    writeResourceDocs(resourceStore, new File(resultFileName));
+                    if (resourceStore.getRunCount() > 0) {
+                        LOGGER.info("ResourceDocsTransform merged "
+                                + resourceStore.getRunCount()
+                                + " runs for version " + versionIdString);
+                    }
+                    VersionArtefactUtils.createResourceDocsVersionArtefact(
+                            taskInfo, resultFileName);
+                } catch (IOException ex) {
+                    subtask.setStatus(TaskStatus.ERROR);
+                    subtask.addResult(TaskRunner.ERROR,
+                            "Exception in ResourceDocsTransform "
+                            + "while Parsing RDF");
+                    LOGGER.error("Exception in ResourceDocsTransform "
+                            + "generating result:", ex);
+                    return;
+                }
+            } else {
+                // Clear out any existing VA, because we did in fact succeed,
+                // and we don't want to leave around any previous
+                // non-empty VA.
+                untransform(taskInfo, subtask);
             }
-        } else {
-            // Clear out any existing VA, because we did in fact succeed,
-            // and we don't want to leave around any previous non-empty VA.
-            untransform(taskInfo, subtask);
         }
         subtask.setStatus(TaskStatus.SUCCESS);
     }
@@ -251,8 +298,7 @@ public class ResourceDocsTransformProvider implements WorkflowProvider {
         Vocabulary vocabulary = taskInfo.getVocabulary();
         int vocabularyId = vocabulary.getVocabularyId();
         vocabularyIdString = Integer.toString(vocabularyId);
-        vocabularyJson = JSONSerialization.deserializeStringAsJson(
-                vocabulary.getData(), VocabularyJson.class);
+        vocabularyJson = vocabulary.getDataAs(VocabularyJson.class);
         String primaryLanguage = vocabularyJson.getPrimaryLanguage();
         version = taskInfo.getVersion();
         int versionId = version.getVersionId();
@@ -284,12 +330,10 @@ public class ResourceDocsTransformProvider implements WorkflowProvider {
     /** Add entries into the resource map for the vocabulary's
      * top concept metadata. But only do this if this version
      * has status "current".
-     * @param resourceMap The existing resource map, into which
+     * @param resourceStore The existing resource store, into which
      *      entries are to be added for the top concepts.
      */
-    private void addTopConcepts(
-            final HashMap<String, HashSetValuedHashMap<String, Object>>
-            resourceMap) {
+    private void addTopConcepts(final ResourceBucketStore resourceStore) {
         if (version.getStatus() != VersionStatus.CURRENT) {
             return;
         }
@@ -298,7 +342,7 @@ public class ResourceDocsTransformProvider implements WorkflowProvider {
             for (String topConcept : topConcepts) {
                 HashSetValuedHashMap<String, Object> concept =
                         new HashSetValuedHashMap<>();
-                resourceMap.put("TC_" + topConcept, concept);
+                resourceStore.replace("TC_" + topConcept, concept);
                 // Use double-underscore to distinguish the format
                 // of IDs from the IRI-based IDs.
                 concept.put(FieldConstants.ID,
@@ -309,82 +353,110 @@ public class ResourceDocsTransformProvider implements WorkflowProvider {
         }
     }
 
-    /** Transform the computed resource map into a format that can
-     * be serialized. Filtering is applied, so that the result only
+    /** Write the JSON file containing the resources of the resource
+     * store. Filtering is applied, so that the result only
      * includes resources of the types in which we are interested.
-     * @param resourceMap The resource map, as computed.
-     * @return A filtered resource map that contains only resources
-     *      of the types in which we are interested, in a format
-     *      that can be serialized.
+     * The file is written incrementally, one resource at a time.
+     * @param resourceStore The resource store, as computed.
+     * @param out The file into which the resources are written.
+     * @throws IOException If there is an error reading the resource
+     *      store, or writing the file.
      */
-    private ArrayList<HashMap<String, Object>> transformResourceMap(
-            final HashMap<String, HashSetValuedHashMap<String, Object>>
-            resourceMap) {
-        ArrayList<HashMap<String, Object>> resources = new ArrayList<>();
-        for (HashSetValuedHashMap<String, Object> resource
-                : resourceMap.values()) {
-            Set<Object> types = resource.get(FieldConstants.RDF_TYPE);
-            if (types != null
-                    && CollectionUtils.containsAny(types, resourceTypes)) {
-                // Intersect the types we got with the types we care about.
-                // This strips out, e.g., rdfs:Resource.
-                types.retainAll(resourceTypes);
-                HashMap<String, Object> mappedResource = new HashMap<>();
-                for (String key : resource.keySet()) {
-                    Object[] values = resource.get(key).toArray();
-                    if (values.length == 1) {
-                        mappedResource.put(key, values[0]);
-                    } else {
-                        mappedResource.put(key, values);
-                    }
+    private void writeResourceDocs(final ResourceBucketStore resourceStore,
+            final File out) throws IOException {
+        try (JsonGenerator generator =
+                JSONSerialization.createJsonGenerator(out)) {
+            generator.writeStartArray();
+            resourceStore.forEachResource((key, resource) -> {
+                TreeMap<String, Object> mappedResource =
+                        transformResource(resource);
+                if (mappedResource != null) {
+                    generator.writeObject(mappedResource);
                 }
-                // Now assign a value for TITLE, the "one true" title
-                // of the concept, so that we can sort on it,
-                // and which we present as the "header" of search results.
-                // Take into account SKOS_PREFLABEL, SKOS_ALTLABEL,
-                // RDFS_LABEL, TOP_CONCEPT. For each multilingual field,
-                // try the vocabulary's primary language, then fall back
-                // to a value without a language tag, then to English.
-                // Fall back to IRI in the last instance.
-                // We initialize title to null to keep Java happy,
-                // but we have constructed titleKeys to ensure that
-                // there always _will_ be a value assigned to title
-                // in the loop.
-                String title = null;
-                // The value of titleKeys
-                for (String titleKey : titleKeys) {
-                    Object valueAsObject = mappedResource.get(titleKey);
-                    if (valueAsObject == null) {
-                        continue;
-                    }
-                    // It's either a String, or an array of Strings.
-                    if (valueAsObject.getClass().isArray()) {
-                        Object[] valueAsArray = (Object[]) valueAsObject;
-                        title = (String) valueAsArray[0];
-                        break;
-                    } else {
-                        title = (String) valueAsObject;
-                        break;
-                    }
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    /** Transform one resource of the computed resource store into
+     * a format that can be serialized.
+     * @param resource The resource, as computed.
+     * @return The resource, in a format that can be serialized, or null,
+     *      if the resource is not of one of the types in which we are
+     *      interested. The result is a TreeMap,
+     *      so that it can be serialized without further sorting.
+     */
+    private TreeMap<String, Object> transformResource(
+            final HashSetValuedHashMap<String, Object> resource) {
+        Set<Object> types = resource.get(FieldConstants.RDF_TYPE);
+        if (types != null
+                && CollectionUtils.containsAny(types, resourceTypes)) {
+            // Intersect the types we got with the types we care about.
+            // This strips out, e.g., rdfs:Resource.
+            types.retainAll(resourceTypes);
+            TreeMap<String, Object> mappedResource = new TreeMap<>();
+            for (String key : resource.keySet()) {
+                Object[] values = resource.get(key).toArray();
+                if (values.length == 1) {
+                    mappedResource.put(key, values[0]);
+                } else {
+                    mappedResource.put(key, values);
                 }
-                mappedResource.put(FieldConstants.TITLE, title);
-                resources.add(mappedResource);
             }
+            // Now assign a value for TITLE, the "one true" title
+            // of the concept, so that we can sort on it,
+            // and which we present as the "header" of search results.
+            // Take into account SKOS_PREFLABEL, SKOS_ALTLABEL,
+            // RDFS_LABEL, TOP_CONCEPT. For each multilingual field,
+            // try the vocabulary's primary language, then fall back
+            // to a value without a language tag, then to English.
+            // Fall back to IRI in the last instance.
+            // We initialize title to null to keep Java happy,
+            // but we have constructed titleKeys to ensure that
+            // there always _will_ be a value assigned to title
+            // in the loop.
+            String title = null;
+            // The value of titleKeys
+            for (String titleKey : titleKeys) {
+                Object valueAsObject = mappedResource.get(titleKey);
+                if (valueAsObject == null) {
+                    continue;
+                }
+                // It's either a String, or an array of Strings.
+                if (valueAsObject.getClass().isArray()) {
+                    Object[] valueAsArray = (Object[]) valueAsObject;
+                    title = (String) valueAsArray[0];
+                    break;
+                } else {
+                    title = (String) valueAsObject;
+                    break;
+                }
+            }
+            mappedResource.put(FieldConstants.TITLE, title);
+            return mappedResource;
         }
-        return resources;
+        return null;
     }
 
     /** RDF Handler to extract properties of interest of resources
      * of interest. */
     class ResourceHandler extends RDFHandlerBase {
 
-        /** Map from resource IRI to a map that maps
+        /** Store of maps, keyed by resource IRI, each of which maps
          * property name to the property value(s). */
-        private HashMap<String, HashSetValuedHashMap<String, Object>>
-        resourceMap = new HashMap<>();
+        private final ResourceBucketStore resourceStore;
+
+        /** Constructor.
+         * @param aResourceStore The store into which the properties
+         *      of resources are to be added.
+         */
+        ResourceHandler(final ResourceBucketStore aResourceStore) {
+            resourceStore = aResourceStore;
+        }
 
         @Override
-        public void handleStatement(final Statement st) {
+        public void handleStatement(final Statement st)
+                throws RDFHandlerException {
             Resource subject = st.getSubject();
             URI predicate = st.getPredicate();
             Value object = st.getObject();
@@ -393,10 +465,15 @@ public class ResourceDocsTransformProvider implements WorkflowProvider {
                 return;
             }
             HashSetValuedHashMap<String, Object> resource =
-                    resourceMap.get(subject.stringValue());
+                    resourceStore.get(subject.stringValue());
             if (resource == null) {
                 resource = new HashSetValuedHashMap<>();
-                resourceMap.put(subject.stringValue(), resource);
+                try {
+                    resourceStore.put(subject.stringValue(), resource);
+                } catch (IOException e) {
+                    throw new RDFHandlerException(
+                            "Unable to write resources to disk", e);
+                }
                 resource.put(FieldConstants.ID,
                         versionIdString + "_"
                         + subject.stringValue());
@@ -450,16 +527,18 @@ public class ResourceDocsTransformProvider implements WorkflowProvider {
                 // And we're done.
             } else {
                 // There may be only one. Remove any existing object.
+                // (And make sure the store does the same, if an existing
+                // object has already been written to disk.)
+                resourceStore.markSingleValued(field);
                 resource.remove(field);
                 resource.put(field, object.stringValue());
             }
         }
 
-        /** Getter for the resource map.
-         * @return The completed resource map. */
-        public HashMap<String, HashSetValuedHashMap<String, Object>>
-        getResourceMap() {
-            return resourceMap;
+        /** Getter for the resource store.
+         * @return The completed resource store. */
+        public ResourceBucketStore getResourceStore() {
+            return resourceStore;
         }
     }
 
@@ -479,13 +558,17 @@ public class ResourceDocsTransformProvider implements WorkflowProvider {
                         VersionArtefactType.RESOURCE_DOCS,
                         taskInfo.getEm());
         for (VersionArtefact va : vas) {
-            // We _don't_ delete the file. But if we did:
-            /*
             VaResourceDocs vaResourceDocs =
                     JSONSerialization.deserializeStringAsJson(
                             va.getData(), VaResourceDocs.class);
+            // We _don't_ delete the file. But if we did:
+            /*
             Files.deleteIfExists(Paths.get(vaResourceDocs.getPath()));
             */
+            // But we do delete its gzip-compressed copy, which is only
+            // used to serve the current VA.
+            RegistryFileUtils.deleteGzipCompressedCopy(
+                    Paths.get(vaResourceDocs.getPath()));
             TemporalUtils.makeHistorical(va, taskInfo.getNowTime());
             va.setModifiedBy(taskInfo.getModifiedBy());
             VersionArtefactDAO.updateVersionArtefact(taskInfo.getEm(), va);
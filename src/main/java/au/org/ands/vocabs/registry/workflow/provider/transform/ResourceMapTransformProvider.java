@@ -1,15 +1,25 @@
 /** See the file "LICENSE" for the full license governing this code. */
 package au.org.ands.vocabs.registry.workflow.provider.transform;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.model.Value;
 import org.openrdf.model.impl.LiteralImpl;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.OWL;
+import org.openrdf.model.vocabulary.RDF;
 import org.openrdf.model.vocabulary.SKOS;
 import org.openrdf.query.BindingSet;
 import org.openrdf.query.MalformedQueryException;
@@ -22,7 +32,10 @@ import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
 import org.openrdf.repository.config.RepositoryConfigException;
 import org.openrdf.repository.manager.RepositoryManager;
-import org.openrdf.repository.manager.RepositoryProvider;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,9 +49,13 @@ import au.org.ands.vocabs.registry.enums.AccessPointType;
 import au.org.ands.vocabs.registry.enums.SubtaskOperationType;
 import au.org.ands.vocabs.registry.enums.TaskStatus;
 import au.org.ands.vocabs.registry.utils.PropertyConstants;
+import au.org.ands.vocabs.registry.utils.RDFUtils;
+import au.org.ands.vocabs.registry.utils.RegistryNetUtils;
 import au.org.ands.vocabs.registry.utils.RegistryProperties;
 import au.org.ands.vocabs.registry.workflow.provider.DefaultPriorities;
 import au.org.ands.vocabs.registry.workflow.provider.WorkflowProvider;
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.HostnameTrie;
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.RdfFileSource;
 import au.org.ands.vocabs.registry.workflow.tasks.Subtask;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskInfo;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskRunner;
@@ -49,6 +66,15 @@ import au.org.ands.vocabs.registry.workflow.tasks.TaskUtils;
  *
  * Prerequisite for this transform is that the version must have exactly
  * one access point of type SISSVoc.
+ *
+ * The resource map entries are computed in one of two ways, selected
+ * by the subtask property {@code source}, or, if that is not set,
+ * by the registry property
+ * {@link PropertyConstants#REGISTRY_RESOURCEMAP_SOURCE}.
+ * With {@code sparql} (the default), a SPARQL query is run against
+ * the version's Sesame repository. With {@code harvest}, the
+ * same entries are computed locally, while parsing the
+ * version's harvested RDF files; this does not need the Sesame server.
  */
 public class ResourceMapTransformProvider implements WorkflowProvider {
 
@@ -96,6 +122,34 @@ public class ResourceMapTransformProvider implements WorkflowProvider {
     /** The default setting for {@code fail-on-error}. */
     private static final boolean FAIL_ON_ERROR_DEFAULT = false;
 
+    /** Name of the subtask property that selects how the resource map
+     * entries are computed. */
+    private static final String SOURCE = "source";
+
+    /** Value of the {@link #SOURCE} property that selects computing
+     * the resource map entries from the version's Sesame repository. */
+    private static final String SOURCE_SPARQL = "sparql";
+
+    /** Value of the {@link #SOURCE} property that selects computing
+     * the resource map entries from the version's harvested RDF files. */
+    private static final String SOURCE_HARVEST = "harvest";
+
+    /** The default value of the {@link #SOURCE} property,
+     * for subtasks that don't specify it. */
+    private static final String DEFAULT_SOURCE =
+            RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_RESOURCEMAP_SOURCE,
+                    SOURCE_SPARQL);
+
+    /** The predicate owl:deprecated. */
+    private static final URI OWL_DEPRECATED =
+            ValueFactoryImpl.getInstance().createURI(OWL.NAMESPACE,
+                    "deprecated");
+
+    /** The literal {@code true}, as the object of owl:deprecated. */
+    private static final Literal TRUE_LITERAL =
+            ValueFactoryImpl.getInstance().createLiteral(true);
+
     /** Array of resource types of interest. */
     private static URI[] resourceTypes = {
             SKOS.CONCEPT,
@@ -217,6 +271,25 @@ public class ResourceMapTransformProvider implements WorkflowProvider {
             return;
         }
 
+        String source = subtask.getSubtaskProperty(SOURCE);
+        if (source == null) {
+            source = DEFAULT_SOURCE;
+        }
+        switch (source) {
+        case SOURCE_HARVEST:
+            transformFromHarvest(taskInfo, subtask, accessPointId,
+                    resourceOwnerHosts);
+            return;
+        case SOURCE_SPARQL:
+            break;
+        default:
+            subtask.addResult(TaskRunner.ERROR,
+                    "ResourceMapTransformProvider.transform(): "
+                    + "unknown source: " + source);
+            subtask.setStatus(TaskStatus.ERROR);
+            return;
+        }
+
         // Join the resource owner hostnames together to get a String
         // "host\\.name\\.one|host\\.name\\.two".
         String resourceOwnerRegex =
@@ -240,7 +313,7 @@ public class ResourceMapTransformProvider implements WorkflowProvider {
         Repository repository;
         // First, open the repository.
         try {
-            manager = RepositoryProvider.getRepositoryManager(sesameServer);
+            manager = RegistryNetUtils.getRepositoryManager(sesameServer);
             String repositoryID = TaskUtils.getSesameRepositoryId(
                     taskInfo);
             repository = manager.getRepository(repositoryID);
@@ -354,6 +427,162 @@ public class ResourceMapTransformProvider implements WorkflowProvider {
         subtask.setStatus(TaskStatus.SUCCESS);
     }
 
+    /** Add the resource map entries for the version, computing them
+     * while parsing the version's harvested RDF files. The entries
+     * are the same as those returned by
+     * {@link #EXTRACT_IRIS_QUERY_TEMPLATE}: one for each IRI and each
+     * of its types in {@link #resourceTypes}, and one (with type
+     * owl:deprecated) for each deprecated IRI that has no type at all.
+     * As for the Sesame importer, files in formats not supported by
+     * Sesame are silently ignored.
+     * @param taskInfo The top-level TaskInfo for the subtask.
+     * @param subtask The subtask to be performed.
+     * @param accessPointId The access point ID to use for the
+     *      resource map entries.
+     * @param resourceOwnerHosts The hosts associated with the owner
+     *      of the vocabulary.
+     */
+    private void transformFromHarvest(final TaskInfo taskInfo,
+            final Subtask subtask, final Integer accessPointId,
+            final List<ResourceOwnerHost> resourceOwnerHosts) {
+        HostnameTrie ownedHosts = new HostnameTrie(
+                resourceOwnerHosts.stream()
+                .map(ResourceOwnerHost::getHost)
+                .collect(Collectors.toList()));
+        ResourceMapHandler resourceMapHandler = new ResourceMapHandler();
+        for (Path entry : TaskUtils.getPathsToProcessForVersion(taskInfo)) {
+            RDFFormat format = RDFUtils.getParserFormatForPath(entry);
+            if (format == null) {
+                continue;
+            }
+            try {
+                // Use the same base URI as the Sesame importer.
+                RdfFileSource.parse(entry, resourceMapHandler, "");
+            } catch (IOException | RDFParseException
+                    | RDFHandlerException e) {
+                logger.error("Exception in ResourceMapTransformProvider."
+                        + "transform() parsing " + entry, e);
+                subtask.addResult(TaskRunner.ERROR,
+                        "Exception in ResourceMapTransformProvider."
+                        + "transform() parsing " + entry.getFileName());
+                subtask.addResult(TaskRunner.STACKTRACE,
+                        ExceptionUtils.getStackTrace(e));
+                subtask.setStatus(TaskStatus.ERROR);
+                return;
+            }
+        }
+
+        // Clear out any existing entries before proceeding.
+        ResourceMapEntryDAO.deleteResourceMapEntriesForAccessPoint(
+                accessPointId, taskInfo.getEm());
+        for (Map.Entry<String, Integer> resource
+                : resourceMapHandler.getResourceFlags().entrySet()) {
+            String iri = resource.getKey();
+            int flags = resource.getValue();
+            boolean owned = ownedHosts.matches(iri);
+            boolean deprecated = (flags & ResourceMapHandler.DEPRECATED) != 0;
+            if ((flags & ResourceMapHandler.ANY_TYPE) == 0) {
+                // Only deprecated resources without a type get here.
+                saveResourceMapEntry(taskInfo, accessPointId, iri,
+                        OWL_DEPRECATED, owned, true);
+                continue;
+            }
+            for (int i = 0; i < resourceTypes.length; i++) {
+                if ((flags & (1 << i)) != 0) {
+                    saveResourceMapEntry(taskInfo, accessPointId, iri,
+                            resourceTypes[i], owned, deprecated);
+                }
+            }
+        }
+
+        // Subtask completed successfully.
+        subtask.setStatus(TaskStatus.SUCCESS);
+    }
+
+    /** Save one resource map entry.
+     * @param taskInfo The top-level TaskInfo for the subtask.
+     * @param accessPointId The access point ID of the entry.
+     * @param iri The IRI of the resource.
+     * @param resourceType The type of the resource.
+     * @param owned Whether the resource is owned by the owner
+     *      of the vocabulary.
+     * @param deprecated Whether the resource is deprecated.
+     */
+    private void saveResourceMapEntry(final TaskInfo taskInfo,
+            final Integer accessPointId, final String iri,
+            final URI resourceType, final boolean owned,
+            final boolean deprecated) {
+        ResourceMapEntry rme = new ResourceMapEntry();
+        rme.setIri(iri);
+        rme.setAccessPointId(accessPointId);
+        rme.setOwned(owned);
+        rme.setResourceType(resourceType.stringValue());
+        rme.setDeprecated(deprecated);
+        ResourceMapEntryDAO.saveResourceMapEntry(taskInfo.getEm(), rme);
+    }
+
+    /** RDF Handler that records, for each IRI that is the subject of
+     * an rdf:type or owl:deprecated statement, which of the
+     * {@link #resourceTypes} it has, whether it has any type at
+     * all, and whether it is deprecated. Blank nodes are ignored. */
+    private static final class ResourceMapHandler extends RDFHandlerBase {
+
+        /** Flag value for an IRI with a type not in
+         * {@link #resourceTypes}. The flags for the types in
+         * {@link #resourceTypes} are {@code 1 << i}, where
+         * {@code i} is the index of the type. */
+        private static final int OTHER_TYPE = 1 << resourceTypes.length;
+
+        /** Mask of the flags that indicate that an IRI has a type. */
+        private static final int ANY_TYPE = (OTHER_TYPE << 1) - 1;
+
+        /** Flag value for an IRI that has owl:deprecated true. */
+        private static final int DEPRECATED = OTHER_TYPE << 1;
+
+        /** Map of IRIs to their flags, in the order in which the
+         * IRIs were first seen. */
+        private Map<String, Integer> resourceFlags = new LinkedHashMap<>();
+
+        /** Get the map of IRIs to their flags.
+         * @return The map of IRIs to their flags.
+         */
+        public Map<String, Integer> getResourceFlags() {
+            return resourceFlags;
+        }
+
+        /** Record one flag for an IRI.
+         * @param iri The IRI.
+         * @param flag The flag to be set.
+         */
+        private void addFlag(final String iri, final int flag) {
+            resourceFlags.merge(iri, flag, (a, b) -> a | b);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void handleStatement(final Statement st) {
+            Resource subject = st.getSubject();
+            if (!(subject instanceof URI)) {
+                return;
+            }
+            URI predicate = st.getPredicate();
+            if (RDF.TYPE.equals(predicate)) {
+                Value object = st.getObject();
+                int flag = OTHER_TYPE;
+                for (int i = 0; i < resourceTypes.length; i++) {
+                    if (resourceTypes[i].equals(object)) {
+                        flag = 1 << i;
+                        break;
+                    }
+                }
+                addFlag(subject.stringValue(), flag);
+            } else if (OWL_DEPRECATED.equals(predicate)
+                    && TRUE_LITERAL.equals(st.getObject())) {
+                addFlag(subject.stringValue(), DEPRECATED);
+            }
+        }
+    }
+
     /** Log the fact that there is not exactly one access point of
      * type "sissvoc".
      * @param taskInfo The TaskInfo object describing the entire task.
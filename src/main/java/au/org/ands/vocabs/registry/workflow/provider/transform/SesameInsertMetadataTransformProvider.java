@@ -10,7 +10,6 @@ import org.openrdf.model.impl.ValueFactoryImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.entity.Version;
 import au.org.ands.vocabs.registry.db.internal.VersionJson;
 import au.org.ands.vocabs.registry.enums.SubtaskOperationType;
@@ -142,8 +141,7 @@ public class SesameInsertMetadataTransformProvider
         // formatter.
         String issuedDate = version.getReleaseDate();
 
-        VersionJson versionJson = JSONSerialization.deserializeStringAsJson(
-                version.getData(), VersionJson.class);
+        VersionJson versionJson = version.getDataAs(VersionJson.class);
         String versionTitle = versionJson.getTitle();
 
         // Construct bindings for SPARQL Update.
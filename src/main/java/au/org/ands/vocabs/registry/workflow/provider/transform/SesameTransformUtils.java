@@ -16,11 +16,11 @@ import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
 import org.openrdf.repository.config.RepositoryConfigException;
 import org.openrdf.repository.manager.RepositoryManager;
-import org.openrdf.repository.manager.RepositoryProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import au.org.ands.vocabs.registry.utils.PropertyConstants;
+import au.org.ands.vocabs.registry.utils.RegistryNetUtils;
 import au.org.ands.vocabs.registry.utils.RegistryProperties;
 import au.org.ands.vocabs.registry.workflow.tasks.Subtask;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskInfo;
@@ -98,7 +98,7 @@ public final class SesameTransformUtils {
         // First, open the repository
         Repository repository;
         try {
-            manager = RepositoryProvider.getRepositoryManager(sesameServer);
+            manager = RegistryNetUtils.getRepositoryManager(sesameServer);
 
             String repositoryID = TaskUtils.getSesameRepositoryId(
                     taskInfo);
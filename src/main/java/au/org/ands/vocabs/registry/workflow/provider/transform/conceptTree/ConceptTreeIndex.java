@@ -0,0 +1,348 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/** Binary index of the nodes of a concept tree file, as generated
+ * by the ConceptTree transform provider. The index makes it possible
+ * to fetch a node of the tree, and its children, without reading
+ * (or parsing) the entire concept tree file.
+ *
+ * <p>Nodes are numbered in breadth-first order, so that the children
+ * of each node have consecutive node Ids. Node 0 is the top-level
+ * {@link ConceptResult} object, and its children are the top-level
+ * resources of the forest.</p>
+ *
+ * <p>The index file consists of a header of {@link #HEADER_SIZE}
+ * bytes, containing a magic number, the format of the index, and the
+ * number of nodes. That is followed by one record of
+ * {@link #RECORD_SIZE} bytes for each node, in order of node Id.
+ * Each record contains the byte offset and length of the node's
+ * JSON object within the concept tree file; the byte offset and length
+ * of the node's array of children (or -1 and 0, if it has none);
+ * the node Id of its first child; and its number of children.</p>
+ */
+public final class ConceptTreeIndex {
+
+    /** Private constructor for a utility class. */
+    private ConceptTreeIndex() {
+    }
+
+    /** Magic number at the start of an index file. It is the
+     * ASCII encoding of "CTIX". */
+    private static final int MAGIC = 0x43544958;
+
+    /** The format of the index file. Increment this if the layout
+     * of the index file changes. */
+    private static final int INDEX_FORMAT = 1;
+
+    /** The size of the header of an index file, in bytes. */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    /** The size of each record of an index file, in bytes. */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static final int RECORD_SIZE = 2 * Long.BYTES
+            + 4 * Integer.BYTES;
+
+    /** The suffix of concept tree files. */
+    private static final String JSON_SUFFIX = ".json";
+
+    /** The suffix of index files. */
+    private static final String INDEX_SUFFIX = ".idx";
+
+    /** The suffix of temporary files used while writing an index. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** The name of the field of the top-level object that contains
+     * the forest. */
+    private static final String FOREST_FIELD = "forest";
+
+    /** The name of the field of a resource that contains its children. */
+    private static final String CHILDREN_FIELD = "children";
+
+    /** The name of the field added to each node returned by
+     * {@link #getSubtree(File, File, int, int)} that contains
+     * its node Id. */
+    public static final String NODE_ID_FIELD = "nodeId";
+
+    /** The name of the field added to each node returned by
+     * {@link #getSubtree(File, File, int, int)} that contains
+     * its number of children. */
+    public static final String CHILD_COUNT_FIELD = "childCount";
+
+    /** Factory used to create JSON parsers. */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /** Jackson ObjectMapper used to parse the JSON data of nodes. */
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    /** The index file to use for a concept tree file.
+     * The index file is in the same directory as the concept tree file.
+     * @param treeFile The concept tree file.
+     * @return The index file.
+     */
+    public static File getIndexFile(final File treeFile) {
+        String name = treeFile.getName();
+        if (name.endsWith(JSON_SUFFIX)) {
+            name = name.substring(0, name.length() - JSON_SUFFIX.length());
+        }
+        return new File(treeFile.getParentFile(), name + INDEX_SUFFIX);
+    }
+
+    /** Representation of a node of the tree, used while writing
+     * the index. */
+    private static final class Node {
+        /** The byte offset of the node's JSON object. */
+        private long offset;
+        /** The length of the node's JSON object, in bytes. */
+        private int length;
+        /** The byte offset of the node's array of children,
+         * or -1, if it has none. */
+        private long childrenOffset = -1;
+        /** The length of the node's array of children, in bytes. */
+        private int childrenLength;
+        /** The children of the node. */
+        private final List<Node> children = new ArrayList<>();
+    }
+
+    /** Write the index file for a concept tree file. The index
+     * is first written to a temporary file, which is then moved into
+     * place, so that readers never see a partially-written index.
+     * @param treeFile The concept tree file.
+     * @throws IOException If there is an error reading the concept
+     *      tree file or writing the index file.
+     */
+    public static void writeIndex(final File treeFile) throws IOException {
+        Node root;
+        try (JsonParser parser = JSON_FACTORY.createParser(treeFile)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Concept tree is not a JSON object: "
+                        + treeFile);
+            }
+            root = parseNode(parser, FOREST_FIELD);
+        }
+        // Assign node Ids in breadth-first order.
+        List<Node> nodes = new ArrayList<>();
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Node node = queue.remove();
+            nodes.add(node);
+            queue.addAll(node.children);
+        }
+        File indexFile = getIndexFile(treeFile);
+        File tempFile = File.createTempFile(indexFile.getName(), TEMP_SUFFIX,
+                indexFile.getParentFile());
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(
+                            new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(INDEX_FORMAT);
+                out.writeInt(nodes.size());
+                // The children of the nodes follow the root in the
+                // same order as the nodes, so the first child of each
+                // node comes straight after the children of all
+                // of the preceding nodes.
+                int nextChild = 1;
+                for (Node node : nodes) {
+                    out.writeLong(node.offset);
+                    out.writeInt(node.length);
+                    out.writeLong(node.childrenOffset);
+                    out.writeInt(node.childrenLength);
+                    out.writeInt(nextChild);
+                    out.writeInt(node.children.size());
+                    nextChild += node.children.size();
+                }
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    /** Parse a JSON object representing a node of the tree,
+     * recording the byte offsets of the object and of its children.
+     * @param parser The JSON parser, positioned at the start of
+     *      the object.
+     * @param childrenField The name of the field that contains the
+     *      children of the node.
+     * @return The node.
+     * @throws IOException If there is an error parsing the object.
+     */
+    private static Node parseNode(final JsonParser parser,
+            final String childrenField) throws IOException {
+        Node node = new Node();
+        node.offset = parser.getTokenLocation().getByteOffset();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+            if (childrenField.equals(fieldName)
+                    && valueToken == JsonToken.START_ARRAY) {
+                node.childrenOffset =
+                        parser.getTokenLocation().getByteOffset();
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    node.children.add(parseNode(parser, CHILDREN_FIELD));
+                }
+                node.childrenLength = (int) (parser.getTokenLocation().
+                        getByteOffset() + 1 - node.childrenOffset);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        node.length = (int) (parser.getTokenLocation().getByteOffset()
+                + 1 - node.offset);
+        return node;
+    }
+
+    /** Make sure that the index file of a concept tree file exists,
+     * and is up to date. If not, (re)write it. This allows indexes
+     * to be used for concept tree files that were generated before
+     * indexes were introduced.
+     * @param treeFile The concept tree file.
+     * @return The index file.
+     * @throws IOException If there is an error writing the index.
+     */
+    public static File ensureIndex(final File treeFile) throws IOException {
+        File indexFile = getIndexFile(treeFile);
+        if (!indexFile.isFile()
+                || indexFile.lastModified() < treeFile.lastModified()) {
+            writeIndex(treeFile);
+        }
+        return indexFile;
+    }
+
+    /** Delete the index file of a concept tree file, if it exists.
+     * The concept tree file itself is not deleted.
+     * @param treeFile The concept tree file.
+     * @throws IOException If there is an error deleting the index file.
+     */
+    public static void deleteIndex(final File treeFile) throws IOException {
+        Files.deleteIfExists(getIndexFile(treeFile).toPath());
+    }
+
+    /** Get a node of a concept tree, and its descendants down to
+     * a specified depth. The node and each of its descendants
+     * are represented as in the concept tree file, except that
+     * each has the additional fields {@link #NODE_ID_FIELD} and
+     * {@link #CHILD_COUNT_FIELD}, and that the children of nodes
+     * at the specified depth are omitted.
+     * Only the parts of the concept tree file that are needed
+     * are read.
+     * @param treeFile The concept tree file.
+     * @param indexFile The index file of the concept tree file.
+     * @param nodeId The node Id of the node to be fetched. Use 0
+     *      for the top-level object.
+     * @param depth The depth of descendants to include. With a depth
+     *      of 0, only the node itself is returned; with a depth of 1,
+     *      its immediate children are also returned, and so on.
+     * @return The node, with its descendants, or null, if there
+     *      is no node with that node Id.
+     * @throws IOException If there is an error reading the concept
+     *      tree file or the index file, or if the index file is
+     *      not valid.
+     */
+    public static ObjectNode getSubtree(final File treeFile,
+            final File indexFile, final int nodeId, final int depth)
+                    throws IOException {
+        try (RandomAccessFile tree = new RandomAccessFile(treeFile, "r");
+                RandomAccessFile index =
+                        new RandomAccessFile(indexFile, "r")) {
+            if (index.readInt() != MAGIC
+                    || index.readInt() != INDEX_FORMAT) {
+                throw new IOException("Not a valid concept tree index: "
+                        + indexFile);
+            }
+            int nodeCount = index.readInt();
+            if (nodeId < 0 || nodeId >= nodeCount) {
+                return null;
+            }
+            return readNode(tree, index, nodeId, depth);
+        }
+    }
+
+    /** Read a node of a concept tree, and its descendants down to
+     * a specified depth.
+     * @param tree The concept tree file.
+     * @param index The index file of the concept tree file.
+     * @param nodeId The node Id of the node to be fetched.
+     * @param depth The depth of descendants to include.
+     * @return The node, with its descendants.
+     * @throws IOException If there is an error reading the concept
+     *      tree file or the index file.
+     */
+    private static ObjectNode readNode(final RandomAccessFile tree,
+            final RandomAccessFile index, final int nodeId, final int depth)
+                    throws IOException {
+        index.seek(HEADER_SIZE + (long) nodeId * RECORD_SIZE);
+        long offset = index.readLong();
+        int length = index.readInt();
+        long childrenOffset = index.readLong();
+        int childrenLength = index.readInt();
+        int firstChild = index.readInt();
+        int childCount = index.readInt();
+
+        byte[] bytes;
+        if (childrenOffset < 0) {
+            bytes = new byte[length];
+            tree.seek(offset);
+            tree.readFully(bytes);
+        } else {
+            // Read the node without the contents of its array of
+            // children, i.e., everything up to and including the
+            // opening bracket of the array, followed by
+            // everything from its closing bracket onwards.
+            int headLength = (int) (childrenOffset + 1 - offset);
+            int tailLength = length - headLength - childrenLength + 2;
+            bytes = new byte[headLength + tailLength];
+            tree.seek(offset);
+            tree.readFully(bytes, 0, headLength);
+            tree.seek(childrenOffset + childrenLength - 1);
+            tree.readFully(bytes, headLength, tailLength);
+        }
+        ObjectNode node = (ObjectNode) JSON_MAPPER.readTree(bytes);
+        node.put(NODE_ID_FIELD, nodeId);
+        node.put(CHILD_COUNT_FIELD, childCount);
+        if (childrenOffset >= 0) {
+            String childrenField;
+            if (nodeId == 0) {
+                childrenField = FOREST_FIELD;
+            } else {
+                childrenField = CHILDREN_FIELD;
+            }
+            if (depth > 0) {
+                ArrayNode children = node.putArray(childrenField);
+                for (int i = 0; i < childCount; i++) {
+                    children.add(readNode(tree, index, firstChild + i,
+                            depth - 1));
+                }
+            } else {
+                node.remove(childrenField);
+            }
+        }
+        return node;
+    }
+
+}
@@ -0,0 +1,165 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.transform.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import au.org.ands.vocabs.registry.workflow.provider.transform.ResourceMapTransformProvider;
+
+/** Matcher of IRIs against a fixed set of hostnames, as used by
+ * {@link ResourceMapTransformProvider} to decide whether a resource
+ * is owned by the owner of a vocabulary.
+ *
+ * An IRI matches if it begins with {@code http://} or {@code https://},
+ * followed by one of the hostnames, followed by {@code /}. The
+ * comparison is case-insensitive for ASCII characters only.
+ * This gives the same results as the SPARQL test
+ * {@code REGEX(STR(?iri),"^https?://(host1|host2)/","i")}, when
+ * the hostnames are taken literally. The hostnames are compiled
+ * into a trie once, so that matching an IRI
+ * costs no more than one pass over its leading characters.
+ */
+public final class HostnameTrie {
+
+    /** A node of the trie. */
+    private static final class Node {
+        /** The characters labelling the edges to the children
+         * of this node, in ascending order. */
+        private char[] labels = new char[0];
+
+        /** The children of this node, in the same order
+         * as {@link #labels}. */
+        private Node[] children = new Node[0];
+
+        /** Whether a hostname ends at this node. */
+        private boolean terminal;
+
+        /** Get the child of this node along the edge labelled
+         * with a character.
+         * @param c The (case-folded) character labelling the edge.
+         * @return The child, or null, if there is no such edge.
+         */
+        private Node getChild(final char c) {
+            int index = Arrays.binarySearch(labels, c);
+            if (index < 0) {
+                return null;
+            }
+            return children[index];
+        }
+
+        /** Get the child of this node along the edge labelled
+         * with a character, adding it, if there is not yet such a child.
+         * @param c The (case-folded) character labelling the edge.
+         * @return The child.
+         */
+        private Node getOrAddChild(final char c) {
+            int index = Arrays.binarySearch(labels, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertionPoint = -index - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertionPoint);
+            System.arraycopy(children, 0, newChildren, 0, insertionPoint);
+            Node child = new Node();
+            newLabels[insertionPoint] = c;
+            newChildren[insertionPoint] = child;
+            System.arraycopy(labels, insertionPoint, newLabels,
+                    insertionPoint + 1, labels.length - insertionPoint);
+            System.arraycopy(children, insertionPoint, newChildren,
+                    insertionPoint + 1, children.length - insertionPoint);
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    /** The root of the trie. */
+    private final Node root = new Node();
+
+    /** Constructor.
+     * @param hostnames The hostnames to be matched.
+     */
+    public HostnameTrie(final Collection<String> hostnames) {
+        for (String hostname : hostnames) {
+            Node node = root;
+            for (int i = 0; i < hostname.length(); i++) {
+                node = node.getOrAddChild(fold(hostname.charAt(i)));
+            }
+            node.terminal = true;
+        }
+    }
+
+    /** Fold the case of an ASCII letter, in the same way as a
+     * case-insensitive Java regular expression without
+     * Unicode case folding.
+     * @param c The character to be folded.
+     * @return The lower-case version of c, if c is an ASCII
+     *      upper-case letter; otherwise, c itself.
+     */
+    private static char fold(final char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c;
+    }
+
+    /** Test whether the text at a position matches a lower-case
+     * ASCII string, ignoring case.
+     * @param text The text to be examined.
+     * @param offset The position of text at which to start.
+     * @param expected The lower-case string to look for.
+     * @return true, if text contains expected at offset, ignoring case.
+     */
+    private static boolean regionMatches(final String text, final int offset,
+            final String expected) {
+        if (text.length() - offset < expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (fold(text.charAt(offset + i)) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Decide whether an IRI has one of the hostnames.
+     * @param iri The IRI to be tested.
+     * @return true, if the IRI begins with {@code http://} or
+     *      {@code https://}, followed by one of the hostnames,
+     *      followed by {@code /}.
+     */
+    public boolean matches(final String iri) {
+        if (!regionMatches(iri, 0, "http")) {
+            return false;
+        }
+        int position = "http".length();
+        if (regionMatches(iri, position, "s")) {
+            position++;
+        }
+        if (!regionMatches(iri, position, "://")) {
+            return false;
+        }
+        position += "://".length();
+        int length = iri.length();
+        Node node = root;
+        // Keep going after reaching the end of one hostname, as it
+        // may be a prefix of another; e.g., "abc.org" and "abc.org.au".
+        while (position < length) {
+            char c = iri.charAt(position);
+            if (node.terminal && c == '/') {
+                return true;
+            }
+            node = node.getChild(fold(c));
+            if (node == null) {
+                return false;
+            }
+            position++;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,230 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.transform.utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.UnsupportedRDFormatException;
+
+import au.org.ands.vocabs.registry.utils.PropertyConstants;
+import au.org.ands.vocabs.registry.utils.RegistryProperties;
+
+/** Parse several RDF files concurrently, each with its own handler.
+ *
+ * <p>Transform providers that accumulate state from all of the
+ * harvested files of a version can use this class instead of
+ * parsing the files one after another with a single handler.
+ * A new handler is created for each file, and the files are parsed
+ * on a shared, bounded pool of threads, which is shut down by
+ * {@link #shutdown()}. The handlers are then
+ * handed back to the caller in the same order as the files, on the
+ * caller's thread, so that the caller can combine their partial
+ * results without any further synchronization, and with the same
+ * outcome as if the files had been parsed one after another.</p>
+ *
+ * <p>The size of the pool is given by the property
+ * {@link PropertyConstants#REGISTRY_TRANSFORM_PARSETHREADS}; by default,
+ * it is the number of available processors.</p>
+ */
+public final class ParallelRdfParser {
+
+    /** Private constructor for a utility class. */
+    private ParallelRdfParser() {
+    }
+
+    /** The maximum number of files to be parsed concurrently.
+     * Initialized by {@link #getParseThreads()}. */
+    private static int parseThreads;
+
+    /** The pool of threads used to parse files. It is created when
+     * first needed, and shut down by {@link #shutdown()}. The threads
+     * are daemon threads, so that they do not prevent shutdown. */
+    private static ExecutorService executor;
+
+    /** Get the maximum number of files that are parsed concurrently.
+     * @return The maximum number of files that are parsed concurrently.
+     */
+    public static synchronized int getParseThreads() {
+        if (parseThreads == 0) {
+            parseThreads = Math.max(1,
+                    Integer.valueOf(RegistryProperties.getProperty(
+                    PropertyConstants.REGISTRY_TRANSFORM_PARSETHREADS,
+                    Integer.toString(
+                            Runtime.getRuntime().availableProcessors()))));
+        }
+        return parseThreads;
+    }
+
+    /** Get the pool of threads used to parse files, creating it
+     * if necessary.
+     * @return The pool of threads used to parse files.
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(getParseThreads(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "RDF parser");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        return executor;
+    }
+
+    /** Shut down the pool of threads used to parse files. Parsing
+     * that is in progress is interrupted. Call this only in webapp
+     * context shutdown! */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /** Consumer of the result of parsing one file.
+     * @param <H> The type of the handlers.
+     */
+    @FunctionalInterface
+    public interface ParseResultConsumer<H> {
+        /** Accept the result of parsing one file.
+         * @param path The file that was parsed.
+         * @param handler The handler used to parse the file.
+         * @param exception The exception thrown while parsing the file,
+         *      or null, if parsing succeeded. If it is not null, the
+         *      handler may contain a partial result.
+         * @throws IOException If there is an error processing the result.
+         */
+        void accept(Path path, H handler, Exception exception)
+                throws IOException;
+    }
+
+    /** Parse one RDF file using {@link RdfFileSource}, catching the
+     * exceptions that indicate that the file could not be parsed.
+     * @param path The file to be parsed.
+     * @param handler The handler to which the statements of the file
+     *      are passed.
+     * @return The exception thrown while parsing, or null, if parsing
+     *      succeeded.
+     */
+    private static Exception parseFileCatchingExceptions(final Path path,
+            final RDFHandler handler) {
+        try {
+            RdfFileSource.parse(path, handler);
+            return null;
+        } catch (DirectoryIteratorException
+                | IOException
+                | RDFParseException
+                | RDFHandlerException
+                | UnsupportedRDFormatException ex) {
+            return ex;
+        }
+    }
+
+    /** Parse RDF files concurrently, each with a new handler, and pass
+     * the results to a consumer, in the same order as the files.
+     * The consumer is invoked on the calling thread; it is invoked for
+     * each file as soon as that file and all of the files before it
+     * have been parsed, so that partial results can be combined and
+     * released while later files are still being parsed.
+     * No more files are parsed ahead of the consumer than there are
+     * threads in the pool, so that the memory used by the handlers of
+     * files that have been parsed, but not yet consumed, is bounded.
+     * If there is only one file, it is parsed on the calling thread.
+     * @param <H> The type of the handlers.
+     * @param paths The files to be parsed.
+     * @param handlerFactory Function that creates the handler for
+     *      a file. It is invoked on the calling thread.
+     * @param consumer The consumer of the result of parsing each file.
+     * @throws IOException If the consumer throws an IOException.
+     */
+    public static <H extends RDFHandler> void parseFiles(
+            final List<Path> paths,
+            final Function<Path, H> handlerFactory,
+            final ParseResultConsumer<H> consumer) throws IOException {
+        if (paths.size() == 1) {
+            Path path = paths.get(0);
+            H handler = handlerFactory.apply(path);
+            consumer.accept(path, handler,
+                    parseFileCatchingExceptions(path, handler));
+            return;
+        }
+        parseFiles(paths, handlerFactory, consumer, getExecutor(),
+                getParseThreads());
+    }
+
+    /** Parse RDF files concurrently, as for
+     * {@link #parseFiles(List, Function, ParseResultConsumer)},
+     * using the specified pool of threads.
+     * @param <H> The type of the handlers.
+     * @param paths The files to be parsed.
+     * @param handlerFactory Function that creates the handler for
+     *      a file. It is invoked on the calling thread.
+     * @param consumer The consumer of the result of parsing each file.
+     * @param parseExecutor The pool of threads used to parse files.
+     * @param maxInFlight The maximum number of files that have been
+     *      submitted for parsing, but whose results have not yet
+     *      been passed to the consumer.
+     * @throws IOException If the consumer throws an IOException.
+     */
+    static <H extends RDFHandler> void parseFiles(
+            final List<Path> paths,
+            final Function<Path, H> handlerFactory,
+            final ParseResultConsumer<H> consumer,
+            final ExecutorService parseExecutor,
+            final int maxInFlight) throws IOException {
+        // The files that have been submitted, but whose results
+        // have not yet been consumed, in order.
+        Deque<H> handlers = new ArrayDeque<>();
+        Deque<Future<Exception>> futures = new ArrayDeque<>();
+        int submitted = 0;
+        try {
+            for (Path path : paths) {
+                while (submitted < paths.size()
+                        && futures.size() < maxInFlight) {
+                    Path pathToSubmit = paths.get(submitted);
+                    H handler = handlerFactory.apply(pathToSubmit);
+                    handlers.add(handler);
+                    futures.add(parseExecutor.submit(() ->
+                        parseFileCatchingExceptions(pathToSubmit, handler)));
+                    submitted++;
+                }
+                Exception exception;
+                try {
+                    exception = futures.remove().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(
+                            "Interrupted while parsing RDF", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException(
+                            "Exception while parsing RDF", e.getCause());
+                }
+                // Removing the handler lets go of it once the consumer
+                // is done with it, so that its memory can be reclaimed.
+                consumer.accept(path, handlers.remove(), exception);
+            }
+        } finally {
+            // If we're leaving early, don't waste time on the rest.
+            for (Future<Exception> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.transform.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.UnsupportedRDFormatException;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.org.ands.vocabs.registry.utils.RDFUtils;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
+
+/** The single place through which transform providers read RDF files.
+ * Each file is opened with a large buffer, decompressed if it is
+ * stored gzip-compressed (see {@link
+ * RegistryFileUtils#newInputStream(Path)}), and always closed,
+ * whether or not parsing succeeds. The number of bytes and statements
+ * parsed, and the time taken, are logged for each file, and returned
+ * to the caller.
+ */
+public final class RdfFileSource {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** Private constructor for a utility class. */
+    private RdfFileSource() {
+    }
+
+    /** Statistics of the parsing of one RDF file. */
+    public static final class Statistics {
+
+        /** The file that was parsed. */
+        private final Path path;
+
+        /** The number of (uncompressed) bytes parsed. */
+        private final long bytes;
+
+        /** The number of statements parsed. */
+        private final long statements;
+
+        /** The time taken to parse the file, in milliseconds. */
+        private final long millis;
+
+        /** Constructor.
+         * @param aPath The file that was parsed.
+         * @param aBytes The number of (uncompressed) bytes parsed.
+         * @param aStatements The number of statements parsed.
+         * @param aMillis The time taken to parse the file,
+         *      in milliseconds.
+         */
+        private Statistics(final Path aPath, final long aBytes,
+                final long aStatements, final long aMillis) {
+            path = aPath;
+            bytes = aBytes;
+            statements = aStatements;
+            millis = aMillis;
+        }
+
+        /** Get the file that was parsed.
+         * @return The file that was parsed.
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /** Get the number of (uncompressed) bytes parsed.
+         * @return The number of bytes parsed.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /** Get the number of statements parsed.
+         * @return The number of statements parsed.
+         */
+        public long getStatements() {
+            return statements;
+        }
+
+        /** Get the time taken to parse the file.
+         * @return The time taken to parse the file, in milliseconds.
+         */
+        public long getMillis() {
+            return millis;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            return path + ": " + statements + " statements, "
+                    + bytes + " bytes, " + millis + " ms";
+        }
+    }
+
+    /** RDF handler that counts the statements passed on to
+     * another handler. */
+    private static final class CountingHandler extends RDFHandlerWrapper {
+
+        /** The number of statements handled so far. */
+        private long count;
+
+        /** Constructor.
+         * @param handler The handler to which statements are passed on.
+         */
+        CountingHandler(final RDFHandler handler) {
+            super(handler);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void handleStatement(final Statement st)
+                throws RDFHandlerException {
+            count++;
+            super.handleStatement(st);
+        }
+    }
+
+    /** Parse an RDF file, using the file's own path as the base URI.
+     * The format of the file is determined by its file name.
+     * @param path The file to be parsed.
+     * @param handler The handler to which the statements of the file
+     *      are passed.
+     * @return Statistics of the parsing of the file.
+     * @throws IOException If there is an error reading the file.
+     * @throws RDFParseException If the file can not be parsed.
+     * @throws RDFHandlerException If the handler throws an exception.
+     * @throws UnsupportedRDFormatException If there is no parser for
+     *      the format of the file.
+     */
+    public static Statistics parse(final Path path,
+            final RDFHandler handler)
+            throws IOException, RDFParseException, RDFHandlerException,
+            UnsupportedRDFormatException {
+        return parse(path, handler, path.toString());
+    }
+
+    /** Parse an RDF file.
+     * The format of the file is determined by its file name.
+     * @param path The file to be parsed.
+     * @param handler The handler to which the statements of the file
+     *      are passed.
+     * @param baseURI The base URI to use to resolve relative URIs
+     *      in the file.
+     * @return Statistics of the parsing of the file.
+     * @throws IOException If there is an error reading the file.
+     * @throws RDFParseException If the file can not be parsed.
+     * @throws RDFHandlerException If the handler throws an exception.
+     * @throws UnsupportedRDFormatException If there is no parser for
+     *      the format of the file.
+     */
+    public static Statistics parse(final Path path,
+            final RDFHandler handler, final String baseURI)
+            throws IOException, RDFParseException, RDFHandlerException,
+            UnsupportedRDFormatException {
+        RDFFormat format = RDFUtils.getParserFormatForPath(path);
+        if (format == null) {
+            throw new UnsupportedRDFormatException(
+                    "Unable to determine the RDF format of file: " + path);
+        }
+        RDFParser rdfParser = Rio.createParser(format);
+        CountingHandler countingHandler = new CountingHandler(handler);
+        rdfParser.setRDFHandler(countingHandler);
+        LOGGER.debug("Reading RDF: " + path);
+        long start = System.nanoTime();
+        CountingInputStream cis;
+        try (InputStream is = RegistryFileUtils.newInputStream(path)) {
+            cis = new CountingInputStream(is);
+            rdfParser.parse(cis, baseURI);
+        }
+        Statistics statistics = new Statistics(path, cis.getByteCount(),
+                countingHandler.count,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        LOGGER.info("Parsed RDF " + statistics);
+        return statistics;
+    }
+
+}
@@ -0,0 +1,598 @@
+/** See the file "LICENSE" for the full license governing this code. */
+package au.org.ands.vocabs.registry.workflow.provider.transform.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Store of "buckets" of property values, one bucket per resource,
+ * such as is accumulated by the ResourceDocs transform provider.
+ *
+ * Buckets are kept in memory until the number of buckets held
+ * reaches a threshold. At that point, all of the buckets in memory
+ * are written to disk as a "run", sorted by key, and memory is cleared.
+ * Statements about a resource may continue to arrive after the
+ * resource's bucket has been written out, so the buckets for one key
+ * may be spread across several runs. When all buckets have been added,
+ * {@link #forEachResource(ResourceConsumer)} does a merge of the runs,
+ * combining the buckets for each key, and hands over the
+ * combined buckets one at a time. No more than a fixed number of runs
+ * are open at once: if there are more runs than that, groups of
+ * runs are first merged into larger, intermediate runs.
+ *
+ * If the threshold is never reached, nothing is written to disk, and
+ * {@link #forEachResource(ResourceConsumer)} iterates over the buckets
+ * in memory, in the same order as a {@link HashMap} of the buckets.
+ *
+ * All values stored in the buckets must be Strings.
+ * Instances are not thread-safe; to accumulate buckets concurrently,
+ * use one store per thread, and combine them afterwards using
+ * {@link #absorb(ResourceBucketStore)}. Invoke {@link #close()} when done,
+ * to remove any files written to disk.
+ */
+public final class ResourceBucketStore implements Closeable {
+
+    /** Logger for this class. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(
+            MethodHandles.lookup().lookupClass());
+
+    /** Marker that precedes each bucket in a run file. */
+    private static final int RECORD_MARKER = 1;
+
+    /** Marker that follows the last bucket in a run file. */
+    private static final int END_MARKER = 0;
+
+    /** Buffer size to use for reading and writing run files. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The default maximum number of runs that are merged at once. */
+    private static final int DEFAULT_MERGE_FAN_IN = 64;
+
+    /** Consumer of the combined buckets of the store.
+     * See {@link ResourceBucketStore#forEachResource(ResourceConsumer)}.
+     */
+    @FunctionalInterface
+    public interface ResourceConsumer {
+        /** Accept the combined bucket of one resource.
+         * @param key The key of the resource.
+         * @param bucket The combined bucket of the resource.
+         * @throws IOException If there is an error processing the bucket.
+         */
+        void accept(String key, HashSetValuedHashMap<String, Object> bucket)
+                throws IOException;
+    }
+
+    /** The number of buckets to be kept in memory, before they are
+     * written to disk. If zero or negative, buckets are never
+     * written to disk. */
+    private final int spillThreshold;
+
+    /** The maximum number of runs that are merged at once,
+     * and so the maximum number of run files open at once. */
+    private final int mergeFanIn;
+
+    /** The directory within which a directory to contain the run
+     * files is created, if that turns out to be necessary. */
+    private final Path spillParentDirectory;
+
+    /** The directory containing the run files, created when the
+     * first run is written. */
+    private Path spillDirectory;
+
+    /** The buckets currently held in memory. */
+    private HashMap<String, HashSetValuedHashMap<String, Object>> buckets =
+            new HashMap<>();
+
+    /** The run files that have been written, in the order in which
+     * they were written. */
+    private final List<Path> runs = new ArrayList<>();
+
+    /** The number of run files that have been created in
+     * spillDirectory, used to give each one a unique name. */
+    private int runFileCount;
+
+    /** Directories containing run files taken over from other stores
+     * by {@link #absorb(ResourceBucketStore)}. They are removed
+     * by {@link #close()}. */
+    private final List<Path> absorbedSpillDirectories = new ArrayList<>();
+
+    /** The names of fields that may have only one value. When buckets
+     * are combined, a value of such a field from a later bucket
+     * replaces that from an earlier bucket. */
+    private final Set<String> singleValuedFields = new HashSet<>();
+
+    /** Buckets added by {@link #replace(String,
+     * HashSetValuedHashMap)} after runs have been written to disk.
+     * These are never themselves written to disk. */
+    private final LinkedHashMap<String, HashSetValuedHashMap<String, Object>>
+        replacements = new LinkedHashMap<>();
+
+    /** Constructor.
+     * @param aSpillThreshold The number of buckets to be kept in memory,
+     *      before they are written to disk. If zero or negative,
+     *      buckets are never written to disk.
+     * @param aSpillParentDirectory The directory within which a
+     *      (uniquely-named) directory is created to contain the run files.
+     *      It will be created, if it does not already exist.
+     *      It may be null, if aSpillThreshold is zero or negative.
+     */
+    public ResourceBucketStore(final int aSpillThreshold,
+            final Path aSpillParentDirectory) {
+        this(aSpillThreshold, aSpillParentDirectory, DEFAULT_MERGE_FAN_IN);
+    }
+
+    /** Constructor that also specifies the maximum number of runs
+     * that are merged at once.
+     * @param aSpillThreshold The number of buckets to be kept in memory,
+     *      before they are written to disk. If zero or negative,
+     *      buckets are never written to disk.
+     * @param aSpillParentDirectory The directory within which a
+     *      (uniquely-named) directory is created to contain the run files.
+     *      It will be created, if it does not already exist.
+     *      It may be null, if aSpillThreshold is zero or negative.
+     * @param aMergeFanIn The maximum number of runs that are merged
+     *      at once. Must be at least 2.
+     */
+    ResourceBucketStore(final int aSpillThreshold,
+            final Path aSpillParentDirectory, final int aMergeFanIn) {
+        if (aMergeFanIn < 2) {
+            throw new IllegalArgumentException(
+                    "Merge fan-in must be at least 2");
+        }
+        spillThreshold = aSpillThreshold;
+        spillParentDirectory = aSpillParentDirectory;
+        mergeFanIn = aMergeFanIn;
+    }
+
+    /** Get the bucket currently held in memory for a key.
+     * A result of null does not mean that no values have been
+     * stored for the key; they may have been written to disk.
+     * @param key The key of the resource.
+     * @return The bucket for the key held in memory, or null,
+     *      if there is none.
+     */
+    public HashSetValuedHashMap<String, Object> get(final String key) {
+        return buckets.get(key);
+    }
+
+    /** Add a new bucket to the store. The bucket may subsequently be
+     * modified by the caller, as long as no other bucket is added in the
+     * meantime: adding a bucket may cause all buckets then in memory
+     * to be written to disk.
+     * @param key The key of the resource.
+     * @param bucket The new bucket for the resource.
+     * @throws IOException If the buckets in memory had to be written
+     *      to disk, and writing failed.
+     */
+    public void put(final String key,
+            final HashSetValuedHashMap<String, Object> bucket)
+            throws IOException {
+        if (spillThreshold > 0 && buckets.size() >= spillThreshold) {
+            spill();
+        }
+        buckets.put(key, bucket);
+    }
+
+    /** Add a bucket to the store that replaces all values for the key
+     * that have been stored so far. Use this only after all buckets
+     * have been added with {@link #put(String, HashSetValuedHashMap)}.
+     * @param key The key of the resource.
+     * @param bucket The replacement bucket for the resource.
+     */
+    public void replace(final String key,
+            final HashSetValuedHashMap<String, Object> bucket) {
+        if (runs.isEmpty()) {
+            buckets.put(key, bucket);
+        } else {
+            buckets.remove(key);
+            replacements.put(key, bucket);
+        }
+    }
+
+    /** Note that a field may have only one value. When buckets
+     * written to disk are combined, a value of such a field from a
+     * later bucket replaces that from an earlier bucket.
+     * @param field The name of the field.
+     */
+    public void markSingleValued(final String field) {
+        singleValuedFields.add(field);
+    }
+
+    /** Add all of the buckets of another store to this store, as though
+     * they had been added to this store after all of the buckets
+     * already in it. This supports the use of a separate store for
+     * each of several harvested files that are processed concurrently:
+     * the stores are combined afterwards, in the order of the files.
+     * Run files of the other store are taken over, rather than copied.
+     * Neither store may have had buckets added with {@link
+     * #replace(String, HashSetValuedHashMap)}. The other store must
+     * not be used after this method is invoked, other than to
+     * invoke its {@link #close()} method.
+     * @param later The store whose buckets are to be added.
+     * @throws IOException If the buckets in memory had to be written
+     *      to disk, and writing failed.
+     */
+    public void absorb(final ResourceBucketStore later) throws IOException {
+        if (!replacements.isEmpty() || !later.replacements.isEmpty()) {
+            throw new IllegalStateException(
+                    "Can't absorb a store after replacements");
+        }
+        singleValuedFields.addAll(later.singleValuedFields);
+        if (!later.runs.isEmpty()) {
+            // To preserve the order in which buckets are combined,
+            // the buckets in memory must be written before the other
+            // store's runs.
+            if (!buckets.isEmpty()) {
+                spill();
+            }
+            runs.addAll(later.runs);
+            if (later.spillDirectory != null) {
+                absorbedSpillDirectories.add(later.spillDirectory);
+            }
+            absorbedSpillDirectories.addAll(later.absorbedSpillDirectories);
+            later.spillDirectory = null;
+            later.absorbedSpillDirectories.clear();
+            later.runs.clear();
+        }
+        // Now, all of the buckets in memory are earlier than those
+        // still in memory in the other store.
+        for (Map.Entry<String, HashSetValuedHashMap<String, Object>> entry
+                : later.buckets.entrySet()) {
+            HashSetValuedHashMap<String, Object> existing =
+                    buckets.get(entry.getKey());
+            if (existing == null) {
+                put(entry.getKey(), entry.getValue());
+            } else {
+                combine(existing, entry.getValue());
+            }
+        }
+        later.buckets = new HashMap<>();
+    }
+
+    /** Determine if the store is empty.
+     * @return true, if no buckets have been added to the store.
+     */
+    public boolean isEmpty() {
+        return buckets.isEmpty() && runs.isEmpty() && replacements.isEmpty();
+    }
+
+    /** Get the number of runs that have been written to disk.
+     * @return The number of runs that have been written to disk.
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /** Process each resource of the store in turn.
+     * If runs have been written to disk, the buckets still in memory are
+     * first written as a final run, and the resources are then
+     * processed in order of their keys. Otherwise, the resources are
+     * processed in the iteration order of the buckets in memory.
+     * Do not add any more buckets after invoking this method.
+     * @param consumer The consumer of the combined bucket of each resource.
+     * @throws IOException If there is an error reading a run, or
+     *      if the consumer throws an IOException.
+     */
+    public void forEachResource(final ResourceConsumer consumer)
+            throws IOException {
+        if (runs.isEmpty()) {
+            for (Map.Entry<String, HashSetValuedHashMap<String, Object>> entry
+                    : buckets.entrySet()) {
+                consumer.accept(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        if (!buckets.isEmpty()) {
+            spill();
+        }
+        mergeRuns(consumer);
+        for (Map.Entry<String, HashSetValuedHashMap<String, Object>> entry
+                : replacements.entrySet()) {
+            consumer.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /** Write all of the buckets in memory to disk as a new run,
+     * sorted by key, and clear memory.
+     * @throws IOException If writing the run fails.
+     */
+    private void spill() throws IOException {
+        Path run = newRunPath();
+        TreeMap<String, HashSetValuedHashMap<String, Object>> sorted =
+                new TreeMap<>(buckets);
+        // Let go of the HashMap before writing, so that its
+        // memory can be reclaimed as soon as possible.
+        buckets = new HashMap<>();
+        try (DataOutputStream out = openRun(run)) {
+            for (Map.Entry<String, HashSetValuedHashMap<String, Object>> entry
+                    : sorted.entrySet()) {
+                writeBucket(out, entry.getKey(), entry.getValue());
+            }
+            out.writeByte(END_MARKER);
+        }
+        runs.add(run);
+        LOGGER.debug("Wrote run of " + sorted.size() + " buckets to "
+                + run);
+    }
+
+    /** Get the path of a new run file in spillDirectory, creating
+     * spillDirectory first, if necessary.
+     * @return The path of the new run file.
+     * @throws IOException If spillDirectory can not be created.
+     */
+    private Path newRunPath() throws IOException {
+        if (spillDirectory == null) {
+            Files.createDirectories(spillParentDirectory);
+            spillDirectory = Files.createTempDirectory(spillParentDirectory,
+                    "resource-buckets-");
+        }
+        Path run = spillDirectory.resolve("run-" + runFileCount);
+        runFileCount++;
+        return run;
+    }
+
+    /** Open a run file for writing.
+     * @param run The path of the run file.
+     * @return The stream to which the run is to be written.
+     * @throws IOException If the run file can not be opened.
+     */
+    private static DataOutputStream openRun(final Path run)
+            throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(run), BUFFER_SIZE));
+    }
+
+    /** Write one bucket to a run file.
+     * @param out The stream to which the run is being written.
+     * @param key The key of the resource.
+     * @param bucket The bucket of the resource.
+     * @throws IOException If writing fails.
+     */
+    private static void writeBucket(final DataOutputStream out,
+            final String key, final HashSetValuedHashMap<String, Object> bucket)
+            throws IOException {
+        out.writeByte(RECORD_MARKER);
+        writeString(out, key);
+        Set<String> fields = bucket.keySet();
+        out.writeInt(fields.size());
+        for (String field : fields) {
+            writeString(out, field);
+            Collection<Object> values = bucket.get(field);
+            out.writeInt(values.size());
+            for (Object value : values) {
+                writeString(out, (String) value);
+            }
+        }
+    }
+
+    /** Merge the runs that have been written to disk, and pass the
+     * combined buckets to a consumer. Keys that have a replacement
+     * bucket are skipped. While there are more than mergeFanIn runs,
+     * consecutive groups of runs are first merged into
+     * intermediate runs, so that no more than mergeFanIn
+     * run files are open at once.
+     * @param consumer The consumer of the combined bucket of each resource.
+     * @throws IOException If there is an error reading or writing a run,
+     *      or if the consumer throws an IOException.
+     */
+    private void mergeRuns(final ResourceConsumer consumer)
+            throws IOException {
+        while (runs.size() > mergeFanIn) {
+            // Merging consecutive runs preserves the order in which
+            // the buckets for each key are combined.
+            List<Path> mergedRuns = new ArrayList<>();
+            for (int start = 0; start < runs.size(); start += mergeFanIn) {
+                List<Path> group = runs.subList(start,
+                        Math.min(start + mergeFanIn, runs.size()));
+                if (group.size() == 1) {
+                    mergedRuns.add(group.get(0));
+                    continue;
+                }
+                Path run = newRunPath();
+                try (DataOutputStream out = openRun(run)) {
+                    mergeGroup(group,
+                            (key, bucket) -> writeBucket(out, key, bucket));
+                    out.writeByte(END_MARKER);
+                }
+                for (Path groupRun : group) {
+                    Files.delete(groupRun);
+                }
+                mergedRuns.add(run);
+            }
+            LOGGER.debug("Merged " + runs.size() + " runs into "
+                    + mergedRuns.size());
+            runs.clear();
+            runs.addAll(mergedRuns);
+        }
+        mergeGroup(runs, (key, bucket) -> {
+            if (!replacements.containsKey(key)) {
+                consumer.accept(key, bucket);
+            }
+        });
+    }
+
+    /** Merge a group of runs, and pass the combined buckets to
+     * a consumer, in order of their keys.
+     * @param group The runs to be merged, in the order in which
+     *      they were written.
+     * @param consumer The consumer of the combined bucket of each resource.
+     * @throws IOException If there is an error reading a run, or
+     *      if the consumer throws an IOException.
+     */
+    private void mergeGroup(final List<Path> group,
+            final ResourceConsumer consumer) throws IOException {
+        // Order by key, and then by run, so that for each key,
+        // buckets are combined in the order in which they were written.
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(group.size(),
+                Comparator.comparing((RunReader r) -> r.key).
+                thenComparingInt(r -> r.runIndex));
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (int i = 0; i < group.size(); i++) {
+                RunReader reader = new RunReader(group.get(i), i);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                String key = reader.key;
+                HashSetValuedHashMap<String, Object> combined = reader.bucket;
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+                while (!queue.isEmpty() && queue.peek().key.equals(key)) {
+                    RunReader next = queue.poll();
+                    combine(combined, next.bucket);
+                    if (next.advance()) {
+                        queue.add(next);
+                    }
+                }
+                consumer.accept(key, combined);
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /** Combine the values of a later bucket into an earlier one.
+     * @param earlier The earlier bucket, into which values are added.
+     * @param later The later bucket.
+     */
+    private void combine(final HashSetValuedHashMap<String, Object> earlier,
+            final HashSetValuedHashMap<String, Object> later) {
+        for (String field : later.keySet()) {
+            if (singleValuedFields.contains(field)) {
+                earlier.remove(field);
+            }
+            earlier.putAll(field, later.get(field));
+        }
+    }
+
+    /** Remove all of the run files that have been written to disk. */
+    @Override
+    public void close() {
+        if (spillDirectory != null) {
+            FileUtils.deleteQuietly(spillDirectory.toFile());
+            spillDirectory = null;
+        }
+        for (Path directory : absorbedSpillDirectories) {
+            FileUtils.deleteQuietly(directory.toFile());
+        }
+        absorbedSpillDirectories.clear();
+        runs.clear();
+    }
+
+    /** Write a String to a run file. Unlike
+     * {@link DataOutputStream#writeUTF(String)}, there is no
+     * limit on the length of the String.
+     * @param out The stream to which the String is to be written.
+     * @param value The String to be written.
+     * @throws IOException If writing fails.
+     */
+    private static void writeString(final DataOutputStream out,
+            final String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Read a String from a run file, as written by
+     * {@link #writeString(DataOutputStream, String)}.
+     * @param in The stream from which the String is to be read.
+     * @return The String that was read.
+     * @throws IOException If reading fails.
+     */
+    private static String readString(final DataInputStream in)
+            throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Reader of one run file, used during the merge of runs. */
+    private static final class RunReader implements Closeable {
+
+        /** The index of the run, in the order in which the runs
+         * were written. */
+        private final int runIndex;
+
+        /** The stream from which the run is read. */
+        private final DataInputStream in;
+
+        /** The key of the bucket most recently read, or null,
+         * if the end of the run has been reached. */
+        private String key;
+
+        /** The bucket most recently read. */
+        private HashSetValuedHashMap<String, Object> bucket;
+
+        /** Constructor.
+         * @param run The path to the run file.
+         * @param aRunIndex The index of the run.
+         * @throws IOException If the run file can not be opened.
+         */
+        RunReader(final Path run, final int aRunIndex) throws IOException {
+            runIndex = aRunIndex;
+            in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(run), BUFFER_SIZE));
+        }
+
+        /** Read the next bucket from the run.
+         * @return true, if a bucket was read; false, if the end of the
+         *      run has been reached.
+         * @throws IOException If reading fails.
+         */
+        boolean advance() throws IOException {
+            if (in.readByte() == END_MARKER) {
+                key = null;
+                bucket = null;
+                return false;
+            }
+            key = readString(in);
+            bucket = new HashSetValuedHashMap<>();
+            int fieldCount = in.readInt();
+            for (int i = 0; i < fieldCount; i++) {
+                String field = readString(in);
+                int valueCount = in.readInt();
+                for (int j = 0; j < valueCount; j++) {
+                    bucket.put(field, readString(in));
+                }
+            }
+            return true;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+}
@@ -4,15 +4,19 @@ package au.org.ands.vocabs.registry.workflow.tasks;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Locale;
@@ -25,7 +29,6 @@ import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
 import au.org.ands.vocabs.registry.db.dao.AccessPointDAO;
 import au.org.ands.vocabs.registry.db.dao.TaskDAO;
 import au.org.ands.vocabs.registry.db.dao.VersionArtefactDAO;
@@ -324,68 +327,126 @@ public final class TaskUtils {
         return true;
     }
 
+    /** Suffix of the name of the manifest file in the backup folder
+     * of a project. The manifest has one line for each file that
+     * has been archived, giving the name of the archive and the name
+     * of the entry within the archive, separated by a tab. */
+    public static final String BACKUP_MANIFEST_SUFFIX = "-manifest.txt";
+
+    /** Suffix of the names of ZIP archives in the backup folder. */
+    private static final String ZIP_SUFFIX = ".zip";
+
+    /** Suffix of the name of the archive being written; it is
+     * renamed once complete. */
+    public static final String BACKUP_TEMP_SUFFIX = ".tmp";
+
+    /** Format of the timestamp included in the name of each archive. */
+    private static final String BACKUP_ARCHIVE_TIMESTAMP_FORMAT =
+            "yyyy-MM-dd'T'HH-mm-ss";
+
     /** Compress the files in the backup folder for a project.
+     * The files are added to a new ZIP archive, named with the project
+     * slug and a timestamp, and are then deleted. Existing archives
+     * are not rewritten, so the cost does not grow with the number of
+     * backups already made. Each archived file is recorded in the
+     * manifest of the project (see {@link #BACKUP_MANIFEST_SUFFIX}).
+     * Backups made before this scheme was introduced remain in
+     * the archive named with only the project slug; its entries are
+     * added to the manifest when the manifest is created.
      * @param projectId The project ID
      * @throws IOException Any exception when reading/writing data.
      */
     public static void compressBackupFolder(final String projectId)
             throws IOException {
-        String backupPath = getBackupPath(projectId);
-        if (!Files.isDirectory(Paths.get(backupPath))) {
+        compressBackupFolder(Paths.get(getBackupPath(projectId)),
+                SlugGenerator.generateSlug(projectId));
+    }
+
+    /** Compress the files in a backup folder, as described for
+     * {@link #compressBackupFolder(String)}.
+     * @param backupDir The backup folder.
+     * @param projectSlug The slug of the project ID.
+     * @throws IOException Any exception when reading/writing data.
+     */
+    static void compressBackupFolder(final Path backupDir,
+            final String projectSlug) throws IOException {
+        if (!Files.isDirectory(backupDir)) {
             // No such directory, so nothing to do.
             return;
         }
-        String projectSlug = SlugGenerator.generateSlug(projectId);
-        // The name of the ZIP file that does/will contain all
-        // backups for this project.
-        Path zipFilePath = Paths.get(backupPath).resolve(projectSlug + ".zip");
-        // A temporary ZIP file. Any existing content in the zipFilePath
-        // will be copied into this, followed by any other files in
-        // the directory that have not yet been added.
-        Path tempZipFilePath = Paths.get(backupPath).resolve("temp" + ".zip");
-
-        File tempZipFile = tempZipFilePath.toFile();
-        if (!tempZipFile.exists()) {
-            tempZipFile.createNewFile();
-        }
-
-        ZipOutputStream tempZipOut = new ZipOutputStream(
-                new FileOutputStream(tempZipFile));
-
-        File existingZipFile = zipFilePath.toFile();
-        if (existingZipFile.exists()) {
-            ZipFile zipIn = new ZipFile(existingZipFile);
-
-            Enumeration<? extends ZipEntry> entries = zipIn.entries();
-            while (entries.hasMoreElements()) {
-                ZipEntry e = entries.nextElement();
-                logger.debug("compressBackupFolder copying: " + e.getName());
-                tempZipOut.putNextEntry(e);
-                if (!e.isDirectory()) {
-                    copy(zipIn.getInputStream(e), tempZipOut);
+        Path manifestPath = backupDir.resolve(
+                projectSlug + BACKUP_MANIFEST_SUFFIX);
+        if (!Files.exists(manifestPath)) {
+            // Index the archive of earlier backups, if there is one.
+            // Only the central directory is read.
+            List<String> manifestLines = new ArrayList<>();
+            Path legacyZipPath = backupDir.resolve(projectSlug + ZIP_SUFFIX);
+            if (Files.exists(legacyZipPath)) {
+                try (ZipFile zipIn = new ZipFile(legacyZipPath.toFile())) {
+                    Enumeration<? extends ZipEntry> entries = zipIn.entries();
+                    while (entries.hasMoreElements()) {
+                        manifestLines.add(legacyZipPath.getFileName()
+                                + "\t" + entries.nextElement().getName());
+                    }
                 }
-                tempZipOut.closeEntry();
             }
-            zipIn.close();
+            Files.write(manifestPath, manifestLines, StandardCharsets.UTF_8);
         }
 
-        File dir = new File(backupPath);
-        File[] files = dir.listFiles();
-
+        List<File> sources = new ArrayList<>();
+        File[] files = backupDir.toFile().listFiles();
         for (File source : files) {
-            if (!source.getName().toLowerCase(Locale.ROOT).endsWith(".zip")) {
-                logger.debug("compressBackupFolder compressing and "
-                        + "deleting file: "
+            String name = source.getName().toLowerCase(Locale.ROOT);
+            if (name.endsWith(BACKUP_TEMP_SUFFIX)) {
+                // Left over from an interrupted run.
+                Files.delete(source.toPath());
+            } else if (!name.endsWith(ZIP_SUFFIX)
+                    && !source.toPath().equals(manifestPath)) {
+                sources.add(source);
+            }
+        }
+        if (sources.isEmpty()) {
+            return;
+        }
+
+        String timestamp = new SimpleDateFormat(
+                BACKUP_ARCHIVE_TIMESTAMP_FORMAT, Locale.ROOT).
+                format(new Date());
+        String zipFileName = projectSlug + "-" + timestamp + ZIP_SUFFIX;
+        int suffix = 1;
+        while (Files.exists(backupDir.resolve(zipFileName))) {
+            zipFileName = projectSlug + "-" + timestamp + "-" + suffix
+                    + ZIP_SUFFIX;
+            suffix++;
+        }
+        Path zipFilePath = backupDir.resolve(zipFileName);
+        Path tempZipFilePath = backupDir.resolve(
+                zipFileName + BACKUP_TEMP_SUFFIX);
+
+        List<String> manifestLines = new ArrayList<>();
+        List<File> archived = new ArrayList<>();
+        try (ZipOutputStream zipOut = new ZipOutputStream(
+                Files.newOutputStream(tempZipFilePath))) {
+            for (File source : sources) {
+                logger.debug("compressBackupFolder compressing file: "
                         + source.toString());
-                if (zipFile(tempZipOut, source)) {
-                    source.delete();
+                if (zipFile(zipOut, source)) {
+                    archived.add(source);
+                    manifestLines.add(zipFileName + "\t" + source.getName());
                 }
             }
         }
-
-        tempZipOut.flush();
-        tempZipOut.close();
-        tempZipFile.renameTo(existingZipFile);
+        Files.move(tempZipFilePath, zipFilePath,
+                StandardCopyOption.ATOMIC_MOVE);
+        Files.write(manifestPath, manifestLines, StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        // Only now that the archive and manifest are complete,
+        // delete the originals.
+        for (File source : archived) {
+            logger.debug("compressBackupFolder deleting file: "
+                    + source.toString());
+            Files.delete(source.toPath());
+        }
     }
 
     /** Size of buffer to use for copying files. */
@@ -408,6 +469,9 @@ public final class TaskUtils {
 
     /** Get the Paths of all files that should be processed. The
      * list includes all current file access points and PoolParty harvests.
+     * Harvested files may be stored gzip-compressed; open them using
+     * {@link RegistryFileUtils#newInputStream(Path)}, and determine
+     * their format using {@code RDFUtils.getParserFormatForPath()}.
      * @param taskInfo The top-level TaskInfo for the subtask.
      * @return A list of Paths, each of which is a files that should be
      *      processed.
@@ -420,8 +484,7 @@ public final class TaskUtils {
                         taskInfo.getVersion().getVersionId(),
                         AccessPointType.FILE, taskInfo.getEm());
         for (AccessPoint ap : aps) {
-            ApFile apFile = JSONSerialization.deserializeStringAsJson(
-                    ap.getData(), ApFile.class);
+            ApFile apFile = ap.getDataAs(ApFile.class);
             paths.add(Paths.get(apFile.getPath()));
         }
         List<VersionArtefact> vas = VersionArtefactDAO.
@@ -431,9 +494,18 @@ public final class TaskUtils {
                         taskInfo.getEm());
         for (VersionArtefact va : vas) {
             VaHarvestPoolparty vaHarvestPoolparty =
-                    JSONSerialization.deserializeStringAsJson(
-                            va.getData(), VaHarvestPoolparty.class);
-            paths.add(Paths.get(vaHarvestPoolparty.getPath()));
+                    va.getDataAs(VaHarvestPoolparty.class);
+            Path path = Paths.get(vaHarvestPoolparty.getPath());
+            if (!Files.exists(path)) {
+                // The file may have been compressed since the
+                // version artefact was last updated.
+                Path gzPath = Paths.get(path.toString()
+                        + RegistryFileUtils.GZIP_SUFFIX);
+                if (Files.exists(gzPath)) {
+                    path = gzPath;
+                }
+            }
+            paths.add(path);
         }
         return paths;
     }
@@ -4,6 +4,7 @@ package au.org.ands.vocabs.registry.workflow.tasks;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.function.Consumer;
@@ -26,6 +27,7 @@ import au.org.ands.vocabs.registry.db.internal.VaHarvestPoolparty;
 import au.org.ands.vocabs.registry.db.internal.VaResourceDocs;
 import au.org.ands.vocabs.registry.enums.VersionArtefactStatus;
 import au.org.ands.vocabs.registry.enums.VersionArtefactType;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
 
 /** Utilities for working with version artefacts. */
 public final class VersionArtefactUtils {
@@ -114,6 +116,8 @@ public final class VersionArtefactUtils {
     /** Create a database entity for a system-generated concept list
      * version artefact for a version.
      * Don't duplicate it, if it already exists.
+     * A gzip-compressed copy of the file is also written, so that
+     * it can be served to clients that accept gzip encoding.
      * @param taskInfo The TaskInfo providing the context for
      *      the creation of the version artefact.
      * @param path The path to put into the database entity.
@@ -121,6 +125,7 @@ public final class VersionArtefactUtils {
     public static void createConceptListVersionArtefact(
             final TaskInfo taskInfo,
             final String path) {
+        RegistryFileUtils.writeGzipCompressedCopy(Paths.get(path));
         createVersionArtefact(taskInfo,
                 VaConceptList.class,
                 VersionArtefactType.CONCEPT_LIST,
@@ -132,6 +137,8 @@ public final class VersionArtefactUtils {
     /** Create a database entity for a system-generated concept tree
      * version artefact for a version.
      * Don't duplicate it, if it already exists.
+     * A gzip-compressed copy of the file is also written, so that
+     * it can be served to clients that accept gzip encoding.
      * @param taskInfo The TaskInfo providing the context for
      *      the creation of the version artefact.
      * @param path The path to put into the database entity.
@@ -139,6 +146,7 @@ public final class VersionArtefactUtils {
     public static void createConceptTreeVersionArtefact(
             final TaskInfo taskInfo,
             final String path) {
+        RegistryFileUtils.writeGzipCompressedCopy(Paths.get(path));
         createVersionArtefact(taskInfo,
                 VaConceptTree.class,
                 VersionArtefactType.CONCEPT_TREE,
@@ -168,6 +176,8 @@ public final class VersionArtefactUtils {
     /** Create a database entity for a system-generated resource docs
      * version artefact for a version.
      * Don't duplicate it, if it already exists.
+     * A gzip-compressed copy of the file is also written, so that
+     * it can be served to clients that accept gzip encoding.
      * @param taskInfo The TaskInfo providing the context for
      *      the creation of the version artefact.
      * @param path The path to put into the database entity.
@@ -175,6 +185,7 @@ public final class VersionArtefactUtils {
     public static void createResourceDocsVersionArtefact(
             final TaskInfo taskInfo,
             final String path) {
+        RegistryFileUtils.writeGzipCompressedCopy(Paths.get(path));
         createVersionArtefact(taskInfo,
                 VaResourceDocs.class,
                 VersionArtefactType.RESOURCE_DOCS,
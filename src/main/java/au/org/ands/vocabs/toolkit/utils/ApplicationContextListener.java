@@ -19,9 +19,12 @@ import org.slf4j.LoggerFactory;
 import com.mchange.v2.c3p0.C3P0Registry;
 import com.mchange.v2.c3p0.PooledDataSource;
 
+import au.org.ands.vocabs.registry.api.validation.SubjectResolverIndex;
 import au.org.ands.vocabs.registry.log.Analytics;
+import au.org.ands.vocabs.registry.solr.IndexingQueue;
 import au.org.ands.vocabs.registry.utils.RegistryNetUtils;
 import au.org.ands.vocabs.registry.utils.SlugGenerator;
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.ParallelRdfParser;
 
 /** Context listener for the Registry web application.
  * This class should be moved into a registry package.
@@ -47,7 +50,7 @@ public class ApplicationContextListener implements ServletContextListener {
     }
 
     /** Listener for context initialization.
-     *  Only does a basic logging of startup for now.
+     *  Logs startup, and loads the subject resolver index.
      * @param sce The ServletContextEvent.
      */
     @Override
@@ -60,6 +63,14 @@ public class ApplicationContextListener implements ServletContextListener {
             logger.error("servletContext is null! This probably means "
                     + "a Tomcat JAR is missing.");
         }
+        // Load the subject resolver now, so that the first validation
+        // of a vocabulary doesn't have to wait for it. If this fails,
+        // it will be tried again when first needed.
+        try {
+            SubjectResolverIndex.getIndex();
+        } catch (RuntimeException e) {
+            logger.error("Unable to load subject resolver index", e);
+        }
     }
 
     /** Listener for context destruction.
@@ -76,8 +87,8 @@ public class ApplicationContextListener implements ServletContextListener {
         //   http://stackoverflow.com/questions/3320400/to-prevent-
         //     a-memory-leak-the-jdbc-driver-has-been-forcibly-unregistered
         // First close any background tasks which may be using the DB ...
-
-        // ... to be done ...
+        IndexingQueue.getQueue().shutdown();
+        ParallelRdfParser.shutdown();
 
         // Close the cache system.
         // No need to close individual caches, because they are _all_
@@ -425,8 +425,19 @@ public final class ToolkitFileUtils {
         File dir = new File(backupPath);
         File[] files = dir.listFiles();
 
+        // The registry's backup provider uses the same folder. Don't
+        // sweep its manifest, or any archive it is part-way through
+        // writing, into this archive. (Its archives end with ".zip",
+        // so they are skipped anyway.)
+        String registryManifestSuffix = au.org.ands.vocabs.registry.
+                workflow.tasks.TaskUtils.BACKUP_MANIFEST_SUFFIX;
+        String registryTempSuffix = au.org.ands.vocabs.registry.
+                workflow.tasks.TaskUtils.BACKUP_TEMP_SUFFIX;
         for (File source : files) {
-            if (!source.getName().toLowerCase(Locale.ROOT).endsWith(".zip")) {
+            String name = source.getName().toLowerCase(Locale.ROOT);
+            if (!name.endsWith(".zip")
+                    && !name.endsWith(registryManifestSuffix)
+                    && !name.endsWith(registryTempSuffix)) {
                 logger.debug("compressBackupFolder compressing and "
                         + "deleting file: "
                         + source.toString());
@@ -0,0 +1,67 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.api.context;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/** Tests of the ResponseUtils class. */
+public class TestResponseUtils {
+
+    /** Check the result of {@link ResponseUtils#acceptsGzip(List)}
+     * for a single Accept-Encoding header.
+     * @param acceptEncoding The value of the Accept-Encoding header.
+     * @param expected The expected result.
+     */
+    private static void checkAcceptsGzip(final String acceptEncoding,
+            final boolean expected) {
+        Assert.assertEquals(ResponseUtils.acceptsGzip(
+                Collections.singletonList(acceptEncoding)), expected,
+                "Wrong result for Accept-Encoding: " + acceptEncoding);
+    }
+
+    /** Run tests of the {@link ResponseUtils#acceptsGzip(List)}
+     * method, including the handling of quality values. */
+    @Test
+    public void testAcceptsGzip() {
+        Assert.assertFalse(ResponseUtils.acceptsGzip(
+                (List<String>) null), "No header");
+        checkAcceptsGzip("", false);
+        checkAcceptsGzip("identity", false);
+        checkAcceptsGzip("deflate, br", false);
+
+        checkAcceptsGzip("gzip", true);
+        checkAcceptsGzip("GZIP", true);
+        checkAcceptsGzip("x-gzip", true);
+        checkAcceptsGzip("deflate, gzip;q=1.0, br", true);
+        checkAcceptsGzip("gzip;q=0.5", true);
+        checkAcceptsGzip("gzip; Q=0.001", true);
+        checkAcceptsGzip("gzip;q=0", false);
+        checkAcceptsGzip("gzip;q=0.000", false);
+        checkAcceptsGzip("gzip;q=invalid", false);
+
+        // The wildcard applies only if gzip is not given explicitly.
+        checkAcceptsGzip("*", true);
+        checkAcceptsGzip("*;q=0", false);
+        checkAcceptsGzip("*;q=0, gzip", true);
+        checkAcceptsGzip("gzip, *;q=0", true);
+        checkAcceptsGzip("*, gzip;q=0", false);
+        checkAcceptsGzip("gzip;q=0, *", false);
+        checkAcceptsGzip("deflate, *;q=0.1", true);
+
+        // gzip and x-gzip are equivalent; either being acceptable
+        // is enough.
+        checkAcceptsGzip("gzip;q=0, x-gzip", true);
+
+        // The header may be given more than once.
+        Assert.assertTrue(ResponseUtils.acceptsGzip(Arrays.asList(
+                "*;q=0", "gzip")), "gzip in second header");
+        Assert.assertFalse(ResponseUtils.acceptsGzip(Arrays.asList(
+                "gzip;q=0", "*")), "gzip refused in first header");
+    }
+
+}
@@ -0,0 +1,144 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.db.converter;
+
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import au.org.ands.vocabs.registry.db.entity.AccessPoint;
+import au.org.ands.vocabs.registry.db.entity.Version;
+import au.org.ands.vocabs.registry.db.entity.Vocabulary;
+import au.org.ands.vocabs.registry.db.internal.ApFile;
+import au.org.ands.vocabs.registry.db.internal.VersionJson;
+import au.org.ands.vocabs.registry.db.internal.VocabularyJson;
+import au.org.ands.vocabs.registry.enums.AccessPointType;
+import au.org.ands.vocabs.registry.enums.BrowseFlag;
+
+/** Tests of the getDataAs() methods of the database entity classes,
+ * that cache the deserialization of the entities' JSON data, and of
+ * the DB-to-schema mappers that use them. */
+public class TestEntityDataCache {
+
+    /** JSON data for a vocabulary. */
+    private static final String VOCABULARY_DATA = "{\"subjects\":"
+            + "[{\"label\":\"Zoology\",\"source\":\"local\"}],"
+            + "\"top-concepts\":[\"Topic 1\"],"
+            + "\"title\":\"Test vocabulary\"}";
+
+    /** JSON data for a version. */
+    private static final String VERSION_DATA = "{\"browse-flag\":"
+            + "[\"maySortByNotation\"],\"title\":\"Test version\"}";
+
+    /** JSON data for a file access point. */
+    private static final String AP_FILE_DATA = "{\"format\":\"TTL\","
+            + "\"upload-id\":1,\"path\":\"/tmp/test.ttl\","
+            + "\"url\":\"http://test/test.ttl\"}";
+
+    /** Create a vocabulary with JSON data.
+     * @param data The JSON data of the vocabulary.
+     * @return The new vocabulary.
+     */
+    private static Vocabulary newVocabulary(final String data) {
+        Vocabulary vocabulary = new Vocabulary();
+        vocabulary.setData(data);
+        return vocabulary;
+    }
+
+    /** Test that repeated requests for the data of an entity
+     * as the same class give the same instance, and that it has
+     * the values in the data. */
+    @Test
+    public void testCacheHit() {
+        Vocabulary vocabulary = newVocabulary(VOCABULARY_DATA);
+        VocabularyJson vocabularyJson =
+                vocabulary.getDataAs(VocabularyJson.class);
+        Assert.assertEquals(vocabularyJson.getTitle(), "Test vocabulary",
+                "Wrong title");
+        Assert.assertSame(vocabulary.getDataAs(VocabularyJson.class),
+                vocabularyJson, "Data parsed again");
+    }
+
+    /** Test that setting the data of an entity invalidates the
+     * cached deserialization, even if the new data is the same
+     * as the old. */
+    @Test
+    public void testInvalidationOnSetData() {
+        Vocabulary vocabulary = newVocabulary(VOCABULARY_DATA);
+        VocabularyJson vocabularyJson =
+                vocabulary.getDataAs(VocabularyJson.class);
+        vocabulary.setData(VOCABULARY_DATA.replace("Test vocabulary",
+                "New title"));
+        VocabularyJson newVocabularyJson =
+                vocabulary.getDataAs(VocabularyJson.class);
+        Assert.assertNotSame(newVocabularyJson, vocabularyJson,
+                "Cached data not invalidated");
+        Assert.assertEquals(newVocabularyJson.getTitle(), "New title",
+                "Wrong title after setData()");
+
+        vocabulary.setData(vocabulary.getData());
+        Assert.assertNotSame(vocabulary.getDataAs(VocabularyJson.class),
+                newVocabularyJson,
+                "Cached data not invalidated by setting the same data");
+
+        vocabulary.setData(null);
+        Assert.assertNull(vocabulary.getDataAs(VocabularyJson.class),
+                "Cached data returned after data set to null");
+    }
+
+    /** Test that entities do not share their cached deserializations,
+     * even if they have the same data, and that modifying the results
+     * of the DB-to-schema mappers does not modify the cached
+     * deserializations, or the results of mapping again. */
+    @Test
+    public void testIsolation() {
+        Vocabulary vocabulary = newVocabulary(VOCABULARY_DATA);
+        VocabularyJson vocabularyJson =
+                vocabulary.getDataAs(VocabularyJson.class);
+        Assert.assertNotSame(newVocabulary(VOCABULARY_DATA).
+                getDataAs(VocabularyJson.class), vocabularyJson,
+                "Entities share cached data");
+
+        VocabularyDbSchemaMapper vocabularyMapper =
+                VocabularyDbSchemaMapper.INSTANCE;
+        au.org.ands.vocabs.registry.schema.vocabulary201701.Vocabulary
+            schemaVocabulary = vocabularyMapper.sourceToTarget(vocabulary,
+                    false);
+        schemaVocabulary.setTitle("Changed");
+        schemaVocabulary.getTopConcept().add("Topic 2");
+        schemaVocabulary.getSubject().get(0).setLabel("Changed");
+        Assert.assertSame(vocabulary.getDataAs(VocabularyJson.class),
+                vocabularyJson, "Data parsed again");
+        Assert.assertEquals(vocabularyJson.getTitle(), "Test vocabulary",
+                "Cached title modified");
+        Assert.assertEquals(vocabularyJson.getTopConcepts(),
+                Arrays.asList("Topic 1"), "Cached top concepts modified");
+        Assert.assertEquals(vocabularyJson.getSubjects().get(0).getLabel(),
+                "Zoology", "Cached subject modified");
+        schemaVocabulary = vocabularyMapper.sourceToTarget(vocabulary, false);
+        Assert.assertEquals(schemaVocabulary.getTopConcept(),
+                Arrays.asList("Topic 1"), "Mapped top concepts modified");
+        Assert.assertEquals(schemaVocabulary.getSubject().get(0).getLabel(),
+                "Zoology", "Mapped subject modified");
+
+        Version version = new Version();
+        version.setData(VERSION_DATA);
+        VersionJson versionJson = version.getDataAs(VersionJson.class);
+        VersionDbSchemaMapper.INSTANCE.sourceToTarget(version).
+            getBrowseFlag().clear();
+        Assert.assertEquals(versionJson.getBrowseFlag(),
+                Arrays.asList(BrowseFlag.MAY_SORT_BY_NOTATION),
+                "Cached browse flags modified");
+
+        AccessPoint accessPoint = new AccessPoint();
+        accessPoint.setType(AccessPointType.FILE);
+        accessPoint.setData(AP_FILE_DATA);
+        ApFile apFile = accessPoint.getDataAs(ApFile.class);
+        AccessPointDbSchemaMapper.INSTANCE.sourceToTarget(accessPoint).
+            getApFile().setFormat("XML");
+        Assert.assertEquals(apFile.getFormat(), "TTL",
+                "Cached access point format modified");
+    }
+
+}
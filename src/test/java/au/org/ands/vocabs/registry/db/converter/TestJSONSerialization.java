@@ -0,0 +1,204 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.db.converter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import au.org.ands.vocabs.registry.db.internal.VocabularyJson;
+
+/** Tests of the serialization methods of {@link JSONSerialization}.
+ * In particular, these check that maps are serialized with their
+ * entries sorted by key, whatever kind of map they are, and wherever
+ * they are nested, and that serializing into a file gives the same
+ * result as serializing into a String. */
+public class TestJSONSerialization {
+
+    /** Prefix of the concept IRIs used in the test data. */
+    private static final String IRI_PREFIX = "http://example.com/voc/c";
+
+    /** The expected serialization of the concept map created by
+     * {@link #createConceptMap(Supplier)}. */
+    private static final String CONCEPTS_LIST =
+            "{\"http://example.com/voc/c1\":"
+            + "{\"narrower\":[\"http://example.com/voc/c3\","
+            + "\"http://example.com/voc/c2\"],"
+            + "\"notation\":\"1\",\"prefLabel\":\"Alpha\"},"
+            + "\"http://example.com/voc/c2\":"
+            + "{\"broader\":[\"http://example.com/voc/c1\"],"
+            + "\"notation\":\"1.1\",\"prefLabel\":\"Beta\"},"
+            + "\"http://example.com/voc/c3\":"
+            + "{\"broader\":[\"http://example.com/voc/c1\"],"
+            + "\"prefLabel\":\"Gamma\"}}";
+
+    /** Create a small concept map of the form generated by
+     * the JsonListTransformProvider. The concepts are deliberately
+     * inserted out of order.
+     * @param mapSupplier Supplier of the maps to be used at both
+     *      levels of the result.
+     * @return The concept map.
+     */
+    private Map<String, Map<String, Object>> createConceptMap(
+            final Supplier<Map<String, ?>> mapSupplier) {
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> conceptMap =
+                (Map<String, Map<String, Object>>) mapSupplier.get();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> concept = (Map<String, Object>) mapSupplier.get();
+        concept.put("prefLabel", "Gamma");
+        concept.put("broader", Arrays.asList(IRI_PREFIX + "1"));
+        conceptMap.put(IRI_PREFIX + "3", concept);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> concept1 = (Map<String, Object>) mapSupplier.get();
+        concept1.put("notation", "1");
+        concept1.put("prefLabel", "Alpha");
+        concept1.put("narrower",
+                Arrays.asList(IRI_PREFIX + "3", IRI_PREFIX + "2"));
+        conceptMap.put(IRI_PREFIX + "1", concept1);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> concept2 = (Map<String, Object>) mapSupplier.get();
+        concept2.put("prefLabel", "Beta");
+        concept2.put("notation", "1.1");
+        concept2.put("broader", Arrays.asList(IRI_PREFIX + "1"));
+        conceptMap.put(IRI_PREFIX + "2", concept2);
+        return conceptMap;
+    }
+
+    /** Test that serialization of a concept map gives the expected
+     * result, whether it is built using HashMaps, TreeMaps,
+     * or a mixture of the two, and whether it is serialized
+     * into a String or a file.
+     * @throws IOException If there is a problem writing or reading
+     *      the temporary output file.
+     */
+    @Test
+    public final void testSerializeConceptMap() throws IOException {
+        Map<String, Map<String, Object>> hashConceptMap =
+                createConceptMap(HashMap::new);
+        Map<String, Map<String, Object>> treeConceptMap =
+                createConceptMap(TreeMap::new);
+        // A TreeMap of HashMaps: the nested maps must still be sorted.
+        Map<String, Map<String, Object>> mixedConceptMap =
+                new TreeMap<>(hashConceptMap);
+
+        Assert.assertEquals(
+                JSONSerialization.serializeObjectAsJsonString(hashConceptMap),
+                CONCEPTS_LIST, "Serialization of HashMaps differs");
+        Assert.assertEquals(
+                JSONSerialization.serializeObjectAsJsonString(treeConceptMap),
+                CONCEPTS_LIST, "Serialization of TreeMaps differs");
+        Assert.assertEquals(
+                JSONSerialization.serializeObjectAsJsonString(
+                        mixedConceptMap),
+                CONCEPTS_LIST, "Serialization of nested HashMaps differs");
+
+        Path outPath = Files.createTempFile("concepts_list", ".json");
+        try {
+            JSONSerialization.serializeObjectAsJsonFile(
+                    mixedConceptMap, outPath.toFile());
+            Assert.assertEquals(new String(Files.readAllBytes(outPath),
+                    StandardCharsets.UTF_8), CONCEPTS_LIST,
+                    "Serialization to a file differs");
+        } finally {
+            Files.deleteIfExists(outPath);
+        }
+    }
+
+    /** Test that writing a list of resources of the form generated by
+     * the ResourceDocsTransformProvider incrementally, using a
+     * JsonGenerator, gives the same result as serializing the list
+     * into a String, whether the resources are HashMaps or TreeMaps.
+     * @throws IOException If there is a problem writing or reading
+     *      the temporary output file.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public final void testJsonGenerator() throws IOException {
+        List<HashMap<String, Object>> hashResources = new ArrayList<>();
+        List<TreeMap<String, Object>> treeResources = new ArrayList<>();
+        // Iterate backwards, so that the insertion order doesn't
+        // happen to match the sorted order.
+        for (int i = 500; i > 0; i--) {
+            String iri = IRI_PREFIX + i;
+            HashMap<String, Object> hashResource = new HashMap<>();
+            hashResource.put("id", "1_" + iri);
+            hashResource.put("iri", iri);
+            hashResource.put("title", "Concept " + i);
+            hashResource.put("skos_prefLabel-en", "Concept " + i);
+            hashResource.put("rdf_type",
+                    "http://www.w3.org/2004/02/skos/core#Concept");
+            hashResources.add(hashResource);
+            treeResources.add(new TreeMap<>(hashResource));
+        }
+        String expected =
+                JSONSerialization.serializeObjectAsJsonString(treeResources);
+        Assert.assertEquals(
+                JSONSerialization.serializeObjectAsJsonString(hashResources),
+                expected, "Serializations of resources differ");
+
+        Path outPath = Files.createTempFile("resource_docs", ".json");
+        try {
+            try (JsonGenerator generator =
+                    JSONSerialization.createJsonGenerator(outPath.toFile())) {
+                generator.writeStartArray();
+                for (HashMap<String, Object> resource : hashResources) {
+                    generator.writeObject(resource);
+                }
+                generator.writeEndArray();
+            }
+            Assert.assertEquals(new String(Files.readAllBytes(outPath),
+                    StandardCharsets.UTF_8), expected,
+                    "Incremental serialization to a file differs");
+        } finally {
+            Files.deleteIfExists(outPath);
+        }
+    }
+
+    /** Test that the serialization of a {@link VocabularyJson} instance
+     * survives a round trip through deserialization. */
+    @Test
+    public final void testVocabularyJsonRoundTrip() {
+        String input = "{\"subjects\":"
+                + "[{\"label\":\"Zoology\",\"source\":\"local\"},"
+                + "{\"label\":\"Botany\",\"notation\":\"06\","
+                + "\"source\":\"anzsrc-for\"}],"
+                + "\"other-languages\":[\"fr\",\"de\"],"
+                + "\"top-concepts\":[\"Topic 2\",\"Topic 1\"],"
+                + "\"acronym\":\"TV\",\"description\":\"A description\","
+                + "\"licence\":\"CC-BY\",\"primary-language\":\"en\","
+                + "\"title\":\"Test vocabulary\"}";
+        VocabularyJson vocabularyJson =
+                JSONSerialization.deserializeStringAsJson(input,
+                        VocabularyJson.class);
+        Assert.assertNotNull(vocabularyJson,
+                "Unable to deserialize VocabularyJson");
+        String serialized =
+                JSONSerialization.serializeObjectAsJsonString(vocabularyJson);
+        VocabularyJson roundTrip =
+                JSONSerialization.deserializeStringAsJson(serialized,
+                        VocabularyJson.class);
+        Assert.assertEquals(
+                JSONSerialization.serializeObjectAsJsonString(roundTrip),
+                serialized, "VocabularyJson round trip differs");
+        Assert.assertEquals(roundTrip.getTitle(), "Test vocabulary",
+                "Title not preserved");
+        Assert.assertEquals(roundTrip.getTopConcepts(),
+                Arrays.asList("Topic 2", "Topic 1"),
+                "Top concepts not preserved");
+    }
+
+}
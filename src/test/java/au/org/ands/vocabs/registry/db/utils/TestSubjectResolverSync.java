@@ -0,0 +1,156 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.db.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.openrdf.repository.sparql.SPARQLRepository;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import au.org.ands.vocabs.registry.db.utils.SubjectResolverSync.Changes;
+import au.org.ands.vocabs.registry.db.utils.SubjectResolverSync.SubjectRow;
+
+/** Tests of the SubjectResolverSync class. */
+public class TestSubjectResolverSync {
+
+    /** Pattern to extract the LIMIT and OFFSET of a query. */
+    private static final Pattern LIMIT_OFFSET =
+            Pattern.compile("LIMIT (\\d+) OFFSET (\\d+)");
+
+    /** The prefix of the parameter that contains the SPARQL query. */
+    private static final String QUERY_PARAMETER = "query=";
+
+    /** Get the SPARQL query sent in a request, either as a query
+     * parameter or as a form parameter.
+     * @param exchange The HTTP exchange.
+     * @return The SPARQL query.
+     * @throws IOException If there is an error reading the request.
+     */
+    private static String getQuery(final HttpExchange exchange)
+            throws IOException {
+        String parameters = exchange.getRequestURI().getRawQuery();
+        if ("POST".equals(exchange.getRequestMethod())) {
+            parameters = IOUtils.toString(exchange.getRequestBody(),
+                    StandardCharsets.UTF_8);
+        }
+        for (String parameter : parameters.split("&")) {
+            if (parameter.startsWith(QUERY_PARAMETER)) {
+                return URLDecoder.decode(parameter.substring(
+                        QUERY_PARAMETER.length()),
+                        StandardCharsets.UTF_8.name());
+            }
+        }
+        return "";
+    }
+
+    /** Test that subjects are fetched a page at a time from
+     * a SPARQL endpoint, including the last, partial, page.
+     * @throws Exception If there is an error running the test.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testFetchSubjectsPaged() throws Exception {
+        final int subjectCount = 25;
+        AtomicInteger queries = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "localhost", 0), 0);
+        server.createContext("/sparql", exchange -> {
+            queries.incrementAndGet();
+            Matcher matcher = LIMIT_OFFSET.matcher(getQuery(exchange));
+            Assert.assertTrue(matcher.find(), "Query not paged");
+            int limit = Integer.parseInt(matcher.group(1));
+            int offset = Integer.parseInt(matcher.group(2));
+            StringBuilder json = new StringBuilder(
+                    "{\"head\":{\"vars\":[\"iri\",\"label\",\"notation\"]},"
+                    + "\"results\":{\"bindings\":[");
+            for (int i = offset; i < Math.min(offset + limit, subjectCount);
+                    i++) {
+                if (i > offset) {
+                    json.append(',');
+                }
+                json.append("{\"iri\":{\"type\":\"uri\",\"value\":"
+                        + "\"http://example.com/" + i + "\"},"
+                        + "\"label\":{\"type\":\"literal\",\"value\":"
+                        + "\"Label " + i + "\"}");
+                // Only even-numbered subjects have notations.
+                if (i % 2 == 0) {
+                    json.append(",\"notation\":{\"type\":\"literal\","
+                            + "\"value\":\"" + i + "\"}");
+                }
+                json.append('}');
+            }
+            json.append("]}}");
+            byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                    "application/sparql-results+json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        server.start();
+        SPARQLRepository repository = new SPARQLRepository(
+                "http://localhost:" + server.getAddress().getPort()
+                + "/sparql");
+        try {
+            repository.initialize();
+            Set<SubjectRow> subjects =
+                    SubjectResolverSync.fetchSubjects(repository, 10);
+            Assert.assertEquals(subjects.size(), subjectCount,
+                    "Wrong number of subjects");
+            Assert.assertEquals(queries.get(), 3, "Wrong number of pages");
+            Assert.assertTrue(subjects.contains(new SubjectRow(
+                    "http://example.com/24", "Label 24", "24")),
+                    "Subject from last page missing");
+            Assert.assertTrue(subjects.contains(new SubjectRow(
+                    "http://example.com/3", "Label 3", "")),
+                    "Missing notation not converted to empty string");
+        } finally {
+            repository.shutDown();
+            server.stop(0);
+        }
+    }
+
+    /** Test that the changes needed to bring existing rows up to date
+     * are computed correctly: unchanged rows are kept, changed and
+     * removed rows and duplicates are deleted, and new and changed
+     * rows are added.
+     */
+    @Test
+    public void testDiff() {
+        SubjectRow unchanged = new SubjectRow("a", "A", "1");
+        SubjectRow oldLabel = new SubjectRow("b", "B", "2");
+        SubjectRow newLabel = new SubjectRow("b", "Bee", "2");
+        SubjectRow removed = new SubjectRow("c", "C", "");
+        SubjectRow added = new SubjectRow("d", "D", "");
+        List<SubjectRow> existing = new ArrayList<>(Arrays.asList(
+                unchanged, oldLabel, removed, unchanged));
+        Set<SubjectRow> fetched = new LinkedHashSet<>(Arrays.asList(
+                unchanged, newLabel, added));
+        Changes<SubjectRow> changes = SubjectResolverSync.diff(
+                existing, row -> row, fetched);
+        Assert.assertEquals(changes.getToAdd(),
+                Arrays.asList(newLabel, added), "Wrong rows added");
+        Assert.assertEquals(changes.getToDelete(),
+                Arrays.asList(oldLabel, removed, unchanged),
+                "Wrong rows deleted");
+    }
+
+}
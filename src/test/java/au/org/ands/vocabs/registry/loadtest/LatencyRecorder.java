@@ -0,0 +1,117 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.loadtest;
+
+import java.util.Arrays;
+
+/** Recorder of the latencies of requests of one type.
+ * Instances are not thread-safe: each client thread uses its own
+ * instances, which are then combined using {@link #merge(LatencyRecorder)}
+ * once the threads have finished. Latencies are recorded exactly
+ * (i.e., not bucketed), so percentiles are computed using the
+ * nearest-rank method over all of the recorded values. */
+public final class LatencyRecorder {
+
+    /** The initial capacity of the array of latencies. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** The recorded latencies of successful requests, in nanoseconds.
+     * Only the first {@link #count} elements are used. */
+    private long[] latencies = new long[INITIAL_CAPACITY];
+
+    /** The number of successful requests recorded. */
+    private int count;
+
+    /** The number of failed requests recorded. */
+    private int errorCount;
+
+    /** Whether {@link #latencies} is known to be sorted. */
+    private boolean sorted = true;
+
+    /** Record the latency of a successful request.
+     * @param nanos The latency of the request, in nanoseconds.
+     */
+    public void record(final long nanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count] = nanos;
+        count++;
+        sorted = false;
+    }
+
+    /** Record a failed request. */
+    public void recordError() {
+        errorCount++;
+    }
+
+    /** Add all of the values recorded by another recorder to this one.
+     * @param other The recorder, the values of which are to be added.
+     */
+    public void merge(final LatencyRecorder other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, count + other.count);
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        errorCount += other.errorCount;
+        sorted = false;
+    }
+
+    /** Get the number of successful requests recorded.
+     * @return The number of successful requests recorded.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /** Get the number of failed requests recorded.
+     * @return The number of failed requests recorded.
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /** Get a percentile of the recorded latencies.
+     * @param percentile The percentile required, in the range (0, 100].
+     * @return The latency at the requested percentile, in nanoseconds,
+     *      or 0, if no latencies have been recorded.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public long getPercentile(final double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(latencies, 0, count);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return latencies[Math.min(Math.max(rank, 1), count) - 1];
+    }
+
+    /** Get the mean of the recorded latencies.
+     * @return The mean latency, in nanoseconds, or 0, if no latencies
+     *      have been recorded.
+     */
+    public long getMean() {
+        if (count == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += latencies[i];
+        }
+        return total / count;
+    }
+
+    /** Get the maximum of the recorded latencies.
+     * @return The maximum latency, in nanoseconds, or 0, if no latencies
+     *      have been recorded.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public long getMax() {
+        return getPercentile(100);
+    }
+
+}
@@ -0,0 +1,455 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
+import au.org.ands.vocabs.toolkit.test.arquillian.ArquillianTestUtils;
+import au.org.ands.vocabs.toolkit.test.utils.DatabaseSelector;
+
+/** Generator of the registry database contents and data files used
+ * by the load test. The generated data is completely determined by
+ * the numbers of vocabularies, versions, and resources, so that the
+ * client side of the test can compute the IDs and IRIs to request
+ * without having to query the registry.
+ *
+ * Each vocabulary has one publisher, and a number of versions, the
+ * last of which is current; the others are superseded. Each version
+ * has a file access point (with a Turtle file that can be downloaded),
+ * a SISSVoc access point, and a resource docs version artefact.
+ * The resource map is populated with the resources of the
+ * current version of each vocabulary.
+ *
+ * The database contents are generated in DbUnit's flat XML format,
+ * following the conventions of the test data files, so that they
+ * can be loaded using
+ * {@link ArquillianTestUtils#loadDbUnitTestData(DatabaseSelector,
+ * InputStream)}.
+ */
+public final class LoadTestFixtures {
+
+    /** The owner of all of the generated vocabularies. */
+    public static final String OWNER = "LOADTEST";
+
+    /** The host used in the IRIs of the generated resources. */
+    public static final String RESOURCE_HOST = "loadtest.example.org";
+
+    /** The number of related entities that are publishers. */
+    private static final int PUBLISHERS = 10;
+
+    /** Terms used in vocabulary titles and resource labels, so that
+     * searches for them give non-trivial numbers of results. */
+    private static final String[] TERMS = {
+        "soil", "water", "geology", "climate", "marine", "ecology",
+        "astronomy", "chemistry", "health", "agriculture", "energy",
+        "mineral",
+    };
+
+    /** The names of the database tables into which data is loaded,
+     * in the order in which they are to be loaded. The rows of each
+     * table are written contiguously. */
+    private static final String[] TABLES = {
+        "RELATED_ENTITY_IDS", "RELATED_ENTITIES", "RESOURCE_OWNER_HOSTS",
+        "VOCABULARY_IDS", "VOCABULARIES", "VOCABULARY_RELATED_ENTITIES",
+        "VERSION_IDS", "VERSIONS", "ACCESS_POINT_IDS", "ACCESS_POINTS",
+        "VERSION_ARTEFACT_IDS", "VERSION_ARTEFACTS", "RESOURCE_MAP",
+    };
+
+    /** Start date used for all database rows. */
+    private static final String START_DATE = "2018-01-01 00:00:00.0";
+
+    /** End date used for all currently-valid database rows. */
+    private static final String END_DATE = "9999-12-01 00:00:00.0";
+
+    /** The number of vocabularies. */
+    private final int vocabularies;
+
+    /** The number of versions of each vocabulary. */
+    private final int versionsPerVocabulary;
+
+    /** The number of resources of each version. */
+    private final int resourcesPerVersion;
+
+    /** Constructor.
+     * @param aVocabularies The number of vocabularies.
+     * @param aVersionsPerVocabulary The number of versions of
+     *      each vocabulary.
+     * @param aResourcesPerVersion The number of resources of each version.
+     */
+    public LoadTestFixtures(final int aVocabularies,
+            final int aVersionsPerVocabulary,
+            final int aResourcesPerVersion) {
+        vocabularies = aVocabularies;
+        versionsPerVocabulary = aVersionsPerVocabulary;
+        resourcesPerVersion = aResourcesPerVersion;
+    }
+
+    /** Constructor that uses the sizes specified by
+     * {@link LoadTestParameters}. */
+    public LoadTestFixtures() {
+        this(LoadTestParameters.getVocabularies(),
+                LoadTestParameters.getVersionsPerVocabulary(),
+                LoadTestParameters.getResourcesPerVersion());
+    }
+
+    /** Get the number of vocabularies.
+     * @return The number of vocabularies.
+     */
+    public int getVocabularies() {
+        return vocabularies;
+    }
+
+    /** Get the number of resources of each version.
+     * @return The number of resources of each version.
+     */
+    public int getResourcesPerVersion() {
+        return resourcesPerVersion;
+    }
+
+    /** Get the total number of versions.
+     * @return The total number of versions.
+     */
+    public int getVersions() {
+        return vocabularies * versionsPerVocabulary;
+    }
+
+    /** Get the search term associated with a number.
+     * @param i A non-negative number.
+     * @return The search term.
+     */
+    public static String getTerm(final int i) {
+        return TERMS[i % TERMS.length];
+    }
+
+    /** Get the version ID of a version of a vocabulary.
+     * @param vocabularyId The vocabulary ID, in the range
+     *      1 to {@link #getVocabularies()}.
+     * @param versionIndex The index of the version within the
+     *      vocabulary, starting at 0.
+     * @return The version ID.
+     */
+    public int getVersionId(final int vocabularyId, final int versionIndex) {
+        return (vocabularyId - 1) * versionsPerVocabulary + versionIndex + 1;
+    }
+
+    /** Get the access point ID of the file access point of a version.
+     * This is the ID to use for a download.
+     * @param versionId The version ID.
+     * @return The access point ID of the version's file access point.
+     */
+    public static int getFileAccessPointId(final int versionId) {
+        return 2 * versionId - 1;
+    }
+
+    /** Get the access point ID of the SISSVoc access point of a version.
+     * @param versionId The version ID.
+     * @return The access point ID of the version's SISSVoc access point.
+     */
+    public static int getSissvocAccessPointId(final int versionId) {
+        return 2 * versionId;
+    }
+
+    /** Get the IRI of a resource of a vocabulary.
+     * @param vocabularyId The vocabulary ID.
+     * @param resourceIndex The index of the resource, starting at 0.
+     * @return The IRI of the resource.
+     */
+    public static String getResourceIri(final int vocabularyId,
+            final int resourceIndex) {
+        return "http://" + RESOURCE_HOST + "/def/vocab" + vocabularyId
+                + "/c" + resourceIndex;
+    }
+
+    /** Get the label of a resource of a vocabulary.
+     * @param vocabularyId The vocabulary ID.
+     * @param resourceIndex The index of the resource, starting at 0.
+     * @return The label of the resource.
+     */
+    private static String getResourceLabel(final int vocabularyId,
+            final int resourceIndex) {
+        return "Concept " + resourceIndex + " " + getTerm(resourceIndex)
+                + " of vocabulary " + vocabularyId;
+    }
+
+    /** Serialize an object as JSON, in the form used as the value of
+     * a DATA attribute in the test data files, i.e., with
+     * each double quote replaced by two apostrophes.
+     * @param data The object to be serialized.
+     * @return The serialized object.
+     */
+    private static String dataAttribute(final Object data) {
+        return JSONSerialization.serializeObjectAsJsonString(data).
+                replace("\"", "''");
+    }
+
+    /** Generate the data files, and write the database contents
+     * in DbUnit's flat XML format.
+     * @param dataDirectory The directory into which the data files
+     *      (i.e., the files of the file access points and resource docs
+     *      version artefacts) are written. It must already exist.
+     * @param writer The Writer to which the database contents are written.
+     * @throws IOException If there is an error writing a data file, or
+     *      writing to {@code writer}.
+     */
+    public void generate(final Path dataDirectory, final Writer writer)
+            throws IOException {
+        Map<String, StringBuilder> rows = new LinkedHashMap<>();
+        for (String table : TABLES) {
+            rows.put(table, new StringBuilder());
+        }
+
+        for (int i = 1; i <= PUBLISHERS; i++) {
+            addRow(rows, "RELATED_ENTITY_IDS", "ID=\"" + i + "\"");
+        }
+        for (int i = 1; i <= PUBLISHERS; i++) {
+            Map<String, Object> data = new TreeMap<>();
+            data.put("email", "publisher" + i + "@" + RESOURCE_HOST);
+            addRow(rows, "RELATED_ENTITIES", "ID=\"" + i
+                    + "\" RELATED_ENTITY_ID=\"" + i
+                    + "\" START_DATE=\"" + START_DATE
+                    + "\" END_DATE=\"" + END_DATE
+                    + "\" MODIFIED_BY=\"SYSTEM\" OWNER=\"" + OWNER
+                    + "\" TYPE=\"PARTY\" TITLE=\"Publisher " + i
+                    + "\" DATA=\"" + dataAttribute(data) + "\"");
+        }
+
+        addRow(rows, "RESOURCE_OWNER_HOSTS",
+                "ID=\"1\" START_DATE=\""
+                + START_DATE + "\" END_DATE=\"" + END_DATE
+                + "\" OWNER=\"" + OWNER + "\" HOST=\"" + RESOURCE_HOST
+                + "\"");
+
+        int resourceMapId = 1;
+        for (int vocabularyId = 1; vocabularyId <= vocabularies;
+                vocabularyId++) {
+            writeVocabulary(rows, vocabularyId);
+            for (int versionIndex = 0; versionIndex < versionsPerVocabulary;
+                    versionIndex++) {
+                int versionId = getVersionId(vocabularyId, versionIndex);
+                boolean isCurrent =
+                        versionIndex == versionsPerVocabulary - 1;
+                writeVersion(rows, dataDirectory, vocabularyId,
+                        versionId, versionIndex, isCurrent);
+                if (isCurrent) {
+                    int sissvocId = getSissvocAccessPointId(versionId);
+                    for (int r = 0; r < resourcesPerVersion; r++) {
+                        addRow(rows, "RESOURCE_MAP", "ID=\"" + resourceMapId
+                                + "\" ACCESS_POINT_ID=\"" + sissvocId
+                                + "\" IRI=\""
+                                + getResourceIri(vocabularyId, r)
+                                + "\" OWNED=\"true\" DEPRECATED=\"false\" "
+                                + "RESOURCE_TYPE=\"http://www.w3.org/2004/"
+                                + "02/skos/core#Concept\"");
+                        resourceMapId++;
+                    }
+                }
+            }
+        }
+        writer.write("<?xml version='1.0' encoding='UTF-8'?>\n<dataset>\n");
+        for (StringBuilder tableRows : rows.values()) {
+            writer.append(tableRows);
+        }
+        writer.write("</dataset>\n");
+    }
+
+    /** Add a row to the rows of a table.
+     * @param rows The rows of each table.
+     * @param table The name of the table.
+     * @param attributes The attributes of the row, in DbUnit's
+     *      flat XML format.
+     */
+    private static void addRow(final Map<String, StringBuilder> rows,
+            final String table, final String attributes) {
+        rows.get(table).append("  <").append(table).append(' ').
+            append(attributes).append("/>\n");
+    }
+
+    /** Add the database rows for one vocabulary, and its
+     * related entity.
+     * @param rows The rows of each table, to which the new rows are added.
+     * @param vocabularyId The vocabulary ID.
+     */
+    private void writeVocabulary(final Map<String, StringBuilder> rows,
+            final int vocabularyId) {
+        String term = getTerm(vocabularyId);
+        Map<String, Object> subject = new TreeMap<>();
+        subject.put("label", term.toUpperCase());
+        subject.put("source", "anzsrc-for");
+        List<Object> subjects = new ArrayList<>();
+        subjects.add(subject);
+        Map<String, Object> data = new TreeMap<>();
+        data.put("title", "Load test vocabulary " + vocabularyId
+                + " about " + term);
+        data.put("acronym", "LT" + vocabularyId);
+        data.put("description", "A generated vocabulary about " + term
+                + ", used for load testing.");
+        data.put("licence", "CC-BY");
+        data.put("primary-language", "en");
+        data.put("other-languages", new ArrayList<>());
+        data.put("subjects", subjects);
+        data.put("creation-date", "2018-01-01");
+        data.put("revision-cycle", "Never");
+        addRow(rows, "VOCABULARY_IDS",
+                "ID=\"" + vocabularyId + "\"");
+        addRow(rows, "VOCABULARIES",
+                "ID=\"" + vocabularyId
+                + "\" VOCABULARY_ID=\"" + vocabularyId
+                + "\" START_DATE=\"" + START_DATE
+                + "\" END_DATE=\"" + END_DATE
+                + "\" MODIFIED_BY=\"SYSTEM\" STATUS=\"PUBLISHED\" SLUG=\""
+                + "load-test-vocabulary-" + vocabularyId
+                + "\" OWNER=\"" + OWNER
+                + "\" DATA=\"" + dataAttribute(data) + "\"");
+        addRow(rows, "VOCABULARY_RELATED_ENTITIES",
+                "ID=\"" + vocabularyId
+                + "\" VOCABULARY_ID=\"" + vocabularyId
+                + "\" RELATED_ENTITY_ID=\""
+                + (vocabularyId % PUBLISHERS + 1)
+                + "\" START_DATE=\"" + START_DATE
+                + "\" END_DATE=\"" + END_DATE
+                + "\" MODIFIED_BY=\"SYSTEM\" RELATION=\"PUBLISHED_BY\"");
+    }
+
+    /** Add the database rows, and write the data files, for one version.
+     * @param rows The rows of each table, to which the new rows are added.
+     * @param dataDirectory The directory into which the data files
+     *      are written.
+     * @param vocabularyId The vocabulary ID.
+     * @param versionId The version ID.
+     * @param versionIndex The index of the version within the
+     *      vocabulary, starting at 0.
+     * @param isCurrent Whether this is the current version of
+     *      the vocabulary.
+     * @throws IOException If there is an error writing a data file.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private void writeVersion(final Map<String, StringBuilder> rows,
+            final Path dataDirectory,
+            final int vocabularyId, final int versionId,
+            final int versionIndex, final boolean isCurrent)
+                    throws IOException {
+        String status = "SUPERSEDED";
+        if (isCurrent) {
+            status = "CURRENT";
+        }
+        String baseName = "vocab" + vocabularyId + "-v" + versionId;
+        Path turtlePath = dataDirectory.resolve(baseName + ".ttl");
+        Path resourceDocsPath =
+                dataDirectory.resolve(baseName + "-resource_docs.json");
+        writeDataFiles(turtlePath, resourceDocsPath, vocabularyId,
+                versionId);
+
+        Map<String, Object> versionData = new TreeMap<>();
+        versionData.put("title", "Version " + (versionIndex + 1));
+        addRow(rows, "VERSION_IDS",
+                "ID=\"" + versionId + "\"");
+        addRow(rows, "VERSIONS",
+                "ID=\"" + versionId
+                + "\" VERSION_ID=\"" + versionId
+                + "\" VOCABULARY_ID=\"" + vocabularyId
+                + "\" START_DATE=\"" + START_DATE
+                + "\" END_DATE=\"" + END_DATE
+                + "\" MODIFIED_BY=\"SYSTEM\" STATUS=\"" + status
+                + "\" SLUG=\"v" + (versionIndex + 1)
+                + "\" RELEASE_DATE=\"" + (2000 + versionIndex)
+                + "-01-01\" DATA=\"" + dataAttribute(versionData)
+                + "\"");
+
+        int fileId = getFileAccessPointId(versionId);
+        Map<String, Object> fileData = new TreeMap<>();
+        fileData.put("format", "Turtle");
+        fileData.put("path", turtlePath.toString());
+        fileData.put("url", "http://" + RESOURCE_HOST + "/download/"
+                + fileId + "/" + baseName + ".ttl");
+        addRow(rows, "ACCESS_POINT_IDS",
+                "ID=\"" + fileId + "\"");
+        addRow(rows, "ACCESS_POINTS",
+                "ID=\"" + fileId
+                + "\" ACCESS_POINT_ID=\"" + fileId
+                + "\" VERSION_ID=\"" + versionId
+                + "\" START_DATE=\"" + START_DATE
+                + "\" END_DATE=\"" + END_DATE
+                + "\" MODIFIED_BY=\"SYSTEM\" SOURCE=\"USER\" TYPE=\"FILE\" "
+                + "DATA=\"" + dataAttribute(fileData) + "\"");
+
+        int sissvocId = getSissvocAccessPointId(versionId);
+        Map<String, Object> sissvocData = new TreeMap<>();
+        sissvocData.put("url-prefix", "http://" + RESOURCE_HOST
+                + "/repository/api/lda/" + OWNER.toLowerCase()
+                + "/vocab" + vocabularyId + "/v" + (versionIndex + 1));
+        addRow(rows, "ACCESS_POINT_IDS",
+                "ID=\"" + sissvocId + "\"");
+        addRow(rows, "ACCESS_POINTS",
+                "ID=\"" + sissvocId
+                + "\" ACCESS_POINT_ID=\"" + sissvocId
+                + "\" VERSION_ID=\"" + versionId
+                + "\" START_DATE=\"" + START_DATE
+                + "\" END_DATE=\"" + END_DATE
+                + "\" MODIFIED_BY=\"SYSTEM\" SOURCE=\"SYSTEM\" "
+                + "TYPE=\"SISSVOC\" "
+                + "DATA=\"" + dataAttribute(sissvocData) + "\"");
+
+        Map<String, Object> artefactData = new TreeMap<>();
+        artefactData.put("path", resourceDocsPath.toString());
+        addRow(rows, "VERSION_ARTEFACT_IDS", "ID=\"" + versionId + "\"");
+        addRow(rows, "VERSION_ARTEFACTS",
+                "ID=\"" + versionId
+                + "\" VERSION_ARTEFACT_ID=\"" + versionId
+                + "\" VERSION_ID=\"" + versionId
+                + "\" START_DATE=\"" + START_DATE
+                + "\" END_DATE=\"" + END_DATE
+                + "\" MODIFIED_BY=\"SYSTEM\" STATUS=\"CURRENT\" "
+                + "TYPE=\"RESOURCE_DOCS\" "
+                + "DATA=\"" + dataAttribute(artefactData) + "\"");
+    }
+
+    /** Write the Turtle file and the resource docs file for one version.
+     * The resource docs file has the same form as that generated by
+     * the ResourceDocs transform provider.
+     * @param turtlePath The path of the Turtle file.
+     * @param resourceDocsPath The path of the resource docs file.
+     * @param vocabularyId The vocabulary ID.
+     * @param versionId The version ID.
+     * @throws IOException If there is an error writing either file.
+     */
+    private void writeDataFiles(final Path turtlePath,
+            final Path resourceDocsPath, final int vocabularyId,
+            final int versionId) throws IOException {
+        List<Object> resourceDocs = new ArrayList<>();
+        try (Writer turtleWriter = Files.newBufferedWriter(turtlePath,
+                StandardCharsets.UTF_8)) {
+            turtleWriter.write("@prefix skos: "
+                    + "<http://www.w3.org/2004/02/skos/core#> .\n\n");
+            for (int r = 0; r < resourcesPerVersion; r++) {
+                String iri = getResourceIri(vocabularyId, r);
+                String label = getResourceLabel(vocabularyId, r);
+                turtleWriter.write("<" + iri + "> a skos:Concept ;\n"
+                        + "  skos:prefLabel \"" + label + "\"@en .\n");
+                Map<String, Object> resourceDoc = new TreeMap<>();
+                resourceDoc.put("id", versionId + "_" + iri);
+                resourceDoc.put("iri", iri);
+                resourceDoc.put("rdf_type",
+                        "http://www.w3.org/2004/02/skos/core#Concept");
+                resourceDoc.put("skos_prefLabel", label);
+                resourceDoc.put("title", label);
+                resourceDoc.put("vocabulary_id_iri",
+                        vocabularyId + "_" + iri);
+                resourceDocs.add(resourceDoc);
+            }
+        }
+        JSONSerialization.serializeObjectAsJsonFile(resourceDocs,
+                resourceDocsPath.toFile());
+    }
+
+}
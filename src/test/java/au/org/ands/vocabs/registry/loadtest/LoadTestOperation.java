@@ -0,0 +1,26 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.loadtest;
+
+/** The API operations exercised by the load test. The client threads
+ * cycle through the operations in turn, so each operation
+ * receives (approximately) the same number of requests. */
+public enum LoadTestOperation {
+
+    /** Get a vocabulary by its ID, as done by the Portal's
+     * vocabulary view page. */
+    GET_VOCABULARY_BY_ID,
+
+    /** Search the registry collection. */
+    SEARCH,
+
+    /** Search the resources collection. */
+    SEARCH_RESOURCES,
+
+    /** Look up a resource IRI. */
+    LOOKUP_IRI,
+
+    /** Download the file of a file access point. */
+    DOWNLOAD
+
+}
@@ -0,0 +1,154 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.loadtest;
+
+/** Parameters of a load test run. Each parameter is read from
+ * a system property, with a default value if the property is not set.
+ * The Ant {@code loadtest} target passes in the system properties. */
+public final class LoadTestParameters {
+
+    /** Private constructor for a utility class. */
+    private LoadTestParameters() {
+    }
+
+    /** Name of the system property that specifies the number of
+     * vocabularies to be generated. */
+    public static final String VOCABULARIES = "loadtest.vocabularies";
+
+    /** Name of the system property that specifies the number of
+     * versions to be generated for each vocabulary. */
+    public static final String VERSIONS_PER_VOCABULARY =
+            "loadtest.versionsPerVocabulary";
+
+    /** Name of the system property that specifies the number of
+     * resources to be generated for each version. */
+    public static final String RESOURCES_PER_VERSION =
+            "loadtest.resourcesPerVersion";
+
+    /** Name of the system property that specifies the number of
+     * concurrent client threads. */
+    public static final String THREADS = "loadtest.threads";
+
+    /** Name of the system property that specifies the duration of
+     * the warmup phase, in seconds. */
+    public static final String WARMUP_SECONDS = "loadtest.warmupSeconds";
+
+    /** Name of the system property that specifies the duration of
+     * the measurement phase, in seconds. */
+    public static final String DURATION_SECONDS = "loadtest.durationSeconds";
+
+    /** Name of the system property that specifies the seed used
+     * for the random choices made by the client threads. */
+    public static final String SEED = "loadtest.seed";
+
+    /** Name of the system property that specifies the maximum
+     * permitted p99 latency, in milliseconds, of each operation.
+     * If not set, or set to zero, latencies are reported,
+     * but not checked. */
+    public static final String MAX_P99_MILLIS = "loadtest.maxP99Millis";
+
+    /** Name of the system property that specifies the file into
+     * which the results are written. */
+    public static final String OUTPUT = "loadtest.output";
+
+    /** Get the value of an integer-valued parameter.
+     * @param name The name of the system property.
+     * @param defaultValue The value to return, if the system property
+     *      is not set, or is blank.
+     * @return The value of the parameter.
+     * @throws IllegalArgumentException If the system property is
+     *      set, but its value is not a non-negative integer.
+     */
+    private static int getInt(final String name, final int defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        int intValue;
+        try {
+            intValue = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Value of " + name
+                    + " is not an integer: " + value);
+        }
+        if (intValue < 0) {
+            throw new IllegalArgumentException("Value of " + name
+                    + " must not be negative: " + value);
+        }
+        return intValue;
+    }
+
+    /** Get the number of vocabularies to be generated.
+     * @return The number of vocabularies to be generated.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static int getVocabularies() {
+        return Math.max(1, getInt(VOCABULARIES, 200));
+    }
+
+    /** Get the number of versions to be generated for each vocabulary.
+     * @return The number of versions to be generated for each vocabulary.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static int getVersionsPerVocabulary() {
+        return Math.max(1, getInt(VERSIONS_PER_VOCABULARY, 2));
+    }
+
+    /** Get the number of resources to be generated for each version.
+     * @return The number of resources to be generated for each version.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static int getResourcesPerVersion() {
+        return Math.max(1, getInt(RESOURCES_PER_VERSION, 50));
+    }
+
+    /** Get the number of concurrent client threads.
+     * @return The number of concurrent client threads.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static int getThreads() {
+        return Math.max(1, getInt(THREADS, 8));
+    }
+
+    /** Get the duration of the warmup phase, in seconds.
+     * @return The duration of the warmup phase, in seconds.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static int getWarmupSeconds() {
+        return getInt(WARMUP_SECONDS, 10);
+    }
+
+    /** Get the duration of the measurement phase, in seconds.
+     * @return The duration of the measurement phase, in seconds.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static int getDurationSeconds() {
+        return Math.max(1, getInt(DURATION_SECONDS, 60));
+    }
+
+    /** Get the seed used for the random choices made by the
+     * client threads.
+     * @return The seed.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public static int getSeed() {
+        return getInt(SEED, 42);
+    }
+
+    /** Get the maximum permitted p99 latency of each operation,
+     * in milliseconds.
+     * @return The maximum permitted p99 latency, or 0, if latencies
+     *      are not to be checked.
+     */
+    public static int getMaxP99Millis() {
+        return getInt(MAX_P99_MILLIS, 0);
+    }
+
+    /** Get the name of the file into which the results are written.
+     * @return The name of the file into which the results are written.
+     */
+    public static String getOutput() {
+        return System.getProperty(OUTPUT, "loadtest-results.json");
+    }
+
+}
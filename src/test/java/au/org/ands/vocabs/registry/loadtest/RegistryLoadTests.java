@@ -0,0 +1,406 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.loadtest;
+
+import static au.org.ands.vocabs.toolkit.test.utils.DatabaseSelector.REGISTRY;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandles;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Form;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status.Family;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.dbunit.DatabaseUnitException;
+import org.hibernate.HibernateException;
+import org.jboss.arquillian.container.test.api.RunAsClient;
+import org.jboss.arquillian.test.api.ArquillianResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
+import au.org.ands.vocabs.registry.solr.EntityIndexer;
+import au.org.ands.vocabs.registry.utils.RegistryNetUtils;
+import au.org.ands.vocabs.toolkit.test.arquillian.ArquillianBaseTest;
+import au.org.ands.vocabs.toolkit.test.arquillian.ArquillianTestUtils;
+
+/** Load test of the Registry API. The registry database is seeded
+ * with generated data (see {@link LoadTestFixtures}), which is
+ * indexed into the embedded Solr. Then a number of client threads
+ * send requests to the deployed webapp for a fixed period, cycling
+ * through the operations listed in {@link LoadTestOperation}.
+ * The throughput, and the p50 and p99 latencies, of each operation
+ * are logged, and written as JSON to the file specified by
+ * {@link LoadTestParameters#OUTPUT}.
+ *
+ * The test fails if any request fails, or, if
+ * {@link LoadTestParameters#MAX_P99_MILLIS} is set, if the
+ * p99 latency of any operation exceeds that limit.
+ *
+ * This class is not included in the standard test suite; run it
+ * using the Ant {@code loadtest} target. No network access is
+ * required, other than to the deployed webapp. The lookupIRI
+ * requests are sent without following redirects, as the
+ * redirects are to (fictitious) external hosts.
+ */
+@Test(groups = "loadtest")
+public class RegistryLoadTests extends ArquillianBaseTest {
+
+    /** Logger. */
+    private static Logger logger;
+
+    static {
+        logger = LoggerFactory.getLogger(
+                MethodHandles.lookup().lookupClass());
+    }
+
+    /** Name of this class, used in paths to test data files. */
+    private static final String CLASS_NAME_PREFIX = "RegistryLoadTests.";
+
+    /** Path to the vocabularies service. */
+    private static final String VOCABULARIES =
+            "api/resource/vocabularies";
+
+    /** Path to the search service. */
+    private static final String SEARCH = "api/services/search";
+
+    /** Path to the search resources service. */
+    private static final String SEARCH_RESOURCES =
+            "api/services/search/resources";
+
+    /** Path to the IRI lookup service. */
+    private static final String RESOLVE_LOOKUP_IRI =
+            "api/services/resolve/lookupIRI";
+
+    /** Path to the downloads service. */
+    private static final String DOWNLOADS = "api/resource/downloads";
+
+    /** Number of nanoseconds in a millisecond. */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /** Number of nanoseconds in a second. */
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /** The base URL of the deployed webapp under test.
+     * Injected by Arquillian.
+     * For future ref: if instead of being specified as a private
+     * field, this was to be
+     * injected as a parameter into a method annotated as {@code @Test},
+     * TestNG has to be made happy by saying
+     * {@code @Test(dataProvider = Arquillian.ARQUILLIAN_DATA_PROVIDER)}.
+     */
+    @ArquillianResource private URL baseURL;
+
+    /** Server-side seeding of the registry database and the Solr
+     * collections.
+     * @throws DatabaseUnitException If a problem with DbUnit.
+     * @throws HibernateException If a problem getting the underlying
+     *          JDBC connection.
+     * @throws IOException If a problem generating the test data,
+     *          or indexing it.
+     * @throws SQLException If DbUnit has a problem performing
+     *           performing JDBC operations.
+     * @throws SolrServerException If an error during Solr indexing.
+     */
+    @Test
+    public final void seedRegistry() throws HibernateException,
+        DatabaseUnitException, IOException, SQLException,
+        SolrServerException {
+        LoadTestFixtures fixtures = new LoadTestFixtures();
+        logger.info("Seeding registry with " + fixtures.getVocabularies()
+                + " vocabularies, " + fixtures.getVersions()
+                + " versions, " + fixtures.getResourcesPerVersion()
+                + " resources per version");
+        Path dataDirectory = ArquillianTestUtils.getTempPathForTest(
+                CLASS_NAME_PREFIX + "seedRegistry");
+        File dataDirectoryFile = dataDirectory.toFile();
+        FileUtils.deleteQuietly(dataDirectoryFile);
+        dataDirectoryFile.mkdirs();
+
+        long start = System.nanoTime();
+        StringWriter writer = new StringWriter();
+        fixtures.generate(dataDirectory, writer);
+        ArquillianTestUtils.clearDatabase(REGISTRY);
+        ArquillianTestUtils.loadDbUnitTestData(REGISTRY,
+                new ByteArrayInputStream(writer.toString().getBytes(
+                        StandardCharsets.UTF_8)));
+        long loaded = System.nanoTime();
+        EntityIndexer.indexAllVocabularies();
+        // Explicit commit is required so that we can do a search
+        // immediately.
+        EntityIndexer.commit();
+        long indexed = System.nanoTime();
+        logger.info("Seeding took " + (loaded - start) / NANOS_PER_MILLI
+                + " ms to load the database, and "
+                + (indexed - loaded) / NANOS_PER_MILLI + " ms to index");
+    }
+
+    /** Client-side load test. Runs the warmup phase, then the
+     * measurement phase, then reports and checks the results.
+     * @throws InterruptedException If interrupted while waiting
+     *      for the client threads to finish.
+     * @throws ExecutionException If a client thread threw an exception.
+     * @throws IOException If there is an error writing the results.
+     */
+    @Test(dependsOnMethods = "seedRegistry")
+    @RunAsClient
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public final void driveLoad() throws InterruptedException,
+        ExecutionException, IOException {
+        LoadTestFixtures fixtures = new LoadTestFixtures();
+        int threads = LoadTestParameters.getThreads();
+        int warmupSeconds = LoadTestParameters.getWarmupSeconds();
+        int durationSeconds = LoadTestParameters.getDurationSeconds();
+        logger.info("Running load test with " + threads + " threads: "
+                + warmupSeconds + " s warmup, "
+                + durationSeconds + " s measurement");
+
+        if (warmupSeconds > 0) {
+            runPhase(fixtures, threads, warmupSeconds,
+                    LoadTestParameters.getSeed());
+        }
+        Map<LoadTestOperation, LatencyRecorder> results = runPhase(fixtures,
+                threads, durationSeconds, LoadTestParameters.getSeed() + 1);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("vocabularies", fixtures.getVocabularies());
+        report.put("versions", fixtures.getVersions());
+        report.put("resourcesPerVersion", fixtures.getResourcesPerVersion());
+        report.put("threads", threads);
+        report.put("durationSeconds", durationSeconds);
+        Map<String, Object> operations = new LinkedHashMap<>();
+        int totalErrors = 0;
+        int maxP99Millis = LoadTestParameters.getMaxP99Millis();
+        List<String> slowOperations = new ArrayList<>();
+        for (Map.Entry<LoadTestOperation, LatencyRecorder> entry
+                : results.entrySet()) {
+            LatencyRecorder recorder = entry.getValue();
+            double throughput = (double) recorder.getCount()
+                    / durationSeconds;
+            double p50 = recorder.getPercentile(50) / NANOS_PER_MILLI;
+            double p99 = recorder.getPercentile(99) / NANOS_PER_MILLI;
+            Map<String, Object> operation = new LinkedHashMap<>();
+            operation.put("requests", recorder.getCount());
+            operation.put("errors", recorder.getErrorCount());
+            operation.put("throughputPerSecond", throughput);
+            operation.put("meanMillis",
+                    recorder.getMean() / NANOS_PER_MILLI);
+            operation.put("p50Millis", p50);
+            operation.put("p99Millis", p99);
+            operation.put("maxMillis", recorder.getMax() / NANOS_PER_MILLI);
+            operations.put(entry.getKey().toString(), operation);
+            logger.info(String.format("%-22s %8d requests %5d errors "
+                    + "%9.1f req/s  p50 %8.2f ms  p99 %8.2f ms",
+                    entry.getKey(), recorder.getCount(),
+                    recorder.getErrorCount(), throughput, p50, p99));
+            totalErrors += recorder.getErrorCount();
+            if (maxP99Millis > 0 && p99 > maxP99Millis) {
+                slowOperations.add(entry.getKey().toString());
+            }
+        }
+        report.put("operations", operations);
+        File outputFile = new File(LoadTestParameters.getOutput());
+        FileUtils.writeStringToFile(outputFile,
+                JSONSerialization.serializeObjectAsJsonString(report),
+                StandardCharsets.UTF_8);
+        logger.info("Load test results written to "
+                + outputFile.getAbsolutePath());
+
+        Assert.assertEquals(totalErrors, 0, "Number of failed requests");
+        Assert.assertTrue(slowOperations.isEmpty(),
+                "Operations with p99 latency over " + maxP99Millis
+                + " ms: " + slowOperations);
+    }
+
+    /** Run one phase of the load test.
+     * @param fixtures The generated data that has been loaded into
+     *      the registry.
+     * @param threads The number of client threads.
+     * @param seconds The duration of the phase, in seconds.
+     * @param seed The seed for the random choices made by the client
+     *      threads. Each thread adds its own index to the seed.
+     * @return The latencies of each operation, combined
+     *      over all of the client threads.
+     * @throws InterruptedException If interrupted while waiting
+     *      for the client threads to finish.
+     * @throws ExecutionException If a client thread threw an exception.
+     */
+    private Map<LoadTestOperation, LatencyRecorder> runPhase(
+            final LoadTestFixtures fixtures, final int threads,
+            final int seconds, final int seed)
+                    throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + seconds * NANOS_PER_SECOND;
+        List<Future<Map<LoadTestOperation, LatencyRecorder>>> futures =
+                new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final int threadIndex = i;
+            futures.add(executor.submit(() -> runClient(fixtures,
+                    threadIndex, deadline, seed + threadIndex)));
+        }
+        executor.shutdown();
+        executor.awaitTermination(seconds + 1, TimeUnit.SECONDS);
+        Map<LoadTestOperation, LatencyRecorder> results =
+                new EnumMap<>(LoadTestOperation.class);
+        for (LoadTestOperation operation : LoadTestOperation.values()) {
+            results.put(operation, new LatencyRecorder());
+        }
+        for (Future<Map<LoadTestOperation, LatencyRecorder>> future
+                : futures) {
+            for (Map.Entry<LoadTestOperation, LatencyRecorder> entry
+                    : future.get().entrySet()) {
+                results.get(entry.getKey()).merge(entry.getValue());
+            }
+        }
+        return results;
+    }
+
+    /** The work done by one client thread. The thread sends requests
+     * until the deadline is reached, cycling through the operations.
+     * @param fixtures The generated data that has been loaded into
+     *      the registry.
+     * @param threadIndex The index of this thread. Used so that the
+     *      threads don't all start with the same operation.
+     * @param deadline The value of {@link System#nanoTime()} at which
+     *      the thread is to stop sending requests.
+     * @param seed The seed for the random choices made by this thread.
+     * @return The latencies of each operation.
+     */
+    private Map<LoadTestOperation, LatencyRecorder> runClient(
+            final LoadTestFixtures fixtures, final int threadIndex,
+            final long deadline, final int seed) {
+        Random random = new Random(seed);
+        LoadTestOperation[] operations = LoadTestOperation.values();
+        Map<LoadTestOperation, LatencyRecorder> recorders =
+                new EnumMap<>(LoadTestOperation.class);
+        for (LoadTestOperation operation : operations) {
+            recorders.put(operation, new LatencyRecorder());
+        }
+        // Create the base targets once. WebTargets are immutable,
+        // and the underlying Clients are shared and thread-safe.
+        String base = baseURL.toString();
+        WebTarget vocabulariesTarget =
+                RegistryNetUtils.getClient().target(base).path(VOCABULARIES);
+        WebTarget searchTarget =
+                RegistryNetUtils.getClient().target(base).path(SEARCH);
+        WebTarget searchResourcesTarget = RegistryNetUtils.getClient().
+                target(base).path(SEARCH_RESOURCES);
+        WebTarget lookupTarget = RegistryNetUtils.getClientNoRedirects().
+                target(base).path(RESOLVE_LOOKUP_IRI);
+        WebTarget downloadsTarget =
+                RegistryNetUtils.getClient().target(base).path(DOWNLOADS);
+
+        int next = threadIndex;
+        while (System.nanoTime() < deadline) {
+            LoadTestOperation operation =
+                    operations[next % operations.length];
+            next++;
+            int vocabularyId = random.nextInt(fixtures.getVocabularies()) + 1;
+            Response response = null;
+            long start = System.nanoTime();
+            try {
+                Family expectedFamily = Family.SUCCESSFUL;
+                switch (operation) {
+                case GET_VOCABULARY_BY_ID:
+                    response = vocabulariesTarget.
+                        path(Integer.toString(vocabularyId)).
+                        queryParam("includeVersions", true).
+                        queryParam("includeAccessPoints", true).
+                        request(MediaType.APPLICATION_JSON_TYPE).get();
+                    break;
+                case SEARCH:
+                    response = searchTarget.request(
+                            MediaType.APPLICATION_JSON_TYPE).post(
+                            searchEntity(random));
+                    break;
+                case SEARCH_RESOURCES:
+                    response = searchResourcesTarget.request(
+                            MediaType.APPLICATION_JSON_TYPE).post(
+                            searchEntity(random));
+                    break;
+                case LOOKUP_IRI:
+                    response = lookupTarget.queryParam("iri",
+                            LoadTestFixtures.getResourceIri(vocabularyId,
+                                    random.nextInt(fixtures.
+                                            getResourcesPerVersion()))).
+                            request().get();
+                    expectedFamily = Family.REDIRECTION;
+                    break;
+                case DOWNLOAD:
+                    int versionId = random.nextInt(fixtures.getVersions())
+                        + 1;
+                    response = downloadsTarget.path(Integer.toString(
+                            LoadTestFixtures.getFileAccessPointId(
+                                    versionId))).
+                            request().get();
+                    break;
+                default:
+                    throw new IllegalStateException(
+                            "Unknown operation: " + operation);
+                }
+                // Read the whole of the response, as a real client would.
+                response.readEntity(byte[].class);
+                long elapsed = System.nanoTime() - start;
+                if (response.getStatusInfo().getFamily() == expectedFamily) {
+                    recorders.get(operation).record(elapsed);
+                } else {
+                    logger.error(operation + " failed with status "
+                            + response.getStatus());
+                    recorders.get(operation).recordError();
+                }
+            } catch (RuntimeException e) {
+                logger.error(operation + " failed with exception", e);
+                recorders.get(operation).recordError();
+            } finally {
+                if (response != null) {
+                    response.close();
+                }
+            }
+        }
+        return recorders;
+    }
+
+    /** Create the form to be posted to one of the search services.
+     * The query is for one of the terms used in the generated data,
+     * and asks for the second page of results, as a way of
+     * exercising the result pagination.
+     * @param random The source of randomness to use to select the term.
+     * @return The form, as an Entity that can be posted.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static Entity<Form> searchEntity(final Random random) {
+        Map<String, Object> filters = new LinkedHashMap<>();
+        filters.put("q", LoadTestFixtures.getTerm(random.nextInt(
+                Integer.MAX_VALUE)));
+        filters.put("pp", Integer.valueOf(10));
+        filters.put("p", Integer.valueOf(2));
+        return Entity.form(new Form("filtersJson",
+                JSONSerialization.serializeObjectAsJsonString(filters)));
+    }
+
+}
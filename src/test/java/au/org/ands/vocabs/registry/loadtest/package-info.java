@@ -0,0 +1,5 @@
+/** See the file "LICENSE" for the full license governing this code. */
+/** Load tests of the Registry API, run using Arquillian against
+ * an embedded deployment. Run them using the Ant {@code loadtest}
+ * target. */
+package au.org.ands.vocabs.registry.loadtest;
@@ -0,0 +1,159 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.notification.email;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A minimal SMTP server, that accepts messages and counts them,
+ * but does not deliver them. Recipient addresses that begin with
+ * "reject" are rejected. The server can be told to drop a number of
+ * connections in the middle of a transaction, to simulate a
+ * transient failure. */
+public final class SmtpStubServer implements AutoCloseable {
+
+    /** The server socket. */
+    private final ServerSocket serverSocket;
+
+    /** The number of connections accepted. */
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    /** The number of messages accepted. */
+    private final AtomicInteger messageCount = new AtomicInteger();
+
+    /** The number of connections still to be dropped. */
+    private final AtomicInteger connectionsToDrop = new AtomicInteger();
+
+    /** Constructor. Starts the server on an arbitrary free port
+     * of the loopback interface.
+     * @throws IOException If the server socket can't be created.
+     */
+    public SmtpStubServer() throws IOException {
+        serverSocket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptConnections,
+                "SmtpStubServer");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /** Get the port number on which the server is listening.
+     * @return The port number.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /** Get the number of connections accepted so far.
+     * @return The number of connections.
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /** Get the number of messages accepted so far.
+     * @return The number of messages.
+     */
+    public int getMessageCount() {
+        return messageCount.get();
+    }
+
+    /** Drop the next connections that are used to send a message,
+     * before the message is accepted.
+     * @param count The number of connections to drop.
+     */
+    public void dropConnections(final int count) {
+        connectionsToDrop.set(count);
+    }
+
+    /** Accept connections until the server socket is closed. */
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connectionCount.incrementAndGet();
+                Thread handler = new Thread(() -> handle(socket),
+                        "SmtpStubServer connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                // Closed.
+                return;
+            }
+        }
+    }
+
+    /** Handle one connection.
+     * @param socket The socket of the connection.
+     */
+    private void handle(final Socket socket) {
+        try (Socket s = socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        s.getInputStream(), StandardCharsets.US_ASCII));
+                Writer out = new OutputStreamWriter(s.getOutputStream(),
+                        StandardCharsets.US_ASCII)) {
+            reply(out, "220 localhost SMTP stub");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase(Locale.ROOT);
+                if (command.startsWith("MAIL")) {
+                    if (connectionsToDrop.getAndDecrement() > 0) {
+                        return;
+                    }
+                    reply(out, "250 OK");
+                } else if (command.startsWith("RCPT")) {
+                    if (command.startsWith("RCPT TO:<REJECT")) {
+                        reply(out, "550 No such user");
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                } else if (command.startsWith("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    // Discard the message.
+                    line = in.readLine();
+                    while (line != null && !line.equals(".")) {
+                        line = in.readLine();
+                    }
+                    messageCount.incrementAndGet();
+                    reply(out, "250 OK");
+                } else if (command.startsWith("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    // EHLO, HELO, RSET, NOOP.
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // Connection closed by the client.
+        }
+    }
+
+    /** Send a reply to the client.
+     * @param out The Writer for the connection.
+     * @param reply The reply to send.
+     * @throws IOException If there is an error writing the reply.
+     */
+    private static void reply(final Writer out, final String reply)
+            throws IOException {
+        out.write(reply + "\r\n");
+        out.flush();
+    }
+
+    /** Stop the server.
+     * @throws IOException If there is an error closing the server socket.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+}
@@ -0,0 +1,171 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.notification.email;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.mail.EmailException;
+import org.apache.commons.mail.SimpleEmail;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/** Tests of the EmailSender class, using a local SMTP stub server. */
+public class TestEmailSender {
+
+    /** Create an email to be sent.
+     * @param recipient The email address of the recipient.
+     * @return The email.
+     * @throws EmailException If the email can't be set up.
+     */
+    private static SimpleEmail createEmail(final String recipient)
+            throws EmailException {
+        SimpleEmail email = new SimpleEmail();
+        email.setFrom("sender@example.com");
+        email.addTo(recipient);
+        email.setSubject("Test");
+        email.setMsg("Test message");
+        return email;
+    }
+
+    /** Test that messages sent by several threads are all delivered,
+     * and that the connections are reused.
+     * @throws Exception If there is an error running the test.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testSendUsingPool() throws Exception {
+        try (SmtpStubServer server = new SmtpStubServer();
+                EmailSender sender = new EmailSender("localhost",
+                        server.getPort(), 2, 0, 3, 10)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String recipient = "user" + i + "@example.com";
+                futures.add(executor.submit(() ->
+                        sender.send(createEmail(recipient))));
+            }
+            for (Future<Boolean> future : futures) {
+                Assert.assertTrue(future.get(), "Email not sent");
+            }
+            executor.shutdown();
+            Assert.assertEquals(sender.getSentCount(), 20,
+                    "Wrong number of emails sent");
+            Assert.assertEquals(sender.getFailedCount(), 0,
+                    "Wrong number of emails failed");
+            Assert.assertEquals(server.getMessageCount(), 20,
+                    "Wrong number of emails received");
+            Assert.assertTrue(server.getConnectionCount() <= 2,
+                    "Connections not reused");
+        }
+    }
+
+    /** Test that a message is retried using a new connection,
+     * if the connection is dropped, but that it is not retried,
+     * if the recipient is rejected.
+     * @throws IOException If there is an error starting the server.
+     * @throws InterruptedException If the test is interrupted.
+     * @throws EmailException If an email can't be set up.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testRetry() throws IOException, InterruptedException,
+        EmailException {
+        try (SmtpStubServer server = new SmtpStubServer();
+                EmailSender sender = new EmailSender("localhost",
+                        server.getPort(), 1, 0, 3, 10)) {
+            server.dropConnections(2);
+            Assert.assertTrue(sender.send(createEmail("user@example.com")),
+                    "Email not sent after retries");
+            Assert.assertEquals(server.getConnectionCount(), 3,
+                    "Wrong number of connections");
+            Assert.assertFalse(sender.send(
+                    createEmail("reject@example.com")),
+                    "Email to rejected recipient was sent");
+            Assert.assertEquals(server.getConnectionCount(), 3,
+                    "Connection not reused after rejection");
+            Assert.assertTrue(sender.send(createEmail("user@example.com")),
+                    "Email not sent after rejection");
+            Assert.assertEquals(sender.getSentCount(), 2,
+                    "Wrong number of emails sent");
+            Assert.assertEquals(sender.getFailedCount(), 1,
+                    "Wrong number of emails failed");
+            Assert.assertEquals(server.getMessageCount(), 2,
+                    "Wrong number of emails received");
+        }
+    }
+
+    /** Ticker for testing the rate limit. Time stands still,
+     * except when a thread sleeps; sleeping advances the time by
+     * the period of the sleep, without actually waiting. */
+    private static final class FakeTicker implements EmailSender.Ticker {
+
+        /** The current time, in nanoseconds. */
+        private final AtomicLong now = new AtomicLong();
+
+        /** The number of times that sleep was called. */
+        private final AtomicInteger sleepCount = new AtomicInteger();
+
+        @Override
+        public long read() {
+            return now.get();
+        }
+
+        @Override
+        public void sleep(final long nanos) {
+            sleepCount.incrementAndGet();
+            now.addAndGet(nanos);
+        }
+
+        /** Get the current time, in milliseconds.
+         * @return The current time, in milliseconds.
+         */
+        long getMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(now.get());
+        }
+
+        /** Get the number of times that sleep was called.
+         * @return The number of times that sleep was called.
+         */
+        int getSleepCount() {
+            return sleepCount.get();
+        }
+    }
+
+    /** Test that the rate of sending is limited.
+     * @throws IOException If there is an error starting the server.
+     * @throws InterruptedException If the test is interrupted.
+     * @throws EmailException If an email can't be set up.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testRateLimit() throws IOException, InterruptedException,
+        EmailException {
+        FakeTicker ticker = new FakeTicker();
+        try (SmtpStubServer server = new SmtpStubServer();
+                EmailSender sender = new EmailSender("localhost",
+                        server.getPort(), 2, 20, 1, 0, ticker)) {
+            for (int i = 0; i < 10; i++) {
+                Assert.assertTrue(sender.send(createEmail(
+                        "user@example.com")), "Email not sent");
+            }
+            // Ten messages at 20 per second: the first is sent
+            // immediately, and each of the others 50 ms after
+            // the one before.
+            Assert.assertEquals(ticker.getSleepCount(), 9,
+                    "Wrong number of waits for the rate limit");
+            Assert.assertEquals(ticker.getMillis(), 450,
+                    "Wrong total wait for the rate limit");
+            Assert.assertEquals(server.getMessageCount(), 10,
+                    "Wrong number of emails received");
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.solr;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
+import au.org.ands.vocabs.registry.workflow.provider.transform.JsonListTransformProvider;
+
+/** Tests of {@link ConceptListReader}. */
+public class TestConceptListReader {
+
+    /** A concept list, of the form generated by
+     * {@link JsonListTransformProvider}, for a vocabulary that contains
+     * only concepts: no concept schemes or collections. Some concepts
+     * have prefLabels in languages other than English, including
+     * characters outside ASCII; one has no prefLabel. */
+    private static final String CONCEPTS_ONLY = "{"
+            + "\"http://test/c1\":{\"narrower\":[\"http://test/c2\","
+            + "\"http://test/c3\"],\"notation\":\"1\","
+            + "\"prefLabel\":\"Animals\"},"
+            + "\"http://test/c2\":{\"broader\":[\"http://test/c1\"],"
+            + "\"prefLabel\":\"Oiseaux \\u00e0 plumes\"},"
+            + "\"http://test/c3\":{\"broader\":[\"http://test/c1\"],"
+            + "\"notation\":\"1.2\",\"prefLabel\":\"魚類\"},"
+            + "\"http://test/c4\":{\"notation\":\"4\"},"
+            + "\"http://test/c5\":{\"prefLabel\":\"Животные 🐾\"}"
+            + "}";
+
+    /** Write JSON data to a temporary file, and read the prefLabels
+     * from it using {@link ConceptListReader#readPrefLabels(File,
+     * List)}. The temporary file is removed afterwards.
+     * @param json The JSON data.
+     * @return The prefLabels read from the file.
+     * @throws IOException If the file can not be written, read,
+     *      or parsed.
+     */
+    private static List<String> readPrefLabels(final String json)
+            throws IOException {
+        Path path = Files.createTempFile("concepts_only", ".json");
+        try {
+            Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+            List<String> prefLabels = new ArrayList<>();
+            ConceptListReader.readPrefLabels(path.toFile(), prefLabels);
+            return prefLabels;
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /** Test that the prefLabels of a concept list are read in the
+     * order in which they appear, that multilingual prefLabels are
+     * preserved, and that the result is the same as that of
+     * deserializing the whole concept list.
+     * @throws IOException If the file can not be written, read,
+     *      or parsed.
+     */
+    @Test
+    public void testReadPrefLabels() throws IOException {
+        List<String> prefLabels = readPrefLabels(CONCEPTS_ONLY);
+        Assert.assertEquals(prefLabels, Arrays.asList("Animals",
+                "Oiseaux à plumes", "魚類", "Животные 🐾"),
+                "Wrong prefLabels");
+
+        Map<String, Map<String, Object>> conceptMap =
+                JSONSerialization.deserializeStringAsJson(CONCEPTS_ONLY,
+                        new TypeReference<Map<String,
+                        Map<String, Object>>>() { });
+        List<String> expected = new ArrayList<>();
+        for (Map<String, Object> concept : conceptMap.values()) {
+            if (concept.containsKey(JsonListTransformProvider.PREF_LABEL)) {
+                expected.add((String) concept.get(
+                        JsonListTransformProvider.PREF_LABEL));
+            }
+        }
+        Assert.assertEquals(prefLabels, expected,
+                "PrefLabels differ from those of the whole concept map");
+    }
+
+    /** Test that values that are not strings, and unknown fields,
+     * are skipped, however deeply they are nested.
+     * @throws IOException If the file can not be written, read,
+     *      or parsed.
+     */
+    @Test
+    public void testReadPrefLabelsSkipsOtherValues()
+            throws IOException {
+        Assert.assertEquals(readPrefLabels("{"
+                + "\"http://test/c1\":{\"extra\":{\"prefLabel\":\"No\","
+                + "\"deeper\":[[{\"prefLabel\":\"No\"}]]},"
+                + "\"prefLabel\":{\"en\":\"No\",\"fr\":\"Non\"}},"
+                + "\"http://test/c2\":{\"altLabel\":[\"No\"],"
+                + "\"prefLabel\":\"Yes\"},"
+                + "\"http://test/c3\":{}"
+                + "}"), Arrays.asList("Yes"), "Wrong prefLabels");
+        Assert.assertEquals(readPrefLabels("{}"), Arrays.asList(),
+                "PrefLabels found in empty concept list");
+    }
+
+    /** Test that concept lists with unexpected tokens are rejected. */
+    @Test
+    public void testReadPrefLabelsUnexpectedToken() {
+        String[] invalid = {
+            // Not an object.
+            "[{\"prefLabel\":\"One\"}]",
+            // A concept that is not an object.
+            "{\"http://test/c1\":\"One\"}",
+            "{\"http://test/c1\":[\"One\"]}",
+            // Empty.
+            "",
+            // Truncated.
+            "{\"http://test/c1\":{\"prefLabel\":\"One\"",
+        };
+        for (String json : invalid) {
+            try {
+                readPrefLabels(json);
+                Assert.fail("No exception for invalid concept list: "
+                        + json);
+            } catch (IOException e) {
+                Assert.assertTrue(e instanceof JsonParseException,
+                        "Wrong exception for invalid concept list: "
+                        + json + ": " + e);
+            }
+        }
+    }
+
+}
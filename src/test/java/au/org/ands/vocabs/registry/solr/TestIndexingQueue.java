@@ -0,0 +1,366 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.solr;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/** Tests of {@link IndexingQueue}, using an indexer that records
+ * the batches that it is asked to (un)index, rather than Solr. */
+public class TestIndexingQueue {
+
+    /** The time to wait, in milliseconds, for the queue to become
+     * idle, or for the indexer to be called. */
+    private static final long WAIT_MILLIS = 10000;
+
+    /** The queue under test, or null, if the test has not created
+     * one. */
+    private IndexingQueue queue;
+
+    /** Indexer that records its calls, and can be made to fail
+     * for particular vocabularies. */
+    private static final class RecordingIndexer
+        implements IndexingQueue.Indexer {
+
+        /** The calls made, as strings of the form "index [1, 2]". */
+        private final List<String> calls = new ArrayList<>();
+
+        /** The time of the first call, as a value of
+         * {@link System#nanoTime()}, or 0, if there have been no
+         * calls. */
+        private long firstCallNanos;
+
+        /** The number of further times that (un)indexing each
+         * vocabulary is to fail. */
+        private final Map<Integer, Integer> failures = new HashMap<>();
+
+        /** If not null, each call waits for this latch to be
+         * released. */
+        private CountDownLatch latch;
+
+        /** Make (un)indexing a vocabulary fail a number of times.
+         * @param vocabularyId The vocabulary ID of the vocabulary.
+         * @param times The number of times that (un)indexing the
+         *      vocabulary is to fail.
+         */
+        synchronized void fail(final int vocabularyId, final int times) {
+            failures.put(vocabularyId, times);
+        }
+
+        /** Get the calls made so far.
+         * @return The calls made so far.
+         */
+        synchronized List<String> getCalls() {
+            return new ArrayList<>(calls);
+        }
+
+        /** Get the time of the first call.
+         * @return The time of the first call, as a value of
+         *      {@link System#nanoTime()}, or 0, if there have been
+         *      no calls.
+         */
+        synchronized long getFirstCallNanos() {
+            return firstCallNanos;
+        }
+
+        /** Record a call, and fail it, if required.
+         * @param operation The operation: "index" or "unindex".
+         * @param vocabularyIds The vocabulary IDs passed to the call.
+         * @throws IOException If the call is to fail.
+         */
+        private void call(final String operation,
+                final Collection<Integer> vocabularyIds)
+                        throws IOException {
+            CountDownLatch latchToAwait;
+            synchronized (this) {
+                latchToAwait = latch;
+            }
+            if (latchToAwait != null) {
+                try {
+                    latchToAwait.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (this) {
+                if (calls.isEmpty()) {
+                    firstCallNanos = System.nanoTime();
+                }
+                calls.add(operation + " " + vocabularyIds);
+                for (Integer vocabularyId : vocabularyIds) {
+                    Integer remaining = failures.get(vocabularyId);
+                    if (remaining != null && remaining > 0) {
+                        failures.put(vocabularyId, remaining - 1);
+                        throw new IOException("Failure for vocabulary "
+                                + vocabularyId);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void index(final Collection<Integer> vocabularyIds)
+                throws IOException {
+            call("index", vocabularyIds);
+        }
+
+        @Override
+        public void unindex(final Collection<Integer> vocabularyIds)
+                throws IOException {
+            call("unindex", vocabularyIds);
+        }
+    }
+
+    /** Create the queue under test. Retries are made after 10 ms,
+     * doubling up to 100 ms, and a request is attempted at most
+     * three times.
+     * @param debounceMillis The debounce time, in milliseconds.
+     * @param maxDelayMillis The maximum delay, in milliseconds.
+     * @param indexer The indexer to be used by the queue.
+     * @return The queue.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private IndexingQueue createQueue(final long debounceMillis,
+            final long maxDelayMillis, final RecordingIndexer indexer) {
+        queue = new IndexingQueue(debounceMillis, maxDelayMillis, 100,
+                10, 100, 3, indexer);
+        return queue;
+    }
+
+    /** Shut down the queue under test, if there is one. */
+    @AfterMethod
+    public void shutdownQueue() {
+        if (queue != null) {
+            queue.shutdown();
+            queue = null;
+        }
+    }
+
+    /** Wait until the indexer has been called at least once.
+     * @param indexer The indexer.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static void awaitCall(final RecordingIndexer indexer)
+            throws InterruptedException {
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(WAIT_MILLIS);
+        while (indexer.getCalls().isEmpty()) {
+            Assert.assertTrue(System.nanoTime() - deadline < 0,
+                    "Indexer not called");
+            Thread.sleep(10);
+        }
+    }
+
+    /** Test that repeated requests for the same vocabulary are
+     * coalesced, and that requests are processed together after
+     * the debounce time.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public void testCoalescing() throws InterruptedException {
+        RecordingIndexer indexer = new RecordingIndexer();
+        createQueue(300, 5000, indexer);
+        long start = System.nanoTime();
+        queue.index(1);
+        queue.index(1);
+        queue.index(2);
+        queue.index(1);
+        awaitCall(indexer);
+        Assert.assertTrue(indexer.getFirstCallNanos() - start
+                >= TimeUnit.MILLISECONDS.toNanos(300),
+                "Requests processed before the debounce time");
+        Assert.assertTrue(queue.awaitIdle(WAIT_MILLIS), "Queue not idle");
+        Assert.assertEquals(indexer.getCalls(),
+                Arrays.asList("index [1, 2]"), "Wrong calls");
+        IndexingQueueStatus status = queue.getStatus();
+        Assert.assertEquals(status.getRequested(), 4, "Wrong requested");
+        Assert.assertEquals(status.getCoalesced(), 2, "Wrong coalesced");
+        Assert.assertEquals(status.getIndexed(), 2, "Wrong indexed");
+        Assert.assertEquals(status.getBatches(), 1, "Wrong batches");
+        Assert.assertEquals(status.getQueueDepth(), 0, "Wrong queue depth");
+    }
+
+    /** Test that a vocabulary for which requests keep arriving within
+     * the debounce time is nevertheless processed once the maximum
+     * delay has passed.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public void testMaxDelayFlush() throws InterruptedException {
+        RecordingIndexer indexer = new RecordingIndexer();
+        createQueue(1000, 300, indexer);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(2000);
+        while (System.nanoTime() - end < 0) {
+            queue.index(1);
+            Thread.sleep(20);
+        }
+        long firstCall = indexer.getFirstCallNanos();
+        Assert.assertFalse(indexer.getCalls().isEmpty(),
+                "Request not processed while requests kept arriving");
+        Assert.assertTrue(firstCall - start
+                >= TimeUnit.MILLISECONDS.toNanos(300),
+                "Request processed before the maximum delay");
+        Assert.assertTrue(queue.awaitIdle(WAIT_MILLIS), "Queue not idle");
+        for (String call : indexer.getCalls()) {
+            Assert.assertEquals(call, "index [1]", "Wrong call");
+        }
+    }
+
+    /** Test that, of several requests for the same vocabulary,
+     * the last one wins.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public void testLastRequestWins() throws InterruptedException {
+        RecordingIndexer indexer = new RecordingIndexer();
+        createQueue(60000, 60000, indexer);
+        queue.index(1);
+        queue.unindex(1);
+        queue.unindex(2);
+        queue.index(2);
+        queue.index(3);
+        queue.unindex(3);
+        queue.index(3);
+        Assert.assertTrue(queue.awaitIdle(WAIT_MILLIS), "Queue not idle");
+        Assert.assertEquals(indexer.getCalls(),
+                Arrays.asList("unindex [1]", "index [2, 3]"),
+                "Wrong calls");
+        IndexingQueueStatus status = queue.getStatus();
+        Assert.assertEquals(status.getIndexed(), 2, "Wrong indexed");
+        Assert.assertEquals(status.getUnindexed(), 1, "Wrong unindexed");
+        Assert.assertEquals(status.getCoalesced(), 4, "Wrong coalesced");
+    }
+
+    /** Test that {@link IndexingQueue#awaitIdle(long)} skips the
+     * debounce time, waits for the batch in progress, and times out
+     * if the batch does not finish.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public void testAwaitIdle() throws InterruptedException {
+        RecordingIndexer indexer = new RecordingIndexer();
+        createQueue(60000, 60000, indexer);
+        Assert.assertTrue(queue.awaitIdle(0), "Empty queue not idle");
+
+        queue.index(1);
+        Assert.assertEquals(queue.getStatus().getQueueDepth(), 1,
+                "Wrong queue depth");
+        long start = System.nanoTime();
+        Assert.assertTrue(queue.awaitIdle(WAIT_MILLIS), "Queue not idle");
+        Assert.assertTrue(System.nanoTime() - start
+                < TimeUnit.MILLISECONDS.toNanos(WAIT_MILLIS),
+                "Debounce time not skipped");
+        Assert.assertEquals(indexer.getCalls(), Arrays.asList("index [1]"),
+                "Wrong calls");
+
+        CountDownLatch latch = new CountDownLatch(1);
+        synchronized (indexer) {
+            indexer.latch = latch;
+        }
+        queue.index(2);
+        Assert.assertFalse(queue.awaitIdle(200),
+                "Queue idle while a batch is in progress");
+        Assert.assertEquals(queue.getStatus().getInProgress(), 1,
+                "Wrong number in progress");
+        latch.countDown();
+        Assert.assertTrue(queue.awaitIdle(WAIT_MILLIS), "Queue not idle");
+        Assert.assertEquals(indexer.getCalls(),
+                Arrays.asList("index [1]", "index [2]"), "Wrong calls");
+        Assert.assertEquals(queue.getStatus().getInProgress(), 0,
+                "Wrong number in progress");
+    }
+
+    /** Test that one vocabulary that can not be indexed does not
+     * prevent the others in the same batch from being indexed,
+     * and that it is retried.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public void testFailureIsolatedAndRetried()
+            throws InterruptedException {
+        RecordingIndexer indexer = new RecordingIndexer();
+        // Fail the batch, then the vocabulary on its own.
+        indexer.fail(2, 2);
+        createQueue(60000, 60000, indexer);
+        queue.index(1);
+        queue.index(2);
+        queue.index(3);
+        Assert.assertTrue(queue.awaitIdle(WAIT_MILLIS), "Queue not idle");
+        Assert.assertEquals(indexer.getCalls(),
+                Arrays.asList("index [1, 2, 3]", "index [1]", "index [2]",
+                        "index [3]", "index [2]"),
+                "Wrong calls");
+        IndexingQueueStatus status = queue.getStatus();
+        Assert.assertEquals(status.getIndexed(), 3, "Wrong indexed");
+        Assert.assertEquals(status.getFailed(), 1, "Wrong failed");
+        Assert.assertEquals(status.getRetried(), 1, "Wrong retried");
+        Assert.assertEquals(status.getAbandoned(), 0, "Wrong abandoned");
+    }
+
+    /** Test that a request that keeps failing is abandoned after
+     * the maximum number of attempts, and that a later request for
+     * the same vocabulary is processed afresh.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public void testAbandonAfterMaxAttempts() throws InterruptedException {
+        RecordingIndexer indexer = new RecordingIndexer();
+        indexer.fail(5, Integer.MAX_VALUE);
+        createQueue(60000, 60000, indexer);
+        queue.unindex(5);
+        Assert.assertTrue(queue.awaitIdle(WAIT_MILLIS), "Queue not idle");
+        Assert.assertEquals(indexer.getCalls(),
+                Arrays.asList("unindex [5]", "unindex [5]", "unindex [5]"),
+                "Wrong calls");
+        IndexingQueueStatus status = queue.getStatus();
+        Assert.assertEquals(status.getUnindexed(), 0, "Wrong unindexed");
+        Assert.assertEquals(status.getFailed(), 3, "Wrong failed");
+        Assert.assertEquals(status.getRetried(), 2, "Wrong retried");
+        Assert.assertEquals(status.getAbandoned(), 1, "Wrong abandoned");
+
+        indexer.fail(5, 0);
+        queue.unindex(5);
+        Assert.assertTrue(queue.awaitIdle(WAIT_MILLIS), "Queue not idle");
+        Assert.assertEquals(queue.getStatus().getUnindexed(), 1,
+                "Later request not processed");
+    }
+
+    /** Test that the delay before a retry doubles with each attempt,
+     * up to the maximum. */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public void testRetryDelay() {
+        createQueue(0, 0, new RecordingIndexer());
+        long[] expectedMillis = {10, 20, 40, 80, 100, 100};
+        for (int attempts = 1; attempts <= expectedMillis.length;
+                attempts++) {
+            Assert.assertEquals(queue.retryDelay(attempts),
+                    TimeUnit.MILLISECONDS.toNanos(
+                            expectedMillis[attempts - 1]),
+                    "Wrong delay after " + attempts + " attempts");
+        }
+        Assert.assertEquals(queue.retryDelay(Integer.MAX_VALUE),
+                TimeUnit.MILLISECONDS.toNanos(100),
+                "Wrong delay after many attempts");
+    }
+
+}
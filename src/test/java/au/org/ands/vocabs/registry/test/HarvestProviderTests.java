@@ -0,0 +1,368 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.test;
+
+import static au.org.ands.vocabs.toolkit.test.utils.DatabaseSelector.REGISTRY;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+import org.dbunit.DatabaseUnitException;
+import org.hibernate.HibernateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+
+import au.org.ands.vocabs.registry.db.context.DBContext;
+import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
+import au.org.ands.vocabs.registry.db.dao.TaskDAO;
+import au.org.ands.vocabs.registry.db.dao.VersionArtefactDAO;
+import au.org.ands.vocabs.registry.db.dao.VersionDAO;
+import au.org.ands.vocabs.registry.db.dao.VocabularyDAO;
+import au.org.ands.vocabs.registry.db.entity.Version;
+import au.org.ands.vocabs.registry.db.entity.VersionArtefact;
+import au.org.ands.vocabs.registry.db.entity.Vocabulary;
+import au.org.ands.vocabs.registry.db.internal.VaConceptList;
+import au.org.ands.vocabs.registry.db.internal.VaConceptTree;
+import au.org.ands.vocabs.registry.db.internal.VaHarvestPoolparty;
+import au.org.ands.vocabs.registry.db.utils.migration.CompressHarvestFiles;
+import au.org.ands.vocabs.registry.enums.TaskStatus;
+import au.org.ands.vocabs.registry.enums.VersionArtefactType;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
+import au.org.ands.vocabs.registry.workflow.tasks.TaskInfo;
+import au.org.ands.vocabs.registry.workflow.tasks.TaskUtils;
+import au.org.ands.vocabs.toolkit.test.arquillian.ArquillianBaseTest;
+import au.org.ands.vocabs.toolkit.test.arquillian.ArquillianTestUtils;
+import au.org.ands.vocabs.toolkit.test.arquillian.PoolPartyMockServer;
+
+/** Tests of the Registry harvest workflow providers, and of
+ * the reading of the files they harvest.
+ * As this class grows, it might be split up further.
+ */
+@Test
+public class HarvestProviderTests extends ArquillianBaseTest {
+
+    /** Logger. */
+    private static Logger logger;
+
+    static {
+        logger = LoggerFactory.getLogger(
+                MethodHandles.lookup().lookupClass());
+    }
+
+    /** Name of this class, used in paths to test data files. */
+    private static final String CLASS_NAME_PREFIX = "HarvestProviderTests.";
+
+    /** The id of the PoolParty project harvested by the tests.
+     * It is the id of the project returned by the mock PoolParty
+     * server's list of projects. */
+    private static final String POOLPARTY_PROJECT_ID =
+            "1E261BB2-D935-0001-C115-18A018011B23";
+
+    /** Path of the PoolParty API method that exports the project. */
+    private static final String POOLPARTY_EXPORT_PATH =
+            "/PoolParty/api/projects/" + POOLPARTY_PROJECT_ID + "/export";
+
+    /** Path of the PoolParty SPARQL endpoint of the project. */
+    private static final String POOLPARTY_SPARQL_PATH =
+            "/PoolParty/sparql/ARDCRWtestsuiteproject1";
+
+    /** The IRIs of the concepts of the harvested data. */
+    private static final String[] CONCEPT_IRIS = {
+        "http://test/uri1",
+        "http://test/uri1/narrower1",
+        "http://test/uri1/narrower1/narrower1",
+        "http://test/uri2",
+        "http://test/noPrefLabel1",
+        "http://test/noPrefLabel2",
+    };
+
+    /** A convenient value to use for nowTime properties. */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static LocalDateTime nowTime1 =
+            LocalDateTime.of(2017, 10, 1, 10, 10);
+
+    /** Create the TaskInfo for a task in the database.
+     * @param em The EntityManager to use.
+     * @param taskId The id of the task.
+     * @param versionId The version id of the version of the task.
+     * @return The TaskInfo for the task.
+     */
+    private TaskInfo getTaskInfo(final EntityManager em, final int taskId,
+            final int versionId) {
+        Vocabulary vocabulary = VocabularyDAO.
+                getCurrentVocabularyByVocabularyId(em, 1);
+        Version version = VersionDAO.getCurrentVersionByVersionId(em,
+                versionId);
+        TaskInfo taskInfo = new TaskInfo(TaskDAO.getTaskById(taskId),
+                vocabulary, version);
+        taskInfo.setEm(em);
+        taskInfo.setModifiedBy("SYSTEM");
+        taskInfo.setNowTime(nowTime1);
+        return taskInfo;
+    }
+
+    /** Check that the ConceptTree and JsonList transforms of a version
+     * found all of the concepts of the harvested data.
+     * @param em The EntityManager to use.
+     * @param versionId The version id of the version.
+     * @param testsPath The path to the directory containing the
+     *      expected concept tree.
+     * @throws IOException If a problem reading the JSON files.
+     */
+    private void checkTransforms(final EntityManager em, final int versionId,
+            final String testsPath) throws IOException {
+        VersionArtefact va = VersionArtefactDAO.
+                getCurrentVersionArtefactListForVersionByType(versionId,
+                        VersionArtefactType.CONCEPT_TREE, em).get(0);
+        ArquillianTestUtils.compareJsonFiles(
+                va.getDataAs(VaConceptTree.class).getPath(),
+                testsPath + "test-data1-concepts_tree.json");
+        va = VersionArtefactDAO.
+                getCurrentVersionArtefactListForVersionByType(versionId,
+                        VersionArtefactType.CONCEPT_LIST, em).get(0);
+        Map<?, ?> conceptList = JSONSerialization.deserializeStringAsJson(
+                new File(va.getDataAs(VaConceptList.class).getPath()),
+                Map.class);
+        for (String iri : CONCEPT_IRIS) {
+            Assert.assertTrue(conceptList.containsKey(iri),
+                    "Concept missing from concept list: " + iri);
+        }
+    }
+
+    /** Get the paths of the current PoolParty harvest version
+     * artefacts of a version.
+     * @param em The EntityManager to use.
+     * @param versionId The version id of the version.
+     * @return The paths of the harvested files.
+     */
+    private List<Path> getHarvestPaths(final EntityManager em,
+            final int versionId) {
+        List<Path> paths = new ArrayList<>();
+        for (VersionArtefact va : VersionArtefactDAO.
+                getCurrentVersionArtefactListForVersionByType(versionId,
+                        VersionArtefactType.HARVEST_POOLPARTY, em)) {
+            paths.add(Paths.get(
+                    va.getDataAs(VaHarvestPoolparty.class).getPath()));
+        }
+        return paths;
+    }
+
+    /** Test of harvesting from the mock PoolParty server. The
+     * harvested files must be stored gzip-compressed, any uncompressed
+     * file left over from an earlier harvest must be removed, and the
+     * transforms that follow must read the compressed files.
+     * @throws DatabaseUnitException If a problem with DbUnit.
+     * @throws HibernateException If a problem getting the underlying
+     *          JDBC connection.
+     * @throws IOException If a problem getting test data for DbUnit,
+     *          or reading JSON from the correct and test output files.
+     * @throws SQLException If DbUnit has a problem performing
+     *           performing JDBC operations.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public final void testPoolPartyHarvestCompressed1() throws
+        DatabaseUnitException, HibernateException, IOException, SQLException {
+        String testName = CLASS_NAME_PREFIX
+                + "testPoolPartyHarvestCompressed1";
+        String testsPath = ArquillianTestUtils.getClassesPath()
+                + "/test/tests/" + testName + "/";
+        ArquillianTestUtils.clearDatabase(REGISTRY);
+        ArquillianTestUtils.loadDbUnitTestFile(REGISTRY, testName);
+
+        // Don't rely on the default WireMock client, which is
+        // configured only for the thread that started the mock server.
+        WireMock wireMock = new WireMock(PoolPartyMockServer.getPort());
+        StubMapping exportStub = wireMock.register(
+                WireMock.post(WireMock.urlEqualTo(POOLPARTY_EXPORT_PATH)).
+                willReturn(WireMock.ok(new String(Files.readAllBytes(
+                        Paths.get(testsPath, "concepts.ttl")),
+                        StandardCharsets.UTF_8))));
+        StubMapping sparqlStub = wireMock.register(
+                WireMock.post(WireMock.urlEqualTo(POOLPARTY_SPARQL_PATH)).
+                willReturn(WireMock.ok(
+                        "<http://test/user1> "
+                        + "<http://xmlns.com/foaf/0.1/name> "
+                        + "\"Test User\" .\n")));
+
+        EntityManager em = null;
+        EntityTransaction txn = null;
+        try {
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+            txn.begin();
+
+            TaskInfo taskInfo = getTaskInfo(em, 1, 1);
+            // Leave an uncompressed file, as though from a harvest
+            // done before harvested files were compressed.
+            Path oldFile = Paths.get(TaskUtils.getTaskHarvestOutputPath(
+                    taskInfo, true), "concepts.ttl");
+            Files.write(oldFile, "# Old harvest".getBytes(
+                    StandardCharsets.UTF_8));
+
+            taskInfo.process();
+            Assert.assertEquals(taskInfo.getTask().getStatus(),
+                    TaskStatus.SUCCESS, "Harvest and transforms failed");
+            Assert.assertFalse(Files.exists(oldFile),
+                    "Uncompressed file from earlier harvest not removed");
+
+            // The export, the deprecated concepts, and the users.
+            List<Path> harvestPaths = getHarvestPaths(em, 1);
+            Assert.assertEquals(harvestPaths.size(), 3,
+                    "Wrong number of harvested files");
+            for (Path path : harvestPaths) {
+                Assert.assertTrue(RegistryFileUtils.isGzipCompressed(path),
+                        "Harvested file not compressed: " + path);
+                Assert.assertTrue(Files.exists(path),
+                        "Harvested file missing: " + path);
+            }
+            Assert.assertEquals(TaskUtils.getPathsToProcessForVersion(
+                    taskInfo), harvestPaths,
+                    "Wrong paths to process for version");
+
+            checkTransforms(em, 1, testsPath);
+            txn.commit();
+        } catch (Throwable t) {
+            if (txn != null && txn.isActive()) {
+                try {
+                    logger.error("Exception during transaction; rolling back",
+                            t);
+                    txn.rollback();
+                } catch (Exception e) {
+                    logger.error("Rollback failure!", e);
+                }
+            } else {
+                logger.error("Exception other than during transaction: ", t);
+            }
+            throw t;
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+            wireMock.removeStubMapping(exportStub);
+            wireMock.removeStubMapping(sparqlStub);
+        }
+    }
+
+    /** Test of the compression of existing harvested files.
+     * Before {@link CompressHarvestFiles} is run, a harvested file is
+     * compressed without its version artefact being updated; the
+     * transforms of that version must find the compressed file.
+     * Then, {@link CompressHarvestFiles} is run twice. It must compress
+     * the other harvested file, and update both version artefacts;
+     * running it again must change nothing. The transforms of the
+     * other version must then read the compressed file.
+     * @throws DatabaseUnitException If a problem with DbUnit.
+     * @throws HibernateException If a problem getting the underlying
+     *          JDBC connection.
+     * @throws IOException If a problem getting test data for DbUnit,
+     *          or reading JSON from the correct and test output files.
+     * @throws SQLException If DbUnit has a problem performing
+     *           performing JDBC operations.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public final void testCompressHarvestFiles1() throws
+        DatabaseUnitException, HibernateException, IOException, SQLException {
+        String testName = CLASS_NAME_PREFIX
+                + "testCompressHarvestFiles1";
+        String testsPath = ArquillianTestUtils.getClassesPath()
+                + "/test/tests/" + testName + "/";
+        ArquillianTestUtils.clearDatabase(REGISTRY);
+        ArquillianTestUtils.loadDbUnitTestFile(REGISTRY, testName);
+        ArquillianTestUtils.copyTempFilesForTest(testName);
+        Path tempPath = ArquillianTestUtils.getTempPathForTest(testName);
+        Path file1 = tempPath.resolve("concepts1.ttl");
+        Path file2 = tempPath.resolve("concepts2.ttl");
+        Path gzFile1 = tempPath.resolve("concepts1.ttl.gz");
+        Path gzFile2 = tempPath.resolve("concepts2.ttl.gz");
+        Files.copy(file1, file2);
+        Assert.assertEquals(RegistryFileUtils.compressFile(file2), gzFile2,
+                "Wrong path of compressed file");
+
+        EntityManager em = null;
+        EntityTransaction txn = null;
+        try {
+            // The version artefact of version 2 still refers to
+            // the uncompressed file.
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+            txn.begin();
+            Assert.assertEquals(getHarvestPaths(em, 2).get(0), file2,
+                    "Version artefact changed before compression");
+            TaskInfo taskInfo = getTaskInfo(em, 2, 2);
+            Assert.assertEquals(TaskUtils.getPathsToProcessForVersion(
+                    taskInfo).get(0), gzFile2,
+                    "Compressed file not found in place of missing file");
+            taskInfo.process();
+            Assert.assertEquals(taskInfo.getTask().getStatus(),
+                    TaskStatus.SUCCESS, "Transforms of version 2 failed");
+            checkTransforms(em, 2, testsPath);
+            txn.commit();
+            em.close();
+            em = null;
+
+            // Running it a second time must change nothing.
+            for (int run = 1; run <= 2; run++) {
+                CompressHarvestFiles.main(new String[0]);
+                Assert.assertFalse(Files.exists(file1),
+                        "Uncompressed file not removed, run " + run);
+                Assert.assertTrue(Files.exists(gzFile1),
+                        "Compressed file missing, run " + run);
+                Assert.assertTrue(Files.exists(gzFile2),
+                        "Compressed file missing, run " + run);
+            }
+
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+            txn.begin();
+            Assert.assertEquals(getHarvestPaths(em, 1).get(0), gzFile1,
+                    "Version artefact of compressed file not updated");
+            Assert.assertEquals(getHarvestPaths(em, 2).get(0), gzFile2,
+                    "Version artefact of already-compressed file "
+                    + "not updated");
+            taskInfo = getTaskInfo(em, 1, 1);
+            taskInfo.process();
+            Assert.assertEquals(taskInfo.getTask().getStatus(),
+                    TaskStatus.SUCCESS, "Transforms of version 1 failed");
+            checkTransforms(em, 1, testsPath);
+            txn.commit();
+        } catch (Throwable t) {
+            if (txn != null && txn.isActive()) {
+                try {
+                    logger.error("Exception during transaction; rolling back",
+                            t);
+                    txn.rollback();
+                } catch (Exception e) {
+                    logger.error("Rollback failure!", e);
+                }
+            } else {
+                logger.error("Exception other than during transaction: ", t);
+            }
+            throw t;
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+    }
+
+}
@@ -4,6 +4,7 @@ package au.org.ands.vocabs.registry.test;
 
 import static au.org.ands.vocabs.toolkit.test.utils.DatabaseSelector.REGISTRY;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.sql.SQLException;
@@ -37,12 +38,17 @@ import au.org.ands.vocabs.registry.db.entity.VersionArtefact;
 import au.org.ands.vocabs.registry.db.entity.Vocabulary;
 import au.org.ands.vocabs.registry.db.internal.VaConceptTree;
 import au.org.ands.vocabs.registry.db.internal.VaResourceDocs;
+import au.org.ands.vocabs.registry.enums.SubtaskOperationType;
+import au.org.ands.vocabs.registry.enums.SubtaskProviderType;
 import au.org.ands.vocabs.registry.enums.TaskStatus;
 import au.org.ands.vocabs.registry.enums.VersionArtefactType;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
 import au.org.ands.vocabs.registry.workflow.provider.transform.ConceptTreeTransformProvider;
 import au.org.ands.vocabs.registry.workflow.provider.transform.JsonTreeTransformProvider;
+import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.ConceptTreeIndex;
 import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.Resource;
 import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.StatementHandler;
+import au.org.ands.vocabs.registry.workflow.tasks.Subtask;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskInfo;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskRunner;
 import au.org.ands.vocabs.toolkit.test.arquillian.ArquillianBaseTest;
@@ -1202,6 +1208,99 @@ public class TransformProviderTests extends ArquillianBaseTest {
     }
 
 
+    /** Server-side test of deleting the concept tree generated by
+     * {@code ConceptTreeTransformProvider}. The concept tree file
+     * itself is kept, but its index and its gzip-compressed copy
+     * are deleted.
+     * The test data of
+     * {@link #testConceptTreeTransformProvider1()} is reused.
+     * @throws DatabaseUnitException If a problem with DbUnit.
+     * @throws HibernateException If a problem getting the underlying
+     *          JDBC connection.
+     * @throws IOException If a problem getting test data for DbUnit.
+     * @throws SQLException If DbUnit has a problem performing
+     *           performing JDBC operations.
+     */
+    @Test
+    public final void testConceptTreeTransformProviderDelete1() throws
+        DatabaseUnitException, HibernateException, IOException, SQLException {
+        ArquillianTestUtils.clearDatabase(REGISTRY);
+        ArquillianTestUtils.loadDbUnitTestFile(REGISTRY, CLASS_NAME_PREFIX
+                + "testConceptTreeTransformProvider1");
+
+        EntityManager em = null;
+        EntityTransaction txn = null;
+        try {
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+            txn.begin();
+
+            Vocabulary vocabulary = VocabularyDAO.
+                    getCurrentVocabularyByVocabularyId(em, 1);
+            Version version = VersionDAO.getCurrentVersionByVersionId(em, 1);
+            TaskInfo taskInfo = new TaskInfo(TaskDAO.getTaskById(1),
+                    vocabulary, version);
+            taskInfo.setEm(em);
+            taskInfo.setModifiedBy("SYSTEM");
+            taskInfo.setNowTime(nowTime1);
+            taskInfo.process();
+            Assert.assertEquals(taskInfo.getTask().getStatus(),
+                    TaskStatus.SUCCESS,
+                    "ConceptTreeTransformProvider failed on task 1");
+
+            VersionArtefact va = VersionArtefactDAO.
+                    getCurrentVersionArtefactListForVersionByType(1,
+                            VersionArtefactType.CONCEPT_TREE, em).get(0);
+            File treeFile = new File(JSONSerialization.
+                    deserializeStringAsJson(va.getData(),
+                            VaConceptTree.class).getPath());
+            File indexFile = ConceptTreeIndex.getIndexFile(treeFile);
+            Assert.assertTrue(indexFile.isFile(),
+                    "No concept tree index written");
+            File gzFile = RegistryFileUtils.getGzipCompressedCopyFile(
+                    treeFile);
+            Assert.assertTrue(gzFile.isFile(),
+                    "No compressed copy of concept tree written");
+
+            Subtask subtask = new Subtask(SubtaskProviderType.TRANSFORM,
+                    SubtaskOperationType.DELETE,
+                    ConceptTreeTransformProvider.class);
+            new ConceptTreeTransformProvider().doSubtask(taskInfo, subtask);
+            Assert.assertEquals(subtask.getStatus(), TaskStatus.SUCCESS,
+                    "Deleting the concept tree failed");
+            Assert.assertTrue(VersionArtefactDAO.
+                    getCurrentVersionArtefactListForVersionByType(1,
+                            VersionArtefactType.CONCEPT_TREE, em).isEmpty(),
+                    "Concept tree version artefact not removed");
+            Assert.assertTrue(treeFile.isFile(),
+                    "Concept tree file deleted");
+            Assert.assertFalse(indexFile.exists(),
+                    "Concept tree index not deleted");
+            Assert.assertFalse(gzFile.exists(),
+                    "Compressed copy of concept tree not deleted");
+
+            txn.commit();
+        } catch (Throwable t) {
+            if (txn != null && txn.isActive()) {
+                try {
+                    logger.error("Exception during transaction; rolling back",
+                            t);
+                    txn.rollback();
+                } catch (Exception e) {
+                    logger.error("Rollback failure!", e);
+                }
+            } else {
+                logger.error("Exception other than during transaction: ", t);
+            }
+            throw t;
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+    }
+
+
 
     // Tests of class
     // au.org.ands.vocabs.registry.workflow.
@@ -1530,6 +1629,122 @@ public class TransformProviderTests extends ArquillianBaseTest {
         }
     }
 
+    /** Server-side test 4 of {@code ResourceMapTransformProvider}.
+     * The same data as test 3, but the subtasks specify that
+     * the resource map entries are to be computed from the harvested
+     * files, rather than by a SPARQL query. The expected results
+     * are exactly those of test 3.
+     * @throws DatabaseUnitException If a problem with DbUnit.
+     * @throws HibernateException If a problem getting the underlying
+     *          JDBC connection.
+     * @throws IOException If a problem getting test data for DbUnit,
+     *          or reading JSON from the correct and test output files.
+     * @throws SQLException If DbUnit has a problem performing
+     *           performing JDBC operations.
+     */
+    @Test
+    public final void testResourceMapTransformProvider4() throws
+        DatabaseUnitException, HibernateException, IOException, SQLException {
+        ArquillianTestUtils.clearDatabase(REGISTRY);
+        ArquillianTestUtils.loadDbUnitTestFile(REGISTRY, CLASS_NAME_PREFIX
+                + "testResourceMapTransformProvider4");
+
+        EntityManager em = null;
+        EntityTransaction txn = null;
+        try {
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+            txn.begin();
+
+            Vocabulary vocabulary = VocabularyDAO.
+                    getCurrentVocabularyByVocabularyId(em, 1);
+            Version version = VersionDAO.getCurrentVersionByVersionId(em, 1);
+
+            TaskInfo taskInfo;
+            au.org.ands.vocabs.registry.workflow.tasks.Task workflowTask;
+
+            List<Task> taskList = TaskDAO.getAllTask();
+
+            logger.info("testResourceMapTransformProvider4: task list length = "
+                    + taskList.size());
+
+            Task task = TaskDAO.getTaskById(1);
+            taskInfo = new TaskInfo(task, vocabulary, version);
+
+            taskInfo.setEm(em);
+            taskInfo.setModifiedBy("SYSTEM");
+            taskInfo.setNowTime(nowTime1);
+            taskInfo.process();
+            workflowTask = taskInfo.getTask();
+
+            Assert.assertEquals(workflowTask.getStatus(), TaskStatus.SUCCESS,
+                    "ResourceMapTransformProvider failed on task 1");
+
+            task = TaskDAO.getTaskById(2);
+            vocabulary = VocabularyDAO.
+                    getCurrentVocabularyByVocabularyId(em, 2);
+            version = VersionDAO.getCurrentVersionByVersionId(em, 2);
+            taskInfo = new TaskInfo(task, vocabulary, version);
+            taskInfo.setEm(em);
+            taskInfo.setModifiedBy("SYSTEM");
+            taskInfo.setNowTime(nowTime1);
+            taskInfo.process();
+            workflowTask = taskInfo.getTask();
+
+            Assert.assertEquals(workflowTask.getStatus(), TaskStatus.SUCCESS,
+                    "ResourceMapTransformProvider failed on task 2");
+            txn.commit();
+            // If a dump is required, uncomment the next line.
+//          ArquillianTestUtils.exportFullDbUnitData(REGISTRY, "trmtp4.xml");
+
+            // Get current contents of resource_map table.
+            ITable actualTable = ArquillianTestUtils.
+                    getDatabaseTableCurrentContents(REGISTRY,
+                            DbUnitConstants.RESOURCEMAPENTRY_TABLE_NAME);
+            // And take out the id column before
+            // doing a comparison. Cf. the other tests, in which we also
+            // take out the access_point_id column. This time, we have
+            // two access points in play, so we rely on the database
+            // cleaning having reset the counters, so that generated ids can be
+            // relied on to start from 1.
+            ITable filteredActualTable =
+                    DefaultColumnFilter.excludedColumnsTable(
+                            actualTable, new String[]{"ID"});
+
+            IDataSet expectedDataSet = ArquillianTestUtils.
+                    getDatabaseTableExpectedContents(REGISTRY,
+                            "test/tests/"
+                                    + CLASS_NAME_PREFIX
+                                    + "testResourceMapTransformProvider3/"
+                                    + "test-data1-results.xml");
+            ITable expectedTable = expectedDataSet.getTable(
+                    DbUnitConstants.RESOURCEMAPENTRY_TABLE_NAME);
+            ITable filteredExpectedTable =
+                    DefaultColumnFilter.excludedColumnsTable(
+                            expectedTable, new String[]{"ID"});
+            Assertion.assertEquals(new SortedTable(filteredExpectedTable),
+                    new SortedTable(filteredActualTable,
+                            filteredExpectedTable.getTableMetaData()));
+        } catch (Throwable t) {
+            if (txn != null && txn.isActive()) {
+                try {
+                    logger.error("Exception during transaction; rolling back",
+                            t);
+                    txn.rollback();
+                } catch (Exception e) {
+                    logger.error("Rollback failure!", e);
+                }
+            } else {
+                logger.error("Exception other than during transaction: ", t);
+            }
+            throw t;
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+    }
+
     // Tests of class
     // au.org.ands.vocabs.registry.workflow.
     //     provider.transform.ResourceDocsTransformProvider.
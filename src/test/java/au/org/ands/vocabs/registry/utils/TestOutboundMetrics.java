@@ -0,0 +1,122 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/** Tests of the OutboundMetrics class. The metrics are kept for
+ * the lifetime of the JVM, so each test uses its own destinations. */
+public class TestOutboundMetrics {
+
+    /** Get the current metrics of a destination.
+     * @param destination The destination.
+     * @return The metrics of the destination, or null, if there
+     *      are none.
+     */
+    private static Map<String, Object> metricsOf(final String destination) {
+        return OutboundMetrics.getSnapshot().get(destination);
+    }
+
+    /** Test the construction of the names of destinations. */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testGetDestination() {
+        Assert.assertEquals(OutboundMetrics.getDestination("https",
+                "example.com", 8443), "https://example.com:8443",
+                "Wrong destination with port");
+        Assert.assertEquals(OutboundMetrics.getDestination("http",
+                "example.com", -1), "http://example.com",
+                "Wrong destination with default port");
+    }
+
+    /** Test that responses are counted, that responses with an
+     * error status code and failures are counted as errors, and that
+     * latencies are accumulated.
+     * @throws InterruptedException If interrupted while sleeping.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testResponsesAndFailures() throws InterruptedException {
+        String destination = "http://responses.test";
+        Assert.assertNull(metricsOf(destination),
+                "Metrics present before any request");
+
+        long start = OutboundMetrics.recordStart();
+        Thread.sleep(20);
+        OutboundMetrics.recordResponse(destination, start, 200);
+        OutboundMetrics.recordResponse(destination,
+                OutboundMetrics.recordStart(), 302);
+        OutboundMetrics.recordResponse(destination,
+                OutboundMetrics.recordStart(), 404);
+        OutboundMetrics.recordResponse(destination,
+                OutboundMetrics.recordStart(), 503);
+        OutboundMetrics.recordFailure(destination);
+
+        Map<String, Object> metrics = metricsOf(destination);
+        Assert.assertNotNull(metrics, "No metrics for destination");
+        Assert.assertEquals(metrics.get("requests"), 4L,
+                "Wrong number of requests");
+        Assert.assertEquals(metrics.get("errors"), 3L,
+                "Wrong number of errors");
+        Assert.assertEquals(metrics.get("bytes"), 0L,
+                "Bytes counted without a body");
+        long total = (Long) metrics.get("totalLatencyMillis");
+        long max = (Long) metrics.get("maxLatencyMillis");
+        Assert.assertTrue(max >= 20, "Maximum latency not recorded");
+        Assert.assertTrue(total >= max,
+                "Total latency less than maximum latency");
+        Assert.assertEquals(metrics.get("meanLatencyMillis"), total / 4,
+                "Wrong mean latency");
+    }
+
+    /** Test that a destination with only failures has a mean latency
+     * of zero. */
+    @Test
+    public void testFailuresOnly() {
+        String destination = "http://failures.test";
+        OutboundMetrics.recordFailure(destination);
+        Map<String, Object> metrics = metricsOf(destination);
+        Assert.assertEquals(metrics.get("requests"), 0L,
+                "Failure counted as a request");
+        Assert.assertEquals(metrics.get("errors"), 1L,
+                "Failure not counted as an error");
+        Assert.assertEquals(metrics.get("meanLatencyMillis"), 0L,
+                "Wrong mean latency without requests");
+    }
+
+    /** Test that the bytes read from a counting stream are counted,
+     * whether read one at a time or into a buffer, and that the
+     * end of the stream is not counted.
+     * @throws IOException If there is an error reading the stream.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testCountingStream() throws IOException {
+        String destination = "http://bytes.test";
+        byte[] body = "0123456789".getBytes(StandardCharsets.UTF_8);
+        try (InputStream in = OutboundMetrics.countingStream(destination,
+                new ByteArrayInputStream(body))) {
+            Assert.assertEquals(in.read(), '0', "Wrong first byte");
+            byte[] buffer = new byte[4];
+            Assert.assertEquals(in.read(buffer, 0, buffer.length), 4,
+                    "Wrong number of bytes read into buffer");
+            Assert.assertEquals(metricsOf(destination).get("bytes"), 5L,
+                    "Wrong number of bytes counted while reading");
+            while (in.read(buffer, 0, buffer.length) > 0) {
+                // Read to the end.
+                continue;
+            }
+            Assert.assertEquals(in.read(), -1, "Stream not at end");
+        }
+        Assert.assertEquals(metricsOf(destination).get("bytes"),
+                (long) body.length, "Wrong number of bytes counted");
+    }
+
+}
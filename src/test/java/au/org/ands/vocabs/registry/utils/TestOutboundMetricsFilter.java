@@ -0,0 +1,107 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils;
+
+import java.util.Map;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.Response;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+
+/** Tests of the OutboundMetricsFilter class, using a JAX-RS client
+ * with the filter registered, that makes requests of a mock server. */
+public class TestOutboundMetricsFilter {
+
+    /** Timeout (in ms) after which to force Jetty's Threads to stop. */
+    private static final long JETTY_STOP_TIMEOUT = 1L;
+
+    /** The body of the successful response. */
+    private static final String BODY = "Some content";
+
+    /** The mock server. */
+    private WireMockServer server;
+
+    /** The client that makes requests of the mock server. */
+    private Client client;
+
+    /** Start the mock server, and create the client. */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @BeforeClass
+    public void setup() {
+        server = new WireMockServer(
+                WireMockConfiguration.wireMockConfig().
+                dynamicPort().
+                jettyStopTimeout(JETTY_STOP_TIMEOUT));
+        server.start();
+        server.stubFor(WireMock.get(WireMock.urlEqualTo("/ok")).
+                willReturn(WireMock.ok(BODY)));
+        server.stubFor(WireMock.get(WireMock.urlEqualTo("/missing")).
+                willReturn(WireMock.notFound()));
+        server.stubFor(WireMock.get(WireMock.urlEqualTo("/empty")).
+                willReturn(WireMock.noContent()));
+        client = ClientBuilder.newClient().
+                register(new OutboundMetricsFilter());
+    }
+
+    /** Close the client, and stop the mock server. */
+    @AfterClass
+    public void shutdown() {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    /** Make a request of the mock server.
+     * @param path The path of the request.
+     * @return The body of the response.
+     */
+    private String get(final String path) {
+        Response response = client.target(server.baseUrl()).path(path).
+                request().get();
+        try {
+            return response.readEntity(String.class);
+        } finally {
+            response.close();
+        }
+    }
+
+    /** Test that the filter records requests, errors, latency,
+     * and the bytes of the response bodies that are read. */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testFilter() {
+        String destination = OutboundMetrics.getDestination("http",
+                "localhost", server.port());
+        Assert.assertEquals(get("ok"), BODY, "Wrong response body");
+        get("missing");
+        get("empty");
+        Assert.assertEquals(get("ok"), BODY, "Wrong response body");
+
+        Map<String, Object> metrics =
+                OutboundMetrics.getSnapshot().get(destination);
+        Assert.assertNotNull(metrics, "No metrics for mock server");
+        Assert.assertEquals(metrics.get("requests"), 4L,
+                "Wrong number of requests");
+        Assert.assertEquals(metrics.get("errors"), 1L,
+                "Wrong number of errors");
+        Assert.assertEquals(metrics.get("bytes"), 2L * BODY.length(),
+                "Wrong number of bytes counted");
+        Assert.assertTrue((Long) metrics.get("totalLatencyMillis")
+                >= (Long) metrics.get("maxLatencyMillis"),
+                "Total latency less than maximum latency");
+        server.verify(2, WireMock.getRequestedFor(WireMock.urlEqualTo("/ok")));
+    }
+
+}
@@ -0,0 +1,214 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/** Tests of the RefreshingCache class. */
+public class TestRefreshingCache {
+
+    /** Test that fresh values are returned without reloading,
+     * that stale values are returned while being reloaded in the
+     * background, and that expired values are reloaded.
+     * @throws Exception If there is an error running the test.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testFreshStaleExpired() throws Exception {
+        AtomicInteger version = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RefreshingCache<String, String> cache = new RefreshingCache<>(
+                key -> key + version.incrementAndGet(),
+                value -> true, 200, 400, TimeUnit.MILLISECONDS, executor);
+        Assert.assertEquals(cache.get("a"), "a1", "Wrong initial value");
+        Assert.assertEquals(cache.get("a"), "a1", "Fresh value not used");
+        Assert.assertEquals(cache.getLoadCount(), 1, "Fresh value reloaded");
+        Thread.sleep(300);
+        Assert.assertEquals(cache.get("a"), "a1", "Stale value not used");
+        executor.submit(() -> { }).get();
+        Assert.assertEquals(cache.getLoadCount(), 2,
+                "Stale value not reloaded");
+        Assert.assertEquals(cache.get("a"), "a2",
+                "Reloaded value not used");
+        Thread.sleep(700);
+        Assert.assertEquals(cache.get("a"), "a3",
+                "Expired value not reloaded");
+        executor.shutdown();
+    }
+
+    /** Test that concurrent requests for the same key result in
+     * only one load.
+     * @throws Exception If there is an error running the test.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testConcurrentLoadsDeduplicated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        RefreshingCache<String, String> cache = new RefreshingCache<>(
+                key -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return key;
+                },
+                value -> true, 1, 1, TimeUnit.MINUTES, Runnable::run);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> cache.get("a")));
+        }
+        // Give the requests time to arrive before the load finishes.
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<String> future : futures) {
+            Assert.assertEquals(future.get(), "a", "Wrong value");
+        }
+        executor.shutdown();
+        Assert.assertEquals(loads.get(), 1, "Concurrent loads not merged");
+    }
+
+    /** Test that values that are not cacheable are not stored,
+     * and that invalidation removes values.
+     */
+    @Test
+    public void testCacheableAndInvalidate() {
+        AtomicInteger version = new AtomicInteger();
+        RefreshingCache<String, String> cache = new RefreshingCache<>(
+                key -> key + version.incrementAndGet(),
+                value -> !value.startsWith("error"),
+                1, 1, TimeUnit.MINUTES, Runnable::run);
+        Assert.assertEquals(cache.get("error"), "error1", "Wrong value");
+        Assert.assertEquals(cache.get("error"), "error2",
+                "Uncacheable value was cached");
+        Assert.assertEquals(cache.get("a"), "a3", "Wrong value");
+        Assert.assertEquals(cache.get("a"), "a3", "Value not cached");
+        cache.invalidate("a");
+        Assert.assertEquals(cache.get("a"), "a4", "Value not invalidated");
+        cache.invalidateAll();
+        Assert.assertEquals(cache.size(), 0, "Cache not cleared");
+    }
+
+    /** Test that an Error thrown by the loader is passed on to
+     * all of the requests waiting for the load, rather than leaving
+     * them waiting forever, and that a later request loads again.
+     * @throws Exception If there is an error running the test.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testLoaderError() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        RefreshingCache<String, String> cache = new RefreshingCache<>(
+                key -> {
+                    if (loads.incrementAndGet() > 1) {
+                        return key;
+                    }
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new StackOverflowError("Test error");
+                },
+                value -> true, 1, 1, TimeUnit.MINUTES, Runnable::run);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> cache.get("a")));
+        }
+        // Give the requests time to arrive before the load fails.
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<String> future : futures) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                Assert.fail("No error from failed load");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof StackOverflowError,
+                        "Wrong cause: " + e.getCause());
+            }
+        }
+        executor.shutdown();
+        Assert.assertEquals(loads.get(), 1, "Concurrent loads not merged");
+        Assert.assertEquals(cache.get("a"), "a", "Not loaded again");
+    }
+
+    /** Test that invalidating a key during a load of that key
+     * prevents the result of the load being stored, but that
+     * invalidating a different key does not.
+     * @throws Exception If there is an error running the test.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testInvalidateDuringLoad() throws Exception {
+        AtomicInteger version = new AtomicInteger();
+        AtomicReference<CountDownLatch> started = new AtomicReference<>();
+        AtomicReference<CountDownLatch> release = new AtomicReference<>();
+        RefreshingCache<String, String> cache = new RefreshingCache<>(
+                key -> {
+                    started.get().countDown();
+                    try {
+                        release.get().await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return key + version.incrementAndGet();
+                },
+                value -> true, 1, 1, TimeUnit.MINUTES, Runnable::run);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // Invalidate a different key during the load: the result
+        // is stored.
+        started.set(new CountDownLatch(1));
+        release.set(new CountDownLatch(1));
+        Future<String> future = executor.submit(() -> cache.get("a"));
+        Assert.assertTrue(started.get().await(10, TimeUnit.SECONDS),
+                "Load not started");
+        cache.invalidate("b");
+        release.get().countDown();
+        Assert.assertEquals(future.get(10, TimeUnit.SECONDS), "a1",
+                "Wrong value");
+        Assert.assertEquals(cache.size(), 1,
+                "Value discarded because of another key");
+
+        // Invalidate the same key during the load: the result is
+        // returned, but not stored.
+        cache.invalidate("a");
+        started.set(new CountDownLatch(1));
+        release.set(new CountDownLatch(1));
+        future = executor.submit(() -> cache.get("a"));
+        Assert.assertTrue(started.get().await(10, TimeUnit.SECONDS),
+                "Load not started");
+        cache.invalidate("a");
+        release.get().countDown();
+        Assert.assertEquals(future.get(10, TimeUnit.SECONDS), "a2",
+                "Wrong value");
+        Assert.assertEquals(cache.size(), 0,
+                "Value stored despite invalidation");
+
+        // Without invalidation, the next load is stored.
+        started.set(new CountDownLatch(1));
+        release.set(new CountDownLatch(1));
+        release.get().countDown();
+        Assert.assertEquals(cache.get("a"), "a3", "Wrong value");
+        Assert.assertEquals(cache.get("a"), "a3", "Value not cached");
+        executor.shutdown();
+    }
+
+}
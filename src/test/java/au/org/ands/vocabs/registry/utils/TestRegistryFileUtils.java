@@ -0,0 +1,198 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Tests of the methods of RegistryFileUtils that read and write
+ * files that may be stored gzip-compressed. */
+public class TestRegistryFileUtils {
+
+    /** Some RDF data, long enough and repetitive enough to
+     * compress well. */
+    private static final String DATA;
+
+    static {
+        StringBuilder sb = new StringBuilder(
+                "@prefix skos: <http://www.w3.org/2004/02/skos/core#> .\n");
+        final int concepts = 100;
+        for (int i = 0; i < concepts; i++) {
+            sb.append("<http://test/c" + i + "> skos:prefLabel \"Concept "
+                    + i + " é\"@en .\n");
+        }
+        DATA = sb.toString();
+    }
+
+    /** A temporary directory that contains the files written
+     * by the tests. */
+    private Path tempDir;
+
+    /** Create the temporary directory.
+     * @throws IOException If the directory can not be created.
+     */
+    @BeforeClass
+    public void createTempDir() throws IOException {
+        tempDir = Files.createTempDirectory("TestRegistryFileUtils");
+    }
+
+    /** Remove the temporary directory.
+     * @throws IOException If the directory can not be removed.
+     */
+    @AfterClass
+    public void removeTempDir() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(Comparator.reverseOrder()).
+                forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /** Read the contents of a file using
+     * {@link RegistryFileUtils#newInputStream(Path)}.
+     * @param path The path of the file.
+     * @return The (uncompressed) contents of the file.
+     * @throws IOException If the file can not be read.
+     */
+    private static String read(final Path path) throws IOException {
+        try (InputStream is = RegistryFileUtils.newInputStream(path)) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            RegistryFileUtils.copy(is, baos);
+            return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Decide if a file is in gzip format, based on its first two bytes.
+     * @param path The path of the file.
+     * @return true, if the file is in gzip format.
+     * @throws IOException If the file can not be read.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static boolean isGzipFormat(final Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        return bytes.length > 1 && (bytes[0] & 0xff) == 0x1f
+                && (bytes[1] & 0xff) == 0x8b;
+    }
+
+    /** Test the methods that work with the names of files
+     * that may be stored gzip-compressed. */
+    @Test
+    public void testFileNames() {
+        Path gzPath = Paths.get("dir", "concepts.ttl.gz");
+        Path path = Paths.get("dir", "concepts.ttl");
+        Assert.assertTrue(RegistryFileUtils.isGzipCompressed(gzPath),
+                "Compressed file not recognized");
+        Assert.assertFalse(RegistryFileUtils.isGzipCompressed(path),
+                "Uncompressed file recognized as compressed");
+        Assert.assertEquals(RegistryFileUtils.getUncompressedFileName(gzPath),
+                path.toString(), "Wrong uncompressed name of compressed file");
+        Assert.assertEquals(RegistryFileUtils.getUncompressedFileName(path),
+                path.toString(), "Wrong uncompressed name of plain file");
+    }
+
+    /** Test that data written using
+     * {@link RegistryFileUtils#newOutputStream(Path)} is compressed
+     * if, and only if, the name of the file ends with ".gz", and that
+     * it reads back the same using
+     * {@link RegistryFileUtils#newInputStream(Path)}.
+     * @throws IOException If a file can not be written or read.
+     */
+    @Test
+    public void testStreamsRoundTrip() throws IOException {
+        Path path = tempDir.resolve("streams.ttl");
+        Path gzPath = tempDir.resolve("streams.ttl.gz");
+        for (Path p : new Path[] {path, gzPath}) {
+            try (OutputStream os = RegistryFileUtils.newOutputStream(p)) {
+                os.write(DATA.getBytes(StandardCharsets.UTF_8));
+            }
+            Assert.assertEquals(read(p), DATA, "Round trip differs: " + p);
+        }
+        Assert.assertFalse(isGzipFormat(path), "Plain file compressed");
+        Assert.assertTrue(isGzipFormat(gzPath), ".gz file not compressed");
+        Assert.assertTrue(Files.size(gzPath) < Files.size(path),
+                ".gz file not smaller");
+    }
+
+    /** Test that opening a file for reading fails, if its name ends
+     * with ".gz", but it is not in gzip format.
+     * @throws IOException If the file can not be written.
+     */
+    @Test(expectedExceptions = IOException.class)
+    public void testNewInputStreamNotGzip() throws IOException {
+        Path path = tempDir.resolve("notgzip.ttl.gz");
+        Files.write(path, DATA.getBytes(StandardCharsets.UTF_8));
+        read(path);
+    }
+
+    /** Test that a file replaced by a compressed copy using
+     * {@link RegistryFileUtils#compressFile(Path)} has the same
+     * contents and modification time, that the original is removed,
+     * and that compressing a compressed file does nothing.
+     * @throws IOException If a file can not be written or read.
+     */
+    @Test
+    public void testCompressFile() throws IOException {
+        Path path = tempDir.resolve("compress.ttl");
+        Files.write(path, DATA.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(path,
+                Files.getLastModifiedTime(path.getParent()));
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+
+        Path gzPath = RegistryFileUtils.compressFile(path);
+        Assert.assertEquals(gzPath, tempDir.resolve("compress.ttl.gz"),
+                "Wrong path of compressed file");
+        Assert.assertFalse(Files.exists(path), "Original not removed");
+        Assert.assertTrue(isGzipFormat(gzPath), "File not compressed");
+        Assert.assertEquals(Files.getLastModifiedTime(gzPath).toMillis(),
+                lastModified, "Modification time not preserved");
+        Assert.assertEquals(read(gzPath), DATA, "Contents differ");
+        Assert.assertFalse(Files.exists(
+                tempDir.resolve("compress.ttl.gz.tmp")),
+                "Temporary file left behind");
+
+        Assert.assertEquals(RegistryFileUtils.compressFile(gzPath), gzPath,
+                "Compressed file compressed again");
+        Assert.assertEquals(read(gzPath), DATA,
+                "Contents changed by compressing again");
+    }
+
+    /** Test saving RDF data, uncompressed and then compressed:
+     * the compressed file replaces the uncompressed file, and
+     * both read back the same.
+     * @throws IOException If a file can not be read.
+     */
+    @Test
+    public void testSaveRDFToFile() throws IOException {
+        String dirName = tempDir.resolve("harvest").toString();
+        String filePath = RegistryFileUtils.saveRDFToFile(dirName,
+                "concepts", "Turtle", DATA, false);
+        Path path = Paths.get(dirName, "concepts.ttl");
+        Assert.assertEquals(filePath, path.toString(),
+                "Wrong path of uncompressed file");
+        Assert.assertFalse(isGzipFormat(path), "File compressed");
+        Assert.assertEquals(read(path), DATA, "Uncompressed contents differ");
+
+        String gzFilePath = RegistryFileUtils.saveRDFToFile(dirName,
+                "concepts", "Turtle", DATA, true);
+        Path gzPath = Paths.get(dirName, "concepts.ttl.gz");
+        Assert.assertEquals(gzFilePath, gzPath.toString(),
+                "Wrong path of compressed file");
+        Assert.assertTrue(isGzipFormat(gzPath), "File not compressed");
+        Assert.assertEquals(read(gzPath), DATA, "Compressed contents differ");
+        Assert.assertFalse(Files.exists(path),
+                "Uncompressed file from earlier save not removed");
+    }
+
+}
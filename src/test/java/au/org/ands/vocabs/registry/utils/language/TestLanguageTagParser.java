@@ -0,0 +1,261 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils.language;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import javax.xml.bind.JAXBException;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import au.org.ands.vocabs.registry.utils.language.lsr.Entry;
+
+/** Tests of the LanguageTagParser class, which compare its results
+ * with those of the implementation that it replaced,
+ * {@link ReferenceLanguageTagParser}. */
+public class TestLanguageTagParser {
+
+    /** The language subtag registry file used by the tests. */
+    private static final String REGISTRY_FILENAME =
+            "conf/language-subtag-registry";
+
+    /** The seed of the generator of random tags, fixed so that
+     * any failure can be reproduced. */
+    private static final long RANDOM_SEED = 20201018L;
+
+    /** The number of random tags to be generated. */
+    private static final int RANDOM_TAG_COUNT = 200000;
+
+    /** The maximum number of components of a random tag. */
+    private static final int RANDOM_TAG_MAX_COMPONENTS = 7;
+
+    /** The maximum length of a random subtag. */
+    private static final int RANDOM_SUBTAG_MAX_LENGTH = 10;
+
+    /** Characters used in random subtags. As well as letters and
+     * digits, there are some that are invalid in a tag. */
+    private static final String RANDOM_CHARACTERS =
+            "abcdefghijklmnopqrstuvwxyzABCZ0123456789 _.é";
+
+    /** Components of tags, other than the subtags of the registry,
+     * that are used to generate random tags: singletons of extensions
+     * and private use, a subtag that is too long, and an empty subtag. */
+    private static final String[] SPECIAL_COMPONENTS = {"x", "t", "u",
+        "a", "x", "qaa", "qtz", "qua", "mis", "abcdefghi", "",
+        "1994", "123", "419", "9999"};
+
+    /** A temporary directory that contains the files generated by the
+     * parsing of the registry. */
+    private Path tempDir;
+
+    /** The parser being tested. */
+    private LanguageTagParser tagParser;
+
+    /** The parser whose results are expected. */
+    private ReferenceLanguageTagParser referenceParser;
+
+    /** The subtags of the registry, by type. */
+    private List<List<String>> subtagsByType = new ArrayList<>();
+
+    /** The grandfathered and redundant tags of the registry. */
+    private List<String> tags = new ArrayList<>();
+
+    /** Parse the registry, and construct the two parsers from it.
+     * @throws IOException If a file can not be read or written.
+     * @throws JAXBException If the registry can not be written as XML.
+     */
+    @BeforeClass
+    public void createParsers() throws IOException, JAXBException {
+        tempDir = Files.createTempDirectory("TestLanguageTagParser");
+        LanguageSubtagRegistryParser lsrParser =
+                new LanguageSubtagRegistryParser(REGISTRY_FILENAME, tempDir);
+        tagParser = new LanguageTagParser(lsrParser);
+        referenceParser = new ReferenceLanguageTagParser(lsrParser);
+        for (List<Entry> entries : Arrays.asList(lsrParser.getLanguages(),
+                lsrParser.getExtlangs(), lsrParser.getScripts(),
+                lsrParser.getRegions(), lsrParser.getVariants())) {
+            List<String> subtags = new ArrayList<>();
+            for (Entry entry : entries) {
+                subtags.add(entry.getSubtag());
+            }
+            subtagsByType.add(subtags);
+        }
+        for (List<Entry> entries : Arrays.asList(
+                lsrParser.getGrandfathereds(), lsrParser.getRedundants())) {
+            for (Entry entry : entries) {
+                tags.add(entry.getTag());
+            }
+        }
+    }
+
+    /** Remove the temporary directory.
+     * @throws IOException If the directory can not be removed.
+     */
+    @AfterClass
+    public void removeTempDir() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(Comparator.reverseOrder()).
+                forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /** Assert that a tag is parsed by LanguageTagParser in the same
+     * way as by the reference parser. Both parsers use the same
+     * instances of Entry, so the entries are compared by identity.
+     * @param tag The tag to be parsed.
+     */
+    private void assertSameParse(final String tag) {
+        String message = "Tag: \"" + tag + "\"; ";
+        ParsedLanguage expected;
+        try {
+            expected = referenceParser.parseTag(tag);
+        } catch (RuntimeException e) {
+            // The reference parser fails on some invalid tags;
+            // LanguageTagParser must fail in the same way.
+            try {
+                tagParser.parseTag(tag);
+                Assert.fail(message + "no exception; expected " + e);
+            } catch (RuntimeException e2) {
+                Assert.assertEquals(e2.getClass(), e.getClass(),
+                        message + "exception");
+            }
+            return;
+        }
+        ParsedLanguage actual = tagParser.parseTag(tag);
+        Assert.assertEquals(actual.getErrors(), expected.getErrors(),
+                message + "errors");
+        Assert.assertEquals(actual.isValid(), expected.isValid(),
+                message + "validity");
+        Assert.assertSame(actual.getLanguage(), expected.getLanguage(),
+                message + "language");
+        Assert.assertSame(actual.getExtlang(), expected.getExtlang(),
+                message + "extlang");
+        Assert.assertSame(actual.getScript(), expected.getScript(),
+                message + "script");
+        Assert.assertSame(actual.getRegion(), expected.getRegion(),
+                message + "region");
+        Assert.assertEquals(actual.getVariants(), expected.getVariants(),
+                message + "variants");
+        Assert.assertEquals(actual.getExtensions(), expected.getExtensions(),
+                message + "extensions");
+        Assert.assertEquals(actual.getPrivateUse(), expected.getPrivateUse(),
+                message + "private use");
+        if (expected.isValid()) {
+            Assert.assertEquals(actual.getCanonicalForm(),
+                    expected.getCanonicalForm(), message + "canonical form");
+            Assert.assertEquals(actual.getDescription(),
+                    expected.getDescription(), message + "description");
+        }
+    }
+
+    /** Test the special cases of the tag as a whole. */
+    @Test
+    public void testSpecialTags() {
+        for (String tag : new String[] {null, "", " ", "  en  ", "-",
+            "en-", "-en", "en--gb", "en gb", "en_GB", "EN-gb", "x-private",
+            "x", "t-abc", "en-x-a-x-b", "en-x-abcdefghi", "en-t-abcdefghi",
+            "en-a-bc-a-de", "en-u-ca-gregory-t-ab", "en-t-ab-x-cd-ef",
+            "mis", "qaa", "qtz-latn", "qua", "zh-yue-hk", "zh-cmn-yue",
+            "en-yue", "sgn-be-fr", "en-latn-latn", "en-au-nz", "en-419-au",
+            "de-1901-1901", "sl-rozaj-rozaj", "sl-rozaj-biske-1994",
+            "en-abcdefghi", "en-au-latn", "en-1901-au"}) {
+            assertSameParse(tag);
+        }
+    }
+
+    /** Test each subtag of the registry, both by itself and following
+     * a language subtag, and each grandfathered and redundant tag,
+     * in both lower and upper case. */
+    @Test
+    public void testRegistry() {
+        for (List<String> subtags : subtagsByType) {
+            for (String subtag : subtags) {
+                for (String s : new String[] {subtag,
+                    subtag.toUpperCase(Locale.ROOT)}) {
+                    assertSameParse(s);
+                    assertSameParse("en-" + s);
+                    assertSameParse("zh-" + s);
+                    assertSameParse("en-" + s + "-" + s);
+                }
+            }
+        }
+        for (String tag : tags) {
+            assertSameParse(tag);
+            assertSameParse(tag.toLowerCase(Locale.ROOT));
+            assertSameParse(tag.toUpperCase(Locale.ROOT));
+            assertSameParse(tag + "-x-private");
+        }
+    }
+
+    /** Generate a random subtag, which may or may not be valid.
+     * @param random The random number generator.
+     * @return The random subtag.
+     */
+    private static String randomSubtag(final Random random) {
+        int length = 1 + random.nextInt(RANDOM_SUBTAG_MAX_LENGTH);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(RANDOM_CHARACTERS.charAt(
+                    random.nextInt(RANDOM_CHARACTERS.length())));
+        }
+        return sb.toString();
+    }
+
+    /** Test random tags made up of subtags of the registry,
+     * extensions, private use subtags, and random subtags. */
+    // The cases of the switch statement are magic numbers.
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testRandomTags() {
+        Random random = new Random(RANDOM_SEED);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < RANDOM_TAG_COUNT; i++) {
+            sb.setLength(0);
+            int components = 1 + random.nextInt(RANDOM_TAG_MAX_COMPONENTS);
+            for (int j = 0; j < components; j++) {
+                if (j > 0) {
+                    sb.append('-');
+                }
+                String component;
+                switch (random.nextInt(10)) {
+                case 0:
+                    component = randomSubtag(random);
+                    break;
+                case 1:
+                    component = SPECIAL_COMPONENTS[random.nextInt(
+                            SPECIAL_COMPONENTS.length)];
+                    break;
+                case 2:
+                    component = tags.get(random.nextInt(tags.size()));
+                    break;
+                default:
+                    // Mostly, subtags of the registry, in roughly the
+                    // order in which they would appear in a tag.
+                    int type = Math.min(subtagsByType.size() - 1,
+                            j + random.nextInt(2));
+                    List<String> subtags = subtagsByType.get(type);
+                    component = subtags.get(random.nextInt(subtags.size()));
+                    break;
+                }
+                if (random.nextInt(10) == 0) {
+                    component = component.toUpperCase(Locale.ROOT);
+                }
+                sb.append(component);
+            }
+            assertSameParse(sb.toString());
+        }
+    }
+
+}
@@ -0,0 +1,276 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.utils.language;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import javax.xml.bind.JAXBException;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
+import au.org.ands.vocabs.registry.utils.language.lsr.Entry;
+import au.org.ands.vocabs.registry.utils.language.lsr.Lsr;
+
+/** Tests of the LsrSnapshot class. */
+public class TestLsrSnapshot {
+
+    /** The language subtag registry file used by the tests. */
+    private static final String REGISTRY_FILENAME =
+            "conf/language-subtag-registry";
+
+    /** A checksum used for snapshots of registries that are
+     * constructed by the tests. */
+    private static final String CHECKSUM = "0123456789abcdef";
+
+    /** The SHA-256 checksum of the string "abc". */
+    private static final String ABC_SHA256 =
+            "ba7816bf8f01cfea414140de5dae2223"
+            + "b00361a396177a9cb410ff61f20015ad";
+
+    /** A temporary directory that contains the snapshots and the
+     * other files generated by the tests. */
+    private Path tempDir;
+
+    /** Create the temporary directory.
+     * @throws IOException If the directory can not be created.
+     */
+    @BeforeClass
+    public void createTempDir() throws IOException {
+        tempDir = Files.createTempDirectory("TestLsrSnapshot");
+    }
+
+    /** Remove the temporary directory.
+     * @throws IOException If the directory can not be removed.
+     */
+    @AfterClass
+    public void removeTempDir() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(Comparator.reverseOrder()).
+                forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /** Create a small registry, with entries that have null fields,
+     * non-ASCII text, and lists with more than one element.
+     * @return The registry.
+     */
+    private static Lsr createLsr() {
+        Lsr lsr = new Lsr();
+        lsr.setFileDate("2020-09-29");
+        lsr.setLanguages(new Lsr.Languages());
+        lsr.setScripts(new Lsr.Scripts());
+        lsr.setRegions(new Lsr.Regions());
+        lsr.setGrandfathereds(new Lsr.Grandfathereds());
+        lsr.setRedundants(new Lsr.Redundants());
+        lsr.setVariants(new Lsr.Variants());
+        lsr.setExtlangs(new Lsr.Extlangs());
+
+        Entry language = new Entry();
+        language.setSubtag("mi");
+        language.getDescription().add("Maori");
+        language.getDescription().add("Māori");
+        language.getComments().add("Te reo Māori; 日本語; Русский");
+        lsr.getLanguages().getEntry().add(language);
+
+        Entry deprecated = new Entry();
+        deprecated.setSubtag("in");
+        deprecated.setDeprecated("1989-01-01");
+        deprecated.setPreferredValue("id");
+        deprecated.setSuppressScript("Latn");
+        deprecated.setMacrolanguage("ms");
+        deprecated.setScope("macrolanguage");
+        deprecated.getDescription().add("Indonesian");
+        lsr.getLanguages().getEntry().add(deprecated);
+
+        Entry variant = new Entry();
+        variant.setSubtag("1901");
+        variant.getDescription().add("");
+        variant.getPrefix().add("de");
+        variant.getPrefix().add("de-CH");
+        lsr.getVariants().getEntry().add(variant);
+
+        Entry grandfathered = new Entry();
+        grandfathered.setTag("i-klingon");
+        grandfathered.setPreferredValue("tlh");
+        lsr.getGrandfathereds().getEntry().add(grandfathered);
+        return lsr;
+    }
+
+    /** Assert that a registry read from a snapshot has the expected
+     * content. The generated Lsr and Entry classes don't override
+     * equals(), so registries are compared by their JSON serializations.
+     * The expected serialization must be computed before the snapshot
+     * is written, as writing a snapshot creates empty lists in
+     * the entries.
+     * @param actual The registry that was read from a snapshot.
+     * @param expectedJson The JSON serialization of the registry that
+     *      was written to the snapshot.
+     */
+    private static void assertSameLsr(final Lsr actual,
+            final String expectedJson) {
+        Assert.assertNotNull(actual, "Snapshot not read");
+        Assert.assertEquals(
+                JSONSerialization.serializeObjectAsJsonString(actual),
+                expectedJson, "Registry read from snapshot differs");
+    }
+
+    /** Test that a registry constructed by hand survives a round
+     * trip through a snapshot, including null fields, non-ASCII text,
+     * and empty categories.
+     * @throws IOException If the snapshot can not be written.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        Path snapshotPath = tempDir.resolve("roundtrip.bin");
+        Lsr lsr = createLsr();
+        String expectedJson =
+                JSONSerialization.serializeObjectAsJsonString(lsr);
+        LsrSnapshot.write(snapshotPath, CHECKSUM, lsr);
+        Lsr read = LsrSnapshot.read(snapshotPath, CHECKSUM);
+        assertSameLsr(read, expectedJson);
+        Entry language = read.getLanguages().getEntry().get(0);
+        Assert.assertNull(language.getTag(), "Null field not preserved");
+        Assert.assertEquals(language.getDescription().get(1), "Māori",
+                "Non-ASCII text not preserved");
+        Assert.assertEquals(read.getVariants().getEntry().get(0).
+                getDescription().get(0), "",
+                "Empty string not preserved");
+        Assert.assertTrue(read.getScripts().getEntry().isEmpty(),
+                "Empty category not preserved");
+        Assert.assertFalse(Files.exists(snapshotPath.resolveSibling(
+                snapshotPath.getFileName() + ".tmp")),
+                "Temporary file not removed");
+    }
+
+    /** Test that the registry parsed from the registry file survives
+     * a round trip through a snapshot, and that a parser constructed
+     * from the snapshot resolves subtags in the same way as one
+     * constructed by parsing the registry file.
+     * @throws IOException If a file can not be read or written.
+     * @throws JAXBException If the registry can not be written as XML.
+     */
+    @Test
+    public void testRoundTripRegistryFile()
+            throws IOException, JAXBException {
+        Path registryPath = Paths.get(REGISTRY_FILENAME);
+        Path parsedDir = Files.createDirectory(tempDir.resolve("parsed"));
+        LanguageSubtagRegistryParser parser =
+                new LanguageSubtagRegistryParser(REGISTRY_FILENAME,
+                        parsedDir);
+        String checksum = LsrSnapshot.checksum(registryPath);
+        Path snapshotPath = parsedDir.resolve(LsrSnapshot.SNAPSHOT_FILENAME);
+        String expectedJson =
+                JSONSerialization.serializeObjectAsJsonString(
+                        parser.getLsr());
+        LsrSnapshot.write(snapshotPath, checksum, parser.getLsr());
+
+        Lsr read = LsrSnapshot.read(snapshotPath, checksum);
+        assertSameLsr(read, expectedJson);
+
+        Path snapshotDir = Files.createDirectory(
+                tempDir.resolve("snapshot"));
+        LanguageSubtagRegistryParser snapshotParser =
+                new LanguageSubtagRegistryParser(read, snapshotDir);
+        Assert.assertTrue(Files.isRegularFile(
+                snapshotDir.resolve("lsr.json")),
+                "Generated files not regenerated from snapshot");
+        Assert.assertEquals(
+                new String(Files.readAllBytes(
+                        snapshotDir.resolve("lsr.json")),
+                        StandardCharsets.UTF_8),
+                new String(Files.readAllBytes(
+                        parsedDir.resolve("lsr.json")),
+                        StandardCharsets.UTF_8),
+                "Generated JSON differs");
+        LanguageTagParser tagParser = new LanguageTagParser(parser);
+        LanguageTagParser snapshotTagParser =
+                new LanguageTagParser(snapshotParser);
+        for (String tag : new String[] {"en", "en-AU", "zh-Hant-TW",
+            "sgn-BE-FR", "i-klingon", "de-CH-1901", "x-private",
+            "not a tag"}) {
+            ParsedLanguage expected = tagParser.parseTag(tag);
+            ParsedLanguage actual = snapshotTagParser.parseTag(tag);
+            Assert.assertEquals(actual.isValid(), expected.isValid(),
+                    "Validity differs: " + tag);
+            Assert.assertEquals(actual.getErrors(), expected.getErrors(),
+                    "Errors differ: " + tag);
+            if (expected.isValid()) {
+                Assert.assertEquals(actual.getCanonicalForm(),
+                        expected.getCanonicalForm(),
+                        "Canonical form differs: " + tag);
+                Assert.assertEquals(actual.getDescription(),
+                        expected.getDescription(),
+                        "Description differs: " + tag);
+            }
+        }
+    }
+
+    /** Test that a snapshot is not used if it was generated from
+     * a registry file with a different checksum.
+     * @throws IOException If the snapshot can not be written.
+     */
+    @Test
+    public void testWrongChecksum() throws IOException {
+        Path snapshotPath = tempDir.resolve("checksum.bin");
+        LsrSnapshot.write(snapshotPath, CHECKSUM, createLsr());
+        Assert.assertNull(LsrSnapshot.read(snapshotPath, CHECKSUM + "0"),
+                "Snapshot with wrong checksum was used");
+    }
+
+    /** Test that a missing snapshot, and a snapshot that is
+     * truncated or corrupt, are reported as not available,
+     * rather than causing an exception.
+     * @throws IOException If a snapshot can not be written.
+     */
+    @Test
+    public void testMissingOrCorrupt() throws IOException {
+        Assert.assertNull(LsrSnapshot.read(tempDir.resolve("missing.bin"),
+                CHECKSUM), "Missing snapshot was read");
+
+        Path snapshotPath = tempDir.resolve("corrupt.bin");
+        LsrSnapshot.write(snapshotPath, CHECKSUM, createLsr());
+        long size = Files.size(snapshotPath);
+        // Truncate the snapshot in the middle of the entries.
+        try (FileChannel channel = FileChannel.open(snapshotPath,
+                StandardOpenOption.WRITE)) {
+            channel.truncate(size / 2);
+        }
+        Assert.assertNull(LsrSnapshot.read(snapshotPath, CHECKSUM),
+                "Truncated snapshot was read");
+
+        // Overwrite the snapshot with bytes that are not a snapshot.
+        Files.write(snapshotPath, "not a snapshot".getBytes(
+                StandardCharsets.UTF_8));
+        Assert.assertNull(LsrSnapshot.read(snapshotPath, CHECKSUM),
+                "Corrupt snapshot was read");
+
+        // An empty file.
+        Files.write(snapshotPath, new byte[0]);
+        Assert.assertNull(LsrSnapshot.read(snapshotPath, CHECKSUM),
+                "Empty snapshot was read");
+    }
+
+    /** Test the computation of the checksum of a file.
+     * @throws IOException If the file can not be written or read.
+     */
+    @Test
+    public void testChecksum() throws IOException {
+        Path path = tempDir.resolve("abc.txt");
+        Files.write(path, "abc".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(LsrSnapshot.checksum(path), ABC_SHA256,
+                "Wrong checksum");
+    }
+
+}
@@ -0,0 +1,111 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import au.org.ands.vocabs.registry.db.converter.JSONSerialization;
+import au.org.ands.vocabs.registry.db.entity.AccessPoint;
+import au.org.ands.vocabs.registry.db.internal.ApFile;
+import au.org.ands.vocabs.registry.enums.AccessPointType;
+import au.org.ands.vocabs.registry.enums.ApSource;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
+import au.org.ands.vocabs.registry.workflow.tasks.Subtask;
+
+/** Tests of deleting file access points using
+ * {@link WorkflowMethods#deleteAccessPoint(AccessPoint, boolean)}. */
+public class TestDeleteFileAccessPoint {
+
+    /** The temporary directory used by each test. */
+    private Path tempDir;
+
+    /** Create the temporary directory.
+     * @throws IOException If the directory can not be created.
+     */
+    @BeforeMethod
+    public void createTempDir() throws IOException {
+        tempDir = Files.createTempDirectory("TestDeleteFileAccessPoint");
+    }
+
+    /** Delete the temporary directory and its contents.
+     * @throws IOException If the directory can not be deleted.
+     */
+    @AfterMethod
+    public void deleteTempDir() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).
+                    collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /** Test that deleting a file access point deletes both the
+     * file and the gzip-compressed copy of it made for downloads.
+     * @throws IOException If there is an error reading or writing files.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public void testDeleteFileAccessPointDeletesCompressedCopy()
+            throws IOException {
+        Path file = tempDir.resolve("17.ttl");
+        // Content that compresses well, so that a compressed copy
+        // is kept.
+        Files.write(file, StringUtils.repeat(
+                "<http://test/s> <http://test/p> <http://test/o> .\n", 100).
+                getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(RegistryFileUtils.writeGzipCompressedCopy(file),
+                "No compressed copy written");
+        Path gzFile = RegistryFileUtils.getGzipCompressedCopyFile(
+                file.toFile()).toPath();
+        Assert.assertTrue(Files.isRegularFile(gzFile),
+                "Compressed copy does not exist");
+
+        ApFile apFile = new ApFile();
+        apFile.setFormat("TTL");
+        apFile.setUploadId(17);
+        apFile.setPath(file.toString());
+        apFile.setUrl("http://test/17.ttl");
+        AccessPoint ap = new AccessPoint();
+        ap.setType(AccessPointType.FILE);
+        ap.setSource(ApSource.USER);
+        ap.setData(JSONSerialization.serializeObjectAsJsonString(apFile));
+
+        Pair<Boolean, List<Subtask>> result =
+                WorkflowMethods.deleteAccessPoint(ap, true);
+        Assert.assertTrue(result.getLeft(),
+                "Access point not to be deleted from the database");
+        try (Stream<Path> paths = Files.list(tempDir)) {
+            Assert.assertEquals(paths.count(), 0,
+                    "File or compressed copy left behind");
+        }
+    }
+
+    /** Test that deleting the compressed copy of a file that does not
+     * have one is not an error, and leaves the file alone.
+     * @throws IOException If there is an error reading or writing files.
+     */
+    @Test
+    public void testDeleteMissingCompressedCopy() throws IOException {
+        Path file = tempDir.resolve("18.ttl");
+        Files.write(file, "x".getBytes(StandardCharsets.UTF_8));
+        Assert.assertFalse(RegistryFileUtils.deleteGzipCompressedCopy(file),
+                "Deleted a compressed copy that does not exist");
+        Assert.assertTrue(Files.isRegularFile(file), "File deleted");
+    }
+
+}
@@ -0,0 +1,115 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.transform;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import au.org.ands.vocabs.registry.workflow.provider.transform.utils.RdfFileSource;
+
+/** Tests of the ConceptHandler of {@link JsonListTransformProvider}. */
+public class TestJsonListTransformProvider {
+
+    /** Prefixes used by the Turtle files of the fixture. */
+    private static final String PREFIXES =
+            "@prefix skos: <http://www.w3.org/2004/02/skos/core#> .\n"
+            + "@prefix t: <http://test/> .\n";
+
+    /** A temporary directory that contains the fixture. */
+    private Path tempDir;
+
+    /** The files of the fixture, in order. */
+    private List<Path> paths;
+
+    /** Create the fixture: the harvested files of a version, in which
+     * the same concepts are described by several files, so that
+     * later files replace the prefLabels and notations of earlier
+     * files, and add to their broader and narrower concepts.
+     * @throws IOException If the fixture can not be created.
+     */
+    @BeforeClass
+    public void createFixture() throws IOException {
+        tempDir = Files.createTempDirectory("TestJsonListTransformProvider");
+        String[] contents = {
+            "t:c1 skos:prefLabel \"One\" ; skos:broader t:c2 .\n"
+            + "t:c2 skos:narrower t:c1 .\n",
+            "t:c1 skos:broader t:c3 .\n"
+            + "t:c2 skos:prefLabel \"Two\" ; skos:notation \"2\" .\n",
+            "t:c1 skos:prefLabel \"One again\" .\n"
+            + "t:c3 skos:notation \"3\" ; skos:narrower t:c1 .\n",
+            "t:c2 skos:broader t:c4 ; skos:notation \"2a\" .\n"
+            + "t:c4 skos:narrower t:c2, t:c5 .\n",
+            "t:c1 skos:broader t:c4 .\n"
+            + "t:c4 skos:prefLabel \"Four\" .\n",
+        };
+        paths = new ArrayList<>();
+        for (int i = 0; i < contents.length; i++) {
+            paths.add(Files.write(tempDir.resolve("file" + i + ".ttl"),
+                    (PREFIXES + contents[i]).getBytes(
+                            StandardCharsets.UTF_8)));
+        }
+    }
+
+    /** Remove the fixture.
+     * @throws IOException If the fixture can not be removed.
+     */
+    @AfterClass
+    public void removeFixture() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(Comparator.reverseOrder()).
+                forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /** Test that parsing each file with its own handler, and absorbing
+     * the handlers in the order of the files, as the transform does,
+     * gives the same concepts, with the same broader and narrower
+     * concepts in the same order, as parsing all of the files
+     * with a single handler.
+     * @throws IOException If a file can not be read.
+     * @throws RDFParseException If a file can not be parsed.
+     * @throws RDFHandlerException If a handler reports an error.
+     */
+    @Test
+    public void testAbsorbSameAsSequential() throws IOException,
+            RDFParseException, RDFHandlerException {
+        JsonListTransformProvider provider = new JsonListTransformProvider();
+        JsonListTransformProvider.ConceptHandler sequential =
+                provider.new ConceptHandler();
+        for (Path path : paths) {
+            RdfFileSource.parse(path, sequential);
+        }
+        JsonListTransformProvider.ConceptHandler combined =
+                provider.new ConceptHandler();
+        for (Path path : paths) {
+            JsonListTransformProvider.ConceptHandler fileHandler =
+                    provider.new ConceptHandler();
+            RdfFileSource.parse(path, fileHandler);
+            combined.absorb(fileHandler);
+        }
+        Assert.assertEquals(combined.getConceptMap(),
+                sequential.getConceptMap(),
+                "Absorbed concepts differ from sequential parse");
+        Assert.assertEquals(combined.getConceptMap().get("http://test/c1").
+                get(JsonListTransformProvider.PREF_LABEL), "One again",
+                "Later prefLabel did not replace earlier prefLabel");
+        Assert.assertEquals(combined.getConceptMap().get("http://test/c1").
+                get("broader").toString(),
+                "[http://test/c2, http://test/c3, http://test/c4]",
+                "Broader concepts not combined in the order of the files");
+    }
+
+}
@@ -0,0 +1,213 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.transform;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.HierarchicalINIConfiguration;
+import org.apache.commons.configuration.SubnodeConfiguration;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.DCTERMS;
+import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.StatementCollector;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/** Tests of the rewriting done by
+ * {@link PropertyRewriterTransformProvider}: the compilation of the
+ * rewrite configuration into lookup tables, and the rewriting of
+ * statements using those tables.
+ */
+public class TestPropertyRewriterTransformProvider {
+
+    /** The rewrite configuration used by the tests. It includes keys
+     * that contain the characters that the configuration treats
+     * specially within keys: dots, and spaces. */
+    private static final String REWRITE_CONF =
+            "[dcterms:creator]\n"
+            + "brokenCreatorUsername = \"Nice Creator Name\"\n"
+            + "superadmin = \"\"\n"
+            + "[dcterms:title]\n"
+            + "Old Title = \"New Title\"\n"
+            + "v1.0 = \"Version 1\"\n"
+            + "a..b = \"Doubled dots\"\n"
+            + "[dcterms:subject]\n"
+            + "# No rewritings for subjects.\n";
+
+    /** A factory for creating RDF values. */
+    private static final ValueFactory VF = ValueFactoryImpl.getInstance();
+
+    /** The subject of the test statements. */
+    private static final URI SUBJECT = VF.createURI("http://test/s");
+
+    /** The context of the test statements. */
+    private static final URI CONTEXT = VF.createURI("http://test/g");
+
+    /** Load the rewrite configuration used by the tests.
+     * @return The rewrite configuration.
+     * @throws ConfigurationException If the configuration can not
+     *      be loaded.
+     */
+    private static HierarchicalINIConfiguration loadConf()
+            throws ConfigurationException {
+        HierarchicalINIConfiguration conf =
+                new HierarchicalINIConfiguration();
+        conf.load(new StringReader(REWRITE_CONF));
+        return conf;
+    }
+
+    /** Test that there is a table for every predicate that is
+     * rewritten, that each table contains the rewritings of its
+     * section, and that looking up a value in a table gives the same
+     * result as looking it up in the section of the configuration,
+     * including for values that are only found in the configuration
+     * once they have been escaped.
+     * @throws ConfigurationException If the configuration can not
+     *      be loaded.
+     */
+    @Test
+    public void testCompileRewriteTables() throws ConfigurationException {
+        HierarchicalINIConfiguration conf = loadConf();
+        Map<URI, Map<String, String>> tables =
+                PropertyRewriterTransformProvider.compileRewriteTables(conf);
+
+        List<URI> predicates = Arrays.asList(DCTERMS.TITLE,
+                DCTERMS.DESCRIPTION, DCTERMS.LICENSE, DCTERMS.LANGUAGE,
+                DCTERMS.SUBJECT, DCTERMS.IDENTIFIER, DCTERMS.PUBLISHER,
+                DCTERMS.CREATOR, DCTERMS.CONTRIBUTOR);
+        Assert.assertEquals(tables.keySet().size(), predicates.size(),
+                "Wrong number of tables");
+        Assert.assertTrue(tables.keySet().containsAll(predicates),
+                "Missing table");
+        Assert.assertTrue(tables.get(DCTERMS.SUBJECT).isEmpty(),
+                "Table for a section without keys is not empty");
+        Assert.assertTrue(tables.get(DCTERMS.PUBLISHER).isEmpty(),
+                "Table for a missing section is not empty");
+
+        Map<String, String> creators = tables.get(DCTERMS.CREATOR);
+        Assert.assertEquals(creators.size(), 2,
+                "Wrong number of creator rewritings");
+        Assert.assertEquals(creators.get("brokenCreatorUsername"),
+                "Nice Creator Name", "Wrong creator rewriting");
+        Assert.assertEquals(creators.get("superadmin"), "",
+                "Wrong creator removal");
+        Assert.assertEquals(tables.get(DCTERMS.TITLE).get("Old Title"),
+                "New Title", "Wrong rewriting of key containing a space");
+
+        // Every value that might be looked up: the keys as written in
+        // the configuration, the keys as the configuration reports
+        // them, and some that are not keys at all.
+        List<String> values = new ArrayList<>(Arrays.asList(
+                "brokenCreatorUsername", "superadmin", "Old Title",
+                "v1.0", "v1..0", "a.b", "a..b", "a....b", "Unknown", ""));
+        for (String section : conf.getSections()) {
+            Iterator<String> keys = conf.getSection(section).getKeys();
+            while (keys.hasNext()) {
+                values.add(keys.next());
+            }
+        }
+        for (URI predicate : Arrays.asList(DCTERMS.CREATOR, DCTERMS.TITLE,
+                DCTERMS.SUBJECT)) {
+            SubnodeConfiguration section = conf.getSection(
+                    "dcterms:" + predicate.getLocalName());
+            for (String value : values) {
+                Assert.assertEquals(tables.get(predicate).get(value),
+                        section.getString(value),
+                        "Table and configuration differ for "
+                        + predicate.getLocalName() + " value: " + value);
+            }
+        }
+    }
+
+    /** Pass a statement through a ConceptHandler.
+     * @param tables The rewrite tables to be used.
+     * @param predicate The predicate of the statement.
+     * @param object The object of the statement.
+     * @return The statements that the handler passed on.
+     * @throws RDFHandlerException If the handler reports an error.
+     */
+    private static List<Statement> rewrite(
+            final Map<URI, Map<String, String>> tables,
+            final URI predicate, final Value object)
+                    throws RDFHandlerException {
+        StatementCollector collector = new StatementCollector();
+        PropertyRewriterTransformProvider.ConceptHandler handler =
+                new PropertyRewriterTransformProvider.ConceptHandler(
+                        tables, collector);
+        handler.startRDF();
+        handler.handleStatement(VF.createStatement(SUBJECT, predicate,
+                object, CONTEXT));
+        handler.endRDF();
+        return new ArrayList<>(collector.getStatements());
+    }
+
+    /** Check that a statement is passed on with the expected object,
+     * and otherwise unchanged.
+     * @param result The statements that the handler passed on.
+     * @param predicate The predicate of the statement.
+     * @param expectedObject The expected object of the statement.
+     */
+    private static void checkStatement(final List<Statement> result,
+            final URI predicate, final Value expectedObject) {
+        Assert.assertEquals(result.size(), 1,
+                "Wrong number of statements passed on");
+        Statement st = result.get(0);
+        Assert.assertEquals(st.getSubject(), (Resource) SUBJECT,
+                "Subject changed");
+        Assert.assertEquals(st.getPredicate(), predicate,
+                "Predicate changed");
+        Assert.assertEquals(st.getObject(), expectedObject,
+                "Wrong object");
+        Assert.assertEquals(st.getContext(), (Resource) CONTEXT,
+                "Context not kept");
+    }
+
+    /** Test the rewriting of statements by the ConceptHandler.
+     * @throws ConfigurationException If the configuration can not
+     *      be loaded.
+     * @throws RDFHandlerException If the handler reports an error.
+     */
+    @Test
+    public void testConceptHandler() throws ConfigurationException,
+            RDFHandlerException {
+        Map<URI, Map<String, String>> tables =
+                PropertyRewriterTransformProvider.compileRewriteTables(
+                        loadConf());
+
+        // Rewritten.
+        checkStatement(rewrite(tables, DCTERMS.CREATOR,
+                VF.createLiteral("brokenCreatorUsername")),
+                DCTERMS.CREATOR, VF.createLiteral("Nice Creator Name"));
+        checkStatement(rewrite(tables, DCTERMS.TITLE,
+                VF.createLiteral("Old Title", "en")),
+                DCTERMS.TITLE, VF.createLiteral("New Title"));
+        // Removed.
+        Assert.assertTrue(rewrite(tables, DCTERMS.CREATOR,
+                VF.createLiteral("superadmin")).isEmpty(),
+                "Statement not removed");
+        // Values without a rewriting, empty values, and predicates
+        // that are not rewritten, are passed on unchanged.
+        Value unknown = VF.createLiteral("Someone Else");
+        checkStatement(rewrite(tables, DCTERMS.CREATOR, unknown),
+                DCTERMS.CREATOR, unknown);
+        Value empty = VF.createLiteral("");
+        checkStatement(rewrite(tables, DCTERMS.CREATOR, empty),
+                DCTERMS.CREATOR, empty);
+        Value other = VF.createLiteral("brokenCreatorUsername");
+        checkStatement(rewrite(tables, RDFS.LABEL, other),
+                RDFS.LABEL, other);
+    }
+
+}
@@ -0,0 +1,297 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/** Tests of {@link ConceptTreeIndex}. Each test writes a small
+ * concept tree, indexes it, and checks that fetching each node,
+ * at each depth, gives the same result as extracting that part
+ * of the tree from the full JSON.
+ */
+public class TestConceptTreeIndex {
+
+    /** Name of the field of the top-level object that contains
+     * the forest. */
+    private static final String FOREST = "forest";
+
+    /** Name of the field of a resource that contains its children. */
+    private static final String CHILDREN = "children";
+
+    /** The depth of the test tree, counting the top-level object. */
+    private static final int TREE_DEPTH = 4;
+
+    /** Jackson ObjectMapper used to build and parse the test trees. */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** The temporary directory used by each test. */
+    private Path tempDir;
+
+    /** Create the temporary directory.
+     * @throws IOException If the directory can not be created.
+     */
+    @BeforeMethod
+    public void createTempDir() throws IOException {
+        tempDir = Files.createTempDirectory("TestConceptTreeIndex");
+    }
+
+    /** Delete the temporary directory and its contents.
+     * @throws IOException If the directory can not be deleted.
+     */
+    @AfterMethod
+    public void deleteTempDir() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).
+                    collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /** Create a resource of the test tree.
+     * @param iri The IRI of the resource.
+     * @param label The label of the resource.
+     * @return The resource, without children.
+     */
+    private static ObjectNode resource(final String iri,
+            final String label) {
+        ObjectNode resource = MAPPER.createObjectNode();
+        resource.putArray("altLabels").add(label);
+        resource.put("iri", iri);
+        return resource;
+    }
+
+    /** Build the test tree. It has fields both before and after each
+     * array of children, a resource with an empty array of children,
+     * multi-byte characters (so that byte offsets and character
+     * offsets differ), and strings that contain brackets and braces.
+     * @return The test tree.
+     */
+    private static ObjectNode buildTree() {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("defaultSortByNotation", false);
+        ArrayNode forest = root.putArray(FOREST);
+
+        ObjectNode scheme = resource("http://test/cs", "Schéma ] { [");
+        ArrayNode schemeChildren = scheme.putArray(CHILDREN);
+        ObjectNode c1 = resource("http://test/c1", "Überbegriff");
+        ArrayNode c1Children = c1.putArray(CHILDREN);
+        ObjectNode c11 = resource("http://test/c1-1", "日本語 \"}\"");
+        c11.putArray(CHILDREN).add(resource("http://test/c1-1-1",
+                "Blatt"));
+        c11.put("type", "concept");
+        c1Children.add(c11);
+        c1Children.add(resource("http://test/c1-2", "Zweig")
+                .put("type", "concept"));
+        c1.put("type", "concept");
+        schemeChildren.add(c1);
+        ObjectNode c2 = resource("http://test/c2", "Leer");
+        c2.putArray(CHILDREN);
+        c2.put("type", "concept");
+        schemeChildren.add(c2);
+        scheme.put("type", "concept_scheme");
+        forest.add(scheme);
+
+        forest.add(resource("http://test/c3", "Allein")
+                .put("type", "concept"));
+        root.put("language", "de");
+        root.put("maySortByNotation", false);
+        return root;
+    }
+
+    /** Get the nodes of a tree in breadth-first order, i.e., in
+     * order of node Id.
+     * @param root The top-level object of the tree.
+     * @return The nodes of the tree, in order of node Id.
+     */
+    private static List<ObjectNode> nodesInOrder(final ObjectNode root) {
+        List<ObjectNode> nodes = new ArrayList<>();
+        Deque<ObjectNode> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            ObjectNode node = queue.remove();
+            nodes.add(node);
+            JsonNode children;
+            if (nodes.size() == 1) {
+                children = node.get(FOREST);
+            } else {
+                children = node.get(CHILDREN);
+            }
+            if (children != null) {
+                for (JsonNode child : children) {
+                    queue.add((ObjectNode) child);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /** Compute the expected result of
+     * {@link ConceptTreeIndex#getSubtree(File, File, int, int)}
+     * from the full tree.
+     * @param nodes The nodes of the full tree, in order of node Id.
+     * @param node The node to be fetched.
+     * @param depth The depth of descendants to include.
+     * @return The expected result.
+     */
+    private static ObjectNode expected(final List<ObjectNode> nodes,
+            final ObjectNode node, final int depth) {
+        ObjectNode result = node.deepCopy();
+        String childrenField = CHILDREN;
+        if (node == nodes.get(0)) {
+            childrenField = FOREST;
+        }
+        JsonNode children = node.get(childrenField);
+        int childCount = 0;
+        if (children != null) {
+            childCount = children.size();
+        }
+        result.put(ConceptTreeIndex.NODE_ID_FIELD, indexOf(nodes, node));
+        result.put(ConceptTreeIndex.CHILD_COUNT_FIELD, childCount);
+        if (children != null) {
+            if (depth > 0) {
+                ArrayNode resultChildren = result.putArray(childrenField);
+                for (JsonNode child : children) {
+                    resultChildren.add(expected(nodes, (ObjectNode) child,
+                            depth - 1));
+                }
+            } else {
+                result.remove(childrenField);
+            }
+        }
+        return result;
+    }
+
+    /** Get the node Id of a node, i.e., its position in the list of
+     * nodes. Identity (rather than equality) is used, as the tree
+     * contains resources with equal content.
+     * @param nodes The nodes of the full tree, in order of node Id.
+     * @param node The node.
+     * @return The node Id of the node.
+     */
+    private static int indexOf(final List<ObjectNode> nodes,
+            final ObjectNode node) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) == node) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Node not in tree");
+    }
+
+    /** Write a tree, index it, and check every node at every depth.
+     * @param treeContent The content of the concept tree file.
+     * @throws IOException If there is an error reading or writing files.
+     */
+    private void checkRoundTrip(final String treeContent)
+            throws IOException {
+        File treeFile = tempDir.resolve("concepts_tree.json").toFile();
+        Files.write(treeFile.toPath(),
+                treeContent.getBytes(StandardCharsets.UTF_8));
+        ConceptTreeIndex.writeIndex(treeFile);
+        File indexFile = ConceptTreeIndex.getIndexFile(treeFile);
+        Assert.assertEquals(indexFile.getName(), "concepts_tree.idx",
+                "Wrong name of index file");
+        Assert.assertTrue(indexFile.isFile(), "No index file written");
+
+        ObjectNode root = (ObjectNode) MAPPER.readTree(treeContent);
+        List<ObjectNode> nodes = nodesInOrder(root);
+        for (int nodeId = 0; nodeId < nodes.size(); nodeId++) {
+            for (int depth = 0; depth <= TREE_DEPTH; depth++) {
+                Assert.assertEquals(ConceptTreeIndex.getSubtree(treeFile,
+                        indexFile, nodeId, depth),
+                        expected(nodes, nodes.get(nodeId), depth),
+                        "Wrong subtree for node " + nodeId
+                        + " at depth " + depth);
+            }
+        }
+
+        // With enough depth, the top-level object is the whole tree,
+        // apart from the additional fields.
+        ObjectNode whole = ConceptTreeIndex.getSubtree(treeFile, indexFile,
+                0, TREE_DEPTH);
+        for (JsonNode node : nodesInOrder(whole)) {
+            ((ObjectNode) node).remove(ConceptTreeIndex.NODE_ID_FIELD);
+            ((ObjectNode) node).remove(ConceptTreeIndex.CHILD_COUNT_FIELD);
+        }
+        Assert.assertEquals(whole, root, "Whole tree not reproduced");
+
+        Assert.assertNull(ConceptTreeIndex.getSubtree(treeFile, indexFile,
+                nodes.size(), 0), "Node returned for node Id out of range");
+        Assert.assertNull(ConceptTreeIndex.getSubtree(treeFile, indexFile,
+                -1, 0), "Node returned for negative node Id");
+    }
+
+    /** Test the round trip with a concept tree without whitespace.
+     * @throws IOException If there is an error reading or writing files.
+     */
+    @Test
+    public void testRoundTripCompact() throws IOException {
+        checkRoundTrip(MAPPER.writeValueAsString(buildTree()));
+    }
+
+    /** Test the round trip with a pretty-printed concept tree.
+     * @throws IOException If there is an error reading or writing files.
+     */
+    @Test
+    public void testRoundTripPretty() throws IOException {
+        checkRoundTrip(MAPPER.writerWithDefaultPrettyPrinter().
+                writeValueAsString(buildTree()));
+    }
+
+    /** Test that {@link ConceptTreeIndex#ensureIndex(File)} rewrites
+     * an index that is older than the concept tree, and that
+     * {@link ConceptTreeIndex#deleteIndex(File)} deletes the index,
+     * but not the concept tree.
+     * @throws IOException If there is an error reading or writing files.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public void testEnsureAndDeleteIndex() throws IOException {
+        File treeFile = tempDir.resolve("concepts_tree.json").toFile();
+        Files.write(treeFile.toPath(), MAPPER.writeValueAsBytes(buildTree()));
+        File indexFile = ConceptTreeIndex.ensureIndex(treeFile);
+        Assert.assertTrue(indexFile.isFile(), "No index file written");
+
+        // Replace the tree with a smaller one, and make the index stale.
+        ObjectNode smallTree = MAPPER.createObjectNode();
+        smallTree.putArray(FOREST).add(resource("http://test/only", "Nur"));
+        Files.write(treeFile.toPath(), MAPPER.writeValueAsBytes(smallTree));
+        Assert.assertTrue(indexFile.setLastModified(
+                treeFile.lastModified() - 10_000), "Unable to set time");
+        ConceptTreeIndex.ensureIndex(treeFile);
+        Assert.assertNull(ConceptTreeIndex.getSubtree(treeFile, indexFile,
+                2, 0), "Stale index not rewritten");
+        Assert.assertEquals(ConceptTreeIndex.getSubtree(treeFile, indexFile,
+                1, 0).get("iri").asText(), "http://test/only",
+                "Wrong node from rewritten index");
+
+        ConceptTreeIndex.deleteIndex(treeFile);
+        Assert.assertFalse(indexFile.exists(), "Index not deleted");
+        Assert.assertTrue(treeFile.isFile(), "Concept tree deleted");
+        // Deleting again is not an error.
+        ConceptTreeIndex.deleteIndex(treeFile);
+    }
+
+}
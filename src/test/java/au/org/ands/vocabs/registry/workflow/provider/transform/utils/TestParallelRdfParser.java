@@ -0,0 +1,221 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.transform.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.StatementCollector;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Tests of the ParallelRdfParser class. The tests use their own pool
+ * of threads, so that they do not depend on the registry properties.
+ */
+public class TestParallelRdfParser {
+
+    /** Prefix of the IRIs used in the fixture. */
+    private static final String NS = "http://test/";
+
+    /** The number of threads in the pool used by the tests. */
+    private static final int THREADS = 3;
+
+    /** A temporary directory that contains the fixture. */
+    private Path tempDir;
+
+    /** The files of the fixture, in order. */
+    private List<Path> paths;
+
+    /** The pool of threads used by the tests. */
+    private ExecutorService executor;
+
+    /** Create a file of the fixture.
+     * @param name The name of the file.
+     * @param content The content of the file.
+     * @return The path of the file.
+     * @throws IOException If the file can not be written.
+     */
+    private Path createFile(final String name, final String content)
+            throws IOException {
+        return Files.write(tempDir.resolve(name),
+                content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Create the fixture: a version with several harvested files,
+     * in different formats, more of them than there are threads,
+     * in which the same resources are described by several files.
+     * @throws IOException If the fixture can not be created.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @BeforeClass
+    public void createFixture() throws IOException {
+        tempDir = Files.createTempDirectory("TestParallelRdfParser");
+        executor = Executors.newFixedThreadPool(THREADS);
+        paths = new ArrayList<>();
+        StringBuilder ntriples = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            ntriples.append("<" + NS + "c" + (i % 7) + "> <" + NS + "p> \""
+                    + i + "\" .\n");
+        }
+        paths.add(createFile("a.nt", ntriples.toString()));
+        paths.add(createFile("b.ttl", "@prefix t: <" + NS + "> .\n"
+                + "t:c1 t:p \"b1\", \"b2\" ; t:q t:c2 .\n"
+                + "t:c2 t:p \"b3\" .\n"));
+        paths.add(createFile("c.rdf", "<?xml version=\"1.0\"?>\n"
+                + "<rdf:RDF xmlns:rdf="
+                + "\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"\n"
+                + "    xmlns:t=\"" + NS + "\">\n"
+                + "  <rdf:Description rdf:about=\"" + NS + "c3\">\n"
+                + "    <t:p>c1</t:p>\n"
+                + "    <t:q rdf:resource=\"" + NS + "c1\"/>\n"
+                + "  </rdf:Description>\n"
+                + "</rdf:RDF>\n"));
+        paths.add(createFile("d.ttl", "@prefix t: <" + NS + "> .\n"
+                + "t:c1 t:p \"d1\"@en, \"d2\"@fr .\n"));
+        paths.add(createFile("e.nt", "<" + NS + "c2> <" + NS + "p> \"e1\" .\n"
+                + "<" + NS + "c4> <" + NS + "q> <" + NS + "c2> .\n"));
+        paths.add(createFile("f.ttl", "@prefix t: <" + NS + "> .\n"
+                + "t:c4 t:p \"f1\" .\n"
+                + "t:c5 t:q t:c4 .\n"));
+        // The last file can not be parsed: it has no terminating period.
+        paths.add(createFile("g.nt", "<" + NS + "c6> <" + NS + "p> \"g1\"\n"));
+    }
+
+    /** Remove the fixture, and shut down the pool of threads.
+     * @throws IOException If the fixture can not be removed.
+     */
+    @AfterClass
+    public void removeFixture() throws IOException {
+        executor.shutdownNow();
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(Comparator.reverseOrder()).
+                forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /** Parse the files of the fixture one after another,
+     * with a single handler.
+     * @param files The files to be parsed.
+     * @return The statements of the files, in order.
+     * @throws IOException If a file can not be read.
+     */
+    private static List<Statement> parseSequentially(final List<Path> files)
+            throws IOException {
+        StatementCollector collector = new StatementCollector();
+        for (Path path : files) {
+            try {
+                RdfFileSource.parse(path, collector);
+            } catch (RDFParseException | RDFHandlerException e) {
+                // As for parseFiles(), keep going.
+                continue;
+            }
+        }
+        return new ArrayList<>(collector.getStatements());
+    }
+
+    /** Test that combining the results of parsing the files
+     * concurrently gives the same statements, in the same order,
+     * as parsing them one after another, for various limits
+     * on the number of files parsed ahead of the consumer.
+     * @throws IOException If a file can not be read.
+     */
+    @Test
+    public void testSameAsSequential() throws IOException {
+        List<Path> files = paths.subList(0, paths.size() - 1);
+        List<Statement> expected = parseSequentially(files);
+        Assert.assertFalse(expected.isEmpty(), "Fixture has no statements");
+        for (int maxInFlight = 1; maxInFlight <= files.size() + 1;
+                maxInFlight++) {
+            List<Statement> combined = new ArrayList<>();
+            List<Path> consumed = new ArrayList<>();
+            ParallelRdfParser.parseFiles(files,
+                    path -> new StatementCollector(),
+                    (path, handler, exception) -> {
+                        Assert.assertNull(exception,
+                                "Exception parsing " + path);
+                        consumed.add(path);
+                        combined.addAll(handler.getStatements());
+                    },
+                    executor, maxInFlight);
+            Assert.assertEquals(consumed, files,
+                    "Results not consumed in the order of the files");
+            Assert.assertEquals(combined, expected,
+                    "Combined statements differ from sequential parse, "
+                    + "with at most " + maxInFlight + " in flight");
+        }
+    }
+
+    /** Test that no more files are parsed ahead of the consumer
+     * than the limit.
+     * @throws IOException If a file can not be read.
+     */
+    @Test
+    public void testInFlightBounded() throws IOException {
+        int maxInFlight = 2;
+        AtomicInteger outstanding = new AtomicInteger();
+        AtomicInteger maxOutstanding = new AtomicInteger();
+        ParallelRdfParser.parseFiles(paths,
+                path -> {
+                    maxOutstanding.accumulateAndGet(
+                            outstanding.incrementAndGet(), Math::max);
+                    return new StatementCollector();
+                },
+                (path, handler, exception) -> outstanding.decrementAndGet(),
+                executor, maxInFlight);
+        Assert.assertEquals(outstanding.get(), 0,
+                "Not all results consumed");
+        Assert.assertEquals(maxOutstanding.get(), maxInFlight,
+                "Wrong number of files in flight");
+    }
+
+    /** Test that a file that can not be parsed is reported to the
+     * consumer, and that the other files are still parsed.
+     * @throws IOException If a file can not be read.
+     */
+    @Test
+    public void testParseError() throws IOException {
+        // The last file of the fixture can not be parsed.
+        Path bad = paths.get(paths.size() - 1);
+        List<Path> consumed = new ArrayList<>();
+        List<Path> failed = new ArrayList<>();
+        List<Statement> combined = new ArrayList<>();
+        List<Path> files = new ArrayList<>(paths.subList(0, 2));
+        files.add(bad);
+        files.add(paths.get(2));
+        ParallelRdfParser.parseFiles(files,
+                path -> new StatementCollector(),
+                (path, handler, exception) -> {
+                    consumed.add(path);
+                    if (exception != null) {
+                        failed.add(path);
+                    } else {
+                        combined.addAll(handler.getStatements());
+                    }
+                },
+                executor, THREADS);
+        Assert.assertEquals(consumed, files, "Not all files consumed");
+        Assert.assertEquals(failed.size(), 1, "Wrong number of failures");
+        Assert.assertEquals(failed.get(0), bad, "Wrong file failed");
+        List<Path> good = new ArrayList<>(files);
+        good.remove(bad);
+        Collection<Statement> expected = parseSequentially(good);
+        Assert.assertEquals(combined, expected,
+                "Statements of other files not parsed");
+    }
+
+}
@@ -0,0 +1,182 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.transform.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.openrdf.model.Model;
+import org.openrdf.model.impl.LinkedHashModel;
+import org.openrdf.model.util.Models;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.UnsupportedRDFormatException;
+import org.openrdf.rio.helpers.StatementCollector;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
+
+/** Tests of the RdfFileSource class. */
+public class TestRdfFileSource {
+
+    /** Turtle data from which the fixture files are generated. */
+    private static final String TURTLE =
+            "@prefix skos: <http://www.w3.org/2004/02/skos/core#> .\n"
+            + "<http://test/c1> a skos:Concept ;\n"
+            + "  skos:prefLabel \"One\"@en, \"Un\"@fr ;\n"
+            + "  skos:narrower <http://test/c2> .\n"
+            + "<http://test/c2> a skos:Concept ;\n"
+            + "  skos:prefLabel \"Two\"@en ;\n"
+            + "  skos:broader <http://test/c1> .\n";
+
+    /** The number of statements in {@link #TURTLE}. */
+    private static final int STATEMENT_COUNT = 7;
+
+    /** A temporary directory that contains the fixture. */
+    private Path tempDir;
+
+    /** The statements of the fixture. */
+    private Model model;
+
+    /** Create the temporary directory, and parse the Turtle data.
+     * @throws IOException If the directory can not be created.
+     * @throws RDFParseException If the Turtle data can not be parsed.
+     */
+    @BeforeClass
+    public void createFixture() throws IOException, RDFParseException {
+        tempDir = Files.createTempDirectory("TestRdfFileSource");
+        model = Rio.parse(new StringReader(TURTLE), "",
+                RDFFormat.TURTLE);
+        Assert.assertEquals(model.size(), STATEMENT_COUNT,
+                "Wrong number of statements in fixture");
+    }
+
+    /** Remove the temporary directory.
+     * @throws IOException If the directory can not be removed.
+     */
+    @AfterClass
+    public void removeFixture() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(Comparator.reverseOrder()).
+                forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /** Write the statements of the fixture to a file, using
+     * {@link RegistryFileUtils#newOutputStream(Path)}, so that the file
+     * is compressed if its name ends with ".gz".
+     * @param fileName The name of the file.
+     * @param format The format in which to write the file.
+     * @return The path of the file.
+     * @throws IOException If the file can not be written.
+     * @throws RDFHandlerException If the statements can not be written.
+     */
+    private Path writeFile(final String fileName, final RDFFormat format)
+            throws IOException, RDFHandlerException {
+        Path path = tempDir.resolve(fileName);
+        try (OutputStream os = RegistryFileUtils.newOutputStream(path)) {
+            Rio.write(model, os, format);
+        }
+        return path;
+    }
+
+    /** Parse a file using RdfFileSource, and check that the
+     * statements and the statistics are as expected.
+     * @param path The path of the file.
+     * @param expectedBytes The expected number of bytes parsed.
+     * @throws IOException If the file can not be read.
+     * @throws RDFParseException If the file can not be parsed.
+     * @throws RDFHandlerException If the handler reports an error.
+     */
+    private void parseAndCheck(final Path path, final long expectedBytes)
+            throws IOException, RDFParseException, RDFHandlerException {
+        Model parsed = new LinkedHashModel();
+        RdfFileSource.Statistics statistics =
+                RdfFileSource.parse(path, new StatementCollector(parsed));
+        Assert.assertTrue(Models.isomorphic(parsed, model),
+                "Statements differ: " + path);
+        Assert.assertEquals(statistics.getPath(), path, "Wrong path");
+        Assert.assertEquals(statistics.getStatements(), STATEMENT_COUNT,
+                "Wrong number of statements: " + path);
+        Assert.assertEquals(statistics.getBytes(), expectedBytes,
+                "Wrong number of bytes: " + path);
+    }
+
+    /** Test that the format of a file is determined by the extension
+     * of its name.
+     * @throws IOException If a file can not be written or read.
+     * @throws RDFParseException If a file can not be parsed.
+     * @throws RDFHandlerException If the handler reports an error.
+     */
+    @Test
+    public void testFormatDetection() throws IOException,
+            RDFParseException, RDFHandlerException {
+        RDFFormat[] formats = {RDFFormat.TURTLE, RDFFormat.RDFXML,
+            RDFFormat.NTRIPLES, RDFFormat.JSONLD};
+        for (RDFFormat format : formats) {
+            Path path = writeFile("data." + format.getDefaultFileExtension(),
+                    format);
+            parseAndCheck(path, Files.size(path));
+        }
+    }
+
+    /** Test that a file stored gzip-compressed is decompressed
+     * before it is parsed, that its format is determined by the
+     * extension that precedes ".gz", and that the number of bytes
+     * reported is the number of uncompressed bytes.
+     * @throws IOException If a file can not be written or read.
+     * @throws RDFParseException If a file can not be parsed.
+     * @throws RDFHandlerException If the handler reports an error.
+     */
+    @Test
+    public void testGzip() throws IOException,
+            RDFParseException, RDFHandlerException {
+        Path path = writeFile("gzip.ttl", RDFFormat.TURTLE);
+        Path gzPath = writeFile("gzip.ttl.gz", RDFFormat.TURTLE);
+        Assert.assertNotEquals(Files.size(gzPath), Files.size(path),
+                "File not compressed");
+        parseAndCheck(gzPath, Files.size(path));
+
+        Path rdfXmlGzPath = writeFile("gzip.rdf.gz", RDFFormat.RDFXML);
+        parseAndCheck(rdfXmlGzPath, Files.size(writeFile("gzip.rdf",
+                RDFFormat.RDFXML)));
+    }
+
+    /** Test that parsing a file, the format of which can not be
+     * determined from its name, fails.
+     * @throws IOException If a file can not be written or read.
+     * @throws RDFParseException If a file can not be parsed.
+     * @throws RDFHandlerException If the handler reports an error.
+     */
+    @Test
+    public void testUnknownFormat() throws IOException,
+            RDFParseException, RDFHandlerException {
+        for (String fileName : new String[] {"data.txt", "data.txt.gz",
+            "data"}) {
+            Path path = tempDir.resolve(fileName);
+            try (OutputStream os = RegistryFileUtils.newOutputStream(path)) {
+                os.write(TURTLE.getBytes(StandardCharsets.UTF_8));
+            }
+            try {
+                RdfFileSource.parse(path,
+                        new StatementCollector(new LinkedHashModel()));
+                Assert.fail("No exception for unknown format: " + fileName);
+            } catch (UnsupportedRDFormatException e) {
+                Assert.assertTrue(e.getMessage().contains(path.toString()),
+                        "Exception does not name the file: " + fileName);
+            }
+        }
+    }
+
+}
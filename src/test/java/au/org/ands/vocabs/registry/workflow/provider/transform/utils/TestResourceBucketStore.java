@@ -0,0 +1,281 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.provider.transform.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Tests of the ResourceBucketStore class. Each test compares the
+ * results of a store that is forced to write runs to disk,
+ * using a small spill threshold, with those of a store that
+ * keeps everything in memory. */
+public class TestResourceBucketStore {
+
+    /** The name of the field that may have only one value. */
+    private static final String SINGLE_VALUED = "title";
+
+    /** The names of the fields used in the generated data. */
+    private static final String[] FIELDS = {"label", SINGLE_VALUED, "type"};
+
+    /** The spill threshold used by stores that are to write runs. */
+    private static final int SPILL_THRESHOLD = 7;
+
+    /** A temporary directory within which the stores write their runs. */
+    private Path tempDir;
+
+    /** Create the temporary directory.
+     * @throws IOException If the directory can not be created.
+     */
+    @BeforeClass
+    public void createTempDir() throws IOException {
+        tempDir = Files.createTempDirectory("TestResourceBucketStore");
+    }
+
+    /** Remove the temporary directory.
+     * @throws IOException If the directory can not be removed.
+     */
+    @AfterClass
+    public void removeTempDir() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(Comparator.reverseOrder()).
+                forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /** Add a value to a store, in the same way as the
+     * ResourceDocs transform provider does.
+     * @param store The store to which the value is to be added.
+     * @param key The key of the resource.
+     * @param field The name of the field.
+     * @param value The value to be added.
+     * @throws IOException If the store has to write a run, and
+     *      writing fails.
+     */
+    private static void add(final ResourceBucketStore store,
+            final String key, final String field, final String value)
+            throws IOException {
+        HashSetValuedHashMap<String, Object> bucket = store.get(key);
+        if (bucket == null) {
+            bucket = new HashSetValuedHashMap<>();
+            store.put(key, bucket);
+        }
+        if (SINGLE_VALUED.equals(field)) {
+            store.markSingleValued(field);
+            bucket.remove(field);
+        }
+        bucket.put(field, value);
+    }
+
+    /** Add pseudo-random values to a store. The same seed always
+     * gives the same values, in the same order.
+     * @param store The store to which the values are to be added.
+     * @param seed The seed of the pseudo-random values.
+     * @param count The number of values to add.
+     * @throws IOException If the store has to write a run, and
+     *      writing fails.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static void addRandom(final ResourceBucketStore store,
+            final long seed, final int count) throws IOException {
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            add(store, "http://test/c" + random.nextInt(60),
+                    FIELDS[random.nextInt(FIELDS.length)],
+                    "v" + random.nextInt(20));
+        }
+    }
+
+    /** Get all of the combined buckets of a store, and check that
+     * no key is handed over more than once.
+     * @param store The store.
+     * @param keys If not null, the keys are added to this list,
+     *      in the order in which they are handed over.
+     * @return The combined buckets of the store.
+     * @throws IOException If there is an error reading a run.
+     */
+    private static TreeMap<String, HashSetValuedHashMap<String, Object>>
+    collect(final ResourceBucketStore store, final List<String> keys)
+            throws IOException {
+        TreeMap<String, HashSetValuedHashMap<String, Object>> result =
+                new TreeMap<>();
+        store.forEachResource((key, bucket) -> {
+            Assert.assertNull(result.put(key, bucket),
+                    "Key handed over more than once: " + key);
+            if (keys != null) {
+                keys.add(key);
+            }
+        });
+        return result;
+    }
+
+    /** Test that the combined buckets of a store that writes runs,
+     * and merges them with various limits on the number of runs
+     * merged at once, are the same as those of a store that keeps
+     * everything in memory, and that they are handed over in
+     * order of their keys.
+     * @throws IOException If there is an error writing or reading a run.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testSpillSameAsInMemory() throws IOException {
+        TreeMap<String, HashSetValuedHashMap<String, Object>> expected;
+        try (ResourceBucketStore inMemory = new ResourceBucketStore(0, null)) {
+            addRandom(inMemory, 1, 1000);
+            Assert.assertEquals(inMemory.getRunCount(), 0,
+                    "In-memory store wrote runs");
+            expected = collect(inMemory, null);
+        }
+        for (int fanIn : new int[] {2, 3, 64}) {
+            try (ResourceBucketStore spilled = new ResourceBucketStore(
+                    SPILL_THRESHOLD, tempDir, fanIn)) {
+                addRandom(spilled, 1, 1000);
+                Assert.assertTrue(spilled.getRunCount() > 3,
+                        "Not enough runs written");
+                List<String> keys = new ArrayList<>();
+                Assert.assertEquals(collect(spilled, keys), expected,
+                        "Merged buckets differ from in-memory buckets, "
+                        + "with fan-in " + fanIn);
+                List<String> sortedKeys = new ArrayList<>(keys);
+                sortedKeys.sort(null);
+                Assert.assertEquals(keys, sortedKeys,
+                        "Merged buckets not in order of key");
+            }
+        }
+    }
+
+    /** Test that when buckets are combined, a value of a single-valued
+     * field from a later run replaces that from an earlier run, and
+     * the values of other fields are accumulated.
+     * @throws IOException If there is an error writing or reading a run.
+     */
+    @Test
+    public void testMarkSingleValued() throws IOException {
+        try (ResourceBucketStore store = new ResourceBucketStore(
+                SPILL_THRESHOLD, tempDir, 2)) {
+            for (int run = 0; run < SPILL_THRESHOLD; run++) {
+                add(store, "a", SINGLE_VALUED, "t" + run);
+                add(store, "a", "label", "l" + run);
+                for (int i = 0; i < SPILL_THRESHOLD; i++) {
+                    add(store, "b" + run + "_" + i, "label", "x");
+                }
+            }
+            Assert.assertTrue(store.getRunCount() > 2,
+                    "Not enough runs written");
+            HashSetValuedHashMap<String, Object> a =
+                    collect(store, null).get("a");
+            Assert.assertNotNull(a, "Bucket missing");
+            Assert.assertEquals(a.get(SINGLE_VALUED).size(), 1,
+                    "Single-valued field has several values");
+            Assert.assertTrue(a.containsMapping(SINGLE_VALUED,
+                    "t" + (SPILL_THRESHOLD - 1)),
+                    "Later value did not replace earlier value");
+            Assert.assertEquals(a.get("label").size(), SPILL_THRESHOLD,
+                    "Values of multi-valued field not accumulated");
+        }
+    }
+
+    /** Test that a replacement bucket replaces all values stored
+     * for its key, whether or not runs have been written.
+     * @throws IOException If there is an error writing or reading a run.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testReplace() throws IOException {
+        HashSetValuedHashMap<String, Object> replacement =
+                new HashSetValuedHashMap<>();
+        replacement.put("label", "replaced");
+        String replacedKey = "http://test/c1";
+        String newKey = "http://test/new";
+        try (ResourceBucketStore inMemory = new ResourceBucketStore(0, null);
+                ResourceBucketStore spilled = new ResourceBucketStore(
+                        SPILL_THRESHOLD, tempDir, 2)) {
+            addRandom(inMemory, 2, 500);
+            addRandom(spilled, 2, 500);
+            Assert.assertTrue(spilled.getRunCount() > 2,
+                    "Not enough runs written");
+            for (ResourceBucketStore store : new ResourceBucketStore[] {
+                inMemory, spilled}) {
+                store.replace(replacedKey, replacement);
+                store.replace(newKey, replacement);
+            }
+            TreeMap<String, HashSetValuedHashMap<String, Object>> expected =
+                    collect(inMemory, null);
+            Assert.assertEquals(expected.get(replacedKey), replacement,
+                    "Bucket not replaced in memory");
+            Assert.assertEquals(expected.get(newKey), replacement,
+                    "New bucket not added in memory");
+            // collect() checks that the replaced key is handed over
+            // only once.
+            Assert.assertEquals(collect(spilled, null), expected,
+                    "Merged buckets with replacements differ from "
+                    + "in-memory buckets");
+        }
+    }
+
+    /** Test that absorbing stores that have written runs gives the
+     * same combined buckets as adding all of their values to
+     * a single store that keeps everything in memory.
+     * @throws IOException If there is an error writing or reading a run.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testAbsorb() throws IOException {
+        TreeMap<String, HashSetValuedHashMap<String, Object>> expected;
+        try (ResourceBucketStore inMemory = new ResourceBucketStore(0, null)) {
+            for (int seed = 10; seed < 14; seed++) {
+                addRandom(inMemory, seed, 300);
+            }
+            expected = collect(inMemory, null);
+        }
+        try (ResourceBucketStore combined = new ResourceBucketStore(
+                SPILL_THRESHOLD, tempDir, 3)) {
+            for (int seed = 10; seed < 14; seed++) {
+                try (ResourceBucketStore store = new ResourceBucketStore(
+                        SPILL_THRESHOLD, tempDir, 3)) {
+                    addRandom(store, seed, 300);
+                    combined.absorb(store);
+                }
+            }
+            Assert.assertEquals(collect(combined, null), expected,
+                    "Absorbed buckets differ from in-memory buckets");
+        }
+    }
+
+    /** Test that closing a store removes all of the files it
+     * has written, including those taken over from other stores
+     * and those written while merging.
+     * @throws IOException If there is an error writing or reading a run.
+     */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testClose() throws IOException {
+        Path parent = tempDir.resolve("close");
+        ResourceBucketStore store = new ResourceBucketStore(
+                SPILL_THRESHOLD, parent, 2);
+        ResourceBucketStore other = new ResourceBucketStore(
+                SPILL_THRESHOLD, parent, 2);
+        addRandom(store, 3, 200);
+        addRandom(other, 4, 200);
+        store.absorb(other);
+        other.close();
+        collect(store, null);
+        store.close();
+        try (Stream<Path> files = Files.list(parent)) {
+            Assert.assertEquals(files.count(), 0L, "Files left behind");
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.registry.workflow.tasks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Tests of {@link TaskUtils#compressBackupFolder(Path, String)}. */
+public class TestCompressBackupFolder {
+
+    /** The project slug used by the tests. */
+    private static final String SLUG = "project";
+
+    /** The name of the manifest file. */
+    private static final String MANIFEST =
+            SLUG + TaskUtils.BACKUP_MANIFEST_SUFFIX;
+
+    /** The temporary backup folder used by each test. */
+    private Path backupDir;
+
+    /** Create the temporary backup folder.
+     * @throws IOException If the folder can not be created.
+     */
+    @BeforeMethod
+    public void createBackupDir() throws IOException {
+        backupDir = Files.createTempDirectory("TestCompressBackupFolder");
+    }
+
+    /** Delete the temporary backup folder and its contents.
+     * @throws IOException If the folder can not be deleted.
+     */
+    @AfterMethod
+    public void deleteBackupDir() throws IOException {
+        try (Stream<Path> paths = Files.walk(backupDir)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).
+                    collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /** Create a file in the backup folder.
+     * @param name The name of the file.
+     * @throws IOException If the file can not be written.
+     */
+    private void writeBackup(final String name) throws IOException {
+        Files.write(backupDir.resolve(name),
+                ("Content of " + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Get the sorted names of the files in the backup folder.
+     * @return The names of the files in the backup folder.
+     * @throws IOException If the folder can not be read.
+     */
+    private List<String> listBackupDir() throws IOException {
+        try (Stream<Path> paths = Files.list(backupDir)) {
+            return paths.map(path -> path.getFileName().toString()).
+                    sorted().collect(Collectors.toList());
+        }
+    }
+
+    /** Get the names of the entries of a ZIP archive in the
+     * backup folder. (The order in which the files are added is not
+     * specified.)
+     * @param zipName The name of the ZIP archive.
+     * @return The sorted names of the entries of the ZIP archive.
+     * @throws IOException If the ZIP archive can not be read.
+     */
+    private List<String> listZip(final String zipName) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (ZipFile zipFile =
+                new ZipFile(backupDir.resolve(zipName).toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                names.add(entries.nextElement().getName());
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /** Read the manifest. The lines are sorted, as the order in which
+     * the files of one run are added is not specified.
+     * @return The sorted lines of the manifest.
+     * @throws IOException If the manifest can not be read.
+     */
+    private List<String> readManifest() throws IOException {
+        List<String> lines = Files.readAllLines(backupDir.resolve(MANIFEST),
+                StandardCharsets.UTF_8);
+        Collections.sort(lines);
+        return lines;
+    }
+
+    /** Sort lines, for comparison with the result of
+     * {@link #readManifest()}.
+     * @param lines The lines to be sorted.
+     * @return The sorted lines.
+     */
+    private static List<String> sorted(final String... lines) {
+        return Arrays.stream(lines).sorted().collect(Collectors.toList());
+    }
+
+    /** Get the names of the timestamped archives in the backup folder.
+     * @return The sorted names of the timestamped archives.
+     * @throws IOException If the folder can not be read.
+     */
+    private List<String> listTimestampedZips() throws IOException {
+        return listBackupDir().stream().
+                filter(name -> name.startsWith(SLUG + "-")
+                        && name.endsWith(".zip")).
+                collect(Collectors.toList());
+    }
+
+    /** Test the first run, in which there is no legacy archive,
+     * and a subsequent incremental run, which adds only the new files
+     * to a new archive, and appends to the manifest.
+     * @throws IOException If there is an error reading or writing files.
+     */
+    @Test
+    public void testFirstAndIncrementalRuns() throws IOException {
+        writeBackup("a.xml");
+        writeBackup("b.xml");
+        // Left over from an interrupted run.
+        writeBackup(SLUG + "-old.zip" + TaskUtils.BACKUP_TEMP_SUFFIX);
+        TaskUtils.compressBackupFolder(backupDir, SLUG);
+
+        List<String> zips = listTimestampedZips();
+        Assert.assertEquals(zips.size(), 1, "Not exactly one archive");
+        String firstZip = zips.get(0);
+        Assert.assertEquals(listBackupDir(), Arrays.asList(firstZip,
+                MANIFEST), "Wrong contents after first run");
+        Assert.assertEquals(listZip(firstZip), Arrays.asList("a.xml",
+                "b.xml"), "Wrong contents of first archive");
+        Assert.assertEquals(readManifest(), sorted(
+                firstZip + "\ta.xml", firstZip + "\tb.xml"),
+                "Wrong manifest after first run");
+
+        // Nothing new to archive.
+        TaskUtils.compressBackupFolder(backupDir, SLUG);
+        Assert.assertEquals(listTimestampedZips(),
+                Collections.singletonList(firstZip),
+                "Archive created with nothing to archive");
+
+        writeBackup("c.xml");
+        TaskUtils.compressBackupFolder(backupDir, SLUG);
+        zips = listTimestampedZips();
+        Assert.assertEquals(zips.size(), 2, "Not exactly two archives");
+        zips.remove(firstZip);
+        String secondZip = zips.get(0);
+        Assert.assertEquals(listZip(firstZip), Arrays.asList("a.xml",
+                "b.xml"), "First archive rewritten");
+        Assert.assertEquals(listZip(secondZip),
+                Collections.singletonList("c.xml"),
+                "Wrong contents of second archive");
+        Assert.assertEquals(readManifest(), sorted(
+                firstZip + "\ta.xml", firstZip + "\tb.xml",
+                secondZip + "\tc.xml"),
+                "Wrong manifest after incremental run");
+    }
+
+    /** Test that the entries of the legacy archive are added to the
+     * manifest when it is created, and that the legacy archive is
+     * left as it is.
+     * @throws IOException If there is an error reading or writing files.
+     */
+    @Test
+    public void testLegacyZip() throws IOException {
+        String legacyZip = SLUG + ".zip";
+        try (ZipOutputStream zipOut = new ZipOutputStream(
+                Files.newOutputStream(backupDir.resolve(legacyZip)))) {
+            for (String name : Arrays.asList("old1.xml", "old2.xml")) {
+                zipOut.putNextEntry(new ZipEntry(name));
+                zipOut.write(name.getBytes(StandardCharsets.UTF_8));
+                zipOut.closeEntry();
+            }
+        }
+        writeBackup("new.xml");
+        TaskUtils.compressBackupFolder(backupDir, SLUG);
+
+        List<String> zips = listTimestampedZips();
+        Assert.assertEquals(zips.size(), 1, "Not exactly one new archive");
+        String newZip = zips.get(0);
+        Assert.assertEquals(listBackupDir(), Arrays.asList(newZip,
+                MANIFEST, legacyZip), "Wrong contents of backup folder");
+        Assert.assertEquals(listZip(legacyZip), Arrays.asList("old1.xml",
+                "old2.xml"), "Legacy archive modified");
+        Assert.assertEquals(readManifest(), sorted(
+                legacyZip + "\told1.xml", legacyZip + "\told2.xml",
+                newZip + "\tnew.xml"), "Wrong manifest");
+    }
+
+}
@@ -648,6 +648,41 @@ public final class ArquillianTestUtils {
         conn.commit();
     }
 
+    /** Load DbUnit test data into a database, where the data
+     * is not in a test file, but has been generated by the caller.
+     * The data is loaded as a {@code FlatXmlDataSet}, in the same way
+     * as by {@link #loadDbUnitTestFile(DatabaseSelector, String)},
+     * including the replacements done by
+     * {@link #addReplacementSubstringsToDataset(ReplacementDataSet)}.
+     * @param dbs The database into which the test data is to be loaded.
+     * @param inputStream An InputStream from which the test data
+     *      is read, in DbUnit's flat XML format.
+     * @throws DatabaseUnitException If a problem with DbUnit.
+     * @throws HibernateException If a problem getting the underlying
+     *          JDBC connection.
+     * @throws IOException If a problem getting test data for DbUnit.
+     * @throws SQLException If DbUnit has a problem performing
+     *           performing JDBC operations.
+     */
+    public static void loadDbUnitTestData(final DatabaseSelector dbs,
+            final InputStream inputStream) throws
+        DatabaseUnitException, HibernateException, IOException, SQLException {
+        Connection conn = getJDBCConnectionForDbUnit(dbs);
+        IDatabaseConnection connection = getIDatabaseConnectionForDbUnit(dbs);
+
+        FlatXmlDataSet xmlDataset = new FlatXmlDataSetBuilder()
+                .setMetaDataSetFromDtd(getResourceAsInputStream(
+                        dbs.getDTDFilename()))
+                .build(inputStream);
+        ReplacementDataSet dataset = new ReplacementDataSet(xmlDataset);
+        addReplacementSubstringsToDataset(dataset);
+        logger.info("doing clean_insert");
+        DatabaseOperation.CLEAN_INSERT.execute(connection, dataset);
+        // Force commit at the JDBC level, as closing the EntityManager
+        // does a rollback!
+        conn.commit();
+    }
+
     /** Load a DbUnit test file into a database as an update.
      * The file is loaded as a {@code FlatXmlDataSet}.
      * To make it more convenient to enter JSON data, the dataset is
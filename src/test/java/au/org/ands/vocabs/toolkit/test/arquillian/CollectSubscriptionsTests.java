@@ -9,6 +9,11 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 import javax.persistence.EntityManager;
@@ -17,6 +22,7 @@ import org.dbunit.DatabaseUnitException;
 import org.hamcrest.MatcherAssert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import org.xmlunit.matchers.CompareMatcher;
@@ -25,7 +31,11 @@ import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.xml.StaxDriver;
 
 import au.org.ands.vocabs.registry.db.context.DBContext;
+import au.org.ands.vocabs.registry.db.dao.VocabularyIdDAO;
+import au.org.ands.vocabs.registry.model.fixedtime.TModelMethods;
+import au.org.ands.vocabs.registry.model.fixedtime.TVocabularyModel;
 import au.org.ands.vocabs.registry.notification.CollectEvents;
+import au.org.ands.vocabs.registry.notification.VocabularyDifferences;
 import au.org.ands.vocabs.registry.notification.email.CollectSubscriptions;
 import au.org.ands.vocabs.registry.notification.email.SubscriberSubscriptionsModel;
 
@@ -48,11 +58,11 @@ public class CollectSubscriptionsTests extends ArquillianBaseTest {
     private static final LocalDateTime NOW_TIME_1 =
             LocalDateTime.of(2017, 10, 1, 10, 0);
 
-//    /** A convenient value to use for the start or end date of a
-//     * reporting period. */
-//    @SuppressWarnings("checkstyle:MagicNumber")
-//    private static final LocalDateTime NOW_TIME_2 =
-//            LocalDateTime.of(2017, 10, 1, 10, 10);
+    /** A convenient value to use for the start or end date of a
+     * reporting period. */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static final LocalDateTime NOW_TIME_2 =
+            LocalDateTime.of(2017, 10, 1, 10, 10);
 
     /** A convenient value to use for the start or end date of a
      * reporting period. */
@@ -60,6 +70,17 @@ public class CollectSubscriptionsTests extends ArquillianBaseTest {
     private static final LocalDateTime NOW_TIME_3 =
             LocalDateTime.of(2017, 10, 1, 10, 20);
 
+    /** A time before any of the test data. */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    private static final LocalDateTime BEFORE_TIME =
+            LocalDateTime.of(2017, 10, 1, 9, 50);
+
+    /** The number of vocabulary Ids for which models are created by
+     * {@link #testCreateTVocabularyModels1()}. It is more than
+     * the number of Ids that TModelBulkLoader puts into each query,
+     * so that the vocabularies are fetched in more than one batch. */
+    private static final int BULK_VOCABULARY_ID_COUNT = 510;
+
     /** XStream serializer for complex data structures.
      * Initialized by a method with {@link BeforeMethod} annotatation. */
     private XStream xstream;
@@ -260,4 +281,146 @@ public class CollectSubscriptionsTests extends ArquillianBaseTest {
                 NOW_TIME_1, NOW_TIME_3);
     }
 
+
+    /** Test that the fixed-time Vocabulary Models created in bulk by
+     * {@link TModelMethods#createTVocabularyModels(EntityManager,
+     * java.util.Collection, LocalDateTime)} are the same as those
+     * created one at a time by {@link
+     * TModelMethods#createTVocabularyModel(EntityManager, Integer,
+     * LocalDateTime)}, and that the vocabulary differences computed
+     * by {@link CollectEvents}, which uses the bulk models, are the
+     * same as those computed using models created one at a time.
+     * The test data has a vocabulary that is updated, one that is
+     * created, and one that is deleted; the Id of the last of these
+     * puts it in the second batch of Ids fetched by the bulk loader.
+     * There is also a vocabulary Id that has no vocabulary instances.
+     * Models are also created in bulk for many invalid vocabulary Ids;
+     * those models must be empty.
+     * @throws DatabaseUnitException If a problem with DbUnit.
+     * @throws IOException If a problem getting test data for DbUnit.
+     * @throws SQLException If DbUnit has a problem performing
+     *           performing JDBC operations.
+     */
+    // '501' is a magic number!
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public void testCreateTVocabularyModels1() throws
+    DatabaseUnitException, IOException, SQLException {
+        String testName = "testCreateTVocabularyModels1";
+        ArquillianTestUtils.clearDatabase(REGISTRY);
+        ArquillianTestUtils.loadDbUnitTestFile(REGISTRY, CLASS_NAME_PREFIX
+                + testName);
+        ArquillianTestUtils.clearDatabase(ROLES);
+        ArquillianTestUtils.loadDbUnitTestFile(ROLES, CLASS_NAME_PREFIX
+                + testName);
+        List<Integer> vocabularyIds = new ArrayList<>();
+        for (int i = 1; i <= BULK_VOCABULARY_ID_COUNT; i++) {
+            vocabularyIds.add(i);
+        }
+        EntityManager em = null;
+        try {
+            em = DBContext.getEntityManager();
+            for (LocalDateTime fixedTime : new LocalDateTime[] {
+                BEFORE_TIME, NOW_TIME_1, NOW_TIME_2, NOW_TIME_3}) {
+                Map<Integer, TVocabularyModel> bulkModels =
+                        TModelMethods.createTVocabularyModels(em,
+                                vocabularyIds, fixedTime);
+                Assert.assertEquals(new ArrayList<>(bulkModels.keySet()),
+                        vocabularyIds,
+                        "Bulk models not in order of vocabulary Ids");
+                for (Integer vocabularyId : vocabularyIds) {
+                    String description = "vocabulary " + vocabularyId
+                            + " at " + fixedTime;
+                    TVocabularyModel bulkModel =
+                            bulkModels.get(vocabularyId);
+                    Assert.assertNotNull(bulkModel,
+                            "No model for " + description);
+                    // A model can only be created by itself for
+                    // a valid vocabulary Id.
+                    if (VocabularyIdDAO.getVocabularyIdById(em,
+                            vocabularyId) == null) {
+                        Assert.assertTrue(bulkModel.isEmpty(),
+                                "Model not empty for " + description);
+                    } else {
+                        assertSameModel(bulkModel,
+                                TModelMethods.createTVocabularyModel(em,
+                                        vocabularyId, fixedTime),
+                                description);
+                    }
+                }
+            }
+
+            CollectEvents collectedEvents =
+                    new CollectEvents(NOW_TIME_1, NOW_TIME_3);
+            Map<Integer, VocabularyDifferences> vocabularyIdMap =
+                    collectedEvents.getVocabularyIdMap();
+            Assert.assertEquals(vocabularyIdMap.keySet(),
+                    new HashSet<>(Arrays.asList(1, 2, 501)),
+                    "Vocabularies with differences");
+            for (Map.Entry<Integer, VocabularyDifferences> entry
+                    : vocabularyIdMap.entrySet()) {
+                VocabularyDifferences vdiff = new VocabularyDifferences();
+                TModelMethods.diff(
+                        TModelMethods.createTVocabularyModel(em,
+                                entry.getKey(), NOW_TIME_1),
+                        TModelMethods.createTVocabularyModel(em,
+                                entry.getKey(), NOW_TIME_3),
+                        vdiff);
+                Assert.assertEquals(
+                        xstream.toXML(entry.getValue().getVocabularyDiffs()),
+                        xstream.toXML(vdiff.getVocabularyDiffs()),
+                        "Vocabulary differences of vocabulary "
+                                + entry.getKey());
+                Assert.assertEquals(
+                        xstream.toXML(entry.getValue().getFieldDiffs()),
+                        xstream.toXML(vdiff.getFieldDiffs()),
+                        "Field differences of vocabulary "
+                                + entry.getKey());
+                Assert.assertEquals(
+                        xstream.toXML(entry.getValue().getVersionDiffs()),
+                        xstream.toXML(vdiff.getVersionDiffs()),
+                        "Version differences of vocabulary "
+                                + entry.getKey());
+            }
+
+            // And so, the subscriber gets notified of all three.
+            CollectSubscriptions collectSubscriptions =
+                    new CollectSubscriptions(em);
+            collectSubscriptions.computeVocabularySubscriptionsForSubscribers(
+                    collectedEvents);
+            Map<Integer, SubscriberSubscriptionsModel>
+            subscriberSubscriptionsModels =
+                collectSubscriptions.getSubscriberSubscriptionsModels();
+            Assert.assertEquals(subscriberSubscriptionsModels.keySet(),
+                    Collections.singleton(1), "Subscribers notified");
+            Assert.assertEquals(subscriberSubscriptionsModels.get(1).
+                    getVocabularyIdMap().keySet(),
+                    new HashSet<>(Arrays.asList(1, 2, 501)),
+                    "Vocabularies notified to subscriber");
+        } finally {
+            if (em != null) {
+                em.close();
+            }
+        }
+    }
+
+    /** Assert that two fixed-time Vocabulary Models are the same.
+     * @param actual The model created in bulk.
+     * @param expected The model created by itself.
+     * @param description A description of the models, for use in
+     *      assertion messages.
+     */
+    private void assertSameModel(final TVocabularyModel actual,
+            final TVocabularyModel expected, final String description) {
+        Assert.assertEquals(actual.isEmpty(), expected.isEmpty(),
+                "isEmpty() of " + description);
+        Assert.assertEquals(actual.describeModel(), expected.describeModel(),
+                "describeModel() of " + description);
+        Assert.assertEquals(
+                xstream.toXML(TModelMethods.getFixedTimeInstance(actual,
+                        true, true, true)),
+                xstream.toXML(TModelMethods.getFixedTimeInstance(expected,
+                        true, true, true)),
+                "Fixed-time instance of " + description);
+    }
 }
@@ -5,13 +5,25 @@ package au.org.ands.vocabs.toolkit.test.arquillian;
 import static au.org.ands.vocabs.toolkit.test.utils.DatabaseSelector.REGISTRY;
 import static au.org.ands.vocabs.toolkit.test.utils.DatabaseSelector.ROLES;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.apache.commons.io.IOUtils;
 import org.hamcrest.MatcherAssert;
 import org.jboss.arquillian.container.test.api.RunAsClient;
 import org.jboss.arquillian.test.api.ArquillianResource;
@@ -21,10 +33,15 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 import org.xmlunit.matchers.CompareMatcher;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 import au.org.ands.vocabs.registry.api.context.ApiPaths;
 import au.org.ands.vocabs.registry.enums.VocabularyStatus;
 import au.org.ands.vocabs.registry.schema.vocabulary201701.Vocabulary;
 import au.org.ands.vocabs.registry.schema.vocabulary201701.VocabularyList;
+import au.org.ands.vocabs.registry.workflow.provider.transform.conceptTree.ConceptTreeIndex;
 import au.org.ands.vocabs.toolkit.test.utils.NetClientUtils;
 
 /** Client-side tests of the Registry API. */
@@ -403,4 +420,246 @@ public class RegistryAPITests extends ArquillianBaseTest {
                 ignoreWhitespace());
     }
 
+    /** Get the language subtag registry.
+     * @param mediaType The MediaType to be requested of the server.
+     * @param gzip Whether to request a gzipped response.
+     * @param ifNoneMatch If not null, the entity tag to be sent
+     *      in an If-None-Match header.
+     * @param expectedStatus The expected status of the response.
+     * @return The entity tag of the response.
+     * @throws IOException If a gzipped response can not be decompressed.
+     */
+    private EntityTag getLanguageSubtagRegistry(final MediaType mediaType,
+            final boolean gzip, final EntityTag ifNoneMatch,
+            final Status expectedStatus) throws IOException {
+        MultivaluedMap<String, Object> headers =
+                new MultivaluedHashMap<>();
+        if (gzip) {
+            headers.add(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+        if (ifNoneMatch != null) {
+            headers.add(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        Response response = null;
+        try {
+            response = NetClientUtils.doGetWithHeaders(baseURL,
+                    ApiPaths.API_UTILITIES + "/"
+                    + ApiPaths.LANGUAGE_SUBTAG_REGISTRY,
+                    mediaType, headers);
+            Assert.assertEquals(response.getStatusInfo().getStatusCode(),
+                    expectedStatus.getStatusCode(),
+                    "getLanguageSubtagRegistry response status");
+            byte[] entity = response.readEntity(byte[].class);
+            if (expectedStatus != Status.OK) {
+                Assert.assertEquals(entity.length, 0,
+                        "getLanguageSubtagRegistry content not empty");
+                return response.getEntityTag();
+            }
+            Assert.assertEquals(response.getMediaType(), mediaType,
+                    "getLanguageSubtagRegistry media type");
+            if (gzip) {
+                Assert.assertEquals(response.getHeaderString(
+                        HttpHeaders.CONTENT_ENCODING), "gzip",
+                        "getLanguageSubtagRegistry content encoding");
+                try (InputStream is = new GZIPInputStream(
+                        new ByteArrayInputStream(entity))) {
+                    entity = IOUtils.toByteArray(is);
+                }
+            } else {
+                Assert.assertNull(response.getHeaderString(
+                        HttpHeaders.CONTENT_ENCODING),
+                        "getLanguageSubtagRegistry content encoding");
+            }
+            Assert.assertTrue(new String(entity, StandardCharsets.UTF_8).
+                    contains("i-klingon"),
+                    "getLanguageSubtagRegistry content");
+            return response.getEntityTag();
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
+    /** Client-side test of getLanguageSubtagRegistry. Each format
+     * of the registry, gzipped and not, is returned with its own
+     * entity tag, and a conditional request that uses that entity tag
+     * gets a "Not Modified" response.
+     * @throws IOException If a gzipped response can not be decompressed.
+     */
+    @Test
+    @RunAsClient
+    public final void testGetLanguageSubtagRegistry1() throws IOException {
+        EntityTag xmlTag = getLanguageSubtagRegistry(
+                MediaType.APPLICATION_XML_TYPE, false, null, Status.OK);
+        Assert.assertNotNull(xmlTag, "No entity tag for XML");
+        EntityTag jsonTag = getLanguageSubtagRegistry(
+                MediaType.APPLICATION_JSON_TYPE, false, null, Status.OK);
+        Assert.assertNotNull(jsonTag, "No entity tag for JSON");
+        Assert.assertNotEquals(jsonTag, xmlTag,
+                "Same entity tag for XML and JSON");
+        EntityTag xmlGzipTag = getLanguageSubtagRegistry(
+                MediaType.APPLICATION_XML_TYPE, true, null, Status.OK);
+        Assert.assertNotNull(xmlGzipTag, "No entity tag for gzipped XML");
+        Assert.assertNotEquals(xmlGzipTag, xmlTag,
+                "Same entity tag for XML and gzipped XML");
+        // The entity tag doesn't change between requests.
+        Assert.assertEquals(getLanguageSubtagRegistry(
+                MediaType.APPLICATION_XML_TYPE, false, null, Status.OK),
+                xmlTag, "Entity tag for XML changed");
+
+        // A matching If-None-Match gets "Not Modified", with the
+        // entity tag.
+        Assert.assertEquals(getLanguageSubtagRegistry(
+                MediaType.APPLICATION_XML_TYPE, false, xmlTag,
+                Status.NOT_MODIFIED),
+                xmlTag, "Entity tag of Not Modified response for XML");
+        Assert.assertEquals(getLanguageSubtagRegistry(
+                MediaType.APPLICATION_JSON_TYPE, false, jsonTag,
+                Status.NOT_MODIFIED),
+                jsonTag, "Entity tag of Not Modified response for JSON");
+        Assert.assertEquals(getLanguageSubtagRegistry(
+                MediaType.APPLICATION_XML_TYPE, true, xmlGzipTag,
+                Status.NOT_MODIFIED),
+                xmlGzipTag,
+                "Entity tag of Not Modified response for gzipped XML");
+
+        // An If-None-Match that doesn't match gets the registry.
+        Assert.assertEquals(getLanguageSubtagRegistry(
+                MediaType.APPLICATION_XML_TYPE, false, jsonTag, Status.OK),
+                xmlTag, "Entity tag for XML after JSON tag");
+        Assert.assertEquals(getLanguageSubtagRegistry(
+                MediaType.APPLICATION_XML_TYPE, true, xmlTag, Status.OK),
+                xmlGzipTag, "Entity tag for gzipped XML after XML tag");
+        Assert.assertEquals(getLanguageSubtagRegistry(
+                MediaType.APPLICATION_JSON_TYPE, false,
+                new EntityTag("other"), Status.OK),
+                jsonTag, "Entity tag for JSON after other tag");
+    }
+
+    /** Get a node of the concept tree of version 1, as loaded by
+     * {@link #testGetVersionArtefactConceptTreeNode1()}.
+     * @param nodeId The node Id of the node.
+     * @param depth The depth of descendants to fetch, or null,
+     *      to use the default depth.
+     * @param expectedStatus The expected status of the response.
+     * @return The content of the response.
+     */
+    private String getConceptTreeNode(final int nodeId, final Integer depth,
+            final Status expectedStatus) {
+        Response response = null;
+        try {
+            response = NetClientUtils.doGetWithAdditionalComponents(baseURL,
+                    ApiPaths.API_RESOURCE + "/" + ApiPaths.VERSIONS + "/1/"
+                    + ApiPaths.VERSION_ARTEFACTS + "/"
+                    + ApiPaths.VERSION_ARTEFACTS_CONCEPT_TREE + "/"
+                    + ApiPaths.CONCEPT_TREE_NODES + "/" + nodeId,
+                    MediaType.APPLICATION_JSON_TYPE,
+                    webTarget -> {
+                        if (depth == null) {
+                            return webTarget;
+                        }
+                        return webTarget.queryParam("depth", depth);
+                    });
+            Assert.assertEquals(response.getStatusInfo().getStatusCode(),
+                    expectedStatus.getStatusCode(),
+                    "getVersionArtefactConceptTreeNode response status "
+                    + "for node " + nodeId + ", depth " + depth);
+            return response.readEntity(String.class);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
+    /** Get the name of the field that contains the children of
+     * a node of a concept tree.
+     * @param nodeId The Id of the node.
+     * @return "forest" for the top-level node, and "children"
+     *      for all other nodes.
+     */
+    private static String childrenField(final int nodeId) {
+        if (nodeId == 0) {
+            return "forest";
+        }
+        return "children";
+    }
+
+    /** Client-side test of getVersionArtefactConceptTreeNode.
+     * Each node of the concept tree is fetched, and compared with
+     * the concept tree file; the whole tree is also fetched, and
+     * compared with the concept tree file.
+     * @throws IOException If there is an error parsing JSON.
+     */
+    @Test
+    @RunAsClient
+    public final void testGetVersionArtefactConceptTreeNode1()
+            throws IOException {
+        String testName = "testGetVersionArtefactConceptTreeNode1";
+        ArquillianTestUtils.clientClearDatabase(REGISTRY, baseURL);
+        ArquillianTestUtils.clientLoadDbUnitTestFile(REGISTRY, baseURL,
+                CLASS_NAME_PREFIX + testName);
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode tree = mapper.readTree(
+                ArquillianTestUtils.getTestFileAsString("test/tests/"
+                        + CLASS_NAME_PREFIX + testName
+                        + "/concepts_tree.json"));
+
+        // The nodes of the tree, in breadth-first order, i.e.,
+        // in order of node Id.
+        List<JsonNode> nodes = new ArrayList<>();
+        nodes.add(tree);
+        for (int i = 0; i < nodes.size(); i++) {
+            JsonNode children = nodes.get(i).get(childrenField(i));
+            if (children != null) {
+                children.forEach(nodes::add);
+            }
+        }
+
+        for (int nodeId = 0; nodeId < nodes.size(); nodeId++) {
+            ObjectNode expected = nodes.get(nodeId).deepCopy();
+            JsonNode children = expected.remove(childrenField(nodeId));
+            int childCount = 0;
+            if (children != null) {
+                childCount = children.size();
+            }
+            expected.put(ConceptTreeIndex.NODE_ID_FIELD, nodeId);
+            expected.put(ConceptTreeIndex.CHILD_COUNT_FIELD, childCount);
+            Assert.assertEquals(mapper.readTree(getConceptTreeNode(nodeId,
+                    0, Status.OK)), expected, "Wrong node " + nodeId);
+        }
+
+        // With the default depth, the top-level resources are
+        // returned without their children.
+        JsonNode top = mapper.readTree(getConceptTreeNode(0, null,
+                Status.OK));
+        Assert.assertEquals(top.get("forest").size(),
+                tree.get("forest").size(), "Wrong number of top resources");
+        for (JsonNode resource : top.get("forest")) {
+            Assert.assertNull(resource.get("children"),
+                    "Children returned beyond the default depth");
+        }
+
+        // With enough depth, the whole tree is returned.
+        JsonNode whole = mapper.readTree(getConceptTreeNode(0,
+                nodes.size(), Status.OK));
+        List<JsonNode> wholeNodes = new ArrayList<>();
+        wholeNodes.add(whole);
+        for (int i = 0; i < wholeNodes.size(); i++) {
+            ObjectNode node = (ObjectNode) wholeNodes.get(i);
+            Assert.assertEquals(node.remove(ConceptTreeIndex.NODE_ID_FIELD).
+                    asInt(), i, "Wrong node Id");
+            node.remove(ConceptTreeIndex.CHILD_COUNT_FIELD);
+            JsonNode children = node.get(childrenField(i));
+            if (children != null) {
+                children.forEach(wholeNodes::add);
+            }
+        }
+        Assert.assertEquals(whole, tree, "Whole tree not returned");
+
+        getConceptTreeNode(nodes.size(), 0, Status.BAD_REQUEST);
+        getConceptTreeNode(0, -1, Status.BAD_REQUEST);
+    }
+
 }
@@ -0,0 +1,229 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.toolkit.test.arquillian;
+
+import static au.org.ands.vocabs.toolkit.test.utils.DatabaseSelector.REGISTRY;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.dbunit.DatabaseUnitException;
+import org.hibernate.HibernateException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import au.org.ands.vocabs.registry.db.context.DBContext;
+import au.org.ands.vocabs.registry.db.dao.BatchJobDAO;
+import au.org.ands.vocabs.registry.db.dao.TaskDAO;
+import au.org.ands.vocabs.registry.db.entity.BatchJob;
+import au.org.ands.vocabs.registry.db.entity.Task;
+import au.org.ands.vocabs.registry.enums.SubtaskOperationType;
+import au.org.ands.vocabs.registry.enums.SubtaskProviderType;
+import au.org.ands.vocabs.registry.enums.TaskStatus;
+import au.org.ands.vocabs.registry.workflow.batch.BatchJobParams;
+import au.org.ands.vocabs.registry.workflow.batch.BatchJobReport;
+import au.org.ands.vocabs.registry.workflow.batch.BatchJobs;
+import au.org.ands.vocabs.registry.workflow.provider.transform.JsonListTransformProvider;
+import au.org.ands.vocabs.registry.workflow.tasks.Subtask;
+
+/** Tests of batch jobs. The subtask used by the tests is the
+ * deletion of the concept list, which succeeds without
+ * needing any harvested data.
+ */
+@Test
+public class RegistryBatchJobTests extends ArquillianBaseTest {
+
+    /** Name of this class, used in paths to test data files. */
+    private static final String CLASS_NAME_PREFIX =
+            "RegistryBatchJobTests.";
+
+    /** Get the status of each of the tasks of a batch job.
+     * @param batchJobId The Id of the batch job.
+     * @return A map of the version Id of each task to its status,
+     *      in the order returned by
+     *      {@link TaskDAO#getTasksForBatchJob(EntityManager, Integer)}.
+     */
+    private Map<Integer, TaskStatus> getTaskStatuses(final int batchJobId) {
+        Map<Integer, TaskStatus> statuses = new LinkedHashMap<>();
+        EntityManager em = DBContext.getEntityManager();
+        try {
+            for (Task dbTask : TaskDAO.getTasksForBatchJob(em, batchJobId)) {
+                statuses.put(dbTask.getVersionId(), dbTask.getStatus());
+            }
+        } finally {
+            em.close();
+        }
+        return statuses;
+    }
+
+    /** Test of creating a batch job, running it, and getting
+     * its report.
+     * @throws DatabaseUnitException If a problem with DbUnit.
+     * @throws HibernateException If a problem getting the underlying
+     *          JDBC connection.
+     * @throws IOException If a problem getting test data for DbUnit.
+     * @throws SQLException If DbUnit has a problem performing
+     *           performing JDBC operations.
+     * @throws InterruptedException If the batch job is interrupted.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public final void testCreateBatchJob1() throws
+    DatabaseUnitException, HibernateException, IOException, SQLException,
+    InterruptedException {
+        String testName = CLASS_NAME_PREFIX + "testCreateBatchJob1";
+        ArquillianTestUtils.clearDatabase(REGISTRY);
+        ArquillianTestUtils.loadDbUnitTestFile(REGISTRY, testName);
+
+        BatchJobParams params = new BatchJobParams();
+        params.setOwner("ANDS");
+        params.setSubtasks(Collections.singletonList(new Subtask(
+                SubtaskProviderType.TRANSFORM, SubtaskOperationType.DELETE,
+                JsonListTransformProvider.class)));
+        BatchJob batchJob = BatchJobs.createBatchJob(params, "TEST");
+        int batchJobId = batchJob.getId();
+
+        // Vocabulary 3 has a different owner, so version 4
+        // is not selected.
+        Map<Integer, TaskStatus> statuses = getTaskStatuses(batchJobId);
+        Assert.assertEquals(statuses.keySet(),
+                new LinkedHashSet<>(Arrays.asList(1, 2, 3)),
+                "Wrong versions selected");
+        Assert.assertTrue(statuses.values().stream().
+                allMatch(s -> s == TaskStatus.NEW), "Tasks not all NEW");
+
+        BatchJobReport report = BatchJobs.getReport(batchJobId);
+        Assert.assertNotNull(report, "No report");
+        Assert.assertEquals(report.getStatus(), TaskStatus.NEW,
+                "Wrong status before run");
+        Assert.assertEquals(report.getVocabularyCount(), 2,
+                "Wrong vocabulary count");
+        Assert.assertEquals(report.getNewCount(), 3, "Wrong new count");
+        Assert.assertEquals(report.getLastRunVocabularyCount(), 0,
+                "Last run vocabulary count before run");
+
+        report = BatchJobs.runBatchJob(batchJobId, 2, false, "TEST");
+        Assert.assertEquals(report.getStatus(), TaskStatus.SUCCESS,
+                "Wrong status after run");
+        Assert.assertEquals(report.getSuccessCount(), 3,
+                "Wrong success count");
+        Assert.assertEquals(report.getNewCount(), 0, "Wrong new count");
+        Assert.assertEquals(report.getLastRunVocabularyCount(), 2,
+                "Wrong last run vocabulary count");
+
+        // The report is saved with the batch job.
+        report = BatchJobs.getReport(batchJobId);
+        Assert.assertEquals(report.getStatus(), TaskStatus.SUCCESS,
+                "Wrong status of saved report");
+        Assert.assertFalse(report.isRunning(), "Still running");
+        Assert.assertEquals(report.getLastRunVocabularyCount(), 2,
+                "Wrong saved last run vocabulary count");
+        Assert.assertEquals(BatchJobDAO.getBatchJobById(batchJobId).
+                getStatus(), TaskStatus.SUCCESS,
+                "Wrong status of batch job");
+        statuses = getTaskStatuses(batchJobId);
+        Assert.assertTrue(statuses.values().stream().
+                allMatch(s -> s == TaskStatus.SUCCESS),
+                "Tasks not all SUCCESS: " + statuses);
+
+        Assert.assertNull(BatchJobs.getReport(batchJobId + 1),
+                "Report for nonexistent batch job");
+    }
+
+    /** Test that a batch job can not be created without
+     * parameters, or without subtasks.
+     */
+    @Test
+    public final void testCreateBatchJobInvalid1() {
+        try {
+            BatchJobs.createBatchJob(null, "TEST");
+            Assert.fail("No exception for null parameters");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(e.getMessage(),
+                    "No batch job parameters specified");
+        }
+        try {
+            BatchJobs.createBatchJob(new BatchJobParams(), "TEST");
+            Assert.fail("No exception for missing subtasks");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(e.getMessage(), "No subtasks specified");
+        }
+    }
+
+    /** Test of resuming an interrupted batch job, first running only
+     * the tasks that have not yet been run, then also retrying the
+     * tasks that failed.
+     * @throws DatabaseUnitException If a problem with DbUnit.
+     * @throws HibernateException If a problem getting the underlying
+     *          JDBC connection.
+     * @throws IOException If a problem getting test data for DbUnit.
+     * @throws SQLException If DbUnit has a problem performing
+     *           performing JDBC operations.
+     * @throws InterruptedException If the batch job is interrupted.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public final void testResumeBatchJob1() throws
+    DatabaseUnitException, HibernateException, IOException, SQLException,
+    InterruptedException {
+        String testName = CLASS_NAME_PREFIX + "testResumeBatchJob1";
+        ArquillianTestUtils.clearDatabase(REGISTRY);
+        ArquillianTestUtils.loadDbUnitTestFile(REGISTRY, testName);
+
+        BatchJobReport report = BatchJobs.getReport(1);
+        Assert.assertEquals(report.getStatus(), TaskStatus.NEW,
+                "Wrong status before resuming");
+        Assert.assertEquals(report.getVocabularyCount(), 3,
+                "Wrong vocabulary count");
+        Assert.assertEquals(report.getNewCount(), 2, "Wrong new count");
+        Assert.assertEquals(report.getSuccessCount(), 1,
+                "Wrong success count");
+        Assert.assertEquals(report.getFailedTaskIds(),
+                Collections.singletonList(2), "Wrong failed tasks");
+
+        // Resume: only tasks 3 and 4 are run. Version 4 has been
+        // deleted, so its task fails.
+        report = BatchJobs.runBatchJob(1, 2, false, "TEST");
+        Assert.assertEquals(report.getLastRunVocabularyCount(), 2,
+                "Wrong last run vocabulary count");
+        Assert.assertEquals(report.getStatus(), TaskStatus.ERROR,
+                "Wrong status after resuming");
+        Assert.assertEquals(report.getNewCount(), 0, "Wrong new count");
+        Assert.assertEquals(report.getSuccessCount(), 2,
+                "Wrong success count");
+        Assert.assertEquals(report.getFailedTaskIds(), Arrays.asList(2, 4),
+                "Wrong failed tasks");
+
+        // Resume again, retrying the failed tasks. Task 2 now succeeds;
+        // task 4 fails again.
+        report = BatchJobs.runBatchJob(1, 2, true, "TEST");
+        Assert.assertEquals(report.getLastRunVocabularyCount(), 2,
+                "Wrong last run vocabulary count when retrying");
+        Assert.assertEquals(report.getSuccessCount(), 3,
+                "Wrong success count when retrying");
+        Assert.assertEquals(report.getFailedTaskIds(),
+                Collections.singletonList(4),
+                "Wrong failed tasks when retrying");
+
+        Map<Integer, TaskStatus> statuses = getTaskStatuses(1);
+        Assert.assertEquals(statuses.get(1), TaskStatus.SUCCESS);
+        Assert.assertEquals(statuses.get(2), TaskStatus.SUCCESS);
+        Assert.assertEquals(statuses.get(3), TaskStatus.SUCCESS);
+        Assert.assertEquals(statuses.get(4), TaskStatus.ERROR);
+        Assert.assertEquals(BatchJobDAO.getBatchJobById(1).getStatus(),
+                TaskStatus.ERROR, "Wrong status of batch job");
+
+        // Resuming once more without retrying runs nothing.
+        report = BatchJobs.runBatchJob(1, 2, false, "TEST");
+        Assert.assertEquals(report.getLastRunVocabularyCount(), 0,
+                "Tasks run after all were complete");
+    }
+
+}
@@ -339,8 +339,8 @@ public class RegistryCheckVocabularyTests extends ArquillianBaseTest {
         em.getTransaction().commit();
         em.close();
 
-        // This test populates the subject resolver, by adding values
-        // to SubjectSources.RESOLVING_SUBJECT_SOURCES.
+        // This test populates the subject resolver, by loading
+        // the in-memory SubjectResolverIndex.
         // We don't want other tests to use it, so we need to reset both
         // before and after.
         SubjectSources.resetResolvingSubjectSources();
@@ -381,8 +381,8 @@ public class RegistryCheckVocabularyTests extends ArquillianBaseTest {
         Assert.assertEquals(subject.getLabel(),
                 "ATMOSPHERE");
 
-        // This test populates the subject resolver, by adding values
-        // to SubjectSources.RESOLVING_SUBJECT_SOURCES.
+        // This test populates the subject resolver, by loading
+        // the in-memory SubjectResolverIndex.
         // We don't want other tests to use it, so we need to reset both
         // before and after.
         SubjectSources.resetResolvingSubjectSources();
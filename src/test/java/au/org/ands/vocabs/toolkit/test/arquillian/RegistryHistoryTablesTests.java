@@ -0,0 +1,296 @@
+/** See the file "LICENSE" for the full license governing this code. */
+
+package au.org.ands.vocabs.toolkit.test.arquillian;
+
+import static au.org.ands.vocabs.toolkit.test.utils.DatabaseSelector.REGISTRY;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+import org.dbunit.DatabaseUnitException;
+import org.hibernate.HibernateException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import au.org.ands.vocabs.registry.db.context.DBContext;
+import au.org.ands.vocabs.registry.db.context.HistoryTables;
+import au.org.ands.vocabs.registry.db.dao.AccessPointDAO;
+import au.org.ands.vocabs.registry.db.dao.VersionDAO;
+import au.org.ands.vocabs.registry.db.dao.VocabularyDAO;
+import au.org.ands.vocabs.registry.db.entity.AccessPoint;
+import au.org.ands.vocabs.registry.db.entity.Version;
+import au.org.ands.vocabs.registry.db.entity.Vocabulary;
+
+/** Tests of the optional history tables of the registry database.
+ */
+@Test
+public class RegistryHistoryTablesTests extends ArquillianBaseTest {
+
+    /** Name of this class, used in paths to test data files. */
+    private static final String CLASS_NAME_PREFIX =
+            "RegistryHistoryTablesTests.";
+
+    /** The times at which the fixed-time queries are made. The test
+     * data has rows that were valid at each of these times. */
+    private static final LocalDateTime[] FIXED_TIMES = {
+        LocalDateTime.of(2016, 3, 1, 0, 0),
+        LocalDateTime.of(2017, 3, 1, 0, 0),
+        LocalDateTime.of(2018, 3, 1, 0, 0),
+    };
+
+    /** The vocabulary Ids used in the test data. */
+    private static final List<Integer> VOCABULARY_IDS = Arrays.asList(1, 2);
+
+    /** The version Ids used in the test data. */
+    private static final List<Integer> VERSION_IDS = Arrays.asList(1, 2, 3, 4);
+
+    /** Create (or drop) the history tables. The statements are the
+     * same as the H2 statements of the changelog
+     * registry-history-tables.xml; the history tables are not
+     * otherwise present in the test database.
+     * @param create If true, create the history tables;
+     *      if false, drop them.
+     */
+    private void createOrDropHistoryTables(final boolean create) {
+        EntityManager em = DBContext.getEntityManager();
+        EntityTransaction txn = em.getTransaction();
+        try {
+            txn.begin();
+            for (String tableName : HistoryTables.getTableNames()) {
+                String historyTableName = tableName
+                        + HistoryTables.HISTORY_TABLE_SUFFIX;
+                if (create) {
+                    em.createNativeQuery("CREATE TABLE " + historyTableName
+                            + " AS SELECT * FROM " + tableName
+                            + " WHERE 1 = 0").executeUpdate();
+                    em.createNativeQuery("ALTER TABLE " + historyTableName
+                            + " ALTER COLUMN id SET NOT NULL").
+                        executeUpdate();
+                    em.createNativeQuery("ALTER TABLE " + historyTableName
+                            + " ADD PRIMARY KEY (id)").executeUpdate();
+                } else {
+                    em.createNativeQuery("DROP TABLE IF EXISTS "
+                            + historyTableName).executeUpdate();
+                }
+            }
+            txn.commit();
+        } finally {
+            if (txn.isActive()) {
+                txn.rollback();
+            }
+            em.close();
+        }
+    }
+
+    /** Describe a list of entities, in a form that can be compared.
+     * The description includes the values of all of the columns, so that
+     * a difference in the mapping of the columns of the main table
+     * and the history table is detected.
+     * @param <T> The entity class.
+     * @param entities The list of entities to be described.
+     * @param describer A function that describes one entity.
+     * @return The sorted list of descriptions of the entities.
+     */
+    private static <T> List<String> describe(final List<T> entities,
+            final Function<T, String> describer) {
+        return entities.stream().map(describer).sorted().
+                collect(Collectors.toList());
+    }
+
+    /** Describe a Vocabulary entity.
+     * @param v The Vocabulary entity to be described.
+     * @return The description of the entity.
+     */
+    private static String describeVocabulary(final Vocabulary v) {
+        return v.getId() + "|" + v.getVocabularyId() + "|" + v.getStartDate()
+                + "|" + v.getEndDate() + "|" + v.getModifiedBy()
+                + "|" + v.getStatus() + "|" + v.getSlug()
+                + "|" + v.getOwner() + "|" + v.getData();
+    }
+
+    /** Describe a Version entity.
+     * @param v The Version entity to be described.
+     * @return The description of the entity.
+     */
+    private static String describeVersion(final Version v) {
+        return v.getId() + "|" + v.getVersionId() + "|" + v.getVocabularyId()
+                + "|" + v.getStartDate() + "|" + v.getEndDate()
+                + "|" + v.getModifiedBy() + "|" + v.getStatus()
+                + "|" + v.getSlug() + "|" + v.getReleaseDate()
+                + "|" + v.getData();
+    }
+
+    /** Describe an AccessPoint entity.
+     * @param ap The AccessPoint entity to be described.
+     * @return The description of the entity.
+     */
+    private static String describeAccessPoint(final AccessPoint ap) {
+        return ap.getId() + "|" + ap.getAccessPointId()
+                + "|" + ap.getVersionId() + "|" + ap.getStartDate()
+                + "|" + ap.getEndDate() + "|" + ap.getModifiedBy()
+                + "|" + ap.getType() + "|" + ap.getSource()
+                + "|" + ap.getData();
+    }
+
+    /** Run all of the queries that read the history tables, and
+     * collect the results. A fresh EntityManager is used, so that
+     * the results are not satisfied from the persistence context of
+     * an earlier run.
+     * @return The descriptions of the results of the queries.
+     */
+    private List<List<String>> runQueries() {
+        List<List<String>> results = new ArrayList<>();
+        EntityManager em = DBContext.getEntityManager();
+        try {
+            for (LocalDateTime fixedTime : FIXED_TIMES) {
+                results.add(describe(VocabularyDAO.
+                        getFixedTimeVocabularyListForVocabularyIds(em,
+                                VOCABULARY_IDS, fixedTime),
+                        RegistryHistoryTablesTests::describeVocabulary));
+                for (Integer vocabularyId : VOCABULARY_IDS) {
+                    results.add(describe(VersionDAO.
+                            getFixedTimeVersionListForVocabulary(em,
+                                    vocabularyId, fixedTime),
+                            RegistryHistoryTablesTests::describeVersion));
+                }
+                for (Integer versionId : VERSION_IDS) {
+                    Version version = VersionDAO.
+                            getFixedTimeVersionByVersionId(em, versionId,
+                                    fixedTime);
+                    List<Version> versions = Collections.emptyList();
+                    if (version != null) {
+                        versions = Collections.singletonList(version);
+                    }
+                    results.add(describe(versions,
+                            RegistryHistoryTablesTests::describeVersion));
+                }
+                results.add(describe(AccessPointDAO.
+                        getFixedTimeAccessPointListForVersionIds(em,
+                                VERSION_IDS, fixedTime),
+                        RegistryHistoryTablesTests::describeAccessPoint));
+            }
+            for (Integer vocabularyId : VOCABULARY_IDS) {
+                Vocabulary vocabulary = VocabularyDAO.
+                        getLastNotDraftVocabularyByVocabularyId(
+                                vocabularyId, em);
+                Assert.assertNotNull(vocabulary,
+                        "No last vocabulary for vocabulary Id "
+                        + vocabularyId);
+                results.add(Collections.singletonList(
+                        describeVocabulary(vocabulary)));
+            }
+        } finally {
+            em.close();
+        }
+        return results;
+    }
+
+    /** Count the rows of a table.
+     * @param tableName The name of the table.
+     * @return The number of rows in the table.
+     */
+    private int countRows(final String tableName) {
+        EntityManager em = DBContext.getEntityManager();
+        try {
+            return ((Number) em.createNativeQuery(
+                    "SELECT COUNT(*) FROM " + tableName).
+                    getSingleResult()).intValue();
+        } finally {
+            em.close();
+        }
+    }
+
+    /** Test that moving historical rows into the history tables does
+     * not change the results of the fixed-time queries, or of
+     * {@link VocabularyDAO#getLastNotDraftVocabularyByVocabularyId(
+     * Integer, EntityManager)}, and that only rows that are no longer
+     * valid are moved.
+     * @throws DatabaseUnitException If a problem with DbUnit.
+     * @throws HibernateException If a problem getting the underlying
+     *          JDBC connection.
+     * @throws IOException If a problem getting test data for DbUnit.
+     * @throws SQLException If DbUnit has a problem performing
+     *           performing JDBC operations.
+     */
+    @Test
+    @SuppressWarnings("checkstyle:MagicNumber")
+    public final void testArchiveHistoryTables1() throws
+    DatabaseUnitException, HibernateException, IOException, SQLException {
+        String testName = CLASS_NAME_PREFIX + "testArchiveHistoryTables1";
+        ArquillianTestUtils.clearDatabase(REGISTRY);
+        ArquillianTestUtils.loadDbUnitTestFile(REGISTRY, testName);
+        createOrDropHistoryTables(true);
+        HistoryTables.setEnabled(true);
+        try {
+            List<List<String>> before = runQueries();
+            // Sanity check that the test data does have rows that
+            // were valid at each of the fixed times. The results for
+            // each fixed time begin with the list of vocabularies.
+            int resultsPerFixedTime = 2 + VOCABULARY_IDS.size()
+                    + VERSION_IDS.size();
+            for (int i = 0; i < FIXED_TIMES.length; i++) {
+                Assert.assertFalse(before.get(i * resultsPerFixedTime).
+                        isEmpty(), "No vocabularies at " + FIXED_TIMES[i]);
+            }
+
+            EntityManager em = DBContext.getEntityManager();
+            EntityTransaction txn = em.getTransaction();
+            int moved;
+            try {
+                txn.begin();
+                moved = HistoryTables.archiveAll(em,
+                        LocalDateTime.of(2019, 1, 1, 0, 0));
+                txn.commit();
+            } finally {
+                if (txn.isActive()) {
+                    txn.rollback();
+                }
+                em.close();
+            }
+            Assert.assertEquals(moved, 9, "Wrong number of rows moved");
+            Assert.assertEquals(countRows(Vocabulary.TABLE_NAME), 1,
+                    "Wrong number of vocabularies remaining");
+            Assert.assertEquals(countRows(Vocabulary.TABLE_NAME
+                    + HistoryTables.HISTORY_TABLE_SUFFIX), 3,
+                    "Wrong number of vocabularies moved");
+            Assert.assertEquals(countRows(Version.TABLE_NAME), 2,
+                    "Wrong number of versions remaining");
+            Assert.assertEquals(countRows(AccessPoint.TABLE_NAME), 1,
+                    "Wrong number of access points remaining");
+
+            List<List<String>> after = runQueries();
+            Assert.assertEquals(after, before,
+                    "Query results changed by archiving");
+
+            // Archiving again moves nothing.
+            em = DBContext.getEntityManager();
+            txn = em.getTransaction();
+            try {
+                txn.begin();
+                moved = HistoryTables.archiveAll(em,
+                        LocalDateTime.of(2019, 1, 1, 0, 0));
+                txn.commit();
+            } finally {
+                if (txn.isActive()) {
+                    txn.rollback();
+                }
+                em.close();
+            }
+            Assert.assertEquals(moved, 0, "Rows moved a second time");
+        } finally {
+            HistoryTables.setEnabled(false);
+            createOrDropHistoryTables(false);
+        }
+    }
+
+}
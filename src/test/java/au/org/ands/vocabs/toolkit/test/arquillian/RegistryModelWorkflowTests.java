@@ -51,6 +51,7 @@ import au.org.ands.vocabs.registry.model.VocabularyModel;
 import au.org.ands.vocabs.registry.schema.vocabulary201701.Vocabulary;
 import au.org.ands.vocabs.registry.solr.EntityIndexer;
 import au.org.ands.vocabs.registry.solr.SearchResourcesIndex;
+import au.org.ands.vocabs.registry.utils.RegistryFileUtils;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskInfo;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskUtils;
 
@@ -1192,8 +1193,12 @@ public class RegistryModelWorkflowTests extends ArquillianBaseTest {
         try (Stream<Path> stream = Files.list(Paths.get(taskPath))) {
             // Use Files::isRegularFile to filter to just files, of which
             // there should be 3. (There is also the harvest_data directory.)
+            // Leave out the gzip-compressed copies and the concept tree
+            // index, which are derived from the version artefact files.
             Assert.assertEquals(stream.
-                    filter(Files::isRegularFile).count(), 3,
+                    filter(Files::isRegularFile).
+                    filter(p -> !RegistryFileUtils.isGzipCompressed(p)).
+                    filter(p -> !p.toString().endsWith(".idx")).count(), 3,
                     "Expected to have 3 regular files for version artefacts");
         }
     }
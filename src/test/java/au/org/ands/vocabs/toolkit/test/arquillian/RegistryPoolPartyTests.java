@@ -19,14 +19,20 @@ import javax.ws.rs.core.Response.Status.Family;
 import org.dbunit.DatabaseUnitException;
 import org.jboss.arquillian.container.test.api.RunAsClient;
 import org.jboss.arquillian.test.api.ArquillianResource;
+import org.pac4j.core.profile.CommonProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.github.tomakehurst.wiremock.client.WireMock;
+
 import au.org.ands.vocabs.registry.api.context.ApiPaths;
+import au.org.ands.vocabs.registry.api.user.GetPoolPartyMetadata;
 import au.org.ands.vocabs.registry.workflow.provider.backup.PoolPartyBackupProvider;
+import au.org.ands.vocabs.registry.workflow.provider.harvest.AdminRestMethods;
 import au.org.ands.vocabs.registry.workflow.tasks.TaskRunner;
+import au.org.ands.vocabs.roles.utils.RolesConstants;
 import au.org.ands.vocabs.toolkit.test.utils.NetClientUtils;
 
 /** Tests of the Registry API methods that get data from PoolParty,
@@ -49,6 +55,11 @@ public class RegistryPoolPartyTests extends ArquillianBaseTest {
     private static final String CLASS_NAME_PREFIX =
             "RegistryPoolPartyTests.";
 
+    /** Path of the PoolParty API method that returns the list of
+     * projects, as stubbed by the mock server. */
+    private static final String POOLPARTY_PROJECTS_PATH =
+            "/PoolParty/api/projects";
+
     /** The base URL of the deployed webapp under test.
      * Injected by Arquillian.
      * For future ref: if instead of being specified as a private
@@ -171,4 +182,100 @@ public class RegistryPoolPartyTests extends ArquillianBaseTest {
                 + "Read timed out");
     }
 
+    /** Get the list of PoolParty projects using the Registry API method,
+     * and check that the mock PoolParty server has been asked for the
+     * list the expected number of times.
+     * @param wireMock The client of the mock PoolParty server.
+     * @param api The instance of the Registry API method class to use.
+     * @param expectedFetches The number of requests for the list that
+     *      the mock PoolParty server is expected to have received
+     *      since its request log was last reset.
+     * @param message The message to use if the number of requests
+     *      is not as expected.
+     * @return The list of projects returned by the Registry API method.
+     */
+    private String getProjectsAndVerifyFetches(final WireMock wireMock,
+            final GetPoolPartyMetadata api, final int expectedFetches,
+            final String message) {
+        Response response = api.getPoolPartyProjects(1);
+        Assert.assertEquals(response.getStatus(),
+                Response.Status.OK.getStatusCode(),
+                "getPoolPartyProjects response status");
+        Assert.assertEquals(wireMock.find(WireMock.getRequestedFor(
+                WireMock.urlEqualTo(POOLPARTY_PROJECTS_PATH))).size(),
+                expectedFetches, message);
+        return (String) response.getEntity();
+    }
+
+    /** Test of the caching of the list of PoolParty projects:
+     * getting the list twice must result in only one request to
+     * PoolParty, and removing the list from the cache using the
+     * administrator API methods must cause it to be fetched again.
+     * Removing entries from the cache requires superuser rights.
+     * @throws DatabaseUnitException If a problem with DbUnit.
+     * @throws IOException If a problem getting test data for DbUnit.
+     * @throws SQLException If DbUnit has a problem performing
+     *           performing JDBC operations.
+     *  */
+    @SuppressWarnings("checkstyle:MagicNumber")
+    @Test
+    public final void testPoolPartyCache1() throws
+    DatabaseUnitException, IOException, SQLException {
+        String testName = CLASS_NAME_PREFIX
+                + "testPoolPartyCache1";
+        ArquillianTestUtils.clearDatabase(ROLES);
+        ArquillianTestUtils.clearDatabase(REGISTRY);
+        ArquillianTestUtils.loadDbUnitTestFile(REGISTRY, testName);
+
+        CommonProfile superuser = new CommonProfile();
+        superuser.addPermission(RolesConstants.AUTH_FUNCTION_SUPERUSER);
+        CommonProfile notSuperuser = new CommonProfile();
+        AdminRestMethods admin = new AdminRestMethods();
+        GetPoolPartyMetadata api = new GetPoolPartyMetadata();
+        // Don't rely on the default WireMock client, which is
+        // configured only for the thread that started the mock server.
+        WireMock wireMock = new WireMock(PoolPartyMockServer.getPort());
+
+        // Start with an empty cache, as other tests may have
+        // filled it, and with an empty request log.
+        Assert.assertEquals(admin.invalidateAll(superuser).getStatus(),
+                Response.Status.NO_CONTENT.getStatusCode(),
+                "invalidateAll response status");
+        wireMock.resetRequests();
+
+        String projects = getProjectsAndVerifyFetches(wireMock, api, 1,
+                "PoolParty not asked for the list of projects");
+        Assert.assertEquals(getProjectsAndVerifyFetches(wireMock, api, 1,
+                "Cached list of projects not used"), projects,
+                "Cached list of projects differs");
+
+        // Removing entries requires superuser rights.
+        Assert.assertEquals(
+                admin.invalidateServer(notSuperuser, 1).getStatus(),
+                Response.Status.FORBIDDEN.getStatusCode(),
+                "invalidateServer response status when not superuser");
+        Assert.assertEquals(admin.invalidateAll(notSuperuser).getStatus(),
+                Response.Status.FORBIDDEN.getStatusCode(),
+                "invalidateAll response status when not superuser");
+        getProjectsAndVerifyFetches(wireMock, api, 1,
+                "Cached list of projects removed when not superuser");
+
+        // Removing the entries of the server forces a refetch ...
+        Assert.assertEquals(admin.invalidateServer(superuser, 1).getStatus(),
+                Response.Status.NO_CONTENT.getStatusCode(),
+                "invalidateServer response status");
+        Assert.assertEquals(getProjectsAndVerifyFetches(wireMock, api, 2,
+                "List of projects not refetched after invalidateServer"),
+                projects, "Refetched list of projects differs");
+        getProjectsAndVerifyFetches(wireMock, api, 2,
+                "Refetched list of projects not cached");
+
+        // ... as does removing all entries.
+        Assert.assertEquals(admin.invalidateAll(superuser).getStatus(),
+                Response.Status.NO_CONTENT.getStatusCode(),
+                "invalidateAll response status");
+        getProjectsAndVerifyFetches(wireMock, api, 3,
+                "List of projects not refetched after invalidateAll");
+    }
+
 }
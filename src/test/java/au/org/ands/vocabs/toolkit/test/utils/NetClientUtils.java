@@ -8,8 +8,10 @@ import java.util.function.Function;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 
 import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
@@ -121,6 +123,33 @@ public final class NetClientUtils {
         return response;
     }
 
+    /** Perform a GET request of a remote server, with additional
+     * request headers. These can be, for example, the headers
+     * of a conditional request.
+     * Redirects are followed.
+     * @param baseURL The base URL of the server.
+     * @param path The path to the request; appended to {@code baseURL}.
+     * @param responseMediaType The MediaType to be requested of the server.
+     * @param headers The additional headers to be sent with the request.
+     * @return The response from the GET request. It is the responsibility
+     * of the caller to invoke the {@code close()} method on the response.
+     */
+    public static Response doGetWithHeaders(final URL baseURL,
+            final String path, final MediaType responseMediaType,
+            final MultivaluedMap<String, Object> headers) {
+        logger.info("doGetWithHeaders: baseURL = " + baseURL
+                + "; path = " + path + "; headers = " + headers);
+        Client client = RegistryNetUtils.getClient();
+        WebTarget target = client.target(baseURL.toString()).path(path);
+        // Don't use Invocation.Builder.headers(), as that would also
+        // remove the Accept header.
+        Invocation.Builder builder = target.request(responseMediaType);
+        headers.forEach((name, values) ->
+            values.forEach(value -> builder.header(name, value)));
+        Response response = builder.get();
+        return response;
+    }
+
     /** Perform a GET request of a remote server.
      * Basic authentication is used; you must provide a username and password.
      * Additional components are applied to the WebTarget before it